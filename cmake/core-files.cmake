@@ -103,12 +103,16 @@ set(MBGL_CORE_FILES
     # map
     include/mbgl/map/backend.hpp
     include/mbgl/map/camera.hpp
+    include/mbgl/map/frame_statistics.hpp
     include/mbgl/map/map.hpp
     include/mbgl/map/mode.hpp
+    include/mbgl/map/rendered_features_snapshot.hpp
     include/mbgl/map/view.hpp
     src/mbgl/map/backend.cpp
     src/mbgl/map/change.hpp
     src/mbgl/map/map.cpp
+    src/mbgl/map/rendered_features_snapshot.cpp
+    src/mbgl/map/rendered_features_snapshot_impl.hpp
     src/mbgl/map/transform.cpp
     src/mbgl/map/transform.hpp
     src/mbgl/map/transform_state.cpp
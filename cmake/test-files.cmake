@@ -31,6 +31,7 @@ set(MBGL_TEST_FILES
 
     # map
     test/map/map.test.cpp
+    test/map/map_snapshotter.test.cpp
     test/map/transform.test.cpp
 
     # math
@@ -32,6 +32,9 @@ public:
     style::PropertyValue<float> opacity { 1.0f };
     style::PropertyValue<float> width { 1.0f };
     style::PropertyValue<Color> color { Color::black() };
+    // The fraction of the line's length at which it starts and stops being drawn.
+    double trimStart = 0;
+    double trimEnd = 1;
 };
 
 class FillAnnotation {
@@ -0,0 +1,28 @@
+#pragma once
+
+#include <mbgl/util/chrono.hpp>
+
+#include <cstdint>
+
+namespace mbgl {
+
+/** Statistics of a single rendered frame. Update and layout work is done
+    between frames and is attributed to the frame that follows it. */
+struct FrameStatistics {
+    /** CPU time spent updating annotations and source tiles. */
+    Duration updateTime = Duration::zero();
+
+    /** CPU time spent relayouting, cascading and recalculating the style. */
+    Duration layoutTime = Duration::zero();
+
+    /** CPU time spent uploading buffers and issuing the draw calls of the frame. */
+    Duration renderTime = Duration::zero();
+
+    /** Number of tiles with at least one bucket uploaded to the GPU. */
+    uint32_t uploadedTiles = 0;
+
+    /** Whether all tiles required by the frame were loaded and rendered. */
+    bool fullyRendered = false;
+};
+
+} // namespace mbgl
@@ -3,6 +3,7 @@
 #include <mbgl/util/optional.hpp>
 #include <mbgl/util/chrono.hpp>
 #include <mbgl/map/mode.hpp>
+#include <mbgl/map/frame_statistics.hpp>
 #include <mbgl/util/geo.hpp>
 #include <mbgl/util/feature.hpp>
 #include <mbgl/util/noncopyable.hpp>
@@ -13,6 +14,7 @@
 #include <cstdint>
 #include <string>
 #include <functional>
+#include <map>
 #include <vector>
 #include <memory>
 
@@ -23,6 +25,7 @@ class View;
 class FileSource;
 class Scheduler;
 class SpriteImage;
+class RenderedFeaturesSnapshot;
 struct CameraOptions;
 struct AnimationOptions;
 
@@ -63,6 +66,9 @@ public:
     style::TransitionOptions getTransitionOptions() const;
     void setTransitionOptions(const style::TransitionOptions&);
 
+    // Whether style properties were transitioning when the style was last updated.
+    bool isTransitioningStyle() const;
+
     bool hasClass(const std::string&) const;
     std::vector<std::string> getClasses() const;
 
@@ -154,6 +160,8 @@ public:
 
     AnnotationID addAnnotation(const Annotation&);
     void updateAnnotation(AnnotationID, const Annotation&);
+    void appendToAnnotation(AnnotationID, const LineString<double>&);
+    void setAnnotationTrimOffset(AnnotationID, double start, double end);
     void removeAnnotation(AnnotationID);
 
     // Sources
@@ -168,8 +176,15 @@ public:
 
     // Add image, bound to the style
     void addImage(const std::string&, std::unique_ptr<const SpriteImage>);
+    void addImages(std::map<std::string, std::unique_ptr<const SpriteImage>>);
     void removeImage(const std::string&);
 
+    // Style transactions. Source, layer and image changes made between begin and commit are
+    // applied with a single update once the outermost transaction is committed. Committing
+    // without an open transaction throws util::MisuseException.
+    void beginStyleTransaction();
+    void commitStyleTransaction();
+
     // Defaults
     std::string getStyleName() const;
     LatLng getDefaultLatLng() const;
@@ -180,10 +195,18 @@ public:
     // Feature queries
     std::vector<Feature> queryRenderedFeatures(const ScreenCoordinate&, const optional<std::vector<std::string>>& layerIDs = {});
     std::vector<Feature> queryRenderedFeatures(const ScreenBox&,        const optional<std::vector<std::string>>& layerIDs = {});
+    LayerFeatures queryRenderedFeaturesByLayer(const ScreenCoordinate&, const optional<std::vector<std::string>>& layerIDs = {});
+    LayerFeatures queryRenderedFeaturesByLayer(const ScreenBox&,        const optional<std::vector<std::string>>& layerIDs = {});
     AnnotationIDs queryPointAnnotations(const ScreenBox&);
 
+    // Captures the currently rendered features, so they can be queried later or on another thread.
+    std::unique_ptr<RenderedFeaturesSnapshot> snapshotRenderedFeatures(const optional<std::vector<std::string>>& layerIDs = {});
+
     // Memory
     void setSourceTileCacheSize(size_t);
+    // Number of previously loaded styles kept in memory so that switching back to one of them
+    // doesn't download and parse it again.
+    void setStyleCacheSize(size_t);
     void onLowMemory();
 
     // Debug
@@ -194,6 +217,9 @@ public:
     bool isFullyLoaded() const;
     void dumpDebugLogs() const;
 
+    // Statistics of the most recently rendered frame.
+    const FrameStatistics& getFrameStatistics() const;
+
 private:
     class Impl;
     const std::unique_ptr<Impl> impl;
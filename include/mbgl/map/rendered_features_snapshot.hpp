@@ -0,0 +1,28 @@
+#pragma once
+
+#include <mbgl/util/geo.hpp>
+#include <mbgl/util/feature.hpp>
+#include <mbgl/util/noncopyable.hpp>
+
+#include <memory>
+
+namespace mbgl {
+
+/** The features rendered by a map at the time the snapshot was taken, see
+    Map::snapshotRenderedFeatures(). Taking a snapshot keeps the tiles' feature
+    indices alive without copying them; querying the snapshot does not touch the
+    map and may be done on any thread, one query at a time. */
+class RenderedFeaturesSnapshot : private util::noncopyable {
+public:
+    class Impl;
+    explicit RenderedFeaturesSnapshot(std::unique_ptr<Impl>);
+    ~RenderedFeaturesSnapshot();
+
+    LayerFeatures queryRenderedFeaturesByLayer(const ScreenCoordinate&) const;
+    LayerFeatures queryRenderedFeaturesByLayer(const ScreenBox&) const;
+
+private:
+    const std::unique_ptr<Impl> impl;
+};
+
+} // namespace mbgl
@@ -2,10 +2,15 @@
 
 #include <mbgl/style/source.hpp>
 #include <mbgl/util/geojson.hpp>
+#include <mbgl/util/feature.hpp>
 #include <mbgl/util/optional.hpp>
 
 #include <mapbox/geojson.hpp>
 
+#include <exception>
+#include <functional>
+#include <vector>
+
 namespace mapbox {
 
 namespace geojsonvt {
@@ -43,6 +48,21 @@ public:
     void setURL(const std::string& url);
     void setGeoJSON(const GeoJSON&);
 
+    // Parses the data returned by the function and builds the tile index on a worker thread, the
+    // current data keeps rendering meanwhile. The callback is invoked on the calling thread once the
+    // new data is in use, or with the exception thrown by the function. Setting data again cancels
+    // a pending update.
+    void setGeoJSONAsync(std::function<GeoJSON ()>, std::function<void (std::exception_ptr)>);
+
+    // Feature level changes, features are matched by id. Only the loaded tiles that contain a
+    // changed feature are updated. Changes made while an asynchronous update is pending apply to
+    // the current data and are applied again, in order, to the new data once it's parsed.
+    // Adds features, replacing the features with the same id.
+    void addFeatures(const FeatureCollection&);
+    // Replaces the features with the same id, features with an unknown id are ignored.
+    void updateFeatures(const FeatureCollection&);
+    void removeFeatures(const std::vector<FeatureIdentifier>&);
+
     optional<std::string> getURL();
 
     // Private implementation
@@ -4,6 +4,10 @@
 
 #include <mapbox/geometry/feature.hpp>
 
+#include <string>
+#include <utility>
+#include <vector>
+
 namespace mbgl {
 
 using Value = mapbox::geometry::value;
@@ -12,4 +16,7 @@ using PropertyMap = mapbox::geometry::property_map;
 using FeatureIdentifier = mapbox::geometry::identifier;
 using Feature = mapbox::geometry::feature<double>;
 
+// Features grouped by the id of the style layer they were rendered with
+using LayerFeatures = std::vector<std::pair<std::string, std::vector<Feature>>>;
+
 } // namespace mbgl
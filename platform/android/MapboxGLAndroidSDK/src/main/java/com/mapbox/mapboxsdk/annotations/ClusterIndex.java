@@ -0,0 +1,511 @@
+package com.mapbox.mapboxsdk.annotations;
+
+import android.support.annotation.NonNull;
+
+import com.mapbox.mapboxsdk.constants.GeoConstants;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical cluster tree of points, indexed per zoom level.
+ * <p>
+ * Points are projected to spherical mercator and clustered greedily from the maximum zoom level up to the
+ * minimum zoom level: every point or cluster of the level below absorbs the unclustered neighbours within
+ * the cluster radius. Each level is stored in a static k-d tree, so querying the clusters of a zoom level
+ * within bounds only visits the nodes of that level close to the query.
+ * </p>
+ * <p>
+ * Nodes are identified by an int id, ids below {@link #getPointCount()} are the input points in the order
+ * they were passed, the other ids are clusters.
+ * </p>
+ */
+class ClusterIndex {
+
+    private static final int NODE_SIZE = 64;
+
+    private final int pointCount;
+    private final int minZoom;
+    private final int maxZoom;
+    private final KdTree[] trees;
+
+    // node storage, points first followed by clusters
+    private int nodeCount;
+    private double[] xs;
+    private double[] ys;
+    private int[] counts;
+    private int[] zooms;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] originZooms;
+
+    /**
+     * Builds the cluster tree, this is expensive for large amounts of points and should not be done on the
+     * main thread.
+     *
+     * @param latLngs the latitude/longitude pairs of the points, eg. {lat0, lon0, lat1, lon1, ...}
+     * @param radius  the cluster radius, in pixels
+     * @param extent  the size of a tile, in pixels
+     * @param minZoom the minimum zoom level clusters are generated for
+     * @param maxZoom the maximum zoom level clusters are generated for, points are unclustered above it
+     */
+    ClusterIndex(@NonNull double[] latLngs, int radius, int extent, int minZoom, int maxZoom) {
+        if (latLngs.length % 2 != 0) {
+            throw new IllegalArgumentException("latLngs should contain latitude/longitude pairs");
+        }
+        if (minZoom < 0 || maxZoom < minZoom) {
+            throw new IllegalArgumentException("Invalid zoom range: " + minZoom + " - " + maxZoom);
+        }
+
+        this.pointCount = latLngs.length / 2;
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        this.trees = new KdTree[maxZoom + 2];
+
+        allocate(Math.max(pointCount * 2, 16));
+        int[] level = new int[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            level[i] = addNode(lngX(latLngs[i * 2 + 1]), latY(latLngs[i * 2]), 1, Integer.MAX_VALUE);
+        }
+
+        trees[maxZoom + 1] = new KdTree(level, xs, ys);
+        for (int zoom = maxZoom; zoom >= minZoom; zoom--) {
+            level = cluster(level, trees[zoom + 1], radius / (extent * Math.pow(2, zoom)), zoom);
+            trees[zoom] = new KdTree(level, xs, ys);
+        }
+    }
+
+    /**
+     * Queries the points and clusters of a zoom level within bounds.
+     *
+     * @param west  the western longitude of the bounds
+     * @param south the southern latitude of the bounds
+     * @param east  the eastern longitude of the bounds
+     * @param north the northern latitude of the bounds
+     * @param zoom  the zoom level
+     * @return the ids of the points and clusters found
+     */
+    @NonNull
+    int[] getClusters(double west, double south, double east, double north, int zoom) {
+        KdTree tree = trees[clampZoom(zoom)];
+        IntList result = new IntList();
+        if (west > east) {
+            // bounds are crossing the antimeridian
+            tree.range(lngX(west), latY(north), 1, latY(south), result);
+            tree.range(0, latY(north), lngX(east), latY(south), result);
+        } else {
+            tree.range(lngX(west), latY(north), lngX(east), latY(south), result);
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Returns the points and clusters a cluster was made of, these are shown at the next zoom level.
+     *
+     * @param clusterId the id of the cluster
+     * @return the ids of the children, empty for a point
+     */
+    @NonNull
+    int[] getChildren(int clusterId) {
+        checkId(clusterId);
+        IntList result = new IntList();
+        for (int child = firstChildren[clusterId]; child != -1; child = nextSiblings[child]) {
+            result.add(child);
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Returns all points contained in a cluster.
+     *
+     * @param clusterId the id of the cluster
+     * @return the ids of the points, the id itself for a point
+     */
+    @NonNull
+    int[] getLeaves(int clusterId) {
+        checkId(clusterId);
+        IntList result = new IntList();
+        IntList stack = new IntList();
+        stack.add(clusterId);
+        int id;
+        while (stack.size > 0) {
+            id = stack.values[--stack.size];
+            if (id < pointCount) {
+                result.add(id);
+                continue;
+            }
+            for (int child = firstChildren[id]; child != -1; child = nextSiblings[child]) {
+                stack.add(child);
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Returns the zoom level at which a cluster splits into its children.
+     *
+     * @param clusterId the id of the cluster
+     * @return the expansion zoom level
+     */
+    int getExpansionZoom(int clusterId) {
+        checkId(clusterId);
+        if (clusterId < pointCount) {
+            return minZoom;
+        }
+        return Math.min(originZooms[clusterId] + 1, maxZoom + 1);
+    }
+
+    boolean isCluster(int id) {
+        checkId(id);
+        return id >= pointCount;
+    }
+
+    int getPointCount(int id) {
+        checkId(id);
+        return counts[id];
+    }
+
+    double getLatitude(int id) {
+        checkId(id);
+        double y2 = (180 - ys[id] * 360) * Math.PI / 180;
+        return 360 * Math.atan(Math.exp(y2)) / Math.PI - 90;
+    }
+
+    double getLongitude(int id) {
+        checkId(id);
+        return (xs[id] - 0.5) * 360;
+    }
+
+    int getPointCount() {
+        return pointCount;
+    }
+
+    int getMinZoom() {
+        return minZoom;
+    }
+
+    int getMaxZoom() {
+        return maxZoom;
+    }
+
+    private int[] cluster(int[] level, KdTree tree, double radius, int zoom) {
+        IntList next = new IntList();
+        IntList neighbours = new IntList();
+        IntList absorbed = new IntList();
+        int id;
+        int neighbour;
+        int count;
+        double weightedX;
+        double weightedY;
+        for (int i = 0; i < level.length; i++) {
+            id = level[i];
+            if (zooms[id] <= zoom) {
+                // already absorbed by a cluster at this zoom level
+                continue;
+            }
+            zooms[id] = zoom;
+
+            neighbours.size = 0;
+            absorbed.size = 0;
+            tree.within(xs[id], ys[id], radius, neighbours);
+
+            count = counts[id];
+            weightedX = xs[id] * count;
+            weightedY = ys[id] * count;
+            for (int j = 0; j < neighbours.size; j++) {
+                neighbour = neighbours.values[j];
+                if (zooms[neighbour] <= zoom) {
+                    continue;
+                }
+                zooms[neighbour] = zoom;
+                count += counts[neighbour];
+                weightedX += xs[neighbour] * counts[neighbour];
+                weightedY += ys[neighbour] * counts[neighbour];
+                absorbed.add(neighbour);
+            }
+
+            if (absorbed.size == 0) {
+                next.add(id);
+                continue;
+            }
+
+            int cluster = addNode(weightedX / count, weightedY / count, count, Integer.MAX_VALUE);
+            originZooms[cluster] = zoom;
+            link(cluster, id);
+            for (int j = 0; j < absorbed.size; j++) {
+                link(cluster, absorbed.values[j]);
+            }
+            next.add(cluster);
+        }
+        return next.toArray();
+    }
+
+    private void link(int parent, int child) {
+        nextSiblings[child] = firstChildren[parent];
+        firstChildren[parent] = child;
+    }
+
+    private int addNode(double x, double y, int count, int zoom) {
+        if (nodeCount == xs.length) {
+            allocate(nodeCount * 2);
+        }
+        int id = nodeCount++;
+        xs[id] = x;
+        ys[id] = y;
+        counts[id] = count;
+        zooms[id] = zoom;
+        firstChildren[id] = -1;
+        nextSiblings[id] = -1;
+        originZooms[id] = maxZoom + 1;
+        return id;
+    }
+
+    private void allocate(int capacity) {
+        if (xs == null) {
+            xs = new double[capacity];
+            ys = new double[capacity];
+            counts = new int[capacity];
+            zooms = new int[capacity];
+            firstChildren = new int[capacity];
+            nextSiblings = new int[capacity];
+            originZooms = new int[capacity];
+            return;
+        }
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        zooms = Arrays.copyOf(zooms, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        originZooms = Arrays.copyOf(originZooms, capacity);
+    }
+
+    private int clampZoom(int zoom) {
+        return Math.max(minZoom, Math.min(zoom, maxZoom + 1));
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= nodeCount) {
+            throw new IllegalArgumentException("Unknown cluster id: " + id);
+        }
+    }
+
+    private static double lngX(double longitude) {
+        return longitude / 360 + 0.5;
+    }
+
+    private static double latY(double latitude) {
+        double constrainedLatitude = Math.min(Math.max(latitude, GeoConstants.MIN_LATITUDE), GeoConstants.MAX_LATITUDE);
+        double sin = Math.sin(constrainedLatitude * Math.PI / 180);
+        double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+        return Math.min(Math.max(y, 0), 1);
+    }
+
+    /**
+     * Static k-d tree over a subset of the nodes, sorted in place on construction.
+     */
+    private static class KdTree {
+
+        private final int[] ids;
+        private final double[] coords;
+
+        KdTree(int[] ids, double[] xs, double[] ys) {
+            this.ids = ids.clone();
+            this.coords = new double[ids.length * 2];
+            for (int i = 0; i < ids.length; i++) {
+                coords[i * 2] = xs[ids[i]];
+                coords[i * 2 + 1] = ys[ids[i]];
+            }
+            sort(0, ids.length - 1, 0);
+        }
+
+        void range(double minX, double minY, double maxX, double maxY, IntList result) {
+            IntList stack = new IntList();
+            stack.add(0);
+            stack.add(ids.length - 1);
+            stack.add(0);
+
+            int left;
+            int right;
+            int axis;
+            int middle;
+            double x;
+            double y;
+            while (stack.size > 0) {
+                axis = stack.values[--stack.size];
+                right = stack.values[--stack.size];
+                left = stack.values[--stack.size];
+
+                if (right - left <= NODE_SIZE) {
+                    for (int i = left; i <= right; i++) {
+                        x = coords[i * 2];
+                        y = coords[i * 2 + 1];
+                        if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                            result.add(ids[i]);
+                        }
+                    }
+                    continue;
+                }
+
+                middle = (left + right) >> 1;
+                x = coords[middle * 2];
+                y = coords[middle * 2 + 1];
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    result.add(ids[middle]);
+                }
+
+                if (axis == 0 ? minX <= x : minY <= y) {
+                    stack.add(left);
+                    stack.add(middle - 1);
+                    stack.add(1 - axis);
+                }
+                if (axis == 0 ? maxX >= x : maxY >= y) {
+                    stack.add(middle + 1);
+                    stack.add(right);
+                    stack.add(1 - axis);
+                }
+            }
+        }
+
+        void within(double qx, double qy, double radius, IntList result) {
+            IntList stack = new IntList();
+            stack.add(0);
+            stack.add(ids.length - 1);
+            stack.add(0);
+
+            double radiusSquared = radius * radius;
+            int left;
+            int right;
+            int axis;
+            int middle;
+            double x;
+            double y;
+            while (stack.size > 0) {
+                axis = stack.values[--stack.size];
+                right = stack.values[--stack.size];
+                left = stack.values[--stack.size];
+
+                if (right - left <= NODE_SIZE) {
+                    for (int i = left; i <= right; i++) {
+                        if (distanceSquared(coords[i * 2], coords[i * 2 + 1], qx, qy) <= radiusSquared) {
+                            result.add(ids[i]);
+                        }
+                    }
+                    continue;
+                }
+
+                middle = (left + right) >> 1;
+                x = coords[middle * 2];
+                y = coords[middle * 2 + 1];
+                if (distanceSquared(x, y, qx, qy) <= radiusSquared) {
+                    result.add(ids[middle]);
+                }
+
+                if (axis == 0 ? qx - radius <= x : qy - radius <= y) {
+                    stack.add(left);
+                    stack.add(middle - 1);
+                    stack.add(1 - axis);
+                }
+                if (axis == 0 ? qx + radius >= x : qy + radius >= y) {
+                    stack.add(middle + 1);
+                    stack.add(right);
+                    stack.add(1 - axis);
+                }
+            }
+        }
+
+        private void sort(int left, int right, int axis) {
+            if (right - left <= NODE_SIZE) {
+                return;
+            }
+            int middle = (left + right) >> 1;
+            select(middle, left, right, axis);
+            sort(left, middle - 1, 1 - axis);
+            sort(middle + 1, right, 1 - axis);
+        }
+
+        private void select(int k, int left, int right, int axis) {
+            // quickselect with a median of three pivot, partitions around the k-th element on axis
+            while (right > left) {
+                int middle = (left + right) >> 1;
+                if (coord(middle, axis) < coord(left, axis)) {
+                    swap(middle, left);
+                }
+                if (coord(right, axis) < coord(left, axis)) {
+                    swap(right, left);
+                }
+                if (coord(right, axis) < coord(middle, axis)) {
+                    swap(right, middle);
+                }
+                double pivot = coord(middle, axis);
+
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (coord(i, axis) < pivot) {
+                        i++;
+                    }
+                    while (coord(j, axis) > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i, j);
+                        i++;
+                        j--;
+                    }
+                }
+
+                if (k <= j) {
+                    right = j;
+                } else if (k >= i) {
+                    left = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private double coord(int index, int axis) {
+            return coords[index * 2 + axis];
+        }
+
+        private void swap(int i, int j) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+
+            double coord = coords[i * 2];
+            coords[i * 2] = coords[j * 2];
+            coords[j * 2] = coord;
+
+            coord = coords[i * 2 + 1];
+            coords[i * 2 + 1] = coords[j * 2 + 1];
+            coords[j * 2 + 1] = coord;
+        }
+
+        private static double distanceSquared(double x1, double y1, double x2, double y2) {
+            double dx = x1 - x2;
+            double dy = y1 - y2;
+            return dx * dx + dy * dy;
+        }
+    }
+
+    /**
+     * Growable list of primitive ints.
+     */
+    private static class IntList {
+
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.mapbox.mapboxsdk.annotations;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
@@ -8,11 +9,15 @@ import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
 import android.support.v4.content.ContextCompat;
 import android.util.DisplayMetrics;
+import android.util.LruCache;
 import android.view.WindowManager;
+import timber.log.Timber;
 
 import com.mapbox.mapboxsdk.R;
 import com.mapbox.mapboxsdk.exceptions.TooManyIconsException;
@@ -21,9 +26,25 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
 /**
  * Factory for creating {@link Icon} objects.
+ * <p>
+ * Icons created from an asset, path, file or resource are cached by their source, so requesting the same
+ * source twice returns the same {@link Icon} without decoding the image again. Resources are cached per
+ * screen density and ui mode, as these select the drawable. A source is decoded once at a time, requests
+ * made while it's being decoded share the result. The asynchronous variants decode off the main thread and
+ * deliver the result to an {@link IconReadyCallback} on the main thread.
+ * </p>
  *
  * @see Icon
  */
@@ -33,6 +54,11 @@ public final class IconFactory {
     public static final Bitmap ICON_MARKERVIEW_BITMAP = Bitmap.createBitmap(1, 1, Bitmap.Config.ALPHA_8);
     public static final String ICON_MARKERVIEW_ID = ICON_ID_PREFIX + "marker_view";
 
+    private static final String SOURCE_ASSET = "asset://";
+    private static final String SOURCE_PATH = "path://";
+    private static final String SOURCE_FILE = "file://";
+    private static final String SOURCE_RESOURCE = "resource://";
+
     private Context mContext;
     private static IconFactory sInstance;
     private Icon mDefaultMarker;
@@ -41,6 +67,12 @@ public final class IconFactory {
 
     private int mNextId = 0;
 
+    private final LruCache<String, Icon> mIconCache;
+    private final Map<String, FutureTask<Icon>> mDecodes = new HashMap<>();
+    private final Map<String, List<IconReadyCallback>> mPendingCallbacks = new HashMap<>();
+    private ExecutorService mExecutor;
+    private Handler mHandler;
+
     public static synchronized IconFactory getInstance(@NonNull Context context) {
         if (sInstance == null) {
             sInstance = new IconFactory(context.getApplicationContext());
@@ -67,9 +99,24 @@ public final class IconFactory {
         if (realMetrics != null) {
             mOptions.inScreenDensity = realMetrics.densityDpi;
         }
+
+        // bounded by decoded bitmap size, a sixteenth of the heap available to the application
+        mIconCache = new LruCache<String, Icon>((int) (Runtime.getRuntime().maxMemory() / 16)) {
+            @Override
+            protected int sizeOf(String key, Icon icon) {
+                return icon.getBitmap().getByteCount();
+            }
+        };
+    }
+
+    // used for testing
+    IconFactory(@NonNull Context context, @NonNull ExecutorService executor, @NonNull Handler handler) {
+        this(context);
+        mExecutor = executor;
+        mHandler = handler;
     }
 
-    public Icon fromBitmap(@NonNull Bitmap bitmap) {
+    public synchronized Icon fromBitmap(@NonNull Bitmap bitmap) {
         if (mNextId < 0) {
             throw new TooManyIconsException();
         }
@@ -99,23 +146,17 @@ public final class IconFactory {
     }
 
     public Icon fromResource(@DrawableRes int resourceId) {
-        Drawable drawable = ContextCompat.getDrawable(mContext, resourceId);
-        Bitmap bitmap;
-        if (drawable instanceof BitmapDrawable) {
-            BitmapDrawable bitmapDrawable = (BitmapDrawable) drawable;
-            bitmap = bitmapDrawable.getBitmap();
-        } else {
-            if (drawable.getIntrinsicWidth() <= 0 || drawable.getIntrinsicHeight() <= 0) {
-                bitmap = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
-            } else {
-                bitmap = Bitmap.createBitmap(drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight(), Bitmap.Config.ARGB_8888);
-            }
+        return fromSource(resourceSource(resourceId));
+    }
 
-            Canvas canvas = new Canvas(bitmap);
-            drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
-            drawable.draw(canvas);
-        }
-        return fromBitmap(bitmap);
+    /**
+     * Creates an {@link Icon} from a drawable resource without blocking the calling thread.
+     *
+     * @param resourceId the drawable resource to decode
+     * @param callback   the callback invoked on the main thread with the icon
+     */
+    public void fromResourceAsync(@DrawableRes int resourceId, @NonNull IconReadyCallback callback) {
+        fromSourceAsync(resourceSource(resourceId), callback);
     }
 
     public Icon defaultMarker() {
@@ -132,37 +173,319 @@ public final class IconFactory {
         return mDefaultMarkerView;
     }
 
-    private Icon fromInputStream(@NonNull InputStream is) {
-        Bitmap bitmap = BitmapFactory.decodeStream(is, null, mOptions);
-        return fromBitmap(bitmap);
+    public Icon fromAsset(@NonNull String assetName) {
+        return fromSource(assetSource(assetName));
     }
 
-    public Icon fromAsset(@NonNull String assetName) {
-        InputStream is;
-        try {
-            is = mContext.getAssets().open(assetName);
-        } catch (IOException e) {
-            return null;
-        }
-        return fromInputStream(is);
+    /**
+     * Creates an {@link Icon} from an asset without blocking the calling thread.
+     *
+     * @param assetName the name of the asset to decode
+     * @param callback  the callback invoked on the main thread with the icon
+     */
+    public void fromAssetAsync(@NonNull String assetName, @NonNull IconReadyCallback callback) {
+        fromSourceAsync(assetSource(assetName), callback);
     }
 
     public Icon fromPath(@NonNull String absolutePath) {
-        Bitmap bitmap = BitmapFactory.decodeFile(absolutePath, mOptions);
-        return fromBitmap(bitmap);
+        return fromSource(pathSource(absolutePath));
+    }
+
+    /**
+     * Creates an {@link Icon} from an absolute file path without blocking the calling thread.
+     *
+     * @param absolutePath the path of the image to decode
+     * @param callback     the callback invoked on the main thread with the icon
+     */
+    public void fromPathAsync(@NonNull String absolutePath, @NonNull IconReadyCallback callback) {
+        fromSourceAsync(pathSource(absolutePath), callback);
     }
 
     public Icon fromFile(@NonNull String fileName) {
-        FileInputStream is;
-        try {
-            is = mContext.openFileInput(fileName);
-        } catch (FileNotFoundException e) {
-            return null;
-        }
-        return fromInputStream(is);
+        return fromSource(fileSource(fileName));
+    }
+
+    /**
+     * Creates an {@link Icon} from a file in the application's private storage without blocking the
+     * calling thread.
+     *
+     * @param fileName the name of the file to decode
+     * @param callback the callback invoked on the main thread with the icon
+     */
+    public void fromFileAsync(@NonNull String fileName, @NonNull IconReadyCallback callback) {
+        fromSourceAsync(fileSource(fileName), callback);
+    }
+
+    /**
+     * Removes all icons decoded from an asset, path, file or resource from the cache.
+     */
+    public void clearCache() {
+        mIconCache.evictAll();
     }
 
     public static Icon recreate(@NonNull String iconId, @NonNull Bitmap bitmap) {
         return new Icon(iconId, bitmap);
     }
+
+    private Icon fromSource(final BitmapSource source) {
+        final String key = source.getKey();
+        Icon icon = mIconCache.get(key);
+        if (icon != null) {
+            return icon;
+        }
+
+        FutureTask<Icon> decode;
+        boolean decoding = false;
+        synchronized (mDecodes) {
+            // cached by a decode that completed meanwhile
+            icon = mIconCache.get(key);
+            if (icon != null) {
+                return icon;
+            }
+            decode = mDecodes.get(key);
+            if (decode == null) {
+                decode = new FutureTask<>(new Callable<Icon>() {
+                    @Override
+                    public Icon call() {
+                        Bitmap bitmap = source.decode();
+                        if (bitmap == null) {
+                            return null;
+                        }
+                        Icon decodedIcon = fromBitmap(bitmap);
+                        mIconCache.put(key, decodedIcon);
+                        return decodedIcon;
+                    }
+                });
+                mDecodes.put(key, decode);
+                decoding = true;
+            }
+        }
+
+        if (decoding) {
+            try {
+                decode.run();
+            } finally {
+                synchronized (mDecodes) {
+                    mDecodes.remove(key);
+                }
+            }
+        }
+        return getDecodedIcon(decode);
+    }
+
+    // waits for a decode, run on this thread or another one, and rethrows its failure
+    private static Icon getDecodedIcon(FutureTask<Icon> decode) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return decode.get();
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+                } catch (ExecutionException exception) {
+                    Throwable cause = exception.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void fromSourceAsync(@NonNull final BitmapSource source, @NonNull final IconReadyCallback callback) {
+        final String key = source.getKey();
+        final Icon cachedIcon = mIconCache.get(key);
+        if (cachedIcon != null) {
+            getHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onIconReady(cachedIcon);
+                }
+            });
+            return;
+        }
+
+        synchronized (mPendingCallbacks) {
+            List<IconReadyCallback> callbacks = mPendingCallbacks.get(key);
+            if (callbacks != null) {
+                // the source is already being decoded, share the result
+                callbacks.add(callback);
+                return;
+            }
+            callbacks = new ArrayList<>();
+            callbacks.add(callback);
+            mPendingCallbacks.put(key, callbacks);
+        }
+
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                Icon icon = null;
+                String error = "Unable to decode icon from " + key;
+                try {
+                    icon = fromSource(source);
+                } catch (RuntimeException | OutOfMemoryError exception) {
+                    // a missing resource or a bitmap too large for the heap must not crash the worker thread
+                    Timber.e(exception, error);
+                    error += ": " + exception;
+                }
+
+                List<IconReadyCallback> callbacks;
+                synchronized (mPendingCallbacks) {
+                    callbacks = mPendingCallbacks.remove(key);
+                }
+                deliver(callbacks, icon, error);
+            }
+        });
+    }
+
+    private void deliver(final List<IconReadyCallback> callbacks, final Icon icon, final String error) {
+        getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                for (IconReadyCallback callback : callbacks) {
+                    if (icon != null) {
+                        callback.onIconReady(icon);
+                    } else {
+                        callback.onError(error);
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (mExecutor == null) {
+            mExecutor = Executors.newSingleThreadExecutor();
+        }
+        return mExecutor;
+    }
+
+    private synchronized Handler getHandler() {
+        if (mHandler == null) {
+            mHandler = new Handler(Looper.getMainLooper());
+        }
+        return mHandler;
+    }
+
+    private Bitmap decodeStream(InputStream is) {
+        try {
+            return BitmapFactory.decodeStream(is, null, mOptions);
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+                Timber.w("Unable to close icon stream: " + e.getMessage());
+            }
+        }
+    }
+
+    private BitmapSource assetSource(@NonNull final String assetName) {
+        return new BitmapSource(SOURCE_ASSET + assetName) {
+            @Override
+            Bitmap decode() {
+                try {
+                    return decodeStream(mContext.getAssets().open(assetName));
+                } catch (IOException e) {
+                    return null;
+                }
+            }
+        };
+    }
+
+    private BitmapSource pathSource(@NonNull final String absolutePath) {
+        return new BitmapSource(SOURCE_PATH + absolutePath) {
+            @Override
+            Bitmap decode() {
+                return BitmapFactory.decodeFile(absolutePath, mOptions);
+            }
+        };
+    }
+
+    private BitmapSource fileSource(@NonNull final String fileName) {
+        return new BitmapSource(SOURCE_FILE + fileName) {
+            @Override
+            Bitmap decode() {
+                try {
+                    return decodeStream(mContext.openFileInput(fileName));
+                } catch (FileNotFoundException e) {
+                    return null;
+                }
+            }
+        };
+    }
+
+    private BitmapSource resourceSource(@DrawableRes final int resourceId) {
+        // the drawable a resource resolves to depends on the density and the ui mode
+        Resources resources = mContext.getResources();
+        String key = SOURCE_RESOURCE + resourceId + "?density=" + resources.getDisplayMetrics().densityDpi
+                + "&uiMode=" + resources.getConfiguration().uiMode;
+        return new BitmapSource(key) {
+            @Override
+            Bitmap decode() {
+                Drawable drawable = ContextCompat.getDrawable(mContext, resourceId);
+                if (drawable instanceof BitmapDrawable) {
+                    BitmapDrawable bitmapDrawable = (BitmapDrawable) drawable;
+                    return bitmapDrawable.getBitmap();
+                }
+
+                Bitmap bitmap;
+                if (drawable.getIntrinsicWidth() <= 0 || drawable.getIntrinsicHeight() <= 0) {
+                    bitmap = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+                } else {
+                    bitmap = Bitmap.createBitmap(drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight(), Bitmap.Config.ARGB_8888);
+                }
+
+                Canvas canvas = new Canvas(bitmap);
+                drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
+                drawable.draw(canvas);
+                return bitmap;
+            }
+        };
+    }
+
+    /**
+     * A source an icon bitmap can be decoded from, identified by a cache key.
+     */
+    private abstract static class BitmapSource {
+
+        private final String key;
+
+        BitmapSource(String key) {
+            this.key = key;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        abstract Bitmap decode();
+    }
+
+    /**
+     * Interface definition for a callback invoked when an icon has been decoded asynchronously.
+     */
+    public interface IconReadyCallback {
+
+        /**
+         * Invoked on the main thread with the decoded icon.
+         *
+         * @param icon the icon
+         */
+        void onIconReady(Icon icon);
+
+        /**
+         * Invoked on the main thread when the icon could not be decoded.
+         *
+         * @param error the error message
+         */
+        void onError(String error);
+    }
 }
@@ -3,6 +3,7 @@ package com.mapbox.mapboxsdk.annotations;
 import android.content.res.Resources;
 import android.graphics.PointF;
 import android.support.annotation.LayoutRes;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -251,7 +252,13 @@ public class InfoWindow {
         return this;
     }
 
-    Marker getBoundMarker() {
+    /**
+     * Get the Marker this InfoWindow is shown for.
+     *
+     * @return the bound marker, null if the InfoWindow isn't bound
+     */
+    @Nullable
+    public Marker getBoundMarker() {
         if (mBoundMarker == null) {
             return null;
         }
@@ -261,9 +268,30 @@ public class InfoWindow {
     public void update() {
         MapboxMap mapboxMap = mMapboxMap.get();
         Marker marker = mBoundMarker.get();
+        if (mapboxMap != null && marker != null) {
+            PointF screenLocation = mapboxMap.getProjection().toScreenLocation(marker.getPosition());
+            update(screenLocation.x, screenLocation.y);
+        }
+    }
+
+    /**
+     * Update the position of the InfoWindow from the screen location of its bound marker.
+     * <p>
+     * Used when the screen locations of several markers were projected at once with
+     * {@link com.mapbox.mapboxsdk.maps.Projection#toScreenLocations(double[], float[], int)}.
+     * </p>
+     *
+     * @param x the x screen location of the bound marker
+     * @param y the y screen location of the bound marker
+     */
+    public void update(float x, float y) {
         View view = mView.get();
-        if (mapboxMap != null && marker != null && view != null) {
-            mCoordinates = mapboxMap.getProjection().toScreenLocation(marker.getPosition());
+        if (view != null) {
+            if (mCoordinates == null) {
+                mCoordinates = new PointF(x, y);
+            } else {
+                mCoordinates.set(x, y);
+            }
 
             if (view instanceof InfoWindowView) {
                 view.setX(mCoordinates.x + mViewWidthOffset - mMarkerWidthOffset);
@@ -0,0 +1,452 @@
+package com.mapbox.mapboxsdk.annotations;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.v4.content.ContextCompat;
+
+import com.mapbox.mapboxsdk.R;
+import com.mapbox.mapboxsdk.camera.CameraUpdateFactory;
+import com.mapbox.mapboxsdk.constants.MapboxConstants;
+import com.mapbox.mapboxsdk.exceptions.InvalidMarkerPositionException;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+import com.mapbox.mapboxsdk.maps.MapView;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Interface for clustering markers inside of a MapView.
+ * <p>
+ * Markers set on this class are not added to the map directly. A cluster tree is built from their positions
+ * off the main thread, after which only the markers and clusters of the visible region at the current zoom
+ * level are added to the map. The visible markers are updated when the camera stops moving.
+ * </p>
+ */
+public class MarkerClusterManager {
+
+    // size of a tile in pixels, clusters are computed in the pixel space of the zoom level
+    private static final int TILE_EXTENT = 512;
+
+    private final MapboxMap mapboxMap;
+    private final Map<Integer, Marker> shownMarkers = new HashMap<>();
+    private final Map<Long, Integer> nodeIds = new HashMap<>();
+    private List<BaseMarkerOptions> markerOptions = Collections.emptyList();
+    private ClusterIndex clusterIndex;
+    private ClusterIconProvider clusterIconProvider;
+    private int radius = MapboxConstants.MARKER_CLUSTER_RADIUS;
+    private int maxZoom = MapboxConstants.MARKER_CLUSTER_MAX_ZOOM;
+    private int buildGeneration;
+    private int shownZoom = -1;
+    private LatLngBounds shownBounds;
+    private ExecutorService executor;
+    private Handler handler;
+
+    /**
+     * Creates an instance of MarkerClusterManager.
+     *
+     * @param mapboxMap the MapboxMap associated with the MarkerClusterManager
+     * @param mapView   the MapView associated with the MarkerClusterManager
+     */
+    public MarkerClusterManager(@NonNull MapboxMap mapboxMap, @NonNull MapView mapView) {
+        this(mapboxMap, new DefaultClusterIconProvider(mapView.getContext()), null);
+    }
+
+    // used for testing
+    MarkerClusterManager(@NonNull MapboxMap mapboxMap, @NonNull ClusterIconProvider clusterIconProvider,
+                         ExecutorService executor) {
+        this.mapboxMap = mapboxMap;
+        this.clusterIconProvider = clusterIconProvider;
+        this.executor = executor;
+    }
+
+    /**
+     * Replaces the clustered markers.
+     * <p>
+     * The cluster tree is built asynchronously, the markers currently shown remain on the map until it's ready.
+     * </p>
+     *
+     * @param markers the markers to cluster
+     */
+    public void setMarkers(@NonNull List<? extends BaseMarkerOptions> markers) {
+        markerOptions = new ArrayList<BaseMarkerOptions>(markers);
+        build();
+    }
+
+    /**
+     * Removes all clustered markers and the clusters shown on the map.
+     */
+    public void clear() {
+        buildGeneration++;
+        markerOptions = Collections.emptyList();
+        clusterIndex = null;
+        removeShownMarkers();
+    }
+
+    /**
+     * Sets the radius within which markers are clustered, rebuilds the cluster tree if markers are set.
+     *
+     * @param radius the radius in pixels
+     */
+    public void setRadius(int radius) {
+        if (radius <= 0) {
+            throw new IllegalArgumentException("Cluster radius should be positive, was " + radius);
+        }
+        this.radius = radius;
+        build();
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Sets the maximum zoom level at which markers are clustered, rebuilds the cluster tree if markers are set.
+     *
+     * @param maxZoom the maximum zoom level, markers are never clustered above it
+     */
+    public void setMaxZoom(int maxZoom) {
+        if (maxZoom < MapboxConstants.MINIMUM_ZOOM || maxZoom > MapboxConstants.MAXIMUM_ZOOM) {
+            throw new IllegalArgumentException("Cluster max zoom should be within the supported zoom range, was "
+                    + maxZoom);
+        }
+        this.maxZoom = maxZoom;
+        build();
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * Sets the provider of the icons used for cluster markers.
+     *
+     * @param clusterIconProvider the icon provider
+     */
+    public void setClusterIconProvider(@NonNull ClusterIconProvider clusterIconProvider) {
+        this.clusterIconProvider = clusterIconProvider;
+        removeShownMarkers();
+        update();
+    }
+
+    /**
+     * Returns if a marker on the map represents a cluster of markers.
+     *
+     * @param marker the marker to check
+     * @return true if the marker is a cluster shown by this class
+     */
+    public boolean isCluster(@NonNull Marker marker) {
+        Integer nodeId = nodeIds.get(marker.getId());
+        return nodeId != null && clusterIndex.isCluster(nodeId);
+    }
+
+    /**
+     * Returns the amount of markers represented by a marker shown by this class.
+     *
+     * @param marker the cluster or clustered marker
+     * @return the amount of markers in the cluster, 1 for a single marker
+     */
+    public int getClusterSize(@NonNull Marker marker) {
+        return clusterIndex.getPointCount(getNodeId(marker));
+    }
+
+    /**
+     * Returns the options of all markers represented by a marker shown by this class.
+     *
+     * @param marker the cluster or clustered marker
+     * @return the options of the markers in the cluster
+     */
+    @NonNull
+    public List<BaseMarkerOptions> getClusterLeaves(@NonNull Marker marker) {
+        int[] leaves = clusterIndex.getLeaves(getNodeId(marker));
+        List<BaseMarkerOptions> result = new ArrayList<>(leaves.length);
+        for (int leaf : leaves) {
+            result.add(markerOptions.get(leaf));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the zoom level at which a cluster splits into the markers and clusters it is made of.
+     *
+     * @param marker the cluster
+     * @return the expansion zoom level
+     */
+    public int getClusterExpansionZoom(@NonNull Marker marker) {
+        return clusterIndex.getExpansionZoom(getNodeId(marker));
+    }
+
+    /**
+     * Animates the camera to the position and zoom level at which a cluster splits.
+     *
+     * @param marker the cluster to expand
+     */
+    public void expandCluster(@NonNull Marker marker) {
+        int zoom = getClusterExpansionZoom(marker);
+        mapboxMap.animateCamera(CameraUpdateFactory.newLatLngZoom(marker.getPosition(), zoom));
+    }
+
+    /**
+     * Updates the markers and clusters shown on the map to the visible region and zoom level.
+     * <p>
+     * Markers are queried for a region padded around the visible region, the shown markers are only updated
+     * when the zoom level changes or the visible region leaves the queried region.
+     * </p>
+     */
+    public void update() {
+        if (clusterIndex == null) {
+            return;
+        }
+
+        int zoom = (int) Math.floor(mapboxMap.getCameraPosition().zoom);
+        LatLngBounds bounds = mapboxMap.getProjection().getVisibleRegion().latLngBounds;
+        if (zoom == shownZoom && shownBounds != null && contains(shownBounds, bounds)) {
+            return;
+        }
+
+        double latitudePadding = bounds.getLatitudeSpan() / 2;
+        double longitudePadding = bounds.getLongitudeSpan() / 2;
+        LatLngBounds queryBounds = new LatLngBounds.Builder()
+                .include(new LatLng(Math.min(bounds.getLatNorth() + latitudePadding, 90),
+                        Math.min(bounds.getLonEast() + longitudePadding, 180)))
+                .include(new LatLng(Math.max(bounds.getLatSouth() - latitudePadding, -90),
+                        Math.max(bounds.getLonWest() - longitudePadding, -180)))
+                .build();
+
+        int[] ids = clusterIndex.getClusters(queryBounds.getLonWest(), queryBounds.getLatSouth(),
+                queryBounds.getLonEast(), queryBounds.getLatNorth(), zoom);
+        shownZoom = zoom;
+        shownBounds = queryBounds;
+
+        Set<Integer> visibleIds = new HashSet<>(ids.length);
+        for (int id : ids) {
+            visibleIds.add(id);
+        }
+
+        List<Marker> removedMarkers = new ArrayList<>();
+        Iterator<Map.Entry<Integer, Marker>> iterator = shownMarkers.entrySet().iterator();
+        Map.Entry<Integer, Marker> entry;
+        while (iterator.hasNext()) {
+            entry = iterator.next();
+            if (!visibleIds.contains(entry.getKey())) {
+                removedMarkers.add(entry.getValue());
+                nodeIds.remove(entry.getValue().getId());
+                iterator.remove();
+            }
+        }
+        if (!removedMarkers.isEmpty()) {
+            mapboxMap.removeAnnotations(removedMarkers);
+        }
+
+        List<BaseMarkerOptions> addedOptions = new ArrayList<>();
+        List<Integer> addedIds = new ArrayList<>();
+        for (int id : ids) {
+            if (shownMarkers.containsKey(id)) {
+                continue;
+            }
+            if (clusterIndex.isCluster(id)) {
+                addedOptions.add(new MarkerOptions()
+                        .position(new LatLng(clusterIndex.getLatitude(id), clusterIndex.getLongitude(id)))
+                        .icon(clusterIconProvider.getClusterIcon(clusterIndex.getPointCount(id))));
+            } else {
+                addedOptions.add(markerOptions.get(id));
+            }
+            addedIds.add(id);
+        }
+        if (addedOptions.isEmpty()) {
+            return;
+        }
+
+        List<Marker> addedMarkers = mapboxMap.addMarkers(addedOptions);
+        for (int i = 0; i < addedMarkers.size(); i++) {
+            shownMarkers.put(addedIds.get(i), addedMarkers.get(i));
+            nodeIds.put(addedMarkers.get(i).getId(), addedIds.get(i));
+        }
+    }
+
+    /**
+     * Stops building the cluster tree and drops the results of a build in progress. Called when the MapView is
+     * destroyed.
+     */
+    public void onDestroy() {
+        buildGeneration++;
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (handler != null) {
+            handler.removeCallbacksAndMessages(null);
+        }
+    }
+
+    private void build() {
+        final int generation = ++buildGeneration;
+        if (markerOptions.isEmpty()) {
+            clusterIndex = null;
+            removeShownMarkers();
+            return;
+        }
+
+        final List<BaseMarkerOptions> options = markerOptions;
+        final double[] latLngs = new double[options.size() * 2];
+        LatLng position;
+        for (int i = 0; i < options.size(); i++) {
+            position = options.get(i).position;
+            if (position == null) {
+                throw new InvalidMarkerPositionException();
+            }
+            latLngs[i * 2] = position.getLatitude();
+            latLngs[i * 2 + 1] = position.getLongitude();
+        }
+
+        final int clusterRadius = radius;
+        final int clusterMaxZoom = maxZoom;
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final ClusterIndex index = new ClusterIndex(latLngs, clusterRadius, TILE_EXTENT, 0, clusterMaxZoom);
+                getHandler().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != buildGeneration) {
+                            // markers or options changed while building
+                            return;
+                        }
+                        removeShownMarkers();
+                        clusterIndex = index;
+                        update();
+                    }
+                });
+            }
+        });
+    }
+
+    private void removeShownMarkers() {
+        if (!shownMarkers.isEmpty()) {
+            mapboxMap.removeAnnotations(new ArrayList<>(shownMarkers.values()));
+        }
+        shownMarkers.clear();
+        nodeIds.clear();
+        shownZoom = -1;
+        shownBounds = null;
+    }
+
+    private int getNodeId(Marker marker) {
+        Integer nodeId = nodeIds.get(marker.getId());
+        if (nodeId == null) {
+            throw new IllegalArgumentException("Marker isn't shown by the MarkerClusterManager");
+        }
+        return nodeId;
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor();
+        }
+        return executor;
+    }
+
+    private Handler getHandler() {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        return handler;
+    }
+
+    private static boolean contains(LatLngBounds outer, LatLngBounds inner) {
+        return inner.getLatNorth() <= outer.getLatNorth() && inner.getLatSouth() >= outer.getLatSouth()
+                && inner.getLonEast() <= outer.getLonEast() && inner.getLonWest() >= outer.getLonWest();
+    }
+
+    /**
+     * Interface definition for providing the icon of a cluster marker.
+     */
+    public interface ClusterIconProvider {
+
+        /**
+         * Returns the icon of a cluster.
+         *
+         * @param pointCount the amount of markers in the cluster
+         * @return the icon to show for the cluster
+         */
+        @NonNull
+        Icon getClusterIcon(int pointCount);
+    }
+
+    /**
+     * Draws a circle labelled with the abbreviated marker count, icons are reused per label.
+     */
+    private static class DefaultClusterIconProvider implements ClusterIconProvider {
+
+        private final Context context;
+        private final Map<String, Icon> icons = new HashMap<>();
+        private final Paint circlePaint;
+        private final Paint strokePaint;
+        private final Paint textPaint;
+
+        DefaultClusterIconProvider(Context context) {
+            this.context = context;
+            float density = context.getResources().getDisplayMetrics().density;
+
+            circlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            circlePaint.setColor(ContextCompat.getColor(context, R.color.mapbox_blue));
+
+            strokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            strokePaint.setColor(0xFFFFFFFF);
+            strokePaint.setStyle(Paint.Style.STROKE);
+            strokePaint.setStrokeWidth(2 * density);
+
+            textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            textPaint.setColor(0xFFFFFFFF);
+            textPaint.setTextAlign(Paint.Align.CENTER);
+            textPaint.setTextSize(12 * density);
+        }
+
+        @NonNull
+        @Override
+        public Icon getClusterIcon(int pointCount) {
+            String label = getLabel(pointCount);
+            Icon icon = icons.get(label);
+            if (icon == null) {
+                icon = createIcon(label);
+                icons.put(label, icon);
+            }
+            return icon;
+        }
+
+        private Icon createIcon(String label) {
+            float density = context.getResources().getDisplayMetrics().density;
+            int size = (int) ((24 + 6 * label.length()) * density);
+            Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            float center = size / 2f;
+            canvas.drawCircle(center, center, center - strokePaint.getStrokeWidth(), circlePaint);
+            canvas.drawCircle(center, center, center - strokePaint.getStrokeWidth(), strokePaint);
+            canvas.drawText(label, center, center - (textPaint.descent() + textPaint.ascent()) / 2, textPaint);
+            return IconFactory.getInstance(context).fromBitmap(bitmap);
+        }
+
+        private static String getLabel(int pointCount) {
+            if (pointCount >= 1000000) {
+                return pointCount / 1000000 + "M";
+            } else if (pointCount >= 1000) {
+                return pointCount / 1000 + "k";
+            }
+            return String.valueOf(pointCount);
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package com.mapbox.mapboxsdk.annotations;
 
 import android.content.Context;
-import android.graphics.PointF;
 import android.graphics.RectF;
 import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v4.view.ViewCompat;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -13,15 +13,19 @@ import android.widget.ImageView;
 
 import com.mapbox.mapboxsdk.R;
 import com.mapbox.mapboxsdk.constants.MapboxConstants;
+import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.utils.AnimatorUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Interface for interacting with ViewMarkers objects inside of a MapView.
@@ -35,10 +39,25 @@ public class MarkerViewManager {
     private MapboxMap mapboxMap;
     private MapView mapView;
     private List<MapboxMap.MarkerViewAdapter> markerViewAdapters;
+    private Map<Class, MapboxMap.MarkerViewAdapter> markerViewAdapterMap;
+    private Set<MarkerView> pendingMarkerViews;
+    private long inflationBudget = MapboxConstants.MARKER_VIEW_INFLATION_BUDGET;
+    private boolean inflationScheduled;
+    private MarkerView[] projectedMarkers = new MarkerView[0];
+    private double[] latLngs = new double[0];
+    private float[] screenLocations = new float[0];
     private long viewMarkerBoundsUpdateTime;
     private MapboxMap.OnMarkerViewClickListener onMarkerViewClickListener;
     private ImageMarkerViewAdapter defaultMarkerViewAdapter;
 
+    private final Runnable inflationRunnable = new Runnable() {
+        @Override
+        public void run() {
+            inflationScheduled = false;
+            inflatePendingMarkerViews();
+        }
+    };
+
     /**
      * Creates an instance of MarkerViewManager.
      *
@@ -50,8 +69,11 @@ public class MarkerViewManager {
         this.markerViewAdapters = new ArrayList<>();
         this.mapView = mapView;
         this.markerViewMap = new HashMap<>();
+        this.markerViewAdapterMap = new HashMap<>();
+        this.pendingMarkerViews = new LinkedHashSet<>();
         this.defaultMarkerViewAdapter = new ImageMarkerViewAdapter(mapView.getContext());
         this.markerViewAdapters.add(defaultMarkerViewAdapter);
+        this.markerViewAdapterMap.put(defaultMarkerViewAdapter.getMarkerClass(), defaultMarkerViewAdapter);
     }
 
     /**
@@ -132,10 +154,35 @@ public class MarkerViewManager {
      * </p>
      */
     public void update() {
-        for (final MarkerView marker : markerViewMap.keySet()) {
-            final View convertView = markerViewMap.get(marker);
+        int count = markerViewMap.size();
+        if (count == 0) {
+            return;
+        }
+
+        // project all markers in a single call
+        if (projectedMarkers.length < count) {
+            projectedMarkers = new MarkerView[count];
+            latLngs = new double[count * 2];
+            screenLocations = new float[count * 2];
+        }
+        int index = 0;
+        LatLng position;
+        for (MarkerView marker : markerViewMap.keySet()) {
+            position = marker.getPosition();
+            projectedMarkers[index] = marker;
+            latLngs[index * 2] = position.getLatitude();
+            latLngs[index * 2 + 1] = position.getLongitude();
+            index++;
+        }
+        mapboxMap.getProjection().toScreenLocations(latLngs, screenLocations, count);
+
+        MarkerView marker;
+        View convertView;
+        for (int i = 0; i < count; i++) {
+            marker = projectedMarkers[i];
+            projectedMarkers[i] = null;
+            convertView = markerViewMap.get(marker);
             if (convertView != null) {
-                PointF point = mapboxMap.getProjection().toScreenLocation(marker.getPosition());
                 if (marker.getOffsetX() == MapboxConstants.UNMEASURED) {
                     // ensure view is measured first
                     if (marker.getWidth() == 0) {
@@ -152,8 +199,8 @@ public class MarkerViewManager {
                     marker.setOffset(x, y);
                 }
 
-                convertView.setX(point.x - marker.getOffsetX());
-                convertView.setY(point.y - marker.getOffsetY());
+                convertView.setX(screenLocations[i * 2] - marker.getOffsetX());
+                convertView.setY(screenLocations[i * 2 + 1] - marker.getOffsetY());
 
                 // animate visibility
                 if (marker.isVisible() && convertView.getVisibility() == View.GONE) {
@@ -217,10 +264,9 @@ public class MarkerViewManager {
     public void deselect(@NonNull MarkerView marker, boolean callbackToMap) {
         final View convertView = markerViewMap.get(marker);
         if (convertView != null) {
-            for (MapboxMap.MarkerViewAdapter adapter : markerViewAdapters) {
-                if (adapter.getMarkerClass().equals(marker.getClass())) {
-                    adapter.onDeselect(marker, convertView);
-                }
+            MapboxMap.MarkerViewAdapter adapter = getViewAdapter(marker);
+            if (adapter != null) {
+                adapter.onDeselect(marker, convertView);
             }
         }
         if (callbackToMap) {
@@ -246,10 +292,9 @@ public class MarkerViewManager {
      */
     public void select(@NonNull MarkerView marker, boolean callbackToMap) {
         final View convertView = markerViewMap.get(marker);
-        for (MapboxMap.MarkerViewAdapter adapter : markerViewAdapters) {
-            if (adapter.getMarkerClass().equals(marker.getClass())) {
-                select(marker, convertView, adapter, callbackToMap);
-            }
+        MapboxMap.MarkerViewAdapter adapter = getViewAdapter(marker);
+        if (adapter != null) {
+            select(marker, convertView, adapter, callbackToMap);
         }
     }
 
@@ -307,13 +352,7 @@ public class MarkerViewManager {
 
     @Nullable
     public MapboxMap.MarkerViewAdapter getViewAdapter(MarkerView markerView) {
-        MapboxMap.MarkerViewAdapter adapter = null;
-        for (MapboxMap.MarkerViewAdapter a : markerViewAdapters) {
-            if (a.getMarkerClass().equals(markerView.getClass())) {
-                adapter = a;
-            }
-        }
-        return adapter;
+        return markerViewAdapterMap.get(markerView.getClass());
     }
 
     /**
@@ -330,18 +369,16 @@ public class MarkerViewManager {
     public void removeMarkerView(MarkerView marker) {
         final View viewHolder = markerViewMap.get(marker);
         if (viewHolder != null && marker != null) {
-            for (final MapboxMap.MarkerViewAdapter<?> adapter : markerViewAdapters) {
-                if (adapter.getMarkerClass().equals(marker.getClass())) {
-                    if (adapter.prepareViewForReuse(marker, viewHolder)) {
-                        // reset offset for reuse
-                        marker.setOffset(MapboxConstants.UNMEASURED, MapboxConstants.UNMEASURED);
-                        adapter.releaseView(viewHolder);
-                    }
-                }
+            MapboxMap.MarkerViewAdapter adapter = getViewAdapter(marker);
+            if (adapter != null && adapter.prepareViewForReuse(marker, viewHolder)) {
+                // reset offset for reuse
+                marker.setOffset(MapboxConstants.UNMEASURED, MapboxConstants.UNMEASURED);
+                adapter.releaseView(viewHolder);
             }
         }
         marker.setMapboxMap(null);
         markerViewMap.remove(marker);
+        pendingMarkerViews.remove(marker);
     }
 
     /**
@@ -359,6 +396,7 @@ public class MarkerViewManager {
 
         if (!markerViewAdapters.contains(markerViewAdapter)) {
             markerViewAdapters.add(markerViewAdapter);
+            markerViewAdapterMap.put(markerViewAdapter.getMarkerClass(), markerViewAdapter);
             invalidateViewMarkersInVisibleRegion();
         }
     }
@@ -372,6 +410,31 @@ public class MarkerViewManager {
         return markerViewAdapters;
     }
 
+    /**
+     * Set the time spent per frame on inflating views for MarkerViews that entered the viewport.
+     * <p>
+     * Views that can't be inflated within the budget are inflated in the following frames. At least
+     * one view is inflated each frame. Defaults to {@link MapboxConstants#MARKER_VIEW_INFLATION_BUDGET}.
+     * </p>
+     *
+     * @param budget the time budget in milliseconds
+     */
+    public void setInflationBudget(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("Inflation budget should be positive, was " + budget);
+        }
+        inflationBudget = budget;
+    }
+
+    /**
+     * Get the time spent per frame on inflating views for MarkerViews that entered the viewport.
+     *
+     * @return the time budget in milliseconds
+     */
+    public long getInflationBudget() {
+        return inflationBudget;
+    }
+
     /**
      * Register a callback to be invoked when this view is clicked.
      *
@@ -408,7 +471,7 @@ public class MarkerViewManager {
      */
     public void invalidateViewMarkersInVisibleRegion() {
         RectF mapViewRect = new RectF(0, 0, mapView.getWidth(), mapView.getHeight());
-        List<MarkerView> markers = mapboxMap.getMarkerViewsInRect(mapViewRect);
+        Set<MarkerView> markers = new HashSet<>(mapboxMap.getMarkerViewsInRect(mapViewRect));
         View convertView;
 
         // remove old markers
@@ -418,56 +481,92 @@ public class MarkerViewManager {
             if (!markers.contains(marker)) {
                 // remove marker
                 convertView = markerViewMap.get(marker);
-                for (MapboxMap.MarkerViewAdapter adapter : markerViewAdapters) {
-                    if (adapter.getMarkerClass().equals(marker.getClass())) {
-                        adapter.prepareViewForReuse(marker, convertView);
-                        adapter.releaseView(convertView);
-                        marker.setMapboxMap(null);
-                        iterator.remove();
-                    }
+                MapboxMap.MarkerViewAdapter adapter = getViewAdapter(marker);
+                if (adapter != null) {
+                    adapter.prepareViewForReuse(marker, convertView);
+                    adapter.releaseView(convertView);
+                    marker.setMapboxMap(null);
+                    iterator.remove();
                 }
             }
         }
 
-        // introduce new markers
-        for (final MarkerView marker : markers) {
+        // drop markers that left the viewport before their view was inflated
+        pendingMarkerViews.retainAll(markers);
+
+        // queue new markers, their views are inflated within the frame budget
+        for (MarkerView marker : markers) {
             if (!markerViewMap.containsKey(marker)) {
-                for (final MapboxMap.MarkerViewAdapter adapter : markerViewAdapters) {
-                    if (adapter.getMarkerClass().equals(marker.getClass())) {
-
-                        // Inflate View
-                        convertView = (View) adapter.getViewReusePool().acquire();
-                        final View adaptedView = adapter.getView(marker, convertView, mapView);
-                        if (adaptedView != null) {
-                            adaptedView.setRotationX(marker.getTilt());
-                            adaptedView.setRotation(marker.getRotation());
-                            adaptedView.setAlpha(marker.getAlpha());
-                            adaptedView.setVisibility(View.GONE);
-
-                            if (mapboxMap.getSelectedMarkers().contains(marker)) {
-                                // if a marker to be shown was selected
-                                // replay that animation with duration 0
-                                if (adapter.onSelect(marker, adaptedView, true)) {
-                                    mapboxMap.selectMarker(marker);
-                                }
-                            }
-
-                            marker.setMapboxMap(mapboxMap);
-                            markerViewMap.put(marker, adaptedView);
-                            if (convertView == null) {
-                                adaptedView.setVisibility(View.GONE);
-                                mapView.getMarkerViewContainer().addView(adaptedView);
-                            }
-                        }
-                    }
-                }
+                pendingMarkerViews.add(marker);
             }
         }
+        inflatePendingMarkerViews();
+    }
+
+    /**
+     * Stops inflating the views of MarkerViews that entered the viewport. Called when the MapView is destroyed.
+     */
+    public void onDestroy() {
+        mapView.removeCallbacks(inflationRunnable);
+        inflationScheduled = false;
+        pendingMarkerViews.clear();
+    }
+
+    private void inflatePendingMarkerViews() {
+        long deadline = System.nanoTime() + inflationBudget * 1000000;
+        Iterator<MarkerView> iterator = pendingMarkerViews.iterator();
+        MarkerView marker;
+        while (iterator.hasNext()) {
+            marker = iterator.next();
+            iterator.remove();
+            inflateMarkerView(marker);
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        if (!pendingMarkerViews.isEmpty() && !inflationScheduled) {
+            inflationScheduled = true;
+            ViewCompat.postOnAnimation(mapView, inflationRunnable);
+        }
+
         // trigger update to make newly added ViewMarker visible,
         // these would only be updated when the map is moved.
         update();
     }
 
+    private void inflateMarkerView(MarkerView marker) {
+        MapboxMap.MarkerViewAdapter adapter = getViewAdapter(marker);
+        if (adapter == null) {
+            return;
+        }
+
+        // Inflate View
+        View convertView = (View) adapter.getViewReusePool().acquire();
+        final View adaptedView = adapter.getView(marker, convertView, mapView);
+        if (adaptedView != null) {
+            adaptedView.setRotationX(marker.getTilt());
+            adaptedView.setRotation(marker.getRotation());
+            adaptedView.setAlpha(marker.getAlpha());
+            adaptedView.setVisibility(View.GONE);
+
+            if (mapboxMap.getSelectedMarkers().contains(marker)) {
+                // if a marker to be shown was selected
+                // replay that animation with duration 0
+                if (adapter.onSelect(marker, adaptedView, true)) {
+                    mapboxMap.selectMarker(marker);
+                }
+            }
+
+            marker.setMapboxMap(mapboxMap);
+            markerViewMap.put(marker, adaptedView);
+            if (convertView == null) {
+                adaptedView.setVisibility(View.GONE);
+                mapView.getMarkerViewContainer().addView(adaptedView);
+            }
+        }
+    }
+
     public void onClickMarkerView(MarkerView markerView) {
         boolean clickHandled = false;
 
@@ -494,12 +593,10 @@ public class MarkerViewManager {
         if (markerViewMap.containsKey(marker)) {
             view = markerViewMap.get(marker);
         } else {
-            for (final MapboxMap.MarkerViewAdapter adapter : markerViewAdapters) {
-                if (adapter.getMarkerClass().equals(marker.getClass())) {
-                    View convertView = (View) adapter.getViewReusePool().acquire();
-                    view = adapter.getView(marker, convertView, mapView);
-                    break;
-                }
+            MapboxMap.MarkerViewAdapter adapter = getViewAdapter(marker);
+            if (adapter != null) {
+                View convertView = (View) adapter.getViewReusePool().acquire();
+                view = adapter.getView(marker, convertView, mapView);
             }
         }
 
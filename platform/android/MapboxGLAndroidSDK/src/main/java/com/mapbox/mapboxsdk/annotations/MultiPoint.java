@@ -3,6 +3,8 @@ package com.mapbox.mapboxsdk.annotations;
 import com.mapbox.mapboxsdk.geometry.LatLng;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -41,7 +43,18 @@ public abstract class MultiPoint extends Annotation {
 
     public void addPoint(LatLng point) {
         points.add(point);
-        update();
+        onPointsAdded(Collections.singletonList(point));
+    }
+
+    /**
+     * Adds points to the end of the points of this annotation.
+     *
+     * @param points the points to add
+     */
+    public void addPoints(LatLng... points) {
+        List<LatLng> addedPoints = Arrays.asList(points);
+        this.points.addAll(addedPoints);
+        onPointsAdded(addedPoints);
     }
 
     public float getAlpha() {
@@ -54,4 +67,13 @@ public abstract class MultiPoint extends Annotation {
     }
 
     abstract void update();
+
+    /**
+     * Called when points were added to the end of the points, updates the whole annotation by default.
+     *
+     * @param addedPoints the points that were added
+     */
+    void onPointsAdded(List<LatLng> addedPoints) {
+        update();
+    }
 }
@@ -2,8 +2,11 @@ package com.mapbox.mapboxsdk.annotations;
 
 import android.graphics.Color;
 
+import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 
+import java.util.List;
+
 /**
  * Polyline is a geometry feature with an unclosed list of coordinates drawn as a line
  */
@@ -11,6 +14,8 @@ public final class Polyline extends MultiPoint {
 
     private int color = Color.BLACK; // default color is black
     private float width = 10; // As specified by Google API Docs (in pixels)
+    private float trimStart = 0;
+    private float trimEnd = 1;
 
     Polyline() {
         super();
@@ -34,6 +39,24 @@ public final class Polyline extends MultiPoint {
         return width;
     }
 
+    /**
+     * Returns the fraction of the Polyline length at which drawing starts.
+     *
+     * @return the trim start offset
+     */
+    public float getTrimStart() {
+        return trimStart;
+    }
+
+    /**
+     * Returns the fraction of the Polyline length at which drawing stops.
+     *
+     * @return the trim end offset
+     */
+    public float getTrimEnd() {
+        return trimEnd;
+    }
+
     /**
      * Sets the color of the polyline.
      *
@@ -54,6 +77,26 @@ public final class Polyline extends MultiPoint {
         update();
     }
 
+    /**
+     * Limits the drawn part of the polyline to a range of its length, for example to show the progress
+     * along a route. The points of the polyline aren't uploaded again when the offsets change.
+     *
+     * @param start the fraction of the length at which drawing starts, between 0 and 1
+     * @param end   the fraction of the length at which drawing stops, between start and 1
+     */
+    public void setTrimOffset(float start, float end) {
+        if (start < 0 || end > 1 || start > end) {
+            throw new IllegalArgumentException(
+                    "Trim offsets should be within 0 and 1 with start not after end, was " + start + " and " + end);
+        }
+        this.trimStart = start;
+        this.trimEnd = end;
+        MapboxMap mapboxMap = getMapboxMap();
+        if (mapboxMap != null) {
+            mapboxMap.updatePolylineTrimOffset(this);
+        }
+    }
+
     @Override
     void update() {
         MapboxMap mapboxMap = getMapboxMap();
@@ -61,4 +104,13 @@ public final class Polyline extends MultiPoint {
             mapboxMap.updatePolyline(this);
         }
     }
+
+    @Override
+    void onPointsAdded(List<LatLng> addedPoints) {
+        // only pass the added points on, the renderer already holds the previous ones
+        MapboxMap mapboxMap = getMapboxMap();
+        if (mapboxMap != null) {
+            mapboxMap.onPolylinePointsAppended(this, addedPoints);
+        }
+    }
 }
@@ -55,6 +55,21 @@ public class MapboxConstants {
      */
     public static final int ANIMATION_DURATION_SHORT = 150;
 
+    /**
+     * Default time in milliseconds spent per frame on inflating MarkerView views
+     */
+    public static final long MARKER_VIEW_INFLATION_BUDGET = 8;
+
+    /**
+     * Default radius in pixels within which markers are clustered
+     */
+    public static final int MARKER_CLUSTER_RADIUS = 50;
+
+    /**
+     * Default maximum zoom level at which markers are clustered
+     */
+    public static final int MARKER_CLUSTER_MAX_ZOOM = 16;
+
     /**
      * The currently supported minimum zoom level.
      */
@@ -16,7 +16,10 @@ import com.mapbox.mapboxsdk.maps.MapView;
  * @see MapView
  * @see Icon
  * @see Marker
+ * @deprecated Icons are matched by their pixel content, a modified bitmap is added to the map as a new image.
+ * This exception is no longer thrown and will be removed in the next major release.
  */
+@Deprecated
 public class IconBitmapChangedException extends RuntimeException {
 
     public IconBitmapChangedException() {
@@ -11,13 +11,17 @@ import com.mapbox.mapboxsdk.annotations.BaseMarkerViewOptions;
 import com.mapbox.mapboxsdk.annotations.Icon;
 import com.mapbox.mapboxsdk.annotations.Marker;
 import com.mapbox.mapboxsdk.annotations.MarkerView;
+import com.mapbox.mapboxsdk.annotations.MarkerClusterManager;
 import com.mapbox.mapboxsdk.annotations.MarkerViewManager;
 import com.mapbox.mapboxsdk.annotations.Polygon;
 import com.mapbox.mapboxsdk.annotations.PolygonOptions;
 import com.mapbox.mapboxsdk.annotations.Polyline;
 import com.mapbox.mapboxsdk.annotations.PolylineOptions;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -36,9 +40,16 @@ class AnnotationManager implements MapView.OnMapChangedListener {
     private IconManager iconManager;
     private InfoWindowManager infoWindowManager;
     private MarkerViewManager markerViewManager;
+    private MarkerClusterManager markerClusterManager;
 
     private LongSparseArray<Annotation> annotations;
+    private PointAnnotationIndex pointAnnotationIndex;
+    private PackedMarkers packedMarkers;
+    private LongSparseArray<Annotation> pendingUpdates;
+    private int transactionDepth;
     private List<Marker> selectedMarkers;
+    // the last id handed out to packed markers without a native map, in unit tests
+    private long lastPackedMarkerTestId;
 
     private MapboxMap.OnMarkerClickListener onMarkerClickListener;
     private boolean isWaitingForRenderInvoke;
@@ -49,6 +60,9 @@ class AnnotationManager implements MapView.OnMapChangedListener {
         this.infoWindowManager = manager;
         this.selectedMarkers = new ArrayList<>();
         this.annotations = new LongSparseArray<>();
+        this.pointAnnotationIndex = new PointAnnotationIndex();
+        this.packedMarkers = new PackedMarkers();
+        this.pendingUpdates = new LongSparseArray<>();
 
         if (view != null) {
             // null checking needed for unit tests
@@ -69,10 +83,12 @@ class AnnotationManager implements MapView.OnMapChangedListener {
     //
 
     Annotation getAnnotation(long id) {
-        return annotations.get(id);
+        Annotation annotation = annotations.get(id);
+        return annotation != null ? annotation : releasePackedMarker(id);
     }
 
     List<Annotation> getAnnotations() {
+        releasePackedMarkers();
         List<Annotation> annotations = new ArrayList<>();
         for (int i = 0; i < this.annotations.size(); i++) {
             annotations.add(this.annotations.get(this.annotations.keyAt(i)));
@@ -93,6 +109,8 @@ class AnnotationManager implements MapView.OnMapChangedListener {
             nativeMapView.removeAnnotation(id);
         }
         annotations.remove(id);
+        pointAnnotationIndex.remove(id);
+        pendingUpdates.remove(id);
     }
 
     void removeAnnotation(long id) {
@@ -100,6 +118,9 @@ class AnnotationManager implements MapView.OnMapChangedListener {
             nativeMapView.removeAnnotation(id);
         }
         annotations.remove(id);
+        pointAnnotationIndex.remove(id);
+        packedMarkers.remove(id);
+        pendingUpdates.remove(id);
     }
 
     void removeAnnotations(@NonNull List<? extends Annotation> annotationList) {
@@ -123,13 +144,17 @@ class AnnotationManager implements MapView.OnMapChangedListener {
 
         for (long id : ids) {
             annotations.remove(id);
+            pointAnnotationIndex.remove(id);
+            pendingUpdates.remove(id);
         }
     }
 
     void removeAnnotations() {
         Annotation annotation;
         int count = annotations.size();
-        long[] ids = new long[count];
+        long[] packedIds = packedMarkers.getIds();
+        long[] ids = new long[count + packedIds.length];
+        System.arraycopy(packedIds, 0, ids, count, packedIds.length);
         for (int i = 0; i < count; i++) {
             ids[i] = annotations.keyAt(i);
             annotation = annotations.get(ids[i]);
@@ -147,6 +172,55 @@ class AnnotationManager implements MapView.OnMapChangedListener {
         }
 
         annotations.clear();
+        pointAnnotationIndex.clear();
+        packedMarkers.clear();
+        pendingUpdates.clear();
+    }
+
+    //
+    // Transactions
+    //
+
+    void beginTransaction() {
+        transactionDepth++;
+    }
+
+    void commitTransaction(@NonNull MapboxMap mapboxMap) {
+        if (transactionDepth == 0) {
+            throw new IllegalStateException("No annotation transaction to commit");
+        }
+
+        transactionDepth--;
+        if (transactionDepth > 0 || pendingUpdates.size() == 0) {
+            return;
+        }
+
+        List<Marker> markers = new ArrayList<>();
+        List<Polyline> polylines = new ArrayList<>();
+        List<Polygon> polygons = new ArrayList<>();
+        Annotation annotation;
+        for (int i = 0; i < pendingUpdates.size(); i++) {
+            annotation = pendingUpdates.valueAt(i);
+            if (annotation instanceof Marker) {
+                if (!(annotation instanceof MarkerView)) {
+                    iconManager.ensureIconLoaded((Marker) annotation, mapboxMap);
+                }
+                markers.add((Marker) annotation);
+            } else if (annotation instanceof Polyline) {
+                polylines.add((Polyline) annotation);
+            } else if (annotation instanceof Polygon) {
+                polygons.add((Polygon) annotation);
+            }
+        }
+        pendingUpdates.clear();
+
+        if (nativeMapView != null) {
+            nativeMapView.updateAnnotations(markers, getNativeIconIds(markers), polylines, polygons);
+        }
+    }
+
+    boolean isInTransaction() {
+        return transactionDepth > 0;
     }
 
     //
@@ -155,10 +229,12 @@ class AnnotationManager implements MapView.OnMapChangedListener {
 
     Marker addMarker(@NonNull BaseMarkerOptions markerOptions, @NonNull MapboxMap mapboxMap) {
         Marker marker = prepareMarker(markerOptions);
-        long id = nativeMapView != null ? nativeMapView.addMarker(marker) : 0;
+        long id = nativeMapView != null
+                ? nativeMapView.addMarker(marker, iconManager.getNativeIconId(marker.getIcon())) : 0;
         marker.setMapboxMap(mapboxMap);
         marker.setId(id);
         annotations.put(id, marker);
+        pointAnnotationIndex.put(marker);
         return marker;
     }
 
@@ -177,7 +253,7 @@ class AnnotationManager implements MapView.OnMapChangedListener {
             if (markers.size() > 0) {
                 long[] ids = null;
                 if (nativeMapView != null) {
-                    ids = nativeMapView.addMarkers(markers);
+                    ids = nativeMapView.addMarkers(markers, getNativeIconIds(markers));
                 }
 
                 long id = 0;
@@ -193,6 +269,7 @@ class AnnotationManager implements MapView.OnMapChangedListener {
                     }
                     m.setId(id);
                     annotations.put(id, m);
+                    pointAnnotationIndex.put(m);
                 }
 
             }
@@ -200,20 +277,76 @@ class AnnotationManager implements MapView.OnMapChangedListener {
         return markers;
     }
 
+    long[] addMarkers(@NonNull double[] latLngs, @NonNull Icon[] icons, @Nullable int[] iconIndices,
+                      @NonNull MapboxMap mapboxMap) {
+        int count = latLngs.length / 2;
+        if (latLngs.length % 2 != 0) {
+            throw new IllegalArgumentException("Expected latitude/longitude pairs, got an odd amount of values");
+        }
+        if (icons.length == 0) {
+            throw new IllegalArgumentException("Expected at least one icon");
+        }
+        if (iconIndices != null) {
+            if (iconIndices.length != count) {
+                throw new IllegalArgumentException("Expected an icon index for each marker");
+            }
+            for (int iconIndex : iconIndices) {
+                if (iconIndex < 0 || iconIndex >= icons.length) {
+                    throw new IllegalArgumentException("Icon index " + iconIndex + " is out of bounds");
+                }
+            }
+        }
+
+        Icon[] loadedIcons = new Icon[icons.length];
+        Icon[] markerIcons = new Icon[icons.length];
+        for (int i = 0; i < icons.length; i++) {
+            loadedIcons[i] = iconManager.loadIconForMarker(icons[i]);
+            markerIcons[i] = icons[i] != null ? icons[i] : loadedIcons[i];
+        }
+
+        long[] ids;
+        if (nativeMapView != null) {
+            String[] iconIds = new String[loadedIcons.length];
+            for (int i = 0; i < loadedIcons.length; i++) {
+                iconIds[i] = loadedIcons[i].getId();
+            }
+            ids = nativeMapView.addMarkers(latLngs, iconIds, iconIndices);
+        } else {
+            // unit test
+            ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = ++lastPackedMarkerTestId;
+            }
+        }
+
+        packedMarkers.add(ids, latLngs.clone(), markerIcons, iconIndices != null ? iconIndices.clone() : null,
+                mapboxMap);
+        return ids;
+    }
+
     private Marker prepareMarker(BaseMarkerOptions markerOptions) {
         Marker marker = markerOptions.getMarker();
-        Icon icon = iconManager.loadIconForMarker(marker);
-        marker.setTopOffsetPixels(iconManager.getTopOffsetPixelsForIcon(icon));
+        iconManager.loadIconForMarker(marker);
+        marker.setTopOffsetPixels(iconManager.getTopOffsetPixelsForIcon(marker.getIcon()));
         return marker;
     }
 
+    private String[] getNativeIconIds(List<? extends Marker> markers) {
+        String[] iconIds = new String[markers.size()];
+        for (int i = 0; i < iconIds.length; i++) {
+            iconIds[i] = iconManager.getNativeIconId(markers.get(i).getIcon());
+        }
+        return iconIds;
+    }
+
     MarkerView addMarker(@NonNull BaseMarkerViewOptions markerOptions, @NonNull MapboxMap mapboxMap) {
         isWaitingForRenderInvoke = true;
         MarkerView marker = prepareViewMarker(markerOptions);
         marker.setMapboxMap(mapboxMap);
-        long id = nativeMapView.addMarker(marker);
+        long id = nativeMapView.addMarker(marker, iconManager.getNativeIconId(marker.getIcon()));
         marker.setId(id);
         annotations.put(id, marker);
+        pointAnnotationIndex.put(marker);
         return marker;
     }
 
@@ -228,9 +361,10 @@ class AnnotationManager implements MapView.OnMapChangedListener {
             // add marker to map
             MarkerView marker = prepareViewMarker(markerViewOption);
             marker.setMapboxMap(mapboxMap);
-            long id = nativeMapView.addMarker(marker);
+            long id = nativeMapView.addMarker(marker, iconManager.getNativeIconId(marker.getIcon()));
             marker.setId(id);
             annotations.put(id, marker);
+            pointAnnotationIndex.put(marker);
             markers.add(marker);
         }
         markerViewManager.invalidateViewMarkersInVisibleRegion();
@@ -252,23 +386,47 @@ class AnnotationManager implements MapView.OnMapChangedListener {
             return;
         }
 
-        if (!(updatedMarker instanceof MarkerView)) {
-            iconManager.ensureIconLoaded(updatedMarker, mapboxMap);
-        }
+        if (transactionDepth > 0) {
+            pendingUpdates.put(updatedMarker.getId(), updatedMarker);
+        } else {
+            if (!(updatedMarker instanceof MarkerView)) {
+                iconManager.ensureIconLoaded(updatedMarker, mapboxMap);
+            }
 
-        nativeMapView.updateMarker(updatedMarker);
+            nativeMapView.updateMarker(updatedMarker, iconManager.getNativeIconId(updatedMarker.getIcon()));
+        }
 
         int index = annotations.indexOfKey(updatedMarker.getId());
         if (index > -1) {
             annotations.setValueAt(index, updatedMarker);
+            pointAnnotationIndex.put(updatedMarker);
+        }
+    }
+
+    int getMarkerCount() {
+        return pointAnnotationIndex.size() + packedMarkers.size();
+    }
+
+    long[] getMarkerIds() {
+        long[] packedIds = packedMarkers.getIds();
+        long[] ids = new long[pointAnnotationIndex.size() + packedIds.length];
+        int count = 0;
+        for (int i = 0; i < annotations.size(); i++) {
+            if (annotations.valueAt(i) instanceof Marker) {
+                ids[count++] = annotations.keyAt(i);
+            }
         }
+        System.arraycopy(packedIds, 0, ids, count, packedIds.length);
+        Arrays.sort(ids);
+        return ids;
     }
 
     List<Marker> getMarkers() {
-        List<Marker> markers = new ArrayList<>();
+        releasePackedMarkers();
+        List<Marker> markers = new ArrayList<>(pointAnnotationIndex.size());
         Annotation annotation;
         for (int i = 0; i < annotations.size(); i++) {
-            annotation = annotations.get(annotations.keyAt(i));
+            annotation = annotations.valueAt(i);
             if (annotation instanceof Marker) {
                 markers.add((Marker) annotation);
             }
@@ -358,23 +516,8 @@ class AnnotationManager implements MapView.OnMapChangedListener {
                 rectangle.bottom / pixelRatio);
 
         long[] ids = nativeMapView.queryPointAnnotations(rect);
-
-        List<Long> idsList = new ArrayList<>(ids.length);
-        for (long id : ids) {
-            idsList.add(id);
-        }
-
-        List<Marker> annotations = new ArrayList<>(ids.length);
-        List<Annotation> annotationList = getAnnotations();
-        int count = annotationList.size();
-        for (int i = 0; i < count; i++) {
-            Annotation annotation = annotationList.get(i);
-            if (annotation instanceof com.mapbox.mapboxsdk.annotations.Marker && idsList.contains(annotation.getId())) {
-                annotations.add((com.mapbox.mapboxsdk.annotations.Marker) annotation);
-            }
-        }
-
-        return new ArrayList<>(annotations);
+        releasePackedMarkers(ids);
+        return pointAnnotationIndex.getMarkers(ids);
     }
 
     public List<MarkerView> getMarkerViewsInRect(@NonNull RectF rectangle) {
@@ -385,23 +528,63 @@ class AnnotationManager implements MapView.OnMapChangedListener {
                 rectangle.bottom / pixelRatio);
 
         long[] ids = nativeMapView.queryPointAnnotations(rect);
+        return pointAnnotationIndex.getMarkerViews(ids);
+    }
+
+    List<Marker> getMarkersInBounds(@NonNull LatLngBounds bounds) {
+        if (packedMarkers.size() > 0) {
+            for (Marker marker : packedMarkers.release(bounds)) {
+                trackPackedMarker(marker);
+            }
+        }
+        return pointAnnotationIndex.query(bounds);
+    }
+
+    Marker getMarker(long id) {
+        Marker marker = pointAnnotationIndex.get(id);
+        return marker != null ? marker : releasePackedMarker(id);
+    }
+
+    //
+    // Packed markers
+    //
+
+    private Marker releasePackedMarker(long id) {
+        if (packedMarkers.size() == 0) {
+            return null;
+        }
+
+        Marker marker = packedMarkers.release(id);
+        if (marker != null) {
+            trackPackedMarker(marker);
+        }
+        return marker;
+    }
+
+    private void releasePackedMarkers(long[] ids) {
+        if (packedMarkers.size() == 0) {
+            return;
+        }
 
-        List<Long> idsList = new ArrayList<>(ids.length);
         for (long id : ids) {
-            idsList.add(id);
+            releasePackedMarker(id);
         }
+    }
 
-        List<MarkerView> annotations = new ArrayList<>(ids.length);
-        List<Annotation> annotationList = getAnnotations();
-        int count = annotationList.size();
-        for (int i = 0; i < count; i++) {
-            Annotation annotation = annotationList.get(i);
-            if (annotation instanceof MarkerView && idsList.contains(annotation.getId())) {
-                annotations.add((MarkerView) annotation);
-            }
+    private void releasePackedMarkers() {
+        if (packedMarkers.size() == 0) {
+            return;
+        }
+
+        for (Marker marker : packedMarkers.releaseAll()) {
+            trackPackedMarker(marker);
         }
+    }
 
-        return new ArrayList<>(annotations);
+    private void trackPackedMarker(Marker marker) {
+        marker.setTopOffsetPixels(iconManager.getTopOffsetPixelsForIcon(marker.getIcon()));
+        annotations.put(marker.getId(), marker);
+        pointAnnotationIndex.put(marker);
     }
 
     //
@@ -463,7 +646,11 @@ class AnnotationManager implements MapView.OnMapChangedListener {
             return;
         }
 
-        nativeMapView.updatePolygon(polygon);
+        if (transactionDepth > 0) {
+            pendingUpdates.put(polygon.getId(), polygon);
+        } else {
+            nativeMapView.updatePolygon(polygon);
+        }
 
         int index = annotations.indexOfKey(polygon.getId());
         if (index > -1) {
@@ -544,7 +731,11 @@ class AnnotationManager implements MapView.OnMapChangedListener {
             return;
         }
 
-        nativeMapView.updatePolyline(polyline);
+        if (transactionDepth > 0) {
+            pendingUpdates.put(polyline.getId(), polyline);
+        } else {
+            nativeMapView.updatePolyline(polyline);
+        }
 
         int index = annotations.indexOfKey(polyline.getId());
         if (index > -1) {
@@ -552,6 +743,48 @@ class AnnotationManager implements MapView.OnMapChangedListener {
         }
     }
 
+    void appendPolylinePoints(Polyline polyline, List<LatLng> points) {
+        if (polyline == null) {
+            return;
+        }
+
+        if (polyline.getId() == -1) {
+            return;
+        }
+
+        if (transactionDepth > 0) {
+            // the polyline already holds the appended points, a pending full update includes them
+            pendingUpdates.put(polyline.getId(), polyline);
+        } else if (nativeMapView != null) {
+            int count = points.size();
+            double[] latLngs = new double[count * 2];
+            LatLng point;
+            for (int i = 0; i < count; i++) {
+                point = points.get(i);
+                latLngs[i * 2] = point.getLatitude();
+                latLngs[i * 2 + 1] = point.getLongitude();
+            }
+            nativeMapView.appendPolylinePoints(polyline.getId(), latLngs);
+        }
+    }
+
+    void updatePolylineTrimOffset(Polyline polyline) {
+        if (polyline == null) {
+            return;
+        }
+
+        if (polyline.getId() == -1) {
+            return;
+        }
+
+        if (transactionDepth > 0) {
+            // a pending full update includes the trim offsets
+            pendingUpdates.put(polyline.getId(), polyline);
+        } else if (nativeMapView != null) {
+            nativeMapView.setPolylineTrimOffset(polyline.getId(), polyline.getTrimStart(), polyline.getTrimEnd());
+        }
+    }
+
     List<Polyline> getPolylines() {
         List<Polyline> polylines = new ArrayList<>();
         Annotation annotation;
@@ -575,10 +808,36 @@ class AnnotationManager implements MapView.OnMapChangedListener {
         return markerViewManager;
     }
 
+    //
+    // MarkerClusterManager
+    //
+
+    MarkerClusterManager getMarkerClusterManager(MapboxMap mapboxMap) {
+        if (markerClusterManager == null) {
+            this.markerClusterManager = new MarkerClusterManager(mapboxMap, mapboxMap.getMapView());
+        }
+        return markerClusterManager;
+    }
+
+    void updateMarkerClusters() {
+        if (markerClusterManager != null) {
+            markerClusterManager.update();
+        }
+    }
+
+    void onDestroy() {
+        if (markerViewManager != null) {
+            markerViewManager.onDestroy();
+        }
+        if (markerClusterManager != null) {
+            markerClusterManager.onDestroy();
+        }
+    }
+
     void adjustTopOffsetPixels(MapboxMap mapboxMap) {
         int count = annotations.size();
         for (int i = 0; i < count; i++) {
-            Annotation annotation = annotations.get(i);
+            Annotation annotation = annotations.valueAt(i);
             if (annotation instanceof Marker) {
                 Marker marker = (Marker) annotation;
                 marker.setTopOffsetPixels(
@@ -595,15 +854,25 @@ class AnnotationManager implements MapView.OnMapChangedListener {
     }
 
     void reloadMarkers() {
+        // collect the markers first, re-keying them reorders the annotations
+        List<Marker> markers = new ArrayList<>();
         int count = annotations.size();
         for (int i = 0; i < count; i++) {
-            Annotation annotation = annotations.get(i);
+            Annotation annotation = annotations.valueAt(i);
             if (annotation instanceof Marker) {
-                Marker marker = (Marker) annotation;
-                nativeMapView.removeAnnotation(annotation.getId());
-                long newId = nativeMapView.addMarker(marker);
-                marker.setId(newId);
+                markers.add((Marker) annotation);
             }
         }
+
+        for (Marker marker : markers) {
+            long oldId = marker.getId();
+            nativeMapView.removeAnnotation(oldId);
+            annotations.remove(oldId);
+            pointAnnotationIndex.remove(oldId);
+            long newId = nativeMapView.addMarker(marker, iconManager.getNativeIconId(marker.getIcon()));
+            marker.setId(newId);
+            annotations.put(newId, marker);
+            pointAnnotationIndex.put(marker);
+        }
     }
 }
@@ -0,0 +1,175 @@
+package com.mapbox.mapboxsdk.maps;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executes rendered features queries asynchronously.
+ * <p>
+ * Queries are batched and run after the frame they were issued in. The main thread only takes a snapshot of the
+ * rendered features and the camera, the query itself and the decoding of its results run on a worker thread
+ * against that snapshot, and the results are delivered on the main thread. Moving the camera before the snapshot
+ * is taken cancels the query, as its screen coordinates no longer match the rendered map. A query supersedes the
+ * queries issued earlier with the same callback.
+ * </p>
+ */
+class FeatureQueryScheduler implements MapView.OnMapChangedListener {
+
+    private final MapView mapView;
+    private final List<RenderedFeaturesQuery> pendingQueries = new ArrayList<>();
+    private final List<RenderedFeaturesQuery> runningQueries = new ArrayList<>();
+    private boolean scheduled;
+    private boolean destroyed;
+    private ExecutorService executor;
+    private Handler handler;
+
+    private final Runnable executeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            scheduled = false;
+            executePendingQueries();
+        }
+    };
+
+    FeatureQueryScheduler(@NonNull MapView mapView) {
+        this.mapView = mapView;
+    }
+
+    void schedule(@NonNull RenderedFeaturesQuery query) {
+        if (destroyed) {
+            query.cancel();
+            return;
+        }
+
+        cancel(pendingQueries, query.getCallback());
+        cancel(runningQueries, query.getCallback());
+        pendingQueries.add(query);
+        if (!scheduled) {
+            scheduled = true;
+            mapView.post(executeRunnable);
+        }
+    }
+
+    @Override
+    public void onMapChanged(@MapView.MapChange int change) {
+        if (change == MapView.REGION_WILL_CHANGE || change == MapView.REGION_WILL_CHANGE_ANIMATED
+                || change == MapView.REGION_IS_CHANGING) {
+            // the screen coordinates of queries issued before the change no longer match the rendered map,
+            // running queries were issued before it too but use the camera of their snapshot
+            cancel(pendingQueries, null);
+        }
+    }
+
+    /**
+     * Cancels all queries and stops the worker thread, no results are delivered after the map is destroyed.
+     */
+    void onDestroy() {
+        destroyed = true;
+        cancel(pendingQueries, null);
+        cancel(runningQueries, null);
+        pendingQueries.clear();
+        runningQueries.clear();
+        if (scheduled) {
+            scheduled = false;
+            mapView.removeCallbacks(executeRunnable);
+        }
+        if (executor != null) {
+            for (Runnable task : executor.shutdownNow()) {
+                // tasks that never ran still own their snapshot
+                ((QueryTask) task).release();
+            }
+            executor = null;
+        }
+    }
+
+    private void executePendingQueries() {
+        NativeMapView nativeMapView = mapView.getNativeMapView();
+        List<RenderedFeaturesQuery> queries = new ArrayList<>(pendingQueries);
+        pendingQueries.clear();
+        if (nativeMapView == null) {
+            // map is destroyed
+            return;
+        }
+
+        for (RenderedFeaturesQuery query : queries) {
+            if (query.isCanceled()) {
+                continue;
+            }
+
+            runningQueries.add(query);
+            getExecutor().execute(new QueryTask(query, nativeMapView, query.snapshot(nativeMapView)));
+        }
+    }
+
+    private static void cancel(List<RenderedFeaturesQuery> queries, MapboxMap.QueryRenderedFeaturesCallback callback) {
+        for (RenderedFeaturesQuery query : queries) {
+            if (callback == null || query.getCallback() == callback) {
+                query.cancel();
+            }
+        }
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor();
+        }
+        return executor;
+    }
+
+    private Handler getHandler() {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        return handler;
+    }
+
+    /**
+     * Runs a query against its snapshot on the worker thread and releases the snapshot.
+     */
+    private class QueryTask implements Runnable {
+
+        private final RenderedFeaturesQuery query;
+        private final NativeMapView nativeMapView;
+        private final long snapshot;
+
+        QueryTask(RenderedFeaturesQuery query, NativeMapView nativeMapView, long snapshot) {
+            this.query = query;
+            this.nativeMapView = nativeMapView;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public void run() {
+            RenderedFeatures features = null;
+            try {
+                if (!query.isCanceled()) {
+                    features = query.execute(nativeMapView, snapshot);
+                    features.decodeAll();
+                }
+            } finally {
+                release();
+            }
+
+            final RenderedFeatures result = features;
+            getHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    runningQueries.remove(query);
+                    if (result != null && !query.isCanceled()) {
+                        query.getCallback().onFeaturesQueried(result);
+                    }
+                }
+            });
+        }
+
+        void release() {
+            nativeMapView.releaseRenderedFeaturesSnapshot(snapshot);
+        }
+    }
+}
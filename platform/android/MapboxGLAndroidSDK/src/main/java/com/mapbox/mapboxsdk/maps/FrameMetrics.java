@@ -0,0 +1,100 @@
+package com.mapbox.mapboxsdk.maps;
+
+/**
+ * Timings of a single frame rendered to the map view.
+ * <p>
+ * Updating the style and tiles happens between frames, the update and layout times of a frame are the time spent
+ * on this work since the previous frame was rendered.
+ * </p>
+ *
+ * @see MapboxMap#setOnFrameMetricsListener(MapboxMap.OnFrameMetricsListener)
+ */
+public class FrameMetrics {
+
+    private final long updateTimeNanos;
+    private final long layoutTimeNanos;
+    private final long renderTimeNanos;
+    private final long gpuSubmitTimeNanos;
+    private final int uploadedTiles;
+    private final boolean fullyRendered;
+
+    FrameMetrics(long updateTimeNanos, long layoutTimeNanos, long renderTimeNanos, long gpuSubmitTimeNanos,
+                 int uploadedTiles, boolean fullyRendered) {
+        this.updateTimeNanos = updateTimeNanos;
+        this.layoutTimeNanos = layoutTimeNanos;
+        this.renderTimeNanos = renderTimeNanos;
+        this.gpuSubmitTimeNanos = gpuSubmitTimeNanos;
+        this.uploadedTiles = uploadedTiles;
+        this.fullyRendered = fullyRendered;
+    }
+
+    /**
+     * Returns the CPU time spent updating annotations and source tiles.
+     *
+     * @return the update time in nanoseconds
+     */
+    public long getUpdateTimeNanos() {
+        return updateTimeNanos;
+    }
+
+    /**
+     * Returns the CPU time spent relayouting and recalculating the style.
+     *
+     * @return the layout time in nanoseconds
+     */
+    public long getLayoutTimeNanos() {
+        return layoutTimeNanos;
+    }
+
+    /**
+     * Returns the CPU time spent uploading buffers and issuing the draw calls of the frame.
+     *
+     * @return the render time in nanoseconds
+     */
+    public long getRenderTimeNanos() {
+        return renderTimeNanos;
+    }
+
+    /**
+     * Returns the time spent submitting the frame to the GPU and swapping buffers.
+     *
+     * @return the GPU submit time in nanoseconds
+     */
+    public long getGpuSubmitTimeNanos() {
+        return gpuSubmitTimeNanos;
+    }
+
+    /**
+     * Returns the sum of the update, layout, render and GPU submit times.
+     *
+     * @return the total frame time in nanoseconds
+     */
+    public long getTotalTimeNanos() {
+        return updateTimeNanos + layoutTimeNanos + renderTimeNanos + gpuSubmitTimeNanos;
+    }
+
+    /**
+     * Returns the number of tiles uploaded to the GPU while rendering the frame.
+     *
+     * @return the number of uploaded tiles
+     */
+    public int getUploadedTiles() {
+        return uploadedTiles;
+    }
+
+    /**
+     * Returns whether all tiles required by the frame were loaded and rendered.
+     *
+     * @return true if the frame was fully rendered
+     */
+    public boolean isFullyRendered() {
+        return fullyRendered;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameMetrics [updateTimeNanos=" + updateTimeNanos + ", layoutTimeNanos=" + layoutTimeNanos
+                + ", renderTimeNanos=" + renderTimeNanos + ", gpuSubmitTimeNanos=" + gpuSubmitTimeNanos
+                + ", uploadedTiles=" + uploadedTiles + ", fullyRendered=" + fullyRendered + "]";
+    }
+}
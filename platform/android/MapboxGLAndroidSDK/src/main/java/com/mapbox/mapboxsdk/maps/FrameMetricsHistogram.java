@@ -0,0 +1,221 @@
+package com.mapbox.mapboxsdk.maps;
+
+import android.support.annotation.IntDef;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling distribution of the metrics of the most recently rendered frames.
+ * <p>
+ * Only the last frames up to the window size are kept, percentiles are computed over these frames with the nearest
+ * rank method. A frame is janky when its total time exceeds the jank threshold, by default the duration of a frame
+ * at 60 fps. Use {@link #export()} to forward the distribution to a monitoring system.
+ * </p>
+ * <p>
+ * This class isn't thread safe, {@link MapboxMap.OnFrameMetricsListener} is invoked on the main thread.
+ * </p>
+ */
+public class FrameMetricsHistogram {
+
+    /**
+     * Indicates the parameter accepts one of the metrics of {@link FrameMetricsHistogram}.
+     */
+    @IntDef({UPDATE_TIME, LAYOUT_TIME, RENDER_TIME, GPU_SUBMIT_TIME, TOTAL_TIME, UPLOADED_TILES})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Metric {
+    }
+
+    /**
+     * CPU time spent updating annotations and source tiles, in nanoseconds
+     */
+    public static final int UPDATE_TIME = 0;
+
+    /**
+     * CPU time spent relayouting and recalculating the style, in nanoseconds
+     */
+    public static final int LAYOUT_TIME = 1;
+
+    /**
+     * CPU time spent rendering the frame, in nanoseconds
+     */
+    public static final int RENDER_TIME = 2;
+
+    /**
+     * Time spent submitting the frame to the GPU, in nanoseconds
+     */
+    public static final int GPU_SUBMIT_TIME = 3;
+
+    /**
+     * Total time of the frame, in nanoseconds
+     */
+    public static final int TOTAL_TIME = 4;
+
+    /**
+     * Number of tiles uploaded to the GPU
+     */
+    public static final int UPLOADED_TILES = 5;
+
+    /**
+     * Default window size, about ten seconds of frames at 60 fps.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 600;
+
+    /**
+     * Default jank threshold, the duration of a frame at 60 fps.
+     */
+    public static final long DEFAULT_JANK_THRESHOLD_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    private static final String[] METRIC_NAMES = {
+        "update_time", "layout_time", "render_time", "gpu_submit_time", "total_time", "uploaded_tiles"
+    };
+
+    private static final double[] EXPORTED_PERCENTILES = {50, 90, 99};
+
+    private final long[][] values;
+    private final boolean[] fullyRendered;
+    private final long jankThresholdNanos;
+    private int next;
+    private int count;
+
+    /**
+     * Creates a histogram of the last {@link #DEFAULT_WINDOW_SIZE} frames.
+     */
+    public FrameMetricsHistogram() {
+        this(DEFAULT_WINDOW_SIZE, DEFAULT_JANK_THRESHOLD_NANOS);
+    }
+
+    /**
+     * Creates a histogram of the last frames.
+     *
+     * @param windowSize         the number of frames kept
+     * @param jankThresholdNanos the total frame time above which a frame is janky
+     */
+    public FrameMetricsHistogram(@IntRange(from = 1) int windowSize, long jankThresholdNanos) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        values = new long[METRIC_NAMES.length][windowSize];
+        fullyRendered = new boolean[windowSize];
+        this.jankThresholdNanos = jankThresholdNanos;
+    }
+
+    /**
+     * Adds a frame to the histogram, replacing the oldest frame once the window is full.
+     *
+     * @param metrics the metrics of the frame
+     */
+    public void add(@NonNull FrameMetrics metrics) {
+        values[UPDATE_TIME][next] = metrics.getUpdateTimeNanos();
+        values[LAYOUT_TIME][next] = metrics.getLayoutTimeNanos();
+        values[RENDER_TIME][next] = metrics.getRenderTimeNanos();
+        values[GPU_SUBMIT_TIME][next] = metrics.getGpuSubmitTimeNanos();
+        values[TOTAL_TIME][next] = metrics.getTotalTimeNanos();
+        values[UPLOADED_TILES][next] = metrics.getUploadedTiles();
+        fullyRendered[next] = metrics.isFullyRendered();
+
+        next = (next + 1) % fullyRendered.length;
+        count = Math.min(count + 1, fullyRendered.length);
+    }
+
+    /**
+     * Removes all frames from the histogram.
+     */
+    public void clear() {
+        next = 0;
+        count = 0;
+    }
+
+    /**
+     * Returns the number of frames in the histogram.
+     *
+     * @return the number of frames, at most the window size
+     */
+    public int getFrameCount() {
+        return count;
+    }
+
+    /**
+     * Returns the value of a metric below which the given percentage of frames fall.
+     *
+     * @param metric     the metric
+     * @param percentile the percentile, between 0 and 100
+     * @return the value of the metric, 0 if the histogram is empty
+     */
+    public long getPercentile(@Metric int metric, double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(values[metric], count);
+        Arrays.sort(sorted);
+        return sorted[percentileIndex(percentile)];
+    }
+
+    /**
+     * Returns the number of frames with a total time above the jank threshold.
+     *
+     * @return the number of janky frames
+     */
+    public int getJankyFrameCount() {
+        int janky = 0;
+        for (int i = 0; i < count; i++) {
+            if (values[TOTAL_TIME][i] > jankThresholdNanos) {
+                janky++;
+            }
+        }
+        return janky;
+    }
+
+    /**
+     * Returns the number of frames that were fully rendered.
+     *
+     * @return the number of fully rendered frames
+     */
+    public int getFullyRenderedFrameCount() {
+        int rendered = 0;
+        for (int i = 0; i < count; i++) {
+            if (fullyRendered[i]) {
+                rendered++;
+            }
+        }
+        return rendered;
+    }
+
+    /**
+     * Exports the histogram as flat key value pairs, such as {@code render_time_p90}, suitable to be reported to a
+     * monitoring system. The 50th, 90th and 99th percentiles of every metric are exported, together with the
+     * {@code frames}, {@code janky_frames} and {@code fully_rendered_frames} counts.
+     *
+     * @return the exported values, times are in nanoseconds
+     */
+    @NonNull
+    public Map<String, Long> export() {
+        Map<String, Long> exported = new LinkedHashMap<>();
+        exported.put("frames", (long) count);
+        exported.put("janky_frames", (long) getJankyFrameCount());
+        exported.put("fully_rendered_frames", (long) getFullyRenderedFrameCount());
+        for (int metric = 0; metric < METRIC_NAMES.length; metric++) {
+            long[] sorted = Arrays.copyOf(values[metric], count);
+            Arrays.sort(sorted);
+            for (double percentile : EXPORTED_PERCENTILES) {
+                long value = count > 0 ? sorted[percentileIndex(percentile)] : 0;
+                exported.put(METRIC_NAMES[metric] + "_p" + (int) percentile, value);
+            }
+        }
+        return exported;
+    }
+
+    private int percentileIndex(double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * count);
+        return Math.max(rank - 1, 0);
+    }
+}
@@ -0,0 +1,219 @@
+package com.mapbox.mapboxsdk.maps;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Schedules the frames of a map on the display's vsync.
+ * <p>
+ * Frames requested between two vsync signals are rendered once, on the next vsync. With a maximum frame rate,
+ * vsync signals that arrive earlier than the frame interval are skipped and the frame is rendered on the first
+ * vsync after it. Choreographer is used to receive vsync signals, on devices without Choreographer frames are
+ * scheduled with a handler at a 60 fps interval.
+ * </p>
+ * <p>
+ * When rendering on change, frames that only advance a style transition are rendered at a low frame rate, other
+ * frames are rendered as usual.
+ * </p>
+ */
+class FrameScheduler {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long FALLBACK_FRAME_INTERVAL_MILLIS = 16;
+
+    // a frame arriving slightly before the interval is due to vsync jitter and isn't skipped
+    private static final long FRAME_INTERVAL_TOLERANCE_NANOS = NANOS_PER_SECOND / 240;
+
+    private static final long STYLE_TRANSITION_FRAME_INTERVAL_NANOS = NANOS_PER_SECOND / 10;
+
+    private final Runnable frameCallback;
+    private final Vsync vsync;
+    private final Handler handler;
+    private int maximumFrameRate;
+    private long frameInterval;
+    private long lastFrameTime = -1;
+    private boolean renderOnChange;
+    private boolean scheduled;
+    private boolean styleTransitionFrame;
+    private final AtomicBoolean requestPosted = new AtomicBoolean();
+
+    private final Runnable requestFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            requestPosted.set(false);
+            requestFrame();
+        }
+    };
+
+    FrameScheduler(@NonNull Runnable frameCallback) {
+        this.frameCallback = frameCallback;
+        handler = new Handler(Looper.getMainLooper());
+        vsync = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                ? new ChoreographerVsync(this) : new HandlerVsync(this, handler);
+    }
+
+    // used for testing
+    FrameScheduler(@NonNull Runnable frameCallback, @NonNull Vsync vsync, @NonNull Handler handler) {
+        this.frameCallback = frameCallback;
+        this.vsync = vsync;
+        this.handler = handler;
+    }
+
+    /**
+     * Sets the maximum amount of frames rendered per second.
+     *
+     * @param maximumFrameRate the maximum frame rate, 0 to render at the display's frame rate
+     */
+    void setMaximumFrameRate(int maximumFrameRate) {
+        if (maximumFrameRate < 0) {
+            throw new IllegalArgumentException("Maximum frame rate can't be negative: " + maximumFrameRate);
+        }
+        this.maximumFrameRate = maximumFrameRate;
+        frameInterval = maximumFrameRate > 0 ? NANOS_PER_SECOND / maximumFrameRate : 0;
+    }
+
+    int getMaximumFrameRate() {
+        return maximumFrameRate;
+    }
+
+    /**
+     * Sets whether frames that only advance a style transition are rendered at a low frame rate.
+     *
+     * @param renderOnChange true to render style transitions at a low frame rate
+     */
+    void setRenderOnChange(boolean renderOnChange) {
+        this.renderOnChange = renderOnChange;
+    }
+
+    boolean isRenderOnChange() {
+        return renderOnChange;
+    }
+
+    /**
+     * Requests a frame to be rendered, can be called from any thread.
+     */
+    void requestFrame() {
+        if (Looper.myLooper() != handler.getLooper()) {
+            if (requestPosted.compareAndSet(false, true)) {
+                handler.post(requestFrameRunnable);
+            }
+            return;
+        }
+
+        requestFrame(false);
+    }
+
+    /**
+     * Requests a frame to be rendered on the main thread.
+     *
+     * @param styleTransition true if the frame only advances a style transition
+     */
+    void requestFrame(boolean styleTransition) {
+        if (!scheduled) {
+            scheduled = true;
+            styleTransitionFrame = styleTransition;
+            vsync.postFrameCallback();
+        } else if (!styleTransition) {
+            styleTransitionFrame = false;
+        }
+    }
+
+    void cancel() {
+        if (requestPosted.compareAndSet(true, false)) {
+            handler.removeCallbacks(requestFrameRunnable);
+        }
+        if (scheduled) {
+            scheduled = false;
+            vsync.removeFrameCallback();
+        }
+    }
+
+    void onVsync(long frameTimeNanos) {
+        if (!scheduled) {
+            return;
+        }
+
+        long interval = frameInterval;
+        if (renderOnChange && styleTransitionFrame) {
+            interval = Math.max(interval, STYLE_TRANSITION_FRAME_INTERVAL_NANOS);
+        }
+        if (interval > 0 && lastFrameTime != -1
+                && frameTimeNanos - lastFrameTime < interval - FRAME_INTERVAL_TOLERANCE_NANOS) {
+            // too early for the frame interval, wait for the next vsync
+            vsync.postFrameCallback();
+            return;
+        }
+
+        scheduled = false;
+        lastFrameTime = frameTimeNanos;
+        frameCallback.run();
+    }
+
+    /**
+     * Source of vsync signals, delivered to {@link FrameScheduler#onVsync(long)} on the main thread.
+     */
+    interface Vsync {
+        void postFrameCallback();
+
+        void removeFrameCallback();
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerVsync implements Vsync, Choreographer.FrameCallback {
+
+        private final FrameScheduler scheduler;
+
+        ChoreographerVsync(FrameScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public void postFrameCallback() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void removeFrameCallback() {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            scheduler.onVsync(frameTimeNanos);
+        }
+    }
+
+    private static class HandlerVsync implements Vsync, Runnable {
+
+        private final FrameScheduler scheduler;
+        private final Handler handler;
+
+        HandlerVsync(FrameScheduler scheduler, Handler handler) {
+            this.scheduler = scheduler;
+            this.handler = handler;
+        }
+
+        @Override
+        public void postFrameCallback() {
+            handler.postDelayed(this, FALLBACK_FRAME_INTERVAL_MILLIS);
+        }
+
+        @Override
+        public void removeFrameCallback() {
+            handler.removeCallbacks(this);
+        }
+
+        @Override
+        public void run() {
+            scheduler.onVsync(TimeUnit.MILLISECONDS.toNanos(SystemClock.uptimeMillis()));
+        }
+    }
+}
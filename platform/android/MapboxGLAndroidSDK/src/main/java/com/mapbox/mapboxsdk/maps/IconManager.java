@@ -1,47 +1,75 @@
 package com.mapbox.mapboxsdk.maps;
 
 import android.graphics.Bitmap;
+import android.support.annotation.Nullable;
 import android.util.DisplayMetrics;
 
 import com.mapbox.mapboxsdk.annotations.Icon;
 import com.mapbox.mapboxsdk.annotations.IconFactory;
 import com.mapbox.mapboxsdk.annotations.Marker;
 import com.mapbox.mapboxsdk.annotations.MarkerView;
-import com.mapbox.mapboxsdk.exceptions.IconBitmapChangedException;
 
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Responsible for managing icons added to the Map.
  * <p>
- * Maintains a {@link List} of {@link Icon} and  is responsible for initialising default markers and
+ * Maintains a registry of {@link Icon} and  is responsible for initialising default markers and
  * setting up {@link MarkerView} annotation ghosting.
  * </p>
  * <p>
+ * Icons are indexed by id and by a hash of their pixels. An icon with the same pixels as an icon that
+ * was already loaded is resolved to that icon, so identical bitmaps share a single image in the map.
+ * Markers keep the icon they were given, the id of the image used by the map is looked up with
+ * {@link #getNativeIconId(Icon)}. Bitmaps are tracked by identity, a bitmap must not be modified after
+ * its icon was added to the map.
+ * </p>
+ * <p>
  * Keep track of icons added and the resulting average icon size. This is used internally by our
  * gestures detection to calculate the size of a touch target.
  * </p>
  */
 class IconManager {
 
+    // separates the id of an icon from the suffix of an id reused for new pixels
+    private static final String REPLACED_ICON_SEPARATOR = "#";
+
     private NativeMapView nativeMapView;
-    private List<Icon> icons;
+    // icons by id, the id of a deduplicated icon maps to the icon it was resolved to
+    private Map<String, Icon> icons;
+    // the bitmaps the icons were resolved from, by id
+    private Map<String, Bitmap> iconBitmaps;
+    // loaded icons by the hash of their pixels
+    private Map<Integer, List<Icon>> iconsByContent;
+    // the id of the image in the map, by the icon it was resolved from
+    private Map<Icon, String> nativeIconIds;
+    private int replacedIconCount;
 
     private int averageIconHeight;
     private int averageIconWidth;
 
     IconManager(NativeMapView nativeMapView) {
         this.nativeMapView = nativeMapView;
-        this.icons = new ArrayList<>();
+        this.icons = new HashMap<>();
+        this.iconBitmaps = new HashMap<>();
+        this.iconsByContent = new HashMap<>();
+        this.nativeIconIds = new HashMap<>();
         // load transparent icon for MarkerView to trace actual markers, see #6352
         loadIcon(IconFactory.recreate(IconFactory.ICON_MARKERVIEW_ID, IconFactory.ICON_MARKERVIEW_BITMAP));
     }
 
     Icon loadIconForMarker(Marker marker) {
-        Icon icon = marker.getIcon();
+        Icon icon = loadIconForMarker(marker.getIcon());
+        if (marker.getIcon() == null) {
+            marker.setIcon(icon);
+        }
+        return icon;
+    }
 
+    Icon loadIconForMarker(@Nullable Icon icon) {
         // calculating average before adding
         int iconSize = icons.size() + 1;
 
@@ -52,23 +80,25 @@ class IconManager {
             Bitmap bitmap = icon.getBitmap();
             averageIconHeight = averageIconHeight + (bitmap.getHeight() / 2 - averageIconHeight) / iconSize;
             averageIconWidth = averageIconWidth + (bitmap.getWidth() - averageIconWidth) / iconSize;
-            marker.setIcon(icon);
         } else {
             Bitmap bitmap = icon.getBitmap();
             averageIconHeight = averageIconHeight + (bitmap.getHeight() - averageIconHeight) / iconSize;
             averageIconWidth = averageIconWidth + (bitmap.getWidth() - averageIconWidth) / iconSize;
         }
 
-        if (!icons.contains(icon)) {
-            icons.add(icon);
-            loadIcon(icon);
-        } else {
-            Icon oldIcon = icons.get(icons.indexOf(icon));
-            if (!oldIcon.getBitmap().sameAs(icon.getBitmap())) {
-                throw new IconBitmapChangedException();
-            }
-        }
-        return icon;
+        return resolveIcon(icon);
+    }
+
+    /**
+     * Returns the id of the image the map uses for an icon, this differs from the id of the icon when
+     * the icon was resolved to an icon with the same pixels.
+     *
+     * @param icon the icon of a marker
+     * @return the id of the image in the map
+     */
+    String getNativeIconId(Icon icon) {
+        String nativeIconId = nativeIconIds.get(icon);
+        return nativeIconId != null ? nativeIconId : icon.getId();
     }
 
     Icon loadIconForMarkerView(MarkerView marker) {
@@ -81,47 +111,114 @@ class IconManager {
         Bitmap bitmap = icon.getBitmap();
         averageIconHeight = averageIconHeight + (bitmap.getHeight() - averageIconHeight) / iconSize;
         averageIconWidth = averageIconWidth + (bitmap.getWidth() - averageIconWidth) / iconSize;
-        if (!icons.contains(icon)) {
-            icons.add(icon);
-        } else {
-            Icon oldIcon = icons.get(icons.indexOf(icon));
-            if (!oldIcon.getBitmap().sameAs(icon.getBitmap())) {
-                throw new IconBitmapChangedException();
-            }
+        if (!icons.containsKey(icon.getId())) {
+            // MarkerView icons are drawn by Android views, they are not loaded into the map
+            icons.put(icon.getId(), icon);
+            iconBitmaps.put(icon.getId(), icon.getBitmap());
         }
         return icon;
     }
 
     int getTopOffsetPixelsForIcon(Icon icon) {
-        return (int) (nativeMapView.getTopOffsetPixelsForAnnotationSymbol(icon.getId()) * nativeMapView.getPixelRatio());
+        return (int) (nativeMapView.getTopOffsetPixelsForAnnotationSymbol(getNativeIconId(icon))
+                * nativeMapView.getPixelRatio());
     }
 
     void loadIcon(Icon icon) {
+        // pixels are read from the bitmap in native code, without copying them into a Java array
+        nativeMapView.addAnnotationIcon(icon.getId(), icon.getBitmap(), getScale(icon.getBitmap()));
+    }
+
+    int getImageContentHash(Bitmap bitmap) {
+        return nativeMapView.getImageContentHash(bitmap);
+    }
+
+    /**
+     * Resolves an icon to the registered icon with the same id or the same pixels, loading it into the
+     * map if neither is known.
+     * <p>
+     * An id seen before with the same bitmap resolves with a single lookup. When an id is reused with
+     * new pixels, its image is replaced, unless other ids were resolved to it. The image is then kept
+     * for these ids and the new pixels are loaded under a new id.
+     * </p>
+     *
+     * @param icon the icon to resolve
+     * @return the icon whose id is used by the map
+     */
+    private Icon resolveIcon(Icon icon) {
         Bitmap bitmap = icon.getBitmap();
-        String id = icon.getId();
-        if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
-            bitmap = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+        Icon registered = icons.get(icon.getId());
+        if (registered != null && iconBitmaps.get(icon.getId()) == bitmap) {
+            return registered;
+        }
+
+        int contentHash = getImageContentHash(bitmap);
+
+        List<Icon> candidates = iconsByContent.get(contentHash);
+        if (candidates != null) {
+            for (Icon candidate : candidates) {
+                // only compare pixels on a hash match
+                if (getScale(candidate.getBitmap()) == getScale(bitmap) && candidate.getBitmap().sameAs(bitmap)) {
+                    register(icon, candidate);
+                    return candidate;
+                }
+            }
+        } else {
+            candidates = new ArrayList<>(1);
+            iconsByContent.put(contentHash, candidates);
+        }
+
+        Icon loadedIcon = icon;
+        if (registered != null && registered.getId().equals(icon.getId())) {
+            if (isShared(registered)) {
+                loadedIcon = IconFactory.recreate(
+                    icon.getId() + REPLACED_ICON_SEPARATOR + ++replacedIconCount, bitmap);
+            } else {
+                removeFromContentIndex(registered);
+            }
+        }
+        candidates.add(loadedIcon);
+        register(icon, loadedIcon);
+        loadIcon(loadedIcon);
+        return loadedIcon;
+    }
+
+    private void register(Icon icon, Icon resolvedIcon) {
+        icons.put(icon.getId(), resolvedIcon);
+        iconBitmaps.put(icon.getId(), icon.getBitmap());
+        nativeIconIds.put(icon, resolvedIcon.getId());
+    }
+
+    private boolean isShared(Icon loadedIcon) {
+        for (Map.Entry<String, Icon> entry : icons.entrySet()) {
+            if (entry.getValue() == loadedIcon && !entry.getKey().equals(loadedIcon.getId())) {
+                return true;
+            }
         }
-        ByteBuffer buffer = ByteBuffer.allocate(bitmap.getRowBytes() * bitmap.getHeight());
-        bitmap.copyPixelsToBuffer(buffer);
+        return false;
+    }
 
+    private void removeFromContentIndex(Icon icon) {
+        for (List<Icon> candidates : iconsByContent.values()) {
+            if (candidates.remove(icon)) {
+                return;
+            }
+        }
+    }
+
+    private static float getScale(Bitmap bitmap) {
         float density = bitmap.getDensity();
         if (density == Bitmap.DENSITY_NONE) {
             density = DisplayMetrics.DENSITY_DEFAULT;
         }
-        float scale = density / DisplayMetrics.DENSITY_DEFAULT;
-        nativeMapView.addAnnotationIcon(
-                id,
-                bitmap.getWidth(),
-                bitmap.getHeight(),
-                scale, buffer.array());
+        return density / DisplayMetrics.DENSITY_DEFAULT;
     }
 
     void reloadIcons() {
-        int count = icons.size();
-        for (int i = 0; i < count; i++) {
-            Icon icon = icons.get(i);
-            loadIcon(icon);
+        for (List<Icon> loadedIcons : iconsByContent.values()) {
+            for (Icon icon : loadedIcons) {
+                loadIcon(icon);
+            }
         }
     }
 
@@ -131,15 +228,7 @@ class IconManager {
             icon = IconFactory.getInstance(nativeMapView.getContext()).defaultMarker();
             marker.setIcon(icon);
         }
-        if (!icons.contains(icon)) {
-            icons.add(icon);
-            loadIcon(icon);
-        } else {
-            Icon oldIcon = icons.get(icons.indexOf(icon));
-            if (!oldIcon.getBitmap().sameAs(icon.getBitmap())) {
-                throw new IconBitmapChangedException();
-            }
-        }
+        resolveIcon(icon);
 
         // this seems to be a costly operation according to the profiler so I'm trying to save some calls
         Marker previousMarker = marker.getId() != -1 ? (Marker) mapboxMap.getAnnotation(marker.getId()) : null;
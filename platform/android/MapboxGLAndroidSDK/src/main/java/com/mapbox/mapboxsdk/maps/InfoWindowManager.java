@@ -29,6 +29,10 @@ class InfoWindowManager {
     private MapboxMap.OnInfoWindowLongClickListener onInfoWindowLongClickListener;
     private MapboxMap.OnInfoWindowCloseListener onInfoWindowCloseListener;
 
+    private InfoWindow[] projectedInfoWindows = new InfoWindow[0];
+    private double[] latLngs = new double[0];
+    private float[] screenLocations = new float[0];
+
     InfoWindowManager() {
         this.infoWindows = new ArrayList<>();
     }
@@ -53,6 +57,42 @@ class InfoWindowManager {
         return infoWindows;
     }
 
+    /**
+     * Updates the position of the open InfoWindows, projecting their markers in a single call.
+     *
+     * @param projection the projection of the map
+     */
+    void update(@NonNull Projection projection) {
+        int size = infoWindows.size();
+        if (size == 0) {
+            return;
+        }
+
+        if (projectedInfoWindows.length < size) {
+            projectedInfoWindows = new InfoWindow[size];
+            latLngs = new double[size * 2];
+            screenLocations = new float[size * 2];
+        }
+
+        int count = 0;
+        Marker marker;
+        for (InfoWindow infoWindow : infoWindows) {
+            marker = infoWindow.getBoundMarker();
+            if (marker != null) {
+                projectedInfoWindows[count] = infoWindow;
+                latLngs[count * 2] = marker.getPosition().getLatitude();
+                latLngs[count * 2 + 1] = marker.getPosition().getLongitude();
+                count++;
+            }
+        }
+        projection.toScreenLocations(latLngs, screenLocations, count);
+
+        for (int i = 0; i < count; i++) {
+            projectedInfoWindows[i].update(screenLocations[i * 2], screenLocations[i * 2 + 1]);
+            projectedInfoWindows[i] = null;
+        }
+    }
+
     boolean isInfoWindowValidForMarker(@NonNull Marker marker) {
         return !TextUtils.isEmpty(marker.getTitle()) || !TextUtils.isEmpty(marker.getSnippet());
     }
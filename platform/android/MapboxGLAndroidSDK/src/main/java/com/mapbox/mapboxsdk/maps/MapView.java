@@ -13,7 +13,6 @@ import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.PointF;
@@ -60,8 +59,6 @@ import com.almeros.android.multitouch.gesturedetectors.ShoveGestureDetector;
 import com.almeros.android.multitouch.gesturedetectors.TwoFingerGestureDetector;
 import com.mapbox.mapboxsdk.MapboxAccountManager;
 import com.mapbox.mapboxsdk.R;
-import com.mapbox.mapboxsdk.annotations.Annotation;
-import com.mapbox.mapboxsdk.annotations.InfoWindow;
 import com.mapbox.mapboxsdk.annotations.Marker;
 import com.mapbox.mapboxsdk.annotations.MarkerView;
 import com.mapbox.mapboxsdk.camera.CameraPosition;
@@ -82,7 +79,9 @@ import com.mapbox.mapboxsdk.utils.ColorUtils;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Hashtable;
 import java.util.Iterator;
@@ -115,6 +114,7 @@ public class MapView extends FrameLayout {
 
     private NativeMapView nativeMapView;
     private boolean hasSurface = false;
+    private FrameScheduler frameScheduler;
 
     private ViewGroup markerViewContainer;
     private CompassView compassView;
@@ -151,7 +151,6 @@ public class MapView extends FrameLayout {
     private boolean styleWasSet = false;
 
     private List<OnMapReadyCallback> onMapReadyCallbackList;
-    private SnapshotRequest snapshotRequest;
 
     private boolean onStartCalled;
     private boolean onStopCalled;
@@ -192,6 +191,12 @@ public class MapView extends FrameLayout {
 
         View view = LayoutInflater.from(context).inflate(R.layout.mapbox_mapview_internal, this);
         setWillNotDraw(false);
+        frameScheduler = new FrameScheduler(new Runnable() {
+            @Override
+            public void run() {
+                invalidate();
+            }
+        });
 
         if (options.getTextureMode()) {
             TextureView textureView = new TextureView(context);
@@ -488,11 +493,12 @@ public class MapView extends FrameLayout {
                     myLocationView.update();
                     mapboxMap.getMarkerViewManager().update();
 
-                    for (InfoWindow infoWindow : mapboxMap.getInfoWindows()) {
-                        infoWindow.update();
-                    }
+                    mapboxMap.updateInfoWindows();
                 }
 
+                if (change == REGION_DID_CHANGE || change == REGION_DID_CHANGE_ANIMATED) {
+                    mapboxMap.updateMarkerClusters();
+                }
             }
         });
 
@@ -633,6 +639,9 @@ public class MapView extends FrameLayout {
         }
 
         destroyed = true;
+        frameScheduler.cancel();
+        annotationManager.onDestroy();
+        mapboxMap.onDestroy();
         nativeMapView.terminateContext();
         nativeMapView.terminateDisplay();
         nativeMapView.destroySurface();
@@ -675,6 +684,20 @@ public class MapView extends FrameLayout {
         });
     }
 
+    // Called via JNI from NativeMapView for every rendered frame while frame metrics are enabled
+    // Forward to any listener
+    protected void onFrameMetrics(final FrameMetrics metrics) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                MapboxMap.OnFrameMetricsListener listener = mapboxMap.getOnFrameMetricsListener();
+                if (listener != null) {
+                    listener.onFrameMetrics(metrics);
+                }
+            }
+        });
+    }
+
     //
     // LatLng / CenterCoordinate
     //
@@ -1012,6 +1035,17 @@ public class MapView extends FrameLayout {
         return nativeMapView.pixelForLatLng(location);
     }
 
+    /*
+     * Internal use only, use Projection#toScreenLocations instead.
+     */
+    void toNativeScreenLocations(@NonNull double[] latLngs, @NonNull float[] screenLocations, int count) {
+        if (destroyed) {
+            Arrays.fill(screenLocations, 0, count * 2, 0);
+            return;
+        }
+        nativeMapView.pixelsForLatLngs(latLngs, screenLocations, count);
+    }
+
     /**
      * @return the ViewGroup containing the marker views
      */
@@ -1065,9 +1099,39 @@ public class MapView extends FrameLayout {
     //
 
     // Called when the map needs to be rerendered
-    // Called via JNI from NativeMapView
     protected void onInvalidate() {
-        postInvalidate();
+        onInvalidate(false);
+    }
+
+    // Called via JNI from NativeMapView, styleTransition is true if the frame only advances a style transition
+    void onInvalidate(boolean styleTransition) {
+        if (frameScheduler.getMaximumFrameRate() == 0 && !frameScheduler.isRenderOnChange()) {
+            // the view's draw pass is already aligned with vsync
+            postInvalidate();
+            return;
+        }
+
+        // invalidations between two frames are rendered once
+        frameScheduler.requestFrame(styleTransition);
+    }
+
+    void setMaximumFrameRate(int maximumFrameRate) {
+        frameScheduler.setMaximumFrameRate(maximumFrameRate);
+    }
+
+    int getMaximumFrameRate() {
+        return frameScheduler.getMaximumFrameRate();
+    }
+
+    void setRenderOnChange(boolean renderOnChange) {
+        frameScheduler.setRenderOnChange(renderOnChange);
+    }
+
+    void setFrameMetricsEnabled(boolean enabled) {
+        if (destroyed) {
+            return;
+        }
+        nativeMapView.setFrameMetricsEnabled(enabled);
     }
 
     @Override
@@ -1185,9 +1249,7 @@ public class MapView extends FrameLayout {
             myLocationView.update();
             mapboxMap.getMarkerViewManager().update();
 
-            for (InfoWindow infoWindow : mapboxMap.getInfoWindows()) {
-                infoWindow.update();
-            }
+            mapboxMap.updateInfoWindows();
         }
     }
 
@@ -1515,21 +1577,12 @@ public class MapView extends FrameLayout {
             }
 
             if (newSelectedMarkerId >= 0) {
-                List<Annotation> annotations = mapboxMap.getAnnotations();
-                int count = annotations.size();
-                for (int i = 0; i < count; i++) {
-                    Annotation annotation = annotations.get(i);
-                    if (annotation instanceof Marker) {
-                        if (annotation.getId() == newSelectedMarkerId) {
-                            if (selectedMarkers.isEmpty() || !selectedMarkers.contains(annotation)) {
-                                if (!(annotation instanceof MarkerView)) {
-                                    mapboxMap.selectMarker((Marker) annotation);
-                                } else {
-                                    mapboxMap.getMarkerViewManager().onClickMarkerView((MarkerView) annotation);
-                                }
-                            }
-                            break;
-                        }
+                Marker marker = annotationManager.getMarker(newSelectedMarkerId);
+                if (marker != null && (selectedMarkers.isEmpty() || !selectedMarkers.contains(marker))) {
+                    if (!(marker instanceof MarkerView)) {
+                        mapboxMap.selectMarker(marker);
+                    } else {
+                        mapboxMap.getMarkerViewManager().onClickMarkerView((MarkerView) marker);
                     }
                 }
             } else {
@@ -2394,49 +2447,73 @@ public class MapView extends FrameLayout {
     // Snapshot API
     //
 
+    // Pixels are copied from the framebuffer straight into the bitmap, without encoding them
     @UiThread
     void snapshot(@NonNull final MapboxMap.SnapshotReadyCallback callback, @Nullable final Bitmap bitmap) {
-        snapshotRequest = new SnapshotRequest(bitmap, callback);
-        nativeMapView.scheduleTakeSnapshot();
-        nativeMapView.render();
-    }
+        if (destroyed || getWidth() == 0 || getHeight() == 0) {
+            Timber.e("Can't take a snapshot of a map view without a size");
+            return;
+        }
 
-    // Called when the snapshot method was executed
-    // Called via JNI from NativeMapView
-    // Forward to any listeners
-    protected void onSnapshotReady(byte[] bytes) {
-        if (snapshotRequest != null && bytes != null) {
-            BitmapFactory.Options options = new BitmapFactory.Options();
-            options.inBitmap = snapshotRequest.getBitmap();  // the old Bitmap to be reused
-            options.inMutable = true;
-            options.inSampleSize = 1;
-            Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
-
-            MapboxMap.SnapshotReadyCallback callback = snapshotRequest.getCallback();
-            if (callback != null) {
-                callback.onSnapshotReady(bitmap);
-            }
+        Bitmap snapshot = bitmap;
+        if (snapshot == null || !snapshot.isMutable() || snapshot.getConfig() != Bitmap.Config.ARGB_8888
+                || snapshot.getWidth() != getWidth() || snapshot.getHeight() != getHeight()) {
+            snapshot = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+        }
+
+        if (takeSnapshot(snapshot)) {
+            callback.onSnapshotReady(snapshot);
+        } else {
+            Timber.e("Failed to take a snapshot of the map");
         }
     }
 
-    private class SnapshotRequest {
-        private Bitmap bitmap;
-        private MapboxMap.SnapshotReadyCallback callback;
+    @UiThread
+    void snapshot(@NonNull ByteBuffer buffer, @NonNull final MapboxMap.SnapshotPixelsReadyCallback callback) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("Snapshot buffer must be a direct buffer");
+        }
 
-        SnapshotRequest(Bitmap bitmap, MapboxMap.SnapshotReadyCallback callback) {
-            this.bitmap = bitmap;
-            this.callback = callback;
+        int width = getWidth();
+        int height = getHeight();
+        if (buffer.capacity() < width * height * 4) {
+            throw new IllegalArgumentException("Snapshot buffer must hold at least " + width * height * 4
+                    + " bytes, has " + buffer.capacity());
         }
 
-        public Bitmap getBitmap() {
-            return bitmap;
+        if (destroyed || width == 0 || height == 0) {
+            Timber.e("Can't take a snapshot of a map view without a size");
+            return;
         }
 
-        public MapboxMap.SnapshotReadyCallback getCallback() {
-            return callback;
+        if (takeSnapshot(buffer)) {
+            callback.onSnapshotPixelsReady(buffer, width, height);
+        } else {
+            Timber.e("Failed to take a snapshot of the map");
         }
     }
 
+    /**
+     * Called with the encoded image of a snapshot.
+     *
+     * @param bytes the encoded image
+     * @deprecated Snapshots are no longer encoded, this method isn't called anymore and will be removed in a
+     * future release. Use {@link MapboxMap#snapshot(MapboxMap.SnapshotReadyCallback, Bitmap)} instead.
+     */
+    @Deprecated
+    protected void onSnapshotReady(byte[] bytes) {
+    }
+
+    // used for testing
+    boolean takeSnapshot(@NonNull Bitmap bitmap) {
+        return nativeMapView.takeSnapshot(bitmap);
+    }
+
+    // used for testing
+    boolean takeSnapshot(@NonNull ByteBuffer buffer) {
+        return nativeMapView.takeSnapshot(buffer);
+    }
+
     //
     // View utility methods
     //
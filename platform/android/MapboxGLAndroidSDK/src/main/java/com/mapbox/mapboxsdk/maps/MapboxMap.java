@@ -5,7 +5,9 @@ import android.graphics.Bitmap;
 import android.graphics.PointF;
 import android.graphics.RectF;
 import android.location.Location;
+import android.os.SystemClock;
 import android.support.annotation.FloatRange;
+import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.UiThread;
@@ -18,10 +20,12 @@ import com.mapbox.mapboxsdk.MapboxAccountManager;
 import com.mapbox.mapboxsdk.annotations.Annotation;
 import com.mapbox.mapboxsdk.annotations.BaseMarkerOptions;
 import com.mapbox.mapboxsdk.annotations.BaseMarkerViewOptions;
+import com.mapbox.mapboxsdk.annotations.Icon;
 import com.mapbox.mapboxsdk.annotations.InfoWindow;
 import com.mapbox.mapboxsdk.annotations.Marker;
 import com.mapbox.mapboxsdk.annotations.MarkerOptions;
 import com.mapbox.mapboxsdk.annotations.MarkerView;
+import com.mapbox.mapboxsdk.annotations.MarkerClusterManager;
 import com.mapbox.mapboxsdk.annotations.MarkerViewManager;
 import com.mapbox.mapboxsdk.annotations.Polygon;
 import com.mapbox.mapboxsdk.annotations.PolygonOptions;
@@ -35,6 +39,7 @@ import com.mapbox.mapboxsdk.constants.MyBearingTracking;
 import com.mapbox.mapboxsdk.constants.MyLocationTracking;
 import com.mapbox.mapboxsdk.constants.Style;
 import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
 import com.mapbox.mapboxsdk.maps.widgets.MyLocationViewSettings;
 import com.mapbox.mapboxsdk.style.layers.Layer;
 import com.mapbox.mapboxsdk.style.layers.NoSuchLayerException;
@@ -43,7 +48,10 @@ import com.mapbox.mapboxsdk.style.sources.Source;
 import com.mapbox.services.commons.geojson.Feature;
 
 import java.lang.reflect.ParameterizedType;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The general class to interact with in the Android Mapbox SDK. It exposes the entry point for all
@@ -73,9 +81,14 @@ public class MapboxMap {
     private MapboxMap.OnMyLocationTrackingModeChangeListener onMyLocationTrackingModeChangeListener;
     private MapboxMap.OnMyBearingTrackingModeChangeListener onMyBearingTrackingModeChangeListener;
     private MapboxMap.OnFpsChangedListener onFpsChangedListener;
+    private MapboxMap.OnFrameMetricsListener onFrameMetricsListener;
+    private MapboxMap.OnStyleLoadedListener onStyleLoadedListener;
 
     private AnnotationManager annotationManager;
     private InfoWindowManager infoWindowManager;
+    private FeatureQueryScheduler featureQueryScheduler;
+    private StyleTransaction styleTransaction;
+    private int styleTransactionDepth;
 
     private double maxZoomLevel = -1;
     private double minZoomLevel = -1;
@@ -87,12 +100,15 @@ public class MapboxMap {
         projection = new Projection(mapView);
         infoWindowManager = new InfoWindowManager();
         annotationManager = new AnnotationManager(mapView.getNativeMapView(), iconManager, infoWindowManager);
+        featureQueryScheduler = new FeatureQueryScheduler(mapView);
 
         // TODO inject NativeMapView https://github.com/mapbox/mapbox-gl-native/issues/4100
         NativeMapView nativeMapView = mapView.getNativeMapView();
         if (nativeMapView != null) {
             transform = new Transform(nativeMapView, this);
             nativeMapView.addOnMapChangedListener(new CameraInvalidator());
+            nativeMapView.addOnMapChangedListener(featureQueryScheduler);
+            nativeMapView.addOnMapChangedListener(new StyleLoadTimer());
         }
     }
 
@@ -141,6 +157,10 @@ public class MapboxMap {
      */
     @UiThread
     public void addLayer(@NonNull Layer layer, String before) {
+        if (styleTransaction != null) {
+            styleTransaction.addLayer(layer, before);
+            return;
+        }
         getMapView().getNativeMapView().addLayer(layer, before);
     }
 
@@ -152,6 +172,10 @@ public class MapboxMap {
      */
     @UiThread
     public void removeLayer(@NonNull String layerId) throws NoSuchLayerException {
+        if (styleTransaction != null) {
+            styleTransaction.removeLayer(layerId);
+            return;
+        }
         getMapView().getNativeMapView().removeLayer(layerId);
     }
 
@@ -163,6 +187,10 @@ public class MapboxMap {
      */
     @UiThread
     public void removeLayer(@NonNull Layer layer) throws NoSuchLayerException {
+        if (styleTransaction != null) {
+            styleTransaction.removeLayer(layer);
+            return;
+        }
         getMapView().getNativeMapView().removeLayer(layer);
     }
 
@@ -198,6 +226,10 @@ public class MapboxMap {
      */
     @UiThread
     public void addSource(@NonNull Source source) {
+        if (styleTransaction != null) {
+            styleTransaction.addSource(source);
+            return;
+        }
         getMapView().getNativeMapView().addSource(source);
     }
 
@@ -209,6 +241,10 @@ public class MapboxMap {
      */
     @UiThread
     public void removeSource(@NonNull String sourceId) throws NoSuchSourceException {
+        if (styleTransaction != null) {
+            styleTransaction.removeSource(sourceId);
+            return;
+        }
         getMapView().getNativeMapView().removeSource(sourceId);
     }
 
@@ -220,6 +256,10 @@ public class MapboxMap {
      */
     @UiThread
     public void removeSource(@NonNull Source source) throws NoSuchSourceException {
+        if (styleTransaction != null) {
+            styleTransaction.removeSource(source);
+            return;
+        }
         getMapView().getNativeMapView().removeSource(source);
     }
 
@@ -231,9 +271,28 @@ public class MapboxMap {
      */
     @UiThread
     public void addImage(@NonNull String name, @NonNull Bitmap image) {
+        if (styleTransaction != null) {
+            styleTransaction.addImages(Collections.singletonMap(name, image));
+            return;
+        }
         getMapView().getNativeMapView().addImage(name, image);
     }
 
+    /**
+     * Adds images to be used in the map's style. The images are uploaded in a single native call and the
+     * sprite atlas is refreshed once, which is cheaper than calling {@link #addImage(String, Bitmap)} for each image.
+     *
+     * @param images the images to add, keyed by the name to reference them with
+     */
+    @UiThread
+    public void addImages(@NonNull Map<String, Bitmap> images) {
+        if (styleTransaction != null) {
+            styleTransaction.addImages(images);
+            return;
+        }
+        getMapView().getNativeMapView().addImages(images);
+    }
+
     /**
      * Removes an image from the map's style
      *
@@ -241,9 +300,75 @@ public class MapboxMap {
      */
     @UiThread
     public void removeImage(String name) {
+        if (styleTransaction != null) {
+            styleTransaction.removeImage(name);
+            return;
+        }
         getMapView().getNativeMapView().removeImage(name);
     }
 
+    /**
+     * Starts collecting style changes. Until the transaction is committed, sources, layers and images added to or
+     * removed from the map are not applied: they are applied together by
+     * {@link #commitStyleTransaction(OnStyleTransactionCommittedListener)}, with a single update of the map.
+     * <p>
+     * Changes made during a transaction are not visible through {@link #getLayer(String)} and
+     * {@link #getSource(String)} before the transaction is committed. Transactions may be nested, the changes are
+     * applied when the outermost transaction is committed.
+     * </p>
+     */
+    @UiThread
+    public void beginStyleTransaction() {
+        if (styleTransactionDepth++ == 0) {
+            styleTransaction = new StyleTransaction();
+        }
+    }
+
+    /**
+     * Applies the style changes collected since {@link #beginStyleTransaction()}.
+     */
+    @UiThread
+    public void commitStyleTransaction() {
+        commitStyleTransaction(null);
+    }
+
+    /**
+     * Applies the style changes collected since {@link #beginStyleTransaction()}. A change that fails, for
+     * instance removing a layer that doesn't exist, is logged and doesn't prevent the other changes from being
+     * applied.
+     *
+     * @param listener invoked once the first frame containing the changes has been rendered, may be null
+     */
+    @UiThread
+    public void commitStyleTransaction(@Nullable OnStyleTransactionCommittedListener listener) {
+        if (styleTransactionDepth == 0) {
+            throw new IllegalStateException("No style transaction to commit");
+        }
+
+        if (listener != null) {
+            styleTransaction.addCommittedListener(listener);
+        }
+        if (--styleTransactionDepth > 0) {
+            // nested transactions are applied with the outermost one
+            return;
+        }
+
+        StyleTransaction transaction = styleTransaction;
+        styleTransaction = null;
+        if (transaction.isEmpty()) {
+            // nothing to render
+            for (OnStyleTransactionCommittedListener committedListener : transaction.getCommittedListeners()) {
+                committedListener.onStyleTransactionCommitted();
+            }
+            return;
+        }
+
+        if (!transaction.getCommittedListeners().isEmpty()) {
+            mapView.addOnMapChangedListener(new StyleTransactionListener(transaction.getCommittedListeners()));
+        }
+        transaction.commit(getMapView().getNativeMapView());
+    }
+
     //
     // MinZoom
     //
@@ -887,6 +1012,22 @@ public class MapboxMap {
         return annotationManager.getMarkerViewsInRect(rect);
     }
 
+    /**
+     * Returns the markers positioned within geographical bounds.
+     * <p>
+     * The lookup is backed by a spatial index and doesn't require a render pass, markers that are
+     * hidden by the current camera are returned as well.
+     * </p>
+     *
+     * @param bounds the bounds to query
+     * @return the list of markers within bounds
+     */
+    @UiThread
+    @NonNull
+    public List<Marker> getMarkersInBounds(@NonNull LatLngBounds bounds) {
+        return annotationManager.getMarkersInBounds(bounds);
+    }
+
     /**
      * <p>
      * Adds multiple markers to this map.
@@ -904,6 +1045,43 @@ public class MapboxMap {
         return annotationManager.addMarkers(markerOptionsList, this);
     }
 
+    /**
+     * <p>
+     * Adds multiple markers to this map from packed coordinates, all using the same icon.
+     * </p>
+     * The coordinates are passed to the renderer in a single call and no {@code Marker} objects are
+     * created until they are requested, eg. through {@link #getAnnotation(long)} or when a marker is
+     * clicked. Use this method when adding large amounts of markers.
+     *
+     * @param latLngs The latitude/longitude pairs of the markers, eg. {lat0, lon0, lat1, lon1, ...}.
+     * @param icon    The icon used by the markers, the default marker icon is used when null.
+     * @return The ids of the markers that were added to the map, in the order of the coordinates.
+     */
+    @UiThread
+    @NonNull
+    public long[] addMarkers(@NonNull double[] latLngs, @Nullable Icon icon) {
+        return annotationManager.addMarkers(latLngs, new Icon[] {icon}, null, this);
+    }
+
+    /**
+     * <p>
+     * Adds multiple markers to this map from packed coordinates and icon indices.
+     * </p>
+     * The coordinates are passed to the renderer in a single call and no {@code Marker} objects are
+     * created until they are requested, eg. through {@link #getAnnotation(long)} or when a marker is
+     * clicked. Use this method when adding large amounts of markers.
+     *
+     * @param latLngs     The latitude/longitude pairs of the markers, eg. {lat0, lon0, lat1, lon1, ...}.
+     * @param icons       The icons used by the markers, null entries are replaced by the default marker icon.
+     * @param iconIndices The index in icons for each marker, all markers use the first icon when null.
+     * @return The ids of the markers that were added to the map, in the order of the coordinates.
+     */
+    @UiThread
+    @NonNull
+    public long[] addMarkers(@NonNull double[] latLngs, @NonNull Icon[] icons, @Nullable int[] iconIndices) {
+        return annotationManager.addMarkers(latLngs, icons, iconIndices, this);
+    }
+
     /**
      * <p>
      * Updates a marker on this map. Does nothing if the marker is already added.
@@ -916,6 +1094,41 @@ public class MapboxMap {
         annotationManager.updateMarker(updatedMarker, this);
     }
 
+    /**
+     * <p>
+     * Starts an annotation transaction.
+     * </p>
+     * Updates to markers, polylines and polygons, eg. through {@link Marker#setPosition(LatLng)}, are held
+     * back until {@link #commitAnnotationTransaction()} is called. Repeated updates of the same annotation
+     * are coalesced and all updates are passed to the renderer in a single call. Transactions can be nested,
+     * updates are applied when the outermost transaction is committed.
+     */
+    @UiThread
+    public void beginAnnotationTransaction() {
+        annotationManager.beginTransaction();
+    }
+
+    /**
+     * Commits an annotation transaction started with {@link #beginAnnotationTransaction()}, applying all
+     * annotation updates made since.
+     *
+     * @throws IllegalStateException if no annotation transaction is in progress
+     */
+    @UiThread
+    public void commitAnnotationTransaction() {
+        annotationManager.commitTransaction(this);
+    }
+
+    /**
+     * Returns whether an annotation transaction is in progress.
+     *
+     * @return true if annotation updates are being held back
+     */
+    @UiThread
+    public boolean isInAnnotationTransaction() {
+        return annotationManager.isInTransaction();
+    }
+
     /**
      * Adds a polyline to this map.
      *
@@ -950,6 +1163,42 @@ public class MapboxMap {
         annotationManager.updatePolyline(polyline);
     }
 
+    /**
+     * <p>
+     * Appends points to a polyline on this map, like {@link Polyline#addPoints(LatLng...)}.
+     * </p>
+     * Only the appended points are passed to the renderer, the cost of this call doesn't grow with the
+     * amount of points already in the polyline.
+     *
+     * @param polyline The polyline to extend.
+     * @param points   The points appended to the polyline.
+     */
+    @UiThread
+    public void appendPolylinePoints(@NonNull Polyline polyline, @NonNull List<LatLng> points) {
+        polyline.addPoints(points.toArray(new LatLng[points.size()]));
+    }
+
+    /**
+     * Do not use this method. Used internally by the SDK, called by a polyline after points were appended to it.
+     *
+     * @param polyline The polyline that was extended.
+     * @param points   The points appended to the polyline.
+     */
+    @UiThread
+    public void onPolylinePointsAppended(@NonNull Polyline polyline, @NonNull List<LatLng> points) {
+        annotationManager.appendPolylinePoints(polyline, points);
+    }
+
+    /**
+     * Update the trim offsets of a polyline on this map, without updating its points.
+     *
+     * @param polyline The polyline with updated trim offsets.
+     */
+    @UiThread
+    public void updatePolylineTrimOffset(@NonNull Polyline polyline) {
+        annotationManager.updatePolylineTrimOffset(polyline);
+    }
+
     /**
      * Adds a polygon to this map.
      *
@@ -1083,6 +1332,11 @@ public class MapboxMap {
 
     /**
      * Returns a list of all the annotations on the map.
+     * <p>
+     * This creates the {@code Marker} objects of all markers added from packed coordinates through
+     * {@link #addMarkers(double[], Icon)}. With large amounts of packed markers, use
+     * {@link #getMarkerCount()} and {@link #getMarkerIds()} instead.
+     * </p>
      *
      * @return A list of all the annotation objects. The returned object is a copy so modifying this
      * list will not update the map
@@ -1094,6 +1348,11 @@ public class MapboxMap {
 
     /**
      * Returns a list of all the markers on the map.
+     * <p>
+     * This creates the {@code Marker} objects of all markers added from packed coordinates through
+     * {@link #addMarkers(double[], Icon)}. With large amounts of packed markers, use
+     * {@link #getMarkerCount()} and {@link #getMarkerIds()} instead.
+     * </p>
      *
      * @return A list of all the markers objects. The returned object is a copy so modifying this
      * list will not update the map.
@@ -1103,6 +1362,30 @@ public class MapboxMap {
         return annotationManager.getMarkers();
     }
 
+    /**
+     * Returns the number of markers on the map, without creating the {@code Marker} objects of
+     * markers added from packed coordinates.
+     *
+     * @return The number of markers.
+     */
+    @UiThread
+    public int getMarkerCount() {
+        return annotationManager.getMarkerCount();
+    }
+
+    /**
+     * Returns the ids of all the markers on the map, without creating the {@code Marker} objects of
+     * markers added from packed coordinates. Pass an id to {@link #getAnnotation(long)} to only
+     * create the markers that are needed.
+     *
+     * @return The marker ids, in ascending order.
+     */
+    @UiThread
+    @NonNull
+    public long[] getMarkerIds() {
+        return annotationManager.getMarkerIds();
+    }
+
     /**
      * Returns a list of all the polygons on the map.
      *
@@ -1192,6 +1475,15 @@ public class MapboxMap {
         return annotationManager.getMarkerViewManager(this);
     }
 
+    /**
+     * Get the MarkerClusterManager associated to the MapView.
+     *
+     * @return the associated MarkerClusterManager
+     */
+    public MarkerClusterManager getMarkerClusterManager() {
+        return annotationManager.getMarkerClusterManager(this);
+    }
+
     //
     // InfoWindow
     //
@@ -1247,10 +1539,22 @@ public class MapboxMap {
         return infoWindowManager.getInfoWindows();
     }
 
+    void updateInfoWindows() {
+        infoWindowManager.update(projection);
+    }
+
+    void updateMarkerClusters() {
+        annotationManager.updateMarkerClusters();
+    }
+
     AnnotationManager getAnnotationManager() {
         return annotationManager;
     }
 
+    void onDestroy() {
+        featureQueryScheduler.onDestroy();
+    }
+
     Transform getTransform() {
         return transform;
     }
@@ -1310,6 +1614,46 @@ public class MapboxMap {
         transform.setOnCameraChangeListener(listener);
     }
 
+    /**
+     * Sets the maximum amount of frames rendered per second.
+     * <p>
+     * Frames are rendered on the display's vsync. With a maximum frame rate, vsync signals that arrive before the
+     * frame interval has passed are skipped, for instance a maximum of 30 renders every other frame of a 60 Hz
+     * display. Use a lower frame rate to trade smoothness of animations for battery and heat.
+     * </p>
+     *
+     * @param maximumFrameRate the maximum frame rate, for instance 60, 30 or 15. 0 renders at the display's rate.
+     */
+    @UiThread
+    public void setMaximumFrameRate(@IntRange(from = 0) int maximumFrameRate) {
+        mapView.setMaximumFrameRate(maximumFrameRate);
+    }
+
+    /**
+     * Returns the maximum amount of frames rendered per second.
+     *
+     * @return the maximum frame rate, 0 if frames are rendered at the display's rate
+     */
+    @UiThread
+    public int getMaximumFrameRate() {
+        return mapView.getMaximumFrameRate();
+    }
+
+    /**
+     * Only render the map when it changes.
+     * <p>
+     * Frames are only rendered when the map changes. Style transitions are rendered at a low frame rate instead of
+     * on every frame, the transition options of the style aren't changed. Camera animations are still rendered at
+     * the maximum frame rate.
+     * </p>
+     *
+     * @param renderOnChange true to only render the map when it changes
+     */
+    @UiThread
+    public void setRenderOnChange(boolean renderOnChange) {
+        mapView.setRenderOnChange(renderOnChange);
+    }
+
     /**
      * Sets a callback that's invoked on every frame rendered to the map view.
      *
@@ -1326,6 +1670,38 @@ public class MapboxMap {
         return onFpsChangedListener;
     }
 
+    /**
+     * Sets a callback that's invoked with the timings of every frame rendered to the map view.
+     * <p>
+     * Frame metrics are only collected while a callback is set. Add the metrics to a {@link FrameMetricsHistogram}
+     * to track the distribution of frame times and the amount of janky frames.
+     * </p>
+     *
+     * @param listener The callback that's invoked on every frame rendered to the map view.
+     *                 To unset the callback, use null.
+     */
+    @UiThread
+    public void setOnFrameMetricsListener(@Nullable OnFrameMetricsListener listener) {
+        onFrameMetricsListener = listener;
+        mapView.setFrameMetricsEnabled(listener != null);
+    }
+
+    // used by MapView
+    OnFrameMetricsListener getOnFrameMetricsListener() {
+        return onFrameMetricsListener;
+    }
+
+    /**
+     * Sets a callback that's invoked when a style has finished loading, with the time it took to load.
+     *
+     * @param listener The callback that's invoked when a style has finished loading.
+     *                 To unset the callback, use null.
+     */
+    @UiThread
+    public void setOnStyleLoadedListener(@Nullable OnStyleLoadedListener listener) {
+        onStyleLoadedListener = listener;
+    }
+
     /**
      * Sets a callback that's invoked when the map is scrolled.
      *
@@ -1567,6 +1943,10 @@ public class MapboxMap {
 
     /**
      * Takes a snapshot of the map.
+     * <p>
+     * The pixels of the map are copied into the bitmap without any encoding. The bitmap is reused if it's a mutable
+     * ARGB_8888 bitmap of the same size as the map view, otherwise a new bitmap is allocated.
+     * </p>
      *
      * @param callback Callback method invoked when the snapshot is taken.
      * @param bitmap   A pre-allocated bitmap.
@@ -1586,6 +1966,21 @@ public class MapboxMap {
         mapView.snapshot(callback, null);
     }
 
+    /**
+     * Takes a snapshot of the map as raw pixels.
+     * <p>
+     * The pixels are copied into the buffer as unpremultiplied RGBA, 4 bytes per pixel, row by row starting at the
+     * top left corner of the map.
+     * </p>
+     *
+     * @param buffer   A direct buffer of at least 4 bytes per pixel of the map view.
+     * @param callback Callback method invoked when the snapshot is taken.
+     */
+    @UiThread
+    public void snapshot(@NonNull ByteBuffer buffer, @NonNull SnapshotPixelsReadyCallback callback) {
+        mapView.snapshot(buffer, callback);
+    }
+
     /**
      * Queries the map for rendered features
      *
@@ -1597,6 +1992,24 @@ public class MapboxMap {
     @NonNull
     public List<Feature> queryRenderedFeatures(@NonNull PointF coordinates, @Nullable String...
             layerIds) {
+        return queryRenderedFeaturesLazily(coordinates, layerIds);
+    }
+
+    /**
+     * Queries the map for rendered features, decoding each feature only when it's accessed.
+     * <p>
+     * The ids of the features and of the layers they were rendered with can be read without decoding
+     * their geometry and properties.
+     * </p>
+     *
+     * @param coordinates the point to query
+     * @param layerIds    optionally - only query these layers
+     * @return the list of feature, decoded lazily on access
+     */
+    @UiThread
+    @NonNull
+    public RenderedFeatures queryRenderedFeaturesLazily(@NonNull PointF coordinates, @Nullable String...
+            layerIds) {
         return mapView.getNativeMapView().queryRenderedFeatures(coordinates, layerIds);
     }
 
@@ -1611,13 +2024,98 @@ public class MapboxMap {
     @NonNull
     public List<Feature> queryRenderedFeatures(@NonNull RectF coordinates, @Nullable String...
             layerIds) {
+        return queryRenderedFeaturesLazily(coordinates, layerIds);
+    }
+
+    /**
+     * Queries the map for rendered features, decoding each feature only when it's accessed.
+     * <p>
+     * The ids of the features and of the layers they were rendered with can be read without decoding
+     * their geometry and properties.
+     * </p>
+     *
+     * @param coordinates the box to query
+     * @param layerIds    optionally - only query these layers
+     * @return the list of feature, decoded lazily on access
+     */
+    @UiThread
+    @NonNull
+    public RenderedFeatures queryRenderedFeaturesLazily(@NonNull RectF coordinates, @Nullable String...
+            layerIds) {
         return mapView.getNativeMapView().queryRenderedFeatures(coordinates, layerIds);
     }
 
+    /**
+     * Queries the map for rendered features without blocking the current frame.
+     * <p>
+     * After the current frame has been rendered, the rendered features are captured on the main thread and the
+     * query runs and decodes its results on a worker thread. The query is cancelled if the camera moves before the
+     * rendered features are captured, or if a newer query is issued with the same callback.
+     * </p>
+     *
+     * @param coordinates the point to query
+     * @param callback    the callback invoked on the main thread with the queried features
+     * @param layerIds    optionally - only query these layers
+     * @return the query, which can be used to cancel it
+     */
+    @UiThread
+    @NonNull
+    public RenderedFeaturesQuery queryRenderedFeaturesAsync(@NonNull PointF coordinates,
+                                                           @NonNull QueryRenderedFeaturesCallback callback,
+                                                           @Nullable String... layerIds) {
+        RenderedFeaturesQuery query = new RenderedFeaturesQuery(new PointF(coordinates.x, coordinates.y), null,
+                layerIds, callback);
+        featureQueryScheduler.schedule(query);
+        return query;
+    }
+
+    /**
+     * Queries the map for rendered features without blocking the current frame.
+     * <p>
+     * After the current frame has been rendered, the rendered features are captured on the main thread and the
+     * query runs and decodes its results on a worker thread. The query is cancelled if the camera moves before the
+     * rendered features are captured, or if a newer query is issued with the same callback.
+     * </p>
+     *
+     * @param coordinates the box to query
+     * @param callback    the callback invoked on the main thread with the queried features
+     * @param layerIds    optionally - only query these layers
+     * @return the query, which can be used to cancel it
+     */
+    @UiThread
+    @NonNull
+    public RenderedFeaturesQuery queryRenderedFeaturesAsync(@NonNull RectF coordinates,
+                                                           @NonNull QueryRenderedFeaturesCallback callback,
+                                                           @Nullable String... layerIds) {
+        RenderedFeaturesQuery query = new RenderedFeaturesQuery(null, new RectF(coordinates), layerIds, callback);
+        featureQueryScheduler.schedule(query);
+        return query;
+    }
+
     //
     // Innner classes
     //
 
+    private class StyleLoadTimer implements MapView.OnMapChangedListener {
+
+        private long startTime = -1;
+
+        @Override
+        public void onMapChanged(@MapView.MapChange int change) {
+            if (change == MapView.WILL_START_LOADING_MAP) {
+                startTime = SystemClock.elapsedRealtime();
+            } else if (change == MapView.DID_FAIL_LOADING_MAP) {
+                startTime = -1;
+            } else if (change == MapView.DID_FINISH_LOADING_STYLE && startTime != -1) {
+                long latency = SystemClock.elapsedRealtime() - startTime;
+                startTime = -1;
+                if (onStyleLoadedListener != null) {
+                    onStyleLoadedListener.onStyleLoaded(getStyleUrl(), latency);
+                }
+            }
+        }
+    }
+
     private class CameraInvalidator implements MapView.OnMapChangedListener {
 
         @Override
@@ -1628,6 +2126,26 @@ public class MapboxMap {
         }
     }
 
+    private class StyleTransactionListener implements MapView.OnMapChangedListener {
+
+        private final List<OnStyleTransactionCommittedListener> listeners;
+
+        StyleTransactionListener(List<OnStyleTransactionCommittedListener> listeners) {
+            this.listeners = listeners;
+        }
+
+        @Override
+        public void onMapChanged(@MapView.MapChange int change) {
+            if (change == MapView.DID_FINISH_RENDERING_FRAME
+                    || change == MapView.DID_FINISH_RENDERING_FRAME_FULLY_RENDERED) {
+                mapView.removeOnMapChangedListener(this);
+                for (OnStyleTransactionCommittedListener listener : listeners) {
+                    listener.onStyleTransactionCommitted();
+                }
+            }
+        }
+    }
+
     //
     // Interfaces
     //
@@ -1684,6 +2202,36 @@ public class MapboxMap {
         void onFpsChanged(double fps);
     }
 
+    /**
+     * Interface definition for a callback to be invoked with the timings of a frame rendered to the map view.
+     *
+     * @see MapboxMap#setOnFrameMetricsListener(OnFrameMetricsListener)
+     */
+    public interface OnFrameMetricsListener {
+        /**
+         * Called for every frame rendered to the map view.
+         *
+         * @param metrics The timings of the frame.
+         */
+        void onFrameMetrics(FrameMetrics metrics);
+    }
+
+    /**
+     * Interface definition for a callback to be invoked when a style has finished loading.
+     *
+     * @see MapboxMap#setOnStyleLoadedListener(OnStyleLoadedListener)
+     */
+    public interface OnStyleLoadedListener {
+        /**
+         * Called when a style has finished loading. Switching back to a recently used style restores it from
+         * memory, without downloading or parsing it again.
+         *
+         * @param styleUrl      The URL of the style, as returned by {@link MapboxMap#getStyleUrl()}.
+         * @param latencyMillis The time between setting the style and the style being loaded, in milliseconds.
+         */
+        void onStyleLoaded(@Nullable String styleUrl, long latencyMillis);
+    }
+
     /**
      * Interface definition for a callback to be invoked when the user clicks on the map view.
      *
@@ -1981,6 +2529,30 @@ public class MapboxMap {
         void onFinish();
     }
 
+    /**
+     * Interface definition for a callback to be invoked when the changes of a style transaction have been rendered.
+     *
+     * @see MapboxMap#commitStyleTransaction(OnStyleTransactionCommittedListener)
+     */
+    public interface OnStyleTransactionCommittedListener {
+        /**
+         * Invoked when the first frame containing the committed changes has been rendered.
+         */
+        void onStyleTransactionCommitted();
+    }
+
+    /**
+     * Interface definition for a callback to be invoked when an asynchronous rendered features query completes.
+     */
+    public interface QueryRenderedFeaturesCallback {
+        /**
+         * Invoked when the features have been queried.
+         *
+         * @param features the queried features
+         */
+        void onFeaturesQueried(@NonNull RenderedFeatures features);
+    }
+
     /**
      * Interface definition for a callback to be invoked when the snapshot has been taken.
      */
@@ -1992,4 +2564,20 @@ public class MapboxMap {
          */
         void onSnapshotReady(Bitmap snapshot);
     }
+
+    /**
+     * Interface definition for a callback to be invoked when the pixels of a snapshot have been copied.
+     *
+     * @see MapboxMap#snapshot(ByteBuffer, SnapshotPixelsReadyCallback)
+     */
+    public interface SnapshotPixelsReadyCallback {
+        /**
+         * Invoked when the pixels of the snapshot have been copied.
+         *
+         * @param pixels the buffer holding the unpremultiplied RGBA pixels
+         * @param width  the width of the snapshot in pixels
+         * @param height the height of the snapshot in pixels
+         */
+        void onSnapshotPixelsReady(ByteBuffer pixels, int width, int height);
+    }
 }
@@ -12,7 +12,6 @@ import android.util.DisplayMetrics;
 import timber.log.Timber;
 import android.view.Surface;
 
-import com.mapbox.mapboxsdk.annotations.Icon;
 import com.mapbox.mapboxsdk.annotations.Marker;
 import com.mapbox.mapboxsdk.annotations.Polygon;
 import com.mapbox.mapboxsdk.annotations.Polyline;
@@ -24,12 +23,10 @@ import com.mapbox.mapboxsdk.style.layers.Layer;
 import com.mapbox.mapboxsdk.style.layers.NoSuchLayerException;
 import com.mapbox.mapboxsdk.style.sources.NoSuchSourceException;
 import com.mapbox.mapboxsdk.style.sources.Source;
-import com.mapbox.services.commons.geojson.Feature;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 // Class that wraps the native methods for convenience
@@ -357,13 +354,18 @@ final class NativeMapView {
         nativeResetNorth(nativeMapViewPtr);
     }
 
-    public long addMarker(Marker marker) {
+    public long addMarker(Marker marker, String iconId) {
         Marker[] markers = {marker};
-        return nativeAddMarkers(nativeMapViewPtr, markers)[0];
+        String[] iconIds = {iconId};
+        return nativeAddMarkers(nativeMapViewPtr, markers, iconIds)[0];
     }
 
-    public long[] addMarkers(List<Marker> markers) {
-        return nativeAddMarkers(nativeMapViewPtr, markers.toArray(new Marker[markers.size()]));
+    public long[] addMarkers(List<Marker> markers, String[] iconIds) {
+        return nativeAddMarkers(nativeMapViewPtr, markers.toArray(new Marker[markers.size()]), iconIds);
+    }
+
+    public long[] addMarkers(double[] latLngs, String[] iconIds, int[] iconIndices) {
+        return nativeAddPackedMarkers(nativeMapViewPtr, latLngs, iconIds, iconIndices);
     }
 
     public long addPolyline(Polyline polyline) {
@@ -384,10 +386,9 @@ final class NativeMapView {
         return nativeAddPolygons(nativeMapViewPtr, polygons.toArray(new Polygon[polygons.size()]));
     }
 
-    public void updateMarker(Marker marker) {
+    public void updateMarker(Marker marker, String iconId) {
         LatLng position = marker.getPosition();
-        Icon icon = marker.getIcon();
-        nativeUpdateMarker(nativeMapViewPtr, marker.getId(), position.getLatitude(), position.getLongitude(), icon.getId());
+        nativeUpdateMarker(nativeMapViewPtr, marker.getId(), position.getLatitude(), position.getLongitude(), iconId);
     }
 
     public void updatePolygon(Polygon polygon) {
@@ -398,6 +399,64 @@ final class NativeMapView {
         nativeUpdatePolyline(nativeMapViewPtr, polyline.getId(), polyline);
     }
 
+    public void appendPolylinePoints(long polylineId, double[] latLngs) {
+        nativeAppendPolylinePoints(nativeMapViewPtr, polylineId, latLngs);
+    }
+
+    public void setPolylineTrimOffset(long polylineId, float trimStart, float trimEnd) {
+        nativeSetPolylineTrimOffset(nativeMapViewPtr, polylineId, trimStart, trimEnd);
+    }
+
+    public void updateAnnotations(List<Marker> markers, String[] markerIconIds, List<Polyline> polylines,
+                                  List<Polygon> polygons) {
+        int count = markers.size();
+        long[] markerIds = new long[count];
+        double[] markerLatLngs = new double[count * 2];
+        Marker marker;
+        for (int i = 0; i < count; i++) {
+            marker = markers.get(i);
+            markerIds[i] = marker.getId();
+            markerLatLngs[i * 2] = marker.getPosition().getLatitude();
+            markerLatLngs[i * 2 + 1] = marker.getPosition().getLongitude();
+        }
+
+        count = polylines.size();
+        long[] polylineIds = new long[count];
+        double[][] polylinePoints = new double[count][];
+        Polyline polyline;
+        for (int i = 0; i < count; i++) {
+            polyline = polylines.get(i);
+            polylineIds[i] = polyline.getId();
+            polylinePoints[i] = toLatLngArray(polyline.getPoints());
+        }
+
+        count = polygons.size();
+        long[] polygonIds = new long[count];
+        double[][] polygonPoints = new double[count][];
+        Polygon polygon;
+        for (int i = 0; i < count; i++) {
+            polygon = polygons.get(i);
+            polygonIds[i] = polygon.getId();
+            polygonPoints[i] = toLatLngArray(polygon.getPoints());
+        }
+
+        nativeUpdateAnnotations(nativeMapViewPtr, markerIds, markerLatLngs, markerIconIds,
+                polylineIds, polylines.toArray(new Polyline[polylines.size()]), polylinePoints,
+                polygonIds, polygons.toArray(new Polygon[polygons.size()]), polygonPoints);
+    }
+
+    private static double[] toLatLngArray(List<LatLng> points) {
+        int count = points.size();
+        double[] latLngs = new double[count * 2];
+        LatLng latLng;
+        for (int i = 0; i < count; i++) {
+            latLng = points.get(i);
+            latLngs[i * 2] = latLng.getLatitude();
+            latLngs[i * 2 + 1] = latLng.getLongitude();
+        }
+        return latLngs;
+    }
+
     public void removeAnnotation(long id) {
         long[] ids = {id};
         removeAnnotations(ids);
@@ -411,8 +470,12 @@ final class NativeMapView {
         return nativeQueryPointAnnotations(nativeMapViewPtr, rect);
     }
 
-    public void addAnnotationIcon(String symbol, int width, int height, float scale, byte[] pixels) {
-        nativeAddAnnotationIcon(nativeMapViewPtr, symbol, width, height, scale, pixels);
+    public void addAnnotationIcon(String symbol, Bitmap bitmap, float scale) {
+        nativeAddAnnotationIcon(nativeMapViewPtr, symbol, bitmap, scale);
+    }
+
+    public int getImageContentHash(Bitmap bitmap) {
+        return nativeGetImageContentHash(nativeMapViewPtr, bitmap);
     }
 
     public void setVisibleCoordinateBounds(LatLng[] coordinates, RectF padding, double direction, long duration) {
@@ -427,6 +490,10 @@ final class NativeMapView {
         nativeSetDebug(nativeMapViewPtr, debug);
     }
 
+    public void setFrameMetricsEnabled(boolean enabled) {
+        nativeSetFrameMetricsEnabled(nativeMapViewPtr, enabled);
+    }
+
     public void cycleDebugOptions() {
         nativeToggleDebug(nativeMapViewPtr);
     }
@@ -459,6 +526,10 @@ final class NativeMapView {
         return nativePixelForLatLng(nativeMapViewPtr, latLng.getLatitude(), latLng.getLongitude());
     }
 
+    public void pixelsForLatLngs(double[] latLngs, float[] pixels, int count) {
+        nativePixelsForLatLngs(nativeMapViewPtr, latLngs, pixels, count);
+    }
+
     public LatLng latLngForPixel(PointF pixel) {
         return nativeLatLngForPixel(nativeMapViewPtr, pixel.x, pixel.y);
     }
@@ -518,48 +589,98 @@ final class NativeMapView {
     }
 
     public void addImage(@NonNull String name, @NonNull Bitmap image) {
-        //Check/correct config
-        if (image.getConfig() != Bitmap.Config.ARGB_8888) {
-            image = image.copy(Bitmap.Config.ARGB_8888, false);
+        // pixels are read from the bitmap in native code, without copying them into a Java array
+        nativeAddImage(nativeMapViewPtr, name, image, getPixelRatio(image));
+    }
+
+    public void addImages(@NonNull Map<String, Bitmap> images) {
+        int count = images.size();
+        String[] names = new String[count];
+        Bitmap[] bitmaps = new Bitmap[count];
+        float[] pixelRatios = new float[count];
+        int index = 0;
+        for (Map.Entry<String, Bitmap> image : images.entrySet()) {
+            names[index] = image.getKey();
+            bitmaps[index] = image.getValue();
+            pixelRatios[index] = getPixelRatio(image.getValue());
+            index++;
         }
+        nativeAddImages(nativeMapViewPtr, names, bitmaps, pixelRatios);
+    }
 
-        //Get pixels
-        ByteBuffer buffer = ByteBuffer.allocate(image.getByteCount());
-        image.copyPixelsToBuffer(buffer);
-
-        //Determine pixel ratio
+    private static float getPixelRatio(Bitmap image) {
         float density = image.getDensity() == Bitmap.DENSITY_NONE ? Bitmap.DENSITY_NONE : image.getDensity();
-        float pixelRatio = density / DisplayMetrics.DENSITY_DEFAULT;
-
-        nativeAddImage(nativeMapViewPtr, name, image.getWidth(), image.getHeight(), pixelRatio, buffer.array());
+        return density / DisplayMetrics.DENSITY_DEFAULT;
     }
 
     public void removeImage(String name) {
         nativeRemoveImage(nativeMapViewPtr, name);
     }
 
+    public void beginStyleTransaction() {
+        nativeBeginStyleTransaction(nativeMapViewPtr);
+    }
+
+    public void commitStyleTransaction() {
+        nativeCommitStyleTransaction(nativeMapViewPtr);
+    }
+
     // Feature querying
 
     @NonNull
-    public List<Feature> queryRenderedFeatures(PointF coordinates, String... layerIds) {
-        Feature[] features = nativeQueryRenderedFeaturesForPoint(nativeMapViewPtr, coordinates.x / pixelRatio, coordinates.y / pixelRatio, layerIds);
-        return features != null ? Arrays.asList(features) : new ArrayList<Feature>();
+    public RenderedFeatures queryRenderedFeatures(PointF coordinates, String... layerIds) {
+        byte[] features = nativeQueryRenderedFeaturesForPoint(nativeMapViewPtr, coordinates.x / pixelRatio, coordinates.y / pixelRatio, layerIds);
+        return new RenderedFeatures(features);
     }
 
     @NonNull
-    public List<Feature> queryRenderedFeatures(RectF coordinates, String... layerIds) {
-        Feature[] features = nativeQueryRenderedFeaturesForBox(
+    public RenderedFeatures queryRenderedFeatures(RectF coordinates, String... layerIds) {
+        byte[] features = nativeQueryRenderedFeaturesForBox(
                 nativeMapViewPtr,
                 coordinates.left / pixelRatio,
                 coordinates.top / pixelRatio,
                 coordinates.right / pixelRatio,
                 coordinates.bottom / pixelRatio,
                 layerIds);
-        return features != null ? Arrays.asList(features) : new ArrayList<Feature>();
+        return new RenderedFeatures(features);
     }
 
-    public void scheduleTakeSnapshot() {
-        nativeScheduleTakeSnapshot(nativeMapViewPtr);
+    /**
+     * Captures the currently rendered features, the returned snapshot must be released with
+     * {@link #releaseRenderedFeaturesSnapshot(long)}. Querying and releasing the snapshot don't access the map
+     * and may be done on any thread.
+     */
+    public long snapshotRenderedFeatures(String... layerIds) {
+        return nativeSnapshotRenderedFeatures(nativeMapViewPtr, layerIds);
+    }
+
+    @NonNull
+    public RenderedFeatures queryRenderedFeatures(long snapshot, PointF coordinates) {
+        byte[] features = nativeQueryRenderedFeaturesSnapshotForPoint(snapshot, coordinates.x / pixelRatio, coordinates.y / pixelRatio);
+        return new RenderedFeatures(features);
+    }
+
+    @NonNull
+    public RenderedFeatures queryRenderedFeatures(long snapshot, RectF coordinates) {
+        byte[] features = nativeQueryRenderedFeaturesSnapshotForBox(
+                snapshot,
+                coordinates.left / pixelRatio,
+                coordinates.top / pixelRatio,
+                coordinates.right / pixelRatio,
+                coordinates.bottom / pixelRatio);
+        return new RenderedFeatures(features);
+    }
+
+    public void releaseRenderedFeaturesSnapshot(long snapshot) {
+        nativeReleaseRenderedFeaturesSnapshot(snapshot);
+    }
+
+    public boolean takeSnapshot(@NonNull Bitmap bitmap) {
+        return nativeTakeSnapshot(nativeMapViewPtr, bitmap);
+    }
+
+    public boolean takeSnapshot(@NonNull ByteBuffer buffer) {
+        return nativeTakeSnapshotPixels(nativeMapViewPtr, buffer);
     }
 
     public void setApiBaseUrl(String baseUrl) {
@@ -578,8 +699,8 @@ final class NativeMapView {
     // Callbacks
     //
 
-    protected void onInvalidate() {
-        mapView.onInvalidate();
+    protected void onInvalidate(boolean styleTransition) {
+        mapView.onInvalidate(styleTransition);
     }
 
     protected void onMapChanged(int rawChange) {
@@ -590,8 +711,10 @@ final class NativeMapView {
         mapView.onFpsChanged(fps);
     }
 
-    protected void onSnapshotReady(byte[] bytes) {
-        mapView.onSnapshotReady(bytes);
+    protected void onFrameMetrics(long updateTimeNanos, long layoutTimeNanos, long renderTimeNanos,
+                                  long gpuSubmitTimeNanos, int uploadedTiles, boolean fullyRendered) {
+        mapView.onFrameMetrics(new FrameMetrics(updateTimeNanos, layoutTimeNanos, renderTimeNanos,
+                gpuSubmitTimeNanos, uploadedTiles, fullyRendered));
     }
 
     //
@@ -702,18 +825,31 @@ final class NativeMapView {
 
     private native void nativeUpdateMarker(long nativeMapViewPtr, long markerId, double lat, double lon, String iconId);
 
-    private native long[] nativeAddMarkers(long nativeMapViewPtr, Marker[] markers);
+    private native long[] nativeAddMarkers(long nativeMapViewPtr, Marker[] markers, String[] iconIds);
+
+    private native long[] nativeAddPackedMarkers(long nativeMapViewPtr, double[] latLngs, String[] iconIds,
+                                                 int[] iconIndices);
 
     private native long[] nativeAddPolylines(long nativeMapViewPtr, Polyline[] polylines);
 
     private native long[] nativeAddPolygons(long nativeMapViewPtr, Polygon[] polygons);
 
+    private native void nativeAppendPolylinePoints(long nativeMapViewPtr, long polylineId, double[] latLngs);
+
+    private native void nativeSetPolylineTrimOffset(long nativeMapViewPtr, long polylineId, float trimStart, float trimEnd);
+
+    private native void nativeUpdateAnnotations(long nativeMapViewPtr, long[] markerIds, double[] markerLatLngs,
+                                                String[] markerIconIds, long[] polylineIds, Polyline[] polylines,
+                                                double[][] polylinePoints, long[] polygonIds, Polygon[] polygons,
+                                                double[][] polygonPoints);
+
     private native void nativeRemoveAnnotations(long nativeMapViewPtr, long[] id);
 
     private native long[] nativeQueryPointAnnotations(long nativeMapViewPtr, RectF rect);
 
-    private native void nativeAddAnnotationIcon(long nativeMapViewPtr, String symbol,
-                                                int width, int height, float scale, byte[] pixels);
+    private native void nativeAddAnnotationIcon(long nativeMapViewPtr, String symbol, Bitmap bitmap, float scale);
+
+    private native int nativeGetImageContentHash(long nativeMapViewPtr, Bitmap bitmap);
 
     private native void nativeSetVisibleCoordinateBounds(long nativeMapViewPtr, LatLng[] coordinates,
                                                          RectF padding, double direction, long duration);
@@ -724,6 +860,8 @@ final class NativeMapView {
 
     private native void nativeToggleDebug(long nativeMapViewPtr);
 
+    private native void nativeSetFrameMetricsEnabled(long nativeMapViewPtr, boolean enabled);
+
     private native boolean nativeGetDebug(long nativeMapViewPtr);
 
     private native boolean nativeIsFullyLoaded(long nativeMapViewPtr);
@@ -738,6 +876,8 @@ final class NativeMapView {
 
     private native PointF nativePixelForLatLng(long nativeMapViewPtr, double lat, double lon);
 
+    private native void nativePixelsForLatLngs(long nativeMapViewPtr, double[] latLngs, float[] pixels, int count);
+
     private native LatLng nativeLatLngForPixel(long nativeMapViewPtr, float x, float y);
 
     private native double nativeGetTopOffsetPixelsForAnnotationSymbol(long nativeMapViewPtr, String symbolName);
@@ -766,19 +906,35 @@ final class NativeMapView {
 
     private native void nativeRemoveSource(long nativeMapViewPtr, long sourcePtr) throws NoSuchSourceException;
 
-    private native void nativeAddImage(long nativeMapViewPtr, String name, int width, int height, float pixelRatio, byte[] array);
+    private native void nativeAddImage(long nativeMapViewPtr, String name, Bitmap bitmap, float pixelRatio);
+
+    private native void nativeAddImages(long nativeMapViewPtr, String[] names, Bitmap[] bitmaps, float[] pixelRatios);
 
     private native void nativeRemoveImage(long nativeMapViewPtr, String name);
 
+    private native void nativeBeginStyleTransaction(long nativeMapViewPtr);
+
+    private native void nativeCommitStyleTransaction(long nativeMapViewPtr);
+
     private native void nativeUpdatePolygon(long nativeMapViewPtr, long polygonId, Polygon polygon);
 
     private native void nativeUpdatePolyline(long nativeMapviewPtr, long polylineId, Polyline polyline);
 
-    private native void nativeScheduleTakeSnapshot(long nativeMapViewPtr);
+    private native boolean nativeTakeSnapshot(long nativeMapViewPtr, Bitmap bitmap);
+
+    private native boolean nativeTakeSnapshotPixels(long nativeMapViewPtr, ByteBuffer buffer);
+
+    private native byte[] nativeQueryRenderedFeaturesForPoint(long nativeMapViewPtr, float x, float y, String[] layerIds);
+
+    private native byte[] nativeQueryRenderedFeaturesForBox(long nativeMapViewPtr, float left, float top, float right, float bottom, String[] layerIds);
+
+    private native long nativeSnapshotRenderedFeatures(long nativeMapViewPtr, String[] layerIds);
+
+    private native byte[] nativeQueryRenderedFeaturesSnapshotForPoint(long snapshotPtr, float x, float y);
 
-    private native Feature[] nativeQueryRenderedFeaturesForPoint(long nativeMapViewPtr, float x, float y, String[] layerIds);
+    private native byte[] nativeQueryRenderedFeaturesSnapshotForBox(long snapshotPtr, float left, float top, float right, float bottom);
 
-    private native Feature[] nativeQueryRenderedFeaturesForBox(long nativeMapViewPtr, float left, float top, float right, float bottom, String[] layerIds);
+    private native void nativeReleaseRenderedFeaturesSnapshot(long snapshotPtr);
 
     private native void nativeSetAPIBaseURL(long nativeMapViewPtr, String baseUrl);
 
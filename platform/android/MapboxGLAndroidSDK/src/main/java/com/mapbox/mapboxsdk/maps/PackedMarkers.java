@@ -0,0 +1,214 @@
+package com.mapbox.mapboxsdk.maps;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mapbox.mapboxsdk.annotations.Icon;
+import com.mapbox.mapboxsdk.annotations.Marker;
+import com.mapbox.mapboxsdk.annotations.MarkerOptions;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Point annotations added in bulk from packed coordinates.
+ * <p>
+ * Positions and icons are kept in the primitive arrays they were added with. A {@link Marker} is only
+ * created when it's requested, after which it is released from this class and tracked as a regular
+ * annotation.
+ * </p>
+ */
+class PackedMarkers {
+
+    private final List<Batch> batches = new ArrayList<>();
+    private int size;
+
+    /**
+     * Adds a batch of packed markers.
+     *
+     * @param ids         the annotation ids, in ascending order
+     * @param latLngs     the latitude/longitude pairs of the markers
+     * @param icons       the icons used by the markers
+     * @param iconIndices the index in icons for each marker, null if all markers use the first icon
+     * @param mapboxMap   the map the markers were added to
+     */
+    void add(@NonNull long[] ids, @NonNull double[] latLngs, @NonNull Icon[] icons, @Nullable int[] iconIndices,
+             @NonNull MapboxMap mapboxMap) {
+        if (ids.length == 0) {
+            return;
+        }
+        batches.add(new Batch(ids, latLngs, icons, iconIndices, mapboxMap));
+        size += ids.length;
+    }
+
+    boolean contains(long id) {
+        return find(id) != null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Creates the Marker for a packed marker and stops tracking it.
+     *
+     * @param id the annotation id of the marker
+     * @return the created marker, null if the id isn't a packed marker
+     */
+    @Nullable
+    Marker release(long id) {
+        Batch batch = find(id);
+        if (batch == null) {
+            return null;
+        }
+        int index = Arrays.binarySearch(batch.ids, id);
+        Marker marker = batch.createMarker(index);
+        remove(batch, index);
+        return marker;
+    }
+
+    /**
+     * Creates the Markers for all packed markers positioned within bounds and stops tracking them.
+     *
+     * @param bounds the bounds to query
+     * @return the created markers
+     */
+    @NonNull
+    List<Marker> release(@NonNull LatLngBounds bounds) {
+        List<Marker> markers = new ArrayList<>();
+        Batch batch;
+        for (int i = batches.size() - 1; i >= 0; i--) {
+            batch = batches.get(i);
+            for (int j = 0; j < batch.ids.length; j++) {
+                if (!batch.removed[j] && batch.isWithin(j, bounds)) {
+                    markers.add(batch.createMarker(j));
+                    remove(batch, j);
+                }
+            }
+        }
+        return markers;
+    }
+
+    /**
+     * Creates the Markers for all packed markers and stops tracking them.
+     *
+     * @return the created markers
+     */
+    @NonNull
+    List<Marker> releaseAll() {
+        List<Marker> markers = new ArrayList<>(size);
+        for (Batch batch : batches) {
+            for (int i = 0; i < batch.ids.length; i++) {
+                if (!batch.removed[i]) {
+                    markers.add(batch.createMarker(i));
+                }
+            }
+        }
+        clear();
+        return markers;
+    }
+
+    /**
+     * Stops tracking a packed marker.
+     *
+     * @param id the annotation id of the marker
+     * @return true if the marker was tracked
+     */
+    boolean remove(long id) {
+        Batch batch = find(id);
+        if (batch == null) {
+            return false;
+        }
+        remove(batch, Arrays.binarySearch(batch.ids, id));
+        return true;
+    }
+
+    void clear() {
+        batches.clear();
+        size = 0;
+    }
+
+    @NonNull
+    long[] getIds() {
+        long[] ids = new long[size];
+        int count = 0;
+        for (Batch batch : batches) {
+            for (int i = 0; i < batch.ids.length; i++) {
+                if (!batch.removed[i]) {
+                    ids[count++] = batch.ids[i];
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void remove(Batch batch, int index) {
+        batch.removed[index] = true;
+        batch.remaining--;
+        size--;
+        if (batch.remaining == 0) {
+            batches.remove(batch);
+        }
+    }
+
+    @Nullable
+    private Batch find(long id) {
+        int index;
+        for (Batch batch : batches) {
+            if (id < batch.ids[0] || id > batch.ids[batch.ids.length - 1]) {
+                continue;
+            }
+            index = Arrays.binarySearch(batch.ids, id);
+            if (index >= 0 && !batch.removed[index]) {
+                return batch;
+            }
+        }
+        return null;
+    }
+
+    private static class Batch {
+
+        private final long[] ids;
+        private final double[] latLngs;
+        private final Icon[] icons;
+        private final int[] iconIndices;
+        private final MapboxMap mapboxMap;
+        private final boolean[] removed;
+        private int remaining;
+
+        Batch(long[] ids, double[] latLngs, Icon[] icons, int[] iconIndices, MapboxMap mapboxMap) {
+            this.ids = ids;
+            this.latLngs = latLngs;
+            this.icons = icons;
+            this.iconIndices = iconIndices;
+            this.mapboxMap = mapboxMap;
+            this.removed = new boolean[ids.length];
+            this.remaining = ids.length;
+        }
+
+        Marker createMarker(int index) {
+            Marker marker = new MarkerOptions()
+                    .position(new LatLng(latLngs[index * 2], latLngs[index * 2 + 1]))
+                    .icon(icons[iconIndices != null ? iconIndices[index] : 0])
+                    .getMarker();
+            marker.setId(ids[index]);
+            marker.setMapboxMap(mapboxMap);
+            return marker;
+        }
+
+        boolean isWithin(int index, LatLngBounds bounds) {
+            double latitude = latLngs[index * 2];
+            double longitude = latLngs[index * 2 + 1];
+            if (latitude > bounds.getLatNorth() || latitude < bounds.getLatSouth()) {
+                return false;
+            }
+            if (bounds.getLonWest() > bounds.getLonEast()) {
+                return longitude >= bounds.getLonWest() || longitude <= bounds.getLonEast();
+            }
+            return longitude >= bounds.getLonWest() && longitude <= bounds.getLonEast();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.mapbox.mapboxsdk.maps;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LongSparseArray;
+
+import com.mapbox.mapboxsdk.annotations.Marker;
+import com.mapbox.mapboxsdk.annotations.MarkerView;
+import com.mapbox.mapboxsdk.constants.GeoConstants;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index of the point annotations added to the map.
+ * <p>
+ * Markers are bucketed in a grid keyed by projected meters (spherical mercator) and can be looked up
+ * by id without boxing through a {@link LongSparseArray}. Bounds queries only visit the grid cells that
+ * intersect the query, so their cost scales with the amount of results instead of the amount of markers
+ * added to the map.
+ * </p>
+ */
+class PointAnnotationIndex {
+
+    // amount of grid cells along one axis of the projected world
+    static final int GRID_SIZE = 1024;
+
+    private static final double WORLD_SIZE_METERS = 2 * Math.PI * GeoConstants.RADIUS_EARTH_METERS;
+    private static final double CELL_SIZE_METERS = WORLD_SIZE_METERS / GRID_SIZE;
+
+    private final LongSparseArray<Marker> markers = new LongSparseArray<>();
+    private final LongSparseArray<Long> cellKeys = new LongSparseArray<>();
+    private final Map<Long, List<Marker>> cells = new HashMap<>();
+
+    /**
+     * Adds a marker to the index or moves it to the cell matching its current position.
+     *
+     * @param marker the marker to index, must have an id assigned
+     */
+    void put(@NonNull Marker marker) {
+        long id = marker.getId();
+        Marker previous = markers.get(id);
+        if (previous != null) {
+            remove(id);
+        }
+
+        markers.put(id, marker);
+        LatLng position = marker.getPosition();
+        if (position == null) {
+            return;
+        }
+
+        long cellKey = toCellKey(toCellX(position.getLongitude()), toCellY(position.getLatitude()));
+        cellKeys.put(id, cellKey);
+        List<Marker> cell = cells.get(cellKey);
+        if (cell == null) {
+            cell = new ArrayList<>(1);
+            cells.put(cellKey, cell);
+        }
+        cell.add(marker);
+    }
+
+    /**
+     * Removes a marker from the index.
+     *
+     * @param id the id of the marker to remove
+     */
+    void remove(long id) {
+        Marker marker = markers.get(id);
+        if (marker == null) {
+            return;
+        }
+        markers.remove(id);
+
+        Long cellKey = cellKeys.get(id);
+        if (cellKey == null) {
+            return;
+        }
+        cellKeys.remove(id);
+
+        List<Marker> cell = cells.get(cellKey);
+        if (cell != null) {
+            cell.remove(marker);
+            if (cell.isEmpty()) {
+                cells.remove(cellKey);
+            }
+        }
+    }
+
+    void clear() {
+        markers.clear();
+        cellKeys.clear();
+        cells.clear();
+    }
+
+    @Nullable
+    Marker get(long id) {
+        return markers.get(id);
+    }
+
+    boolean contains(long id) {
+        return markers.indexOfKey(id) >= 0;
+    }
+
+    int size() {
+        return markers.size();
+    }
+
+    /**
+     * Resolves annotation ids to the indexed markers, ignoring ids that don't belong to a marker.
+     *
+     * @param ids the ids to resolve
+     * @return the markers matching the ids
+     */
+    @NonNull
+    List<Marker> getMarkers(@NonNull long[] ids) {
+        List<Marker> result = new ArrayList<>(ids.length);
+        Marker marker;
+        for (long id : ids) {
+            marker = markers.get(id);
+            if (marker != null) {
+                result.add(marker);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves annotation ids to the indexed marker views, ignoring ids that don't belong to a marker view.
+     *
+     * @param ids the ids to resolve
+     * @return the marker views matching the ids
+     */
+    @NonNull
+    List<MarkerView> getMarkerViews(@NonNull long[] ids) {
+        List<MarkerView> result = new ArrayList<>(ids.length);
+        Marker marker;
+        for (long id : ids) {
+            marker = markers.get(id);
+            if (marker instanceof MarkerView) {
+                result.add((MarkerView) marker);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Queries the markers positioned within geographical bounds.
+     *
+     * @param bounds the bounds to query
+     * @return the markers found within bounds
+     */
+    @NonNull
+    List<Marker> query(@NonNull LatLngBounds bounds) {
+        List<Marker> result = new ArrayList<>();
+        if (cells.isEmpty()) {
+            return result;
+        }
+
+        int minY = toCellY(bounds.getLatNorth());
+        int maxY = toCellY(bounds.getLatSouth());
+        int minX = toCellX(bounds.getLonWest());
+        int maxX = toCellX(bounds.getLonEast());
+
+        if (bounds.getLonWest() > bounds.getLonEast()) {
+            // bounds are crossing the antimeridian
+            collect(bounds, minX, GRID_SIZE - 1, minY, maxY, result);
+            collect(bounds, 0, maxX, minY, maxY, result);
+        } else {
+            collect(bounds, minX, maxX, minY, maxY, result);
+        }
+        return result;
+    }
+
+    private void collect(LatLngBounds bounds, int minX, int maxX, int minY, int maxY, List<Marker> result) {
+        long cellCount = (long) (maxX - minX + 1) * (maxY - minY + 1);
+        if (cellCount > cells.size()) {
+            // the query spans more cells than populated, visit the populated ones instead
+            int x;
+            int y;
+            for (Map.Entry<Long, List<Marker>> entry : cells.entrySet()) {
+                x = (int) (entry.getKey() / GRID_SIZE);
+                y = (int) (entry.getKey() % GRID_SIZE);
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    collect(bounds, x, y, entry.getValue(), minX, maxX, minY, maxY, result);
+                }
+            }
+            return;
+        }
+
+        List<Marker> cell;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                cell = cells.get(toCellKey(x, y));
+                if (cell != null) {
+                    collect(bounds, x, y, cell, minX, maxX, minY, maxY, result);
+                }
+            }
+        }
+    }
+
+    private void collect(LatLngBounds bounds, int x, int y, List<Marker> cell,
+                         int minX, int maxX, int minY, int maxY, List<Marker> result) {
+        if (x > minX && x < maxX && y > minY && y < maxY) {
+            // inner cells are fully covered by the query
+            result.addAll(cell);
+            return;
+        }
+
+        for (Marker marker : cell) {
+            if (contains(bounds, marker.getPosition())) {
+                result.add(marker);
+            }
+        }
+    }
+
+    private static boolean contains(LatLngBounds bounds, LatLng position) {
+        double latitude = position.getLatitude();
+        if (latitude > bounds.getLatNorth() || latitude < bounds.getLatSouth()) {
+            return false;
+        }
+
+        double longitude = position.getLongitude();
+        if (bounds.getLonWest() > bounds.getLonEast()) {
+            return longitude >= bounds.getLonWest() || longitude <= bounds.getLonEast();
+        }
+        return longitude >= bounds.getLonWest() && longitude <= bounds.getLonEast();
+    }
+
+    private static long toCellKey(int x, int y) {
+        return (long) x * GRID_SIZE + y;
+    }
+
+    private static int toCellX(double longitude) {
+        double easting = Math.toRadians(longitude) * GeoConstants.RADIUS_EARTH_METERS;
+        return clampCell((easting + WORLD_SIZE_METERS / 2) / CELL_SIZE_METERS);
+    }
+
+    private static int toCellY(double latitude) {
+        double constrainedLatitude = Math.min(Math.max(latitude, GeoConstants.MIN_LATITUDE), GeoConstants.MAX_LATITUDE);
+        double northing = GeoConstants.RADIUS_EARTH_METERS
+                * Math.log(Math.tan(Math.PI / 4 + Math.toRadians(constrainedLatitude) / 2));
+        return clampCell((WORLD_SIZE_METERS / 2 - northing) / CELL_SIZE_METERS);
+    }
+
+    private static int clampCell(double cell) {
+        return (int) Math.min(Math.max(Math.floor(cell), 0), GRID_SIZE - 1);
+    }
+}
@@ -95,6 +95,44 @@ public class Projection {
         return pointF;
     }
 
+    /**
+     * Returns the screen locations that correspond to a list of geographical coordinates, projected
+     * in a single call.
+     * <p>
+     * The coordinates are packed as latitude/longitude pairs, the screen locations are written as x/y
+     * pairs in screen pixels relative to the top left of the map. The output array can be reused
+     * across calls to avoid allocating a {@link PointF} for every coordinate.
+     * </p>
+     *
+     * @param latLngs         the latitude/longitude pairs to convert
+     * @param screenLocations the array receiving the x/y pairs, at least as long as latLngs
+     */
+    public void toScreenLocations(@NonNull double[] latLngs, @NonNull float[] screenLocations) {
+        if (latLngs.length % 2 != 0) {
+            throw new IllegalArgumentException("LatLngs should be packed as latitude/longitude pairs");
+        }
+        toScreenLocations(latLngs, screenLocations, latLngs.length / 2);
+    }
+
+    /**
+     * Returns the screen locations that correspond to the first count geographical coordinates of a
+     * list, projected in a single call.
+     *
+     * @param latLngs         the latitude/longitude pairs to convert
+     * @param screenLocations the array receiving the x/y pairs
+     * @param count           the number of coordinates to convert
+     * @see #toScreenLocations(double[], float[])
+     */
+    public void toScreenLocations(@NonNull double[] latLngs, @NonNull float[] screenLocations, int count) {
+        if (count < 0 || latLngs.length < count * 2 || screenLocations.length < count * 2) {
+            throw new IllegalArgumentException("LatLngs and screenLocations should hold " + count + " pairs");
+        }
+        mapView.toNativeScreenLocations(latLngs, screenLocations, count);
+        for (int i = 0; i < count * 2; i++) {
+            screenLocations[i] *= screenDensity;
+        }
+    }
+
     /**
      * Calculates a zoom level based on minimum scale and current scale from MapView
      *
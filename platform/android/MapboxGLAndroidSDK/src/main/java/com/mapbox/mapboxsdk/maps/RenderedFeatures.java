@@ -0,0 +1,380 @@
+package com.mapbox.mapboxsdk.maps;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.mapbox.services.commons.geojson.Feature;
+import com.mapbox.services.commons.geojson.Geometry;
+import com.mapbox.services.commons.geojson.LineString;
+import com.mapbox.services.commons.geojson.MultiLineString;
+import com.mapbox.services.commons.geojson.MultiPoint;
+import com.mapbox.services.commons.geojson.MultiPolygon;
+import com.mapbox.services.commons.geojson.Point;
+import com.mapbox.services.commons.geojson.Polygon;
+import com.mapbox.services.commons.models.Position;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of a rendered features query.
+ * <p>
+ * All features of a query are held in a single buffer produced by the renderer. The amount of features, their
+ * ids and the ids of the layers they were rendered with are read from the buffer directly, geometries and
+ * properties are only decoded when accessed. A {@link Feature} is created the first time it is requested
+ * through {@link #get(int)}.
+ * </p>
+ */
+public final class RenderedFeatures extends AbstractList<Feature> {
+
+    // keep in sync with geometry/conversion/feature_buffer.hpp
+    private static final int GEOMETRY_POINT = 1;
+    private static final int GEOMETRY_LINE_STRING = 2;
+    private static final int GEOMETRY_POLYGON = 3;
+    private static final int GEOMETRY_MULTI_POINT = 4;
+    private static final int GEOMETRY_MULTI_LINE_STRING = 5;
+    private static final int GEOMETRY_MULTI_POLYGON = 6;
+
+    private static final int VALUE_NULL = 0;
+    private static final int VALUE_BOOL = 1;
+    private static final int VALUE_UINT = 2;
+    private static final int VALUE_INT = 3;
+    private static final int VALUE_DOUBLE = 4;
+    private static final int VALUE_STRING = 5;
+    private static final int VALUE_ARRAY = 6;
+    private static final int VALUE_OBJECT = 7;
+
+    private static final int INT_SIZE = 4;
+    private static final int DOUBLE_SIZE = 8;
+    private static final int LONG_SIZE = 8;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final BigInteger UNSIGNED_LONG_OFFSET = BigInteger.ONE.shiftLeft(64);
+
+    private final ByteBuffer buffer;
+    private final String[] layerIds;
+    private final int featureCount;
+    private final int offsetTable;
+    private final Feature[] features;
+
+    RenderedFeatures(@Nullable byte[] data) {
+        buffer = ByteBuffer.wrap(data != null ? data : new byte[2 * INT_SIZE]).order(ByteOrder.nativeOrder());
+
+        int offset = 0;
+        layerIds = new String[buffer.getInt(offset)];
+        offset += INT_SIZE;
+        for (int i = 0; i < layerIds.length; i++) {
+            layerIds[i] = readString(offset);
+            offset = skipString(offset);
+        }
+
+        featureCount = buffer.getInt(offset);
+        offsetTable = offset + INT_SIZE;
+        features = new Feature[featureCount];
+    }
+
+    @Override
+    public int size() {
+        return featureCount;
+    }
+
+    /**
+     * Returns the feature at an index, decoding it on first access.
+     *
+     * @param index the index of the feature
+     * @return the feature
+     */
+    @Override
+    public Feature get(int index) {
+        checkIndex(index);
+        if (features[index] == null) {
+            features[index] = Feature.fromGeometry(getGeometry(index), getProperties(index), getId(index));
+        }
+        return features[index];
+    }
+
+    /**
+     * Returns the id of a feature without decoding it.
+     *
+     * @param index the index of the feature
+     * @return the feature id, an empty string if the feature has no id
+     */
+    @NonNull
+    public String getId(int index) {
+        return readString(getFeatureOffset(index) + INT_SIZE);
+    }
+
+    /**
+     * Returns the id of the style layer a feature was rendered with, without decoding the feature.
+     *
+     * @param index the index of the feature
+     * @return the layer id
+     */
+    @NonNull
+    public String getLayerId(int index) {
+        return layerIds[buffer.getInt(getFeatureOffset(index))];
+    }
+
+    /**
+     * Decodes the geometry of a feature.
+     *
+     * @param index the index of the feature
+     * @return the geometry, null if the feature geometry isn't supported
+     */
+    @Nullable
+    public Geometry getGeometry(int index) {
+        int offset = skipString(getFeatureOffset(index) + INT_SIZE) + INT_SIZE;
+        int type = buffer.get(offset);
+        offset++;
+        switch (type) {
+            case GEOMETRY_POINT:
+                return Point.fromCoordinates(readPosition(offset));
+            case GEOMETRY_LINE_STRING:
+                return LineString.fromCoordinates(readPositions(offset));
+            case GEOMETRY_MULTI_POINT:
+                return MultiPoint.fromCoordinates(readPositions(offset));
+            case GEOMETRY_POLYGON:
+                return Polygon.fromCoordinates(readRings(offset));
+            case GEOMETRY_MULTI_LINE_STRING:
+                return MultiLineString.fromCoordinates(readRings(offset));
+            case GEOMETRY_MULTI_POLYGON:
+                int polygonCount = buffer.getInt(offset);
+                offset += INT_SIZE;
+                List<List<List<Position>>> polygons = new ArrayList<>(polygonCount);
+                for (int i = 0; i < polygonCount; i++) {
+                    polygons.add(readRings(offset));
+                    offset = skipRings(offset);
+                }
+                return MultiPolygon.fromCoordinates(polygons);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Decodes all properties of a feature.
+     *
+     * @param index the index of the feature
+     * @return the properties
+     */
+    @NonNull
+    public JsonObject getProperties(int index) {
+        return readObject(getPropertiesOffset(index));
+    }
+
+    /**
+     * Decodes a single property of a feature, other properties are skipped without being decoded.
+     *
+     * @param index the index of the feature
+     * @param key   the key of the property
+     * @return the property value, null if the feature has no property with the key
+     */
+    @Nullable
+    public JsonElement getProperty(int index, @NonNull String key) {
+        int offset = findProperty(getPropertiesOffset(index), key);
+        return offset != -1 ? readValue(offset) : null;
+    }
+
+    /**
+     * Returns if a feature has a property, without decoding its properties.
+     *
+     * @param index the index of the feature
+     * @param key   the key of the property
+     * @return true if the feature has the property
+     */
+    public boolean hasProperty(int index, @NonNull String key) {
+        return findProperty(getPropertiesOffset(index), key) != -1;
+    }
+
+    /**
+     * Decodes all features, used to decode the features of asynchronous queries off the main thread.
+     */
+    void decodeAll() {
+        for (int i = 0; i < featureCount; i++) {
+            get(i);
+        }
+    }
+
+    private int getFeatureOffset(int index) {
+        checkIndex(index);
+        return buffer.getInt(offsetTable + index * INT_SIZE);
+    }
+
+    private int getPropertiesOffset(int index) {
+        return buffer.getInt(skipString(getFeatureOffset(index) + INT_SIZE));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= featureCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + featureCount);
+        }
+    }
+
+    private int findProperty(int offset, String key) {
+        byte[] keyBytes = key.getBytes(UTF_8);
+        int count = buffer.getInt(offset);
+        offset += INT_SIZE;
+        for (int i = 0; i < count; i++) {
+            boolean matches = stringEquals(offset, keyBytes);
+            offset = skipString(offset);
+            if (matches) {
+                return offset;
+            }
+            offset = skipValue(offset);
+        }
+        return -1;
+    }
+
+    private Position readPosition(int offset) {
+        return Position.fromCoordinates(buffer.getDouble(offset), buffer.getDouble(offset + DOUBLE_SIZE));
+    }
+
+    private List<Position> readPositions(int offset) {
+        int count = buffer.getInt(offset);
+        offset += INT_SIZE;
+        List<Position> positions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            positions.add(readPosition(offset));
+            offset += 2 * DOUBLE_SIZE;
+        }
+        return positions;
+    }
+
+    private List<List<Position>> readRings(int offset) {
+        int count = buffer.getInt(offset);
+        offset += INT_SIZE;
+        List<List<Position>> rings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rings.add(readPositions(offset));
+            offset = skipPositions(offset);
+        }
+        return rings;
+    }
+
+    private int skipPositions(int offset) {
+        return offset + INT_SIZE + buffer.getInt(offset) * 2 * DOUBLE_SIZE;
+    }
+
+    private int skipRings(int offset) {
+        int count = buffer.getInt(offset);
+        offset += INT_SIZE;
+        for (int i = 0; i < count; i++) {
+            offset = skipPositions(offset);
+        }
+        return offset;
+    }
+
+    private JsonObject readObject(int offset) {
+        JsonObject object = new JsonObject();
+        int count = buffer.getInt(offset);
+        offset += INT_SIZE;
+        String key;
+        for (int i = 0; i < count; i++) {
+            key = readString(offset);
+            offset = skipString(offset);
+            object.add(key, readValue(offset));
+            offset = skipValue(offset);
+        }
+        return object;
+    }
+
+    private JsonElement readValue(int offset) {
+        int type = buffer.get(offset);
+        offset++;
+        switch (type) {
+            case VALUE_BOOL:
+                return new JsonPrimitive(buffer.get(offset) != 0);
+            case VALUE_UINT:
+                long value = buffer.getLong(offset);
+                if (value < 0) {
+                    return new JsonPrimitive(BigInteger.valueOf(value).add(UNSIGNED_LONG_OFFSET));
+                }
+                return new JsonPrimitive(value);
+            case VALUE_INT:
+                return new JsonPrimitive(buffer.getLong(offset));
+            case VALUE_DOUBLE:
+                return new JsonPrimitive(buffer.getDouble(offset));
+            case VALUE_STRING:
+                return new JsonPrimitive(readString(offset));
+            case VALUE_ARRAY:
+                JsonArray array = new JsonArray();
+                int count = buffer.getInt(offset);
+                offset += INT_SIZE;
+                for (int i = 0; i < count; i++) {
+                    array.add(readValue(offset));
+                    offset = skipValue(offset);
+                }
+                return array;
+            case VALUE_OBJECT:
+                return readObject(offset);
+            case VALUE_NULL:
+            default:
+                return JsonNull.INSTANCE;
+        }
+    }
+
+    private int skipValue(int offset) {
+        int type = buffer.get(offset);
+        offset++;
+        switch (type) {
+            case VALUE_BOOL:
+                return offset + 1;
+            case VALUE_UINT:
+            case VALUE_INT:
+                return offset + LONG_SIZE;
+            case VALUE_DOUBLE:
+                return offset + DOUBLE_SIZE;
+            case VALUE_STRING:
+                return skipString(offset);
+            case VALUE_ARRAY:
+                int count = buffer.getInt(offset);
+                offset += INT_SIZE;
+                for (int i = 0; i < count; i++) {
+                    offset = skipValue(offset);
+                }
+                return offset;
+            case VALUE_OBJECT:
+                int propertyCount = buffer.getInt(offset);
+                offset += INT_SIZE;
+                for (int i = 0; i < propertyCount; i++) {
+                    offset = skipValue(skipString(offset));
+                }
+                return offset;
+            case VALUE_NULL:
+            default:
+                return offset;
+        }
+    }
+
+    private String readString(int offset) {
+        return new String(buffer.array(), offset + INT_SIZE, buffer.getInt(offset), UTF_8);
+    }
+
+    private boolean stringEquals(int offset, byte[] value) {
+        int length = buffer.getInt(offset);
+        if (length != value.length) {
+            return false;
+        }
+        byte[] data = buffer.array();
+        offset += INT_SIZE;
+        for (int i = 0; i < length; i++) {
+            if (data[offset + i] != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipString(int offset) {
+        return offset + INT_SIZE + buffer.getInt(offset);
+    }
+}
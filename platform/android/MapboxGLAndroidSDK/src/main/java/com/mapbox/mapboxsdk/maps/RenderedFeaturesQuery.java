@@ -0,0 +1,58 @@
+package com.mapbox.mapboxsdk.maps;
+
+import android.graphics.PointF;
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Handle to a rendered features query executed asynchronously.
+ * <p>
+ * The query runs against the features rendered shortly after it was issued. It is cancelled when the camera moves
+ * before then, as the screen coordinates it was issued with no longer match the rendered map. It can also be
+ * cancelled explicitly, for example when a new query supersedes it.
+ * </p>
+ *
+ * @see MapboxMap#queryRenderedFeaturesAsync(RectF, MapboxMap.QueryRenderedFeaturesCallback, String...)
+ */
+public final class RenderedFeaturesQuery {
+
+    private final PointF point;
+    private final RectF box;
+    private final String[] layerIds;
+    private final MapboxMap.QueryRenderedFeaturesCallback callback;
+    private volatile boolean canceled;
+
+    RenderedFeaturesQuery(@Nullable PointF point, @Nullable RectF box, @Nullable String[] layerIds,
+                          @NonNull MapboxMap.QueryRenderedFeaturesCallback callback) {
+        this.point = point;
+        this.box = box;
+        this.layerIds = layerIds;
+        this.callback = callback;
+    }
+
+    /**
+     * Cancels the query, its callback won't be invoked.
+     */
+    public void cancel() {
+        canceled = true;
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    long snapshot(@NonNull NativeMapView nativeMapView) {
+        return nativeMapView.snapshotRenderedFeatures(layerIds);
+    }
+
+    RenderedFeatures execute(@NonNull NativeMapView nativeMapView, long snapshot) {
+        return point != null
+                ? nativeMapView.queryRenderedFeatures(snapshot, point)
+                : nativeMapView.queryRenderedFeatures(snapshot, box);
+    }
+
+    MapboxMap.QueryRenderedFeaturesCallback getCallback() {
+        return callback;
+    }
+}
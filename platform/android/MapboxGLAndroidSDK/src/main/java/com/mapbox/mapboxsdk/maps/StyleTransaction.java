@@ -0,0 +1,155 @@
+package com.mapbox.mapboxsdk.maps;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.mapbox.mapboxsdk.style.layers.Layer;
+import com.mapbox.mapboxsdk.style.layers.NoSuchLayerException;
+import com.mapbox.mapboxsdk.style.sources.NoSuchSourceException;
+import com.mapbox.mapboxsdk.style.sources.Source;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Collects source, layer and image changes to the style and applies them together.
+ * <p>
+ * Changes are applied in the order they were made, within a single native style transaction: the map is updated
+ * and the sprite atlas refreshed once for the whole transaction instead of once per change. Consecutive images
+ * are added with a single native call.
+ * </p>
+ */
+class StyleTransaction {
+
+    private final List<Operation> operations = new ArrayList<>();
+    private final List<MapboxMap.OnStyleTransactionCommittedListener> committedListeners = new ArrayList<>();
+    private Map<String, Bitmap> pendingImages;
+
+    void addLayer(@NonNull final Layer layer, @Nullable final String before) {
+        add(new Operation() {
+            @Override
+            void apply(NativeMapView nativeMapView) {
+                nativeMapView.addLayer(layer, before);
+            }
+        });
+    }
+
+    void removeLayer(@NonNull final String layerId) {
+        add(new Operation() {
+            @Override
+            void apply(NativeMapView nativeMapView) throws NoSuchLayerException {
+                nativeMapView.removeLayer(layerId);
+            }
+        });
+    }
+
+    void removeLayer(@NonNull final Layer layer) {
+        add(new Operation() {
+            @Override
+            void apply(NativeMapView nativeMapView) throws NoSuchLayerException {
+                nativeMapView.removeLayer(layer);
+            }
+        });
+    }
+
+    void addSource(@NonNull final Source source) {
+        add(new Operation() {
+            @Override
+            void apply(NativeMapView nativeMapView) {
+                nativeMapView.addSource(source);
+            }
+        });
+    }
+
+    void removeSource(@NonNull final String sourceId) {
+        add(new Operation() {
+            @Override
+            void apply(NativeMapView nativeMapView) throws NoSuchSourceException {
+                nativeMapView.removeSource(sourceId);
+            }
+        });
+    }
+
+    void removeSource(@NonNull final Source source) {
+        add(new Operation() {
+            @Override
+            void apply(NativeMapView nativeMapView) throws NoSuchSourceException {
+                nativeMapView.removeSource(source);
+            }
+        });
+    }
+
+    void addImages(@NonNull Map<String, Bitmap> images) {
+        if (pendingImages == null) {
+            final Map<String, Bitmap> batch = new HashMap<>();
+            operations.add(new Operation() {
+                @Override
+                void apply(NativeMapView nativeMapView) {
+                    nativeMapView.addImages(batch);
+                }
+            });
+            pendingImages = batch;
+        }
+        pendingImages.putAll(images);
+    }
+
+    void removeImage(@NonNull final String name) {
+        add(new Operation() {
+            @Override
+            void apply(NativeMapView nativeMapView) {
+                nativeMapView.removeImage(name);
+            }
+        });
+    }
+
+    void addCommittedListener(@NonNull MapboxMap.OnStyleTransactionCommittedListener listener) {
+        committedListeners.add(listener);
+    }
+
+    @NonNull
+    List<MapboxMap.OnStyleTransactionCommittedListener> getCommittedListeners() {
+        return committedListeners;
+    }
+
+    boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    /**
+     * Applies the collected changes. A change that fails is logged and doesn't prevent the remaining changes from
+     * being applied.
+     *
+     * @param nativeMapView the map to apply the changes to
+     */
+    void commit(@NonNull NativeMapView nativeMapView) {
+        nativeMapView.beginStyleTransaction();
+        try {
+            for (Operation operation : operations) {
+                try {
+                    operation.apply(nativeMapView);
+                } catch (Exception exception) {
+                    Timber.e(exception, "Failed to apply style change");
+                }
+            }
+        } finally {
+            operations.clear();
+            pendingImages = null;
+            nativeMapView.commitStyleTransaction();
+        }
+    }
+
+    private void add(Operation operation) {
+        // images added after this change can't be merged into an earlier batch without reordering them
+        pendingImages = null;
+        operations.add(operation);
+    }
+
+    private abstract static class Operation {
+        abstract void apply(NativeMapView nativeMapView) throws NoSuchLayerException, NoSuchSourceException;
+    }
+}
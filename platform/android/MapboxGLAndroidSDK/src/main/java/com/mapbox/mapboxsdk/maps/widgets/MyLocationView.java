@@ -90,6 +90,8 @@ public class MyLocationView extends View {
     private Matrix matrix;
     private Camera camera;
     private PointF screenLocation;
+    private final double[] projectedLatLng = new double[2];
+    private final float[] projectedScreenLocation = new float[2];
 
     // camera vars
     private double tilt;
@@ -772,7 +774,14 @@ public class MyLocationView extends View {
         @Override
         void invalidate() {
             if (latLng != null) {
-                screenLocation = projection.toScreenLocation(latLng);
+                // project into reused buffers, this runs for every frame
+                projectedLatLng[0] = latLng.getLatitude();
+                projectedLatLng[1] = latLng.getLongitude();
+                projection.toScreenLocations(projectedLatLng, projectedScreenLocation);
+                if (screenLocation == null) {
+                    screenLocation = new PointF();
+                }
+                screenLocation.set(projectedScreenLocation[0], projectedScreenLocation[1]);
             }
             MyLocationView.this.invalidate();
         }
@@ -0,0 +1,238 @@
+package com.mapbox.mapboxsdk.snapshotter;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+
+import com.mapbox.mapboxsdk.MapboxAccountManager;
+import com.mapbox.mapboxsdk.camera.CameraPosition;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.offline.OfflineManager;
+
+import java.io.File;
+
+/**
+ * Renders still images of a map without a {@link com.mapbox.mapboxsdk.maps.MapView}, for instance to create
+ * thumbnails.
+ * <p>
+ * Snapshots are rendered offscreen one after another on a background thread, and are delivered on the main thread
+ * in the order they were requested. Consecutive snapshots of the same size reuse the same map, together with its
+ * loaded style and tiles.
+ * </p>
+ */
+public class MapSnapshotter {
+
+    static {
+        System.loadLibrary("mapbox-gl");
+    }
+
+    // Default database name, shared with the map views and the offline manager
+    private static final String DATABASE_NAME = "mbgl-offline.db";
+
+    // Holds the pointer to JNI MapSnapshotter
+    private long nativePtr = 0;
+
+    /**
+     * Interface definition for a callback to be invoked when a snapshot has been taken.
+     */
+    public interface SnapshotReadyCallback {
+        /**
+         * Invoked when the snapshot has been taken.
+         *
+         * @param snapshot the snapshot bitmap
+         */
+        void onSnapshotReady(Bitmap snapshot);
+
+        /**
+         * Invoked when the snapshot could not be taken, for instance because the style failed to load.
+         *
+         * @param error the error message
+         */
+        void onError(String error);
+    }
+
+    /**
+     * Defines the style, size and camera of a snapshot.
+     */
+    public static class Options {
+
+        private final int width;
+        private final int height;
+        private float pixelRatio = 1;
+        private String styleUrl;
+        private String styleJson;
+        private CameraPosition cameraPosition;
+
+        /**
+         * Creates the options of a snapshot.
+         *
+         * @param width  the width of the snapshot, in density independent pixels
+         * @param height the height of the snapshot, in density independent pixels
+         */
+        public Options(int width, int height) {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("Snapshot size must be positive: " + width + "x" + height);
+            }
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Specifies the pixel ratio of the snapshot, the bitmap is the size multiplied by the pixel ratio.
+         *
+         * @param pixelRatio the pixel ratio, defaults to 1
+         * @return This
+         */
+        public Options pixelRatio(float pixelRatio) {
+            if (pixelRatio <= 0) {
+                throw new IllegalArgumentException("Pixel ratio must be positive: " + pixelRatio);
+            }
+            this.pixelRatio = pixelRatio;
+            return this;
+        }
+
+        /**
+         * Specifies the URL of the style of the snapshot.
+         *
+         * @param styleUrl the style URL
+         * @return This
+         */
+        public Options styleUrl(String styleUrl) {
+            this.styleUrl = styleUrl;
+            return this;
+        }
+
+        /**
+         * Specifies the style of the snapshot as JSON, instead of a style URL.
+         *
+         * @param styleJson the style JSON
+         * @return This
+         */
+        public Options styleJson(String styleJson) {
+            this.styleJson = styleJson;
+            return this;
+        }
+
+        /**
+         * Specifies the camera of the snapshot. Values that aren't set keep the value of the previous snapshot of the
+         * same size, or the default of the style for the first one.
+         *
+         * @param cameraPosition the camera position
+         * @return This
+         */
+        public Options camera(CameraPosition cameraPosition) {
+            this.cameraPosition = cameraPosition;
+            return this;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public float getPixelRatio() {
+            return pixelRatio;
+        }
+
+        @Nullable
+        public String getStyleUrl() {
+            return styleUrl;
+        }
+
+        @Nullable
+        public String getStyleJson() {
+            return styleJson;
+        }
+
+        @Nullable
+        public CameraPosition getCamera() {
+            return cameraPosition;
+        }
+    }
+
+    /**
+     * Creates a snapshotter using the same ambient cache as the map views.
+     *
+     * @param context the context of the application
+     */
+    public MapSnapshotter(@NonNull Context context) {
+        String cachePath = OfflineManager.getDatabasePath(context) + File.separator + DATABASE_NAME;
+        initialize(cachePath, context.getPackageCodePath());
+
+        if (MapboxAccountManager.getInstance() != null) {
+            nativeSetAccessToken(MapboxAccountManager.getInstance().getAccessToken());
+        }
+    }
+
+    /**
+     * Starts taking a snapshot.
+     *
+     * @param options  the style, size and camera of the snapshot
+     * @param callback the callback invoked on the main thread when the snapshot has been taken
+     */
+    @UiThread
+    public void start(@NonNull Options options, @NonNull SnapshotReadyCallback callback) {
+        if ((options.styleUrl == null) == (options.styleJson == null)) {
+            throw new IllegalArgumentException("Snapshot requires either a style URL or a style JSON");
+        }
+
+        // The native side copies the snapshot into the bitmap, its size must match the scaled size exactly
+        Bitmap bitmap = Bitmap.createBitmap((int) (options.width * options.pixelRatio),
+            (int) (options.height * options.pixelRatio), Bitmap.Config.ARGB_8888);
+
+        CameraPosition camera = options.cameraPosition != null
+            ? options.cameraPosition : new CameraPosition.Builder().build();
+        LatLng target = camera.target;
+
+        nativeStart(options.styleUrl, options.styleJson, options.width, options.height, options.pixelRatio,
+            target != null ? target.getLatitude() : Double.NaN, target != null ? target.getLongitude() : Double.NaN,
+            camera.zoom, camera.bearing, camera.tilt, new Snapshot(bitmap, callback));
+    }
+
+    /**
+     * A pending snapshot, referenced from the native side until it has been taken. As an inner class it keeps the
+     * snapshotter alive while snapshots are pending.
+     */
+    class Snapshot {
+
+        private final Bitmap bitmap;
+        private final SnapshotReadyCallback callback;
+
+        Snapshot(Bitmap bitmap, SnapshotReadyCallback callback) {
+            this.bitmap = bitmap;
+            this.callback = callback;
+        }
+
+        // Called from JNI
+        Bitmap getBitmap() {
+            return bitmap;
+        }
+
+        // Called from JNI
+        void onSnapshotReady() {
+            callback.onSnapshotReady(bitmap);
+        }
+
+        // Called from JNI
+        void onSnapshotFailed(String message) {
+            bitmap.recycle();
+            callback.onError(message);
+        }
+    }
+
+    protected native void initialize(String cachePath, String assetRoot);
+
+    protected native void nativeSetAccessToken(String accessToken);
+
+    protected native void nativeStart(String styleUrl, String styleJson, int width, int height, float pixelRatio,
+                                      double latitude, double longitude, double zoom, double bearing, double tilt,
+                                      Snapshot snapshot);
+
+    @Override
+    protected native void finalize() throws Throwable;
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains the Mapbox Maps Android Snapshotter API classes.
+ */
+package com.mapbox.mapboxsdk.snapshotter;
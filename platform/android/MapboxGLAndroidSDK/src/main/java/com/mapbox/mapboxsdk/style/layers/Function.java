@@ -95,12 +95,16 @@ public class Function<T> {
     private final Stop<Float, T>[] stops;
     private Float base;
 
+    // the representation passed to the renderer, reused as functions are immutable once created
+    private Map<String, Object> valueObject;
+
     Function(@NonNull @Size(min = 1) Stop<Float, T>[] stops) {
         this.stops = stops;
     }
 
     Function<T> withBase(float base) {
         this.base = base;
+        this.valueObject = null;
         return this;
     }
 
@@ -120,6 +124,10 @@ public class Function<T> {
     }
 
     Map<String, Object> toValueObject() {
+        if (valueObject != null) {
+            return valueObject;
+        }
+
         Object[] stopsValue = new Object[stops.length];
 
         for (int i = 0; i < stopsValue.length; i++) {
@@ -132,6 +140,7 @@ public class Function<T> {
             value.put("base", base);
         }
         value.put("stops", stopsValue);
+        valueObject = value;
         return value;
     }
 }
@@ -17,19 +17,44 @@ public abstract class Layer {
     public Layer() {
     }
 
+    /**
+     * Sets properties of the layer.
+     * <p>
+     * All properties are passed to the renderer in a single call, changing many properties at once is
+     * considerably cheaper than changing them one by one.
+     * </p>
+     *
+     * @param properties the properties to set
+     */
     public void setProperties(@NonNull Property<?>... properties) {
         if (properties.length == 0) {
             return;
         }
 
+        int paintCount = 0;
         for (Property<?> property : properties) {
-            Object converted = convertValue(property.value);
             if (property instanceof PaintProperty) {
-                nativeSetPaintProperty(property.name, converted);
+                paintCount++;
+            }
+        }
+
+        String[] layoutNames = new String[properties.length - paintCount];
+        Object[] layoutValues = new Object[layoutNames.length];
+        String[] paintNames = new String[paintCount];
+        Object[] paintValues = new Object[paintCount];
+        int layoutIndex = 0;
+        int paintIndex = 0;
+        for (Property<?> property : properties) {
+            if (property instanceof PaintProperty) {
+                paintNames[paintIndex] = property.name;
+                paintValues[paintIndex++] = convertValue(property.value);
             } else {
-                nativeSetLayoutProperty(property.name, converted);
+                layoutNames[layoutIndex] = property.name;
+                layoutValues[layoutIndex++] = convertValue(property.value);
             }
         }
+
+        nativeSetProperties(layoutNames, layoutValues, paintNames, paintValues);
     }
 
     public String getId() {
@@ -67,6 +92,9 @@ public abstract class Layer {
 
     protected native void nativeSetPaintProperty(String name, Object value);
 
+    protected native void nativeSetProperties(String[] layoutNames, Object[] layoutValues,
+                                              String[] paintNames, Object[] paintValues);
+
     protected native void nativeSetFilter(Object[] filter);
 
     protected native void nativeSetSourceLayer(String sourceLayer);
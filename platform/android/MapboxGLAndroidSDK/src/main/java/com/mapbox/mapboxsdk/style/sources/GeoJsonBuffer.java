@@ -0,0 +1,264 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.mapbox.services.commons.geojson.Feature;
+import com.mapbox.services.commons.geojson.FeatureCollection;
+import com.mapbox.services.commons.geojson.Geometry;
+import com.mapbox.services.commons.geojson.GeometryCollection;
+import com.mapbox.services.commons.geojson.LineString;
+import com.mapbox.services.commons.geojson.MultiLineString;
+import com.mapbox.services.commons.geojson.MultiPoint;
+import com.mapbox.services.commons.geojson.MultiPolygon;
+import com.mapbox.services.commons.geojson.Point;
+import com.mapbox.services.commons.geojson.Polygon;
+import com.mapbox.services.commons.models.Position;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a {@link FeatureCollection} into a direct buffer that is read by the native GeoJSON source without
+ * going through a JSON string.
+ * <p>
+ * Coordinates are written as packed lon/lat doubles in native byte order. The buffer is measured before it is
+ * written, so it is allocated once with its exact size.
+ * </p>
+ * <p>
+ * Keep in sync with platform/android/src/geometry/conversion/feature_buffer.hpp.
+ * </p>
+ */
+final class GeoJsonBuffer {
+
+    static final int GEOMETRY_NONE = 0;
+    static final int GEOMETRY_POINT = 1;
+    static final int GEOMETRY_LINE_STRING = 2;
+    static final int GEOMETRY_POLYGON = 3;
+    static final int GEOMETRY_MULTI_POINT = 4;
+    static final int GEOMETRY_MULTI_LINE_STRING = 5;
+    static final int GEOMETRY_MULTI_POLYGON = 6;
+    static final int GEOMETRY_COLLECTION = 7;
+
+    static final int VALUE_NULL = 0;
+    static final int VALUE_BOOL = 1;
+    static final int VALUE_UINT = 2;
+    static final int VALUE_INT = 3;
+    static final int VALUE_DOUBLE = 4;
+    static final int VALUE_STRING = 5;
+    static final int VALUE_ARRAY = 6;
+    static final int VALUE_OBJECT = 7;
+
+    private static final int INT_SIZE = 4;
+    private static final int DOUBLE_SIZE = 8;
+    private static final int LONG_SIZE = 8;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // null while measuring
+    private ByteBuffer buffer;
+    private int size;
+
+    private GeoJsonBuffer() {
+    }
+
+    /**
+     * Encodes the features of a collection.
+     *
+     * @param features the features to encode
+     * @return a direct buffer in native byte order, positioned at 0 with its limit set to the encoded size
+     */
+    @NonNull
+    static ByteBuffer encode(@NonNull FeatureCollection features) {
+        GeoJsonBuffer encoder = new GeoJsonBuffer();
+        encoder.writeFeatures(features.getFeatures());
+        encoder.buffer = ByteBuffer.allocateDirect(encoder.size).order(ByteOrder.nativeOrder());
+        encoder.writeFeatures(features.getFeatures());
+        encoder.buffer.flip();
+        return encoder.buffer;
+    }
+
+    private void writeFeatures(List<Feature> features) {
+        writeInt(features.size());
+        for (Feature feature : features) {
+            writeString(feature.getId() != null ? feature.getId() : "");
+            writeGeometry(feature.getGeometry());
+            writeProperties(feature.getProperties());
+        }
+    }
+
+    private void writeGeometry(Geometry geometry) {
+        if (geometry instanceof Point) {
+            writeByte(GEOMETRY_POINT);
+            writePosition(((Point) geometry).getCoordinates());
+        } else if (geometry instanceof LineString) {
+            writeByte(GEOMETRY_LINE_STRING);
+            writePositions(((LineString) geometry).getCoordinates());
+        } else if (geometry instanceof MultiPoint) {
+            writeByte(GEOMETRY_MULTI_POINT);
+            writePositions(((MultiPoint) geometry).getCoordinates());
+        } else if (geometry instanceof Polygon) {
+            writeByte(GEOMETRY_POLYGON);
+            writeRings(((Polygon) geometry).getCoordinates());
+        } else if (geometry instanceof MultiLineString) {
+            writeByte(GEOMETRY_MULTI_LINE_STRING);
+            writeRings(((MultiLineString) geometry).getCoordinates());
+        } else if (geometry instanceof MultiPolygon) {
+            writeByte(GEOMETRY_MULTI_POLYGON);
+            List<List<List<Position>>> polygons = ((MultiPolygon) geometry).getCoordinates();
+            writeInt(polygons.size());
+            for (List<List<Position>> polygon : polygons) {
+                writeRings(polygon);
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            writeByte(GEOMETRY_COLLECTION);
+            List<Geometry> geometries = ((GeometryCollection) geometry).getGeometries();
+            writeInt(geometries.size());
+            for (Geometry member : geometries) {
+                writeGeometry(member);
+            }
+        } else {
+            // features without a geometry are skipped by the native source
+            writeByte(GEOMETRY_NONE);
+        }
+    }
+
+    private void writePosition(Position position) {
+        writeDouble(position.getLongitude());
+        writeDouble(position.getLatitude());
+    }
+
+    private void writePositions(List<Position> positions) {
+        writeInt(positions.size());
+        if (buffer == null) {
+            size += positions.size() * 2 * DOUBLE_SIZE;
+            return;
+        }
+        for (Position position : positions) {
+            writePosition(position);
+        }
+    }
+
+    private void writeRings(List<List<Position>> rings) {
+        writeInt(rings.size());
+        for (List<Position> ring : rings) {
+            writePositions(ring);
+        }
+    }
+
+    private void writeProperties(JsonObject properties) {
+        if (properties == null) {
+            writeInt(0);
+            return;
+        }
+        writeInt(properties.entrySet().size());
+        for (Map.Entry<String, JsonElement> property : properties.entrySet()) {
+            writeString(property.getKey());
+            writeValue(property.getValue());
+        }
+    }
+
+    private void writeValue(JsonElement value) {
+        if (value == null || value.isJsonNull()) {
+            writeByte(VALUE_NULL);
+        } else if (value.isJsonObject()) {
+            writeByte(VALUE_OBJECT);
+            writeProperties(value.getAsJsonObject());
+        } else if (value.isJsonArray()) {
+            JsonArray array = value.getAsJsonArray();
+            writeByte(VALUE_ARRAY);
+            writeInt(array.size());
+            for (JsonElement element : array) {
+                writeValue(element);
+            }
+        } else {
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                writeByte(VALUE_BOOL);
+                writeByte(primitive.getAsBoolean() ? 1 : 0);
+            } else if (primitive.isNumber()) {
+                writeNumber(primitive.getAsNumber());
+            } else {
+                writeByte(VALUE_STRING);
+                writeString(primitive.getAsString());
+            }
+        }
+    }
+
+    private void writeNumber(Number number) {
+        if (number instanceof Double || number instanceof Float) {
+            writeByte(VALUE_DOUBLE);
+            writeDouble(number.doubleValue());
+            return;
+        }
+
+        // same distinction as the JSON parser: non-negative integers are unsigned, fractions are doubles
+        String text = number.toString();
+        if (text.indexOf('.') == -1 && text.indexOf('e') == -1 && text.indexOf('E') == -1) {
+            try {
+                BigInteger integer = new BigInteger(text);
+                if (integer.signum() >= 0 && integer.bitLength() <= 64) {
+                    writeByte(VALUE_UINT);
+                    writeLong(integer.longValue());
+                    return;
+                } else if (integer.bitLength() <= 63) {
+                    writeByte(VALUE_INT);
+                    writeLong(integer.longValue());
+                    return;
+                }
+            } catch (NumberFormatException exception) {
+                // not an integer, written as double
+            }
+        }
+        writeByte(VALUE_DOUBLE);
+        writeDouble(number.doubleValue());
+    }
+
+    private void writeString(String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeInt(bytes.length);
+        if (buffer != null) {
+            buffer.put(bytes);
+        } else {
+            size += bytes.length;
+        }
+    }
+
+    private void writeByte(int value) {
+        if (buffer != null) {
+            buffer.put((byte) value);
+        } else {
+            size++;
+        }
+    }
+
+    private void writeInt(int value) {
+        if (buffer != null) {
+            buffer.putInt(value);
+        } else {
+            size += INT_SIZE;
+        }
+    }
+
+    private void writeLong(long value) {
+        if (buffer != null) {
+            buffer.putLong(value);
+        } else {
+            size += LONG_SIZE;
+        }
+    }
+
+    private void writeDouble(double value) {
+        if (buffer != null) {
+            buffer.putDouble(value);
+        } else {
+            size += DOUBLE_SIZE;
+        }
+    }
+}
@@ -1,11 +1,30 @@
 package com.mapbox.mapboxsdk.style.sources;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
 import com.mapbox.services.commons.geojson.Feature;
 import com.mapbox.services.commons.geojson.FeatureCollection;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import timber.log.Timber;
 
 /**
  * A GeoJson source. Exposes a {@link FeatureCollection} from Json.
@@ -14,6 +33,19 @@ import java.util.HashMap;
  */
 public class GeoJsonSource extends Source {
 
+    // callbacks of pending asynchronous updates, accessed on the main thread only
+    private static final Map<Long, GeoJsonUpdateCallback> updateCallbacks = new HashMap<>();
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private static long lastRequestId;
+    private static ExecutorService executor;
+    private static Handler handler;
+
+    private long pendingRequestId;
+
+    // feature changes made while the features of a pending update are encoded, applied once it's passed on
+    private List<Runnable> deferredMutations;
+
     /**
      * Internal use
      *
@@ -120,13 +152,166 @@ public class GeoJsonSource extends Source {
     }
 
     /**
-     * Updates the GeoJson
+     * Create a GeoJsonSource from a local geo json file. The file is parsed asynchronously, without reading it
+     * into memory.
+     *
+     * @param id   the source id
+     * @param file the local json file
+     * @see #setGeoJsonAsync(File, GeoJsonUpdateCallback)
+     */
+    public GeoJsonSource(String id, File file) {
+        initialize(id, null);
+        setGeoJsonAsync(file, null);
+    }
+
+    /**
+     * Create a GeoJsonSource from a local geo json file and non-default {@link GeoJsonOptions}. The file is parsed
+     * asynchronously, without reading it into memory.
+     *
+     * @param id      the source id
+     * @param file    the local json file
+     * @param options options
+     * @see #setGeoJsonAsync(File, GeoJsonUpdateCallback)
+     */
+    public GeoJsonSource(String id, File file, GeoJsonOptions options) {
+        initialize(id, options);
+        setGeoJsonAsync(file, null);
+    }
+
+    /**
+     * Create a GeoJsonSource from the geo json read from a file descriptor. The json is parsed asynchronously,
+     * without reading it into memory.
+     *
+     * @param id             the source id
+     * @param fileDescriptor the file descriptor to read from
+     * @see #setGeoJsonAsync(FileDescriptor, GeoJsonUpdateCallback)
+     */
+    public GeoJsonSource(String id, FileDescriptor fileDescriptor) {
+        initialize(id, null);
+        setGeoJsonAsync(fileDescriptor, null);
+    }
+
+    /**
+     * Create a GeoJsonSource from the geo json read from a file descriptor and non-default
+     * {@link GeoJsonOptions}. The json is parsed asynchronously, without reading it into memory.
+     *
+     * @param id             the source id
+     * @param fileDescriptor the file descriptor to read from
+     * @param options        options
+     * @see #setGeoJsonAsync(FileDescriptor, GeoJsonUpdateCallback)
+     */
+    public GeoJsonSource(String id, FileDescriptor fileDescriptor, GeoJsonOptions options) {
+        initialize(id, options);
+        setGeoJsonAsync(fileDescriptor, null);
+    }
+
+    /**
+     * Create a GeoJsonSource from the geo json read from a stream. The json is streamed to the renderer and
+     * parsed asynchronously, without reading it into memory.
+     *
+     * @param id          the source id
+     * @param inputStream the stream to read from, closed when read
+     * @see #setGeoJsonAsync(InputStream, GeoJsonUpdateCallback)
+     */
+    public GeoJsonSource(String id, InputStream inputStream) {
+        initialize(id, null);
+        setGeoJsonAsync(inputStream, null);
+    }
+
+    /**
+     * Create a GeoJsonSource from the geo json read from a stream and non-default {@link GeoJsonOptions}. The json
+     * is streamed to the renderer and parsed asynchronously, without reading it into memory.
+     *
+     * @param id          the source id
+     * @param inputStream the stream to read from, closed when read
+     * @param options     options
+     * @see #setGeoJsonAsync(InputStream, GeoJsonUpdateCallback)
+     */
+    public GeoJsonSource(String id, InputStream inputStream, GeoJsonOptions options) {
+        initialize(id, options);
+        setGeoJsonAsync(inputStream, null);
+    }
+
+    /**
+     * Updates the GeoJson.
+     * <p>
+     * The features are passed to the renderer as packed coordinates, without serializing them to a json string.
+     * Features without a geometry are ignored.
+     * </p>
      *
      * @param features the GeoJSON {@link FeatureCollection}
      */
     public void setGeoJson(FeatureCollection features) {
         checkValidity();
-        setGeoJson(features.toJson());
+        cancelPendingUpdate();
+        ByteBuffer buffer = GeoJsonBuffer.encode(features);
+        nativeSetGeoJsonBuffer(buffer, buffer.limit());
+    }
+
+    /**
+     * Adds features to the source. Features with the id of a feature in the source replace that feature.
+     * <p>
+     * Only the tiles containing the added features are updated, which is considerably cheaper than updating a
+     * large source with {@link #setGeoJson(FeatureCollection)}. Features added while an asynchronous update is
+     * pending are added to the new data as well.
+     * </p>
+     *
+     * @param features the features to add
+     */
+    public void addFeatures(FeatureCollection features) {
+        checkValidity();
+        final ByteBuffer buffer = GeoJsonBuffer.encode(features);
+        mutateFeatures(new Runnable() {
+            @Override
+            public void run() {
+                nativeAddFeatures(buffer, buffer.limit());
+            }
+        });
+    }
+
+    /**
+     * Replaces the features in the source with the same id. Features with an id that isn't in the source, or
+     * without id, are ignored.
+     * <p>
+     * Only the tiles containing the old or the new geometry of the updated features are updated. Features updated
+     * while an asynchronous update is pending are updated in the new data as well.
+     * </p>
+     *
+     * @param features the updated features
+     */
+    public void updateFeatures(FeatureCollection features) {
+        checkValidity();
+        final ByteBuffer buffer = GeoJsonBuffer.encode(features);
+        mutateFeatures(new Runnable() {
+            @Override
+            public void run() {
+                nativeUpdateFeatures(buffer, buffer.limit());
+            }
+        });
+    }
+
+    /**
+     * Removes the features with the given ids from the source.
+     * <p>
+     * Only the tiles containing the removed features are updated. Features removed while an asynchronous update is
+     * pending are removed from the new data as well.
+     * </p>
+     * <p>
+     * Ids are matched as strings, like the ids of {@link Feature}. Features with a numeric id in json data can't be
+     * removed by id.
+     * </p>
+     *
+     * @param ids the ids of the features to remove
+     */
+    public void removeFeatures(String... ids) {
+        checkValidity();
+        final String[] removed = ids.clone();
+        mutateFeatures(new Runnable() {
+            @Override
+            public void run() {
+                nativeRemoveFeatures(removed);
+            }
+        });
     }
 
     /**
@@ -136,9 +321,169 @@ public class GeoJsonSource extends Source {
      */
     public void setGeoJson(String json) {
         checkValidity();
+        cancelPendingUpdate();
         setRawJson(json);
     }
 
+    /**
+     * Updates the GeoJson without blocking the main thread.
+     * <p>
+     * The features are encoded, and the tile index is built, on a worker thread. The current data keeps
+     * rendering until the update is ready. Setting the data again before the update is ready cancels it, the
+     * callback of a cancelled update isn't invoked. An update is cancelled as well when the source is garbage
+     * collected, or destroyed with the map, before it's ready.
+     * </p>
+     * <p>
+     * Features added, updated or removed while the update is pending are applied to the new data once it's ready.
+     * Changes made while the features are encoded are applied to the current data once they are encoded.
+     * </p>
+     *
+     * @param features the GeoJSON {@link FeatureCollection}
+     * @param callback the callback invoked on the main thread once the new data is rendered, may be null
+     */
+    public void setGeoJsonAsync(@NonNull final FeatureCollection features, @Nullable GeoJsonUpdateCallback callback) {
+        checkValidity();
+        final long requestId = startPendingUpdate(callback);
+        deferredMutations = new ArrayList<>();
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer encoded = null;
+                String error = null;
+                try {
+                    encoded = GeoJsonBuffer.encode(features);
+                } catch (RuntimeException exception) {
+                    error = exception.getMessage();
+                }
+
+                final ByteBuffer buffer = encoded;
+                final String message = error;
+                getHandler().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (pendingRequestId != requestId) {
+                            // superseded
+                            return;
+                        }
+
+                        List<Runnable> mutations = deferredMutations;
+                        deferredMutations = null;
+                        if (buffer != null) {
+                            nativeSetGeoJsonBufferAsync(buffer, buffer.limit(), requestId);
+                        } else {
+                            onGeoJsonUpdated(requestId, message);
+                        }
+
+                        // recorded by the renderer from here on, applied again once the new data is parsed
+                        for (Runnable mutation : mutations) {
+                            mutation.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Updates the GeoJson without blocking the main thread.
+     * <p>
+     * The json is parsed, and the tile index is built, on a worker thread. The current data keeps rendering until
+     * the update is ready. Setting the data again before the update is ready cancels it, the callback of a
+     * cancelled update isn't invoked.
+     * </p>
+     *
+     * @param json     the raw GeoJson FeatureCollection string
+     * @param callback the callback invoked on the main thread once the new data is rendered, may be null
+     */
+    public void setGeoJsonAsync(@NonNull String json, @Nullable GeoJsonUpdateCallback callback) {
+        checkValidity();
+        nativeSetGeoJsonStringAsync(json, startPendingUpdate(callback));
+    }
+
+    /**
+     * Updates the GeoJson from a local file without blocking the main thread.
+     * <p>
+     * The file is memory mapped and parsed on a worker thread, it's never read into the Java heap. The current
+     * data keeps rendering until the update is ready.
+     * </p>
+     *
+     * @param file     the local GeoJson FeatureCollection file
+     * @param callback the callback invoked on the main thread once the new data is rendered, may be null
+     */
+    public void setGeoJsonAsync(@NonNull File file, @Nullable GeoJsonUpdateCallback callback) {
+        checkValidity();
+        nativeSetGeoJsonFileAsync(file.getAbsolutePath(), startPendingUpdate(callback));
+    }
+
+    /**
+     * Updates the GeoJson from a file descriptor without blocking the main thread.
+     * <p>
+     * The descriptor is duplicated, the caller remains responsible for closing it. The json is parsed on a worker
+     * thread, memory mapped when the descriptor refers to a regular file, it's never read into the Java heap. The
+     * current data keeps rendering until the update is ready.
+     * </p>
+     *
+     * @param fileDescriptor the file descriptor to read the GeoJson FeatureCollection from
+     * @param callback       the callback invoked on the main thread once the new data is rendered, may be null
+     */
+    public void setGeoJsonAsync(@NonNull FileDescriptor fileDescriptor, @Nullable GeoJsonUpdateCallback callback) {
+        checkValidity();
+        long requestId = startPendingUpdate(callback);
+        try {
+            nativeSetGeoJsonFileDescriptorAsync(ParcelFileDescriptor.dup(fileDescriptor).detachFd(), requestId);
+        } catch (IOException exception) {
+            failPendingUpdate(requestId, exception.getMessage());
+        }
+    }
+
+    /**
+     * Updates the GeoJson from a stream without blocking the main thread.
+     * <p>
+     * The stream is read on a worker thread and piped to the renderer in small chunks, which parses the json
+     * while it's being read. The json is never held in the Java heap. The current data keeps rendering until the
+     * update is ready. Setting the data again before the update is ready cancels it, the renderer then stops
+     * reading and the rest of the stream isn't read.
+     * </p>
+     *
+     * @param inputStream the stream to read the GeoJson FeatureCollection from, closed when read
+     * @param callback    the callback invoked on the main thread once the new data is rendered, may be null
+     */
+    public void setGeoJsonAsync(@NonNull final InputStream inputStream, @Nullable GeoJsonUpdateCallback callback) {
+        checkValidity();
+        long requestId = startPendingUpdate(callback);
+
+        final ParcelFileDescriptor[] pipe;
+        try {
+            pipe = ParcelFileDescriptor.createPipe();
+        } catch (IOException exception) {
+            closeQuietly(inputStream);
+            failPendingUpdate(requestId, exception.getMessage());
+            return;
+        }
+
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                OutputStream outputStream = new ParcelFileDescriptor.AutoCloseOutputStream(pipe[1]);
+                byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+                try {
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        outputStream.write(buffer, 0, read);
+                    }
+                } catch (IOException exception) {
+                    // the stream failed or the update was cancelled, which closes the other end of the pipe
+                    Timber.w("Stopped streaming GeoJson: %s", exception.getMessage());
+                } finally {
+                    closeQuietly(outputStream);
+                    closeQuietly(inputStream);
+                }
+            }
+        });
+
+        nativeSetGeoJsonFileDescriptorAsync(pipe[0].detachFd(), requestId);
+    }
+
     /**
      * Updates the url
      *
@@ -156,6 +501,7 @@ public class GeoJsonSource extends Source {
      */
     public void setUrl(String url) {
         checkValidity();
+        cancelPendingUpdate();
         nativeSetUrl(url);
     }
 
@@ -167,13 +513,151 @@ public class GeoJsonSource extends Source {
         nativeSetGeoJson(wrapper);
     }
 
+    private long startPendingUpdate(@Nullable GeoJsonUpdateCallback callback) {
+        cancelPendingUpdate();
+        pendingRequestId = ++lastRequestId;
+        if (callback != null) {
+            updateCallbacks.put(pendingRequestId, callback);
+        }
+        return pendingRequestId;
+    }
+
+    private void cancelPendingUpdate() {
+        if (pendingRequestId != 0) {
+            updateCallbacks.remove(pendingRequestId);
+            pendingRequestId = 0;
+        }
+        // made against the data being replaced
+        deferredMutations = null;
+    }
+
+    private void mutateFeatures(Runnable mutation) {
+        if (deferredMutations != null) {
+            deferredMutations.add(mutation);
+        } else {
+            mutation.run();
+        }
+    }
+
+    private void failPendingUpdate(final long requestId, final String message) {
+        getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                onGeoJsonUpdated(requestId, message != null ? message : "Failed to read GeoJson");
+            }
+        });
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException exception) {
+            // ignore
+        }
+    }
+
+    /**
+     * Called from the native side, on the main thread, when an asynchronous update is ready or failed.
+     *
+     * @param requestId the id of the update
+     * @param error     the error message, null if the update succeeded
+     */
+    private static void onGeoJsonUpdated(long requestId, String error) {
+        GeoJsonUpdateCallback callback = updateCallbacks.remove(requestId);
+        if (callback == null) {
+            return;
+        }
+
+        if (error == null) {
+            callback.onGeoJsonUpdated();
+        } else {
+            callback.onError(error);
+        }
+    }
+
+    /**
+     * Called from the native side, on any thread, when an asynchronous update was dropped before it completed.
+     *
+     * @param requestId the id of the update
+     */
+    private static void onGeoJsonUpdateCancelled(final long requestId) {
+        getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                updateCallbacks.remove(requestId);
+            }
+        });
+    }
+
+    private static ExecutorService getExecutor() {
+        if (executor == null) {
+            // streams block their thread until the renderer reads them
+            executor = Executors.newCachedThreadPool();
+        }
+        return executor;
+    }
+
+    private static synchronized Handler getHandler() {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        return handler;
+    }
+
     protected native void initialize(String layerId, Object options);
 
     protected native void nativeSetUrl(String url);
 
     private native void nativeSetGeoJson(Object geoJson);
 
+    private native void nativeSetGeoJsonBuffer(ByteBuffer buffer, int length);
+
+    private native void nativeSetGeoJsonStringAsync(String json, long requestId);
+
+    private native void nativeSetGeoJsonBufferAsync(ByteBuffer buffer, int length, long requestId);
+
+    private native void nativeSetGeoJsonFileAsync(String path, long requestId);
+
+    private native void nativeSetGeoJsonFileDescriptorAsync(int fd, long requestId);
+
+    private native void nativeAddFeatures(ByteBuffer buffer, int length);
+
+    private native void nativeUpdateFeatures(ByteBuffer buffer, int length);
+
+    private native void nativeRemoveFeatures(String[] ids);
+
+    private native void nativeFinalize();
+
     @Override
-    protected native void finalize() throws Throwable;
+    protected void finalize() throws Throwable {
+        try {
+            // runs on the finalizer thread, the callback of a pending update is dropped with the source
+            if (pendingRequestId != 0) {
+                onGeoJsonUpdateCancelled(pendingRequestId);
+            }
+        } finally {
+            nativeFinalize();
+        }
+    }
+
+    /**
+     * Callback of asynchronous GeoJson updates.
+     *
+     * @see #setGeoJsonAsync(FeatureCollection, GeoJsonUpdateCallback)
+     */
+    public interface GeoJsonUpdateCallback {
+
+        /**
+         * Invoked when the new data is rendered.
+         */
+        void onGeoJsonUpdated();
+
+        /**
+         * Invoked when the data couldn't be parsed, the previous data keeps rendering.
+         *
+         * @param message the error message
+         */
+        void onError(String message);
+    }
 
 }
@@ -2,6 +2,7 @@ package com.mapbox.mapboxsdk.testapp.activity.feature;
 
 import android.graphics.RectF;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 import android.support.v7.app.ActionBar;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.Toolbar;
@@ -17,6 +18,7 @@ import com.mapbox.mapboxsdk.geometry.LatLng;
 import com.mapbox.mapboxsdk.maps.MapView;
 import com.mapbox.mapboxsdk.maps.MapboxMap;
 import com.mapbox.mapboxsdk.maps.OnMapReadyCallback;
+import com.mapbox.mapboxsdk.maps.RenderedFeatures;
 import com.mapbox.mapboxsdk.testapp.R;
 import com.mapbox.services.commons.geojson.Feature;
 
@@ -57,16 +59,19 @@ public class QueryRenderedFeaturesBoxCountActivity extends AppCompatActivity {
                         int left = selectionBox.getLeft() - mapView.getLeft();
                         RectF box = new RectF(left, top, left + selectionBox.getWidth(), top + selectionBox.getHeight());
                         Timber.i(String.format("Querying box %s", box));
-                        List<Feature> features = mapboxMap.queryRenderedFeatures(box);
-
-                        //Show count
-                        Toast.makeText(
-                            QueryRenderedFeaturesBoxCountActivity.this,
-                            String.format("%s features in box", features.size()),
-                            Toast.LENGTH_SHORT).show();
-
-                        //Debug output
-                        debugOutput(features);
+                        mapboxMap.queryRenderedFeaturesAsync(box, new MapboxMap.QueryRenderedFeaturesCallback() {
+                            @Override
+                            public void onFeaturesQueried(@NonNull RenderedFeatures features) {
+                                //Show count
+                                Toast.makeText(
+                                    QueryRenderedFeaturesBoxCountActivity.this,
+                                    String.format("%s features in box", features.size()),
+                                    Toast.LENGTH_SHORT).show();
+
+                                //Debug output
+                                debugOutput(features);
+                            }
+                        });
                     }
                 });
             }
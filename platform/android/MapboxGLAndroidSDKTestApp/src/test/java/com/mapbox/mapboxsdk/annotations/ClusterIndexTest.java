@@ -0,0 +1,123 @@
+package com.mapbox.mapboxsdk.annotations;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClusterIndexTest {
+
+    private static final double[] POINTS = new double[]{
+            52.5200, 13.4050,
+            52.5201, 13.4051,
+            48.8566, 2.3522
+    };
+
+    @Test
+    public void testEmpty() {
+        ClusterIndex index = new ClusterIndex(new double[0], 50, 512, 0, 16);
+        assertEquals(0, index.getClusters(-180, -85, 180, 85, 0).length);
+    }
+
+    @Test
+    public void testClustersAtLowZoom() {
+        ClusterIndex index = new ClusterIndex(POINTS, 50, 512, 0, 16);
+        int[] ids = index.getClusters(-180, -85, 180, 85, 0);
+        assertEquals(1, ids.length);
+        assertTrue(index.isCluster(ids[0]));
+        assertEquals(3, index.getPointCount(ids[0]));
+    }
+
+    @Test
+    public void testPointsAboveMaxZoom() {
+        ClusterIndex index = new ClusterIndex(POINTS, 50, 512, 0, 16);
+        int[] ids = index.getClusters(-180, -85, 180, 85, 17);
+        Arrays.sort(ids);
+        assertArrayEquals(new int[]{0, 1, 2}, ids);
+        assertFalse(index.isCluster(ids[0]));
+    }
+
+    @Test
+    public void testLeavesAndChildren() {
+        ClusterIndex index = new ClusterIndex(POINTS, 50, 512, 0, 16);
+        int cluster = index.getClusters(-180, -85, 180, 85, 0)[0];
+
+        int[] leaves = index.getLeaves(cluster);
+        Arrays.sort(leaves);
+        assertArrayEquals(new int[]{0, 1, 2}, leaves);
+
+        int count = 0;
+        for (int child : index.getChildren(cluster)) {
+            count += index.getPointCount(child);
+        }
+        assertEquals(3, count);
+    }
+
+    @Test
+    public void testExpansionZoom() {
+        ClusterIndex index = new ClusterIndex(POINTS, 50, 512, 0, 16);
+        int cluster = index.getClusters(-180, -85, 180, 85, 0)[0];
+        int expansionZoom = index.getExpansionZoom(cluster);
+        int[] ids = index.getClusters(-180, -85, 180, 85, expansionZoom);
+        assertTrue(ids.length > 1);
+    }
+
+    @Test
+    public void testClusterPosition() {
+        ClusterIndex index = new ClusterIndex(new double[]{10, 20, 10, 20}, 50, 512, 0, 16);
+        int cluster = index.getClusters(-180, -85, 180, 85, 0)[0];
+        assertEquals(10, index.getLatitude(cluster), 1e-6);
+        assertEquals(20, index.getLongitude(cluster), 1e-6);
+    }
+
+    @Test
+    public void testBoundsQuery() {
+        ClusterIndex index = new ClusterIndex(POINTS, 50, 512, 0, 16);
+        int[] ids = index.getClusters(2, 48, 3, 49, 17);
+        assertArrayEquals(new int[]{2}, ids);
+    }
+
+    @Test
+    public void testAntimeridianQuery() {
+        ClusterIndex index = new ClusterIndex(new double[]{0, 179, 0, -179, 0, 0}, 50, 512, 0, 16);
+        int[] ids = index.getClusters(178, -1, -178, 1, 17);
+        Arrays.sort(ids);
+        assertArrayEquals(new int[]{0, 1}, ids);
+    }
+
+    @Test
+    public void testPointCountPreservedPerZoom() {
+        Random random = new Random(42);
+        int pointCount = 10000;
+        double[] latLngs = new double[pointCount * 2];
+        for (int i = 0; i < pointCount; i++) {
+            latLngs[i * 2] = random.nextDouble() * 170 - 85;
+            latLngs[i * 2 + 1] = random.nextDouble() * 360 - 180;
+        }
+
+        ClusterIndex index = new ClusterIndex(latLngs, 50, 512, 0, 16);
+        for (int zoom = 0; zoom <= 17; zoom++) {
+            int total = 0;
+            for (int id : index.getClusters(-180, -90, 180, 90, zoom)) {
+                total += index.getPointCount(id);
+            }
+            assertEquals("zoom " + zoom, pointCount, total);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOddCoordinates() {
+        new ClusterIndex(new double[]{0, 0, 1}, 50, 512, 0, 16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownId() {
+        ClusterIndex index = new ClusterIndex(POINTS, 50, 512, 0, 16);
+        index.getLeaves(1000);
+    }
+}
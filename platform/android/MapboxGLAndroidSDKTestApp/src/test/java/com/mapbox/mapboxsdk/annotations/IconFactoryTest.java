@@ -0,0 +1,209 @@
+package com.mapbox.mapboxsdk.annotations;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.os.Handler;
+import android.util.DisplayMetrics;
+import android.view.Display;
+import android.view.WindowManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IconFactoryTest {
+
+    private static final int RESOURCE_ID = 1;
+
+    private Resources resources;
+    private Configuration configuration;
+    private ExecutorService executor;
+    private IconFactory iconFactory;
+
+    @Before
+    public void beforeTest() {
+        Context context = mock(Context.class);
+        WindowManager windowManager = mock(WindowManager.class);
+        when(context.getSystemService(Context.WINDOW_SERVICE)).thenReturn(windowManager);
+        when(windowManager.getDefaultDisplay()).thenReturn(mock(Display.class));
+        resources = mock(Resources.class);
+        when(context.getResources()).thenReturn(resources);
+        when(resources.getDisplayMetrics()).thenReturn(new DisplayMetrics());
+        configuration = new Configuration();
+        when(resources.getConfiguration()).thenReturn(configuration);
+
+        // results are delivered right away instead of on the main thread
+        Handler handler = mock(Handler.class);
+        doAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return true;
+            }
+        }).when(handler).post(any(Runnable.class));
+
+        executor = mock(ExecutorService.class);
+        iconFactory = new IconFactory(context, executor, handler);
+    }
+
+    private void runDecode() {
+        ArgumentCaptor<Runnable> decode = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(1)).execute(decode.capture());
+        decode.getValue().run();
+    }
+
+    @Test
+    public void testResourceAsync() {
+        Bitmap bitmap = mock(Bitmap.class);
+        BitmapDrawable drawable = mock(BitmapDrawable.class);
+        when(drawable.getBitmap()).thenReturn(bitmap);
+        when(resources.getDrawable(RESOURCE_ID)).thenReturn(drawable);
+
+        IconFactory.IconReadyCallback callback = mock(IconFactory.IconReadyCallback.class);
+        iconFactory.fromResourceAsync(RESOURCE_ID, callback);
+        runDecode();
+
+        ArgumentCaptor<Icon> icon = ArgumentCaptor.forClass(Icon.class);
+        verify(callback, times(1)).onIconReady(icon.capture());
+        verify(callback, never()).onError(anyString());
+        assertSame("icon should hold the decoded bitmap", bitmap, icon.getValue().getBitmap());
+    }
+
+    @Test
+    public void testResourceAsyncNotFound() {
+        when(resources.getDrawable(RESOURCE_ID)).thenThrow(new Resources.NotFoundException());
+
+        IconFactory.IconReadyCallback callback = mock(IconFactory.IconReadyCallback.class);
+        iconFactory.fromResourceAsync(RESOURCE_ID, callback);
+        runDecode();
+
+        verify(callback, times(1)).onError(anyString());
+        verify(callback, never()).onIconReady(any(Icon.class));
+    }
+
+    @Test
+    public void testResourceAsyncNullDrawable() {
+        when(resources.getDrawable(RESOURCE_ID)).thenReturn(null);
+
+        IconFactory.IconReadyCallback callback = mock(IconFactory.IconReadyCallback.class);
+        iconFactory.fromResourceAsync(RESOURCE_ID, callback);
+        runDecode();
+
+        verify(callback, times(1)).onError(anyString());
+        verify(callback, never()).onIconReady(any(Icon.class));
+    }
+
+    @Test
+    public void testResourceAsyncErrorNotPending() {
+        when(resources.getDrawable(RESOURCE_ID)).thenThrow(new Resources.NotFoundException());
+
+        iconFactory.fromResourceAsync(RESOURCE_ID, mock(IconFactory.IconReadyCallback.class));
+        runDecode();
+
+        // a failed decode doesn't leave the source pending, the next request decodes again
+        IconFactory.IconReadyCallback callback = mock(IconFactory.IconReadyCallback.class);
+        iconFactory.fromResourceAsync(RESOURCE_ID, callback);
+        ArgumentCaptor<Runnable> decode = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(2)).execute(decode.capture());
+        decode.getValue().run();
+        verify(callback, times(1)).onError(anyString());
+    }
+
+    @Test
+    public void testResourceAsyncSharedPending() {
+        Bitmap bitmap = mock(Bitmap.class);
+        BitmapDrawable drawable = mock(BitmapDrawable.class);
+        when(drawable.getBitmap()).thenReturn(bitmap);
+        when(resources.getDrawable(RESOURCE_ID)).thenReturn(drawable);
+
+        IconFactory.IconReadyCallback first = mock(IconFactory.IconReadyCallback.class);
+        IconFactory.IconReadyCallback second = mock(IconFactory.IconReadyCallback.class);
+        iconFactory.fromResourceAsync(RESOURCE_ID, first);
+        iconFactory.fromResourceAsync(RESOURCE_ID, second);
+        runDecode();
+
+        ArgumentCaptor<Icon> firstIcon = ArgumentCaptor.forClass(Icon.class);
+        ArgumentCaptor<Icon> secondIcon = ArgumentCaptor.forClass(Icon.class);
+        verify(first, times(1)).onIconReady(firstIcon.capture());
+        verify(second, times(1)).onIconReady(secondIcon.capture());
+        assertSame("pending requests should share the decoded icon", firstIcon.getValue(), secondIcon.getValue());
+        verify(resources, times(1)).getDrawable(RESOURCE_ID);
+    }
+
+    @Test
+    public void testResourceKeyedByConfiguration() {
+        iconFactory.fromResourceAsync(RESOURCE_ID, mock(IconFactory.IconReadyCallback.class));
+        iconFactory.fromResourceAsync(RESOURCE_ID, mock(IconFactory.IconReadyCallback.class));
+        verify(executor, times(1)).execute(any(Runnable.class));
+
+        // a different ui mode may resolve to a different drawable
+        configuration.uiMode = Configuration.UI_MODE_NIGHT_YES;
+        iconFactory.fromResourceAsync(RESOURCE_ID, mock(IconFactory.IconReadyCallback.class));
+        verify(executor, times(2)).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void testResourceSyncSharesAsyncDecode() throws Exception {
+        final CountDownLatch decodeStarted = new CountDownLatch(1);
+        final CountDownLatch decodeReleased = new CountDownLatch(1);
+        final BitmapDrawable drawable = mock(BitmapDrawable.class);
+        when(drawable.getBitmap()).thenReturn(mock(Bitmap.class));
+        when(resources.getDrawable(RESOURCE_ID)).thenAnswer(new Answer<BitmapDrawable>() {
+            @Override
+            public BitmapDrawable answer(InvocationOnMock invocation) throws Throwable {
+                decodeStarted.countDown();
+                decodeReleased.await();
+                return drawable;
+            }
+        });
+
+        IconFactory.IconReadyCallback callback = mock(IconFactory.IconReadyCallback.class);
+        iconFactory.fromResourceAsync(RESOURCE_ID, callback);
+        ArgumentCaptor<Runnable> decode = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(1)).execute(decode.capture());
+        Thread worker = new Thread(decode.getValue());
+        worker.start();
+        decodeStarted.await();
+
+        // requested while the asynchronous decode is running
+        final AtomicReference<Icon> syncIcon = new AtomicReference<>();
+        Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                syncIcon.set(iconFactory.fromResource(RESOURCE_ID));
+            }
+        });
+        caller.start();
+        // the caller waits for the running decode
+        while (caller.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        decodeReleased.countDown();
+        worker.join();
+        caller.join();
+
+        ArgumentCaptor<Icon> asyncIcon = ArgumentCaptor.forClass(Icon.class);
+        verify(callback, times(1)).onIconReady(asyncIcon.capture());
+        assertSame("requests should share the decoded icon", asyncIcon.getValue(), syncIcon.get());
+        verify(resources, times(1)).getDrawable(RESOURCE_ID);
+    }
+}
@@ -0,0 +1,115 @@
+package com.mapbox.mapboxsdk.annotations;
+
+import com.mapbox.mapboxsdk.constants.MapboxConstants;
+import com.mapbox.mapboxsdk.exceptions.InvalidMarkerPositionException;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class MarkerClusterManagerTest {
+
+    @Mock
+    MapboxMap mapboxMap;
+
+    @Mock
+    MarkerClusterManager.ClusterIconProvider clusterIconProvider;
+
+    @Mock
+    ExecutorService executor;
+
+    private MarkerClusterManager markerClusterManager;
+
+    @Before
+    public void beforeTest() {
+        MockitoAnnotations.initMocks(this);
+        markerClusterManager = new MarkerClusterManager(mapboxMap, clusterIconProvider, executor);
+    }
+
+    @Test
+    public void testDefaults() {
+        assertEquals(MapboxConstants.MARKER_CLUSTER_RADIUS, markerClusterManager.getRadius());
+        assertEquals(MapboxConstants.MARKER_CLUSTER_MAX_ZOOM, markerClusterManager.getMaxZoom());
+    }
+
+    @Test
+    public void testRadius() {
+        markerClusterManager.setRadius(80);
+        assertEquals(80, markerClusterManager.getRadius());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRadius() {
+        markerClusterManager.setRadius(0);
+    }
+
+    @Test
+    public void testMaxZoom() {
+        markerClusterManager.setMaxZoom(10);
+        assertEquals(10, markerClusterManager.getMaxZoom());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxZoom() {
+        markerClusterManager.setMaxZoom((int) MapboxConstants.MAXIMUM_ZOOM + 1);
+    }
+
+    @Test
+    public void testBuildOffMainThread() {
+        markerClusterManager.setMarkers(Arrays.asList(
+                new MarkerOptions().position(new LatLng(10, 10)),
+                new MarkerOptions().position(new LatLng(10.001, 10.001))));
+        verify(executor, times(1)).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void testNoBuildWithoutMarkers() {
+        markerClusterManager.setMarkers(Collections.<MarkerOptions>emptyList());
+        markerClusterManager.setRadius(80);
+        verify(executor, never()).execute(any(Runnable.class));
+    }
+
+    @Test(expected = InvalidMarkerPositionException.class)
+    public void testInvalidMarkerPosition() {
+        markerClusterManager.setMarkers(Collections.singletonList(new MarkerOptions()));
+    }
+
+    @Test
+    public void testClearWithoutShownMarkers() {
+        markerClusterManager.clear();
+        verifyZeroInteractions(mapboxMap);
+    }
+
+    @Test
+    public void testMarkerNotShown() {
+        Marker marker = new MarkerOptions().position(new LatLng()).getMarker();
+        assertFalse(markerClusterManager.isCluster(marker));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testClusterSizeOfMarkerNotShown() {
+        markerClusterManager.getClusterSize(new MarkerOptions().position(new LatLng()).getMarker());
+    }
+
+    @Test
+    public void testDestroyShutsDownExecutor() {
+        markerClusterManager.setMarkers(Collections.singletonList(new MarkerOptions().position(new LatLng())));
+        markerClusterManager.onDestroy();
+        verify(executor, times(1)).shutdownNow();
+    }
+}
@@ -0,0 +1,168 @@
+package com.mapbox.mapboxsdk.annotations;
+
+import android.content.Context;
+import android.graphics.RectF;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.mapbox.mapboxsdk.constants.MapboxConstants;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.maps.MapView;
+import com.mapbox.mapboxsdk.maps.MapboxMap;
+import com.mapbox.mapboxsdk.maps.Projection;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MarkerViewManagerTest {
+
+    @Mock
+    MapboxMap mapboxMap;
+
+    @Mock
+    MapView mapView;
+
+    @Mock
+    Projection projection;
+
+    @Mock
+    ViewGroup markerViewContainer;
+
+    private MarkerViewManager markerViewManager;
+    private TestMarkerViewAdapter adapter;
+
+    @Before
+    public void beforeTest() {
+        MockitoAnnotations.initMocks(this);
+        when(mapboxMap.getProjection()).thenReturn(projection);
+        when(mapView.getMarkerViewContainer()).thenReturn(markerViewContainer);
+        markerViewManager = new MarkerViewManager(mapboxMap, mapView);
+        adapter = new TestMarkerViewAdapter(mock(Context.class));
+        markerViewManager.addMarkerViewAdapter(adapter);
+    }
+
+    @Test
+    public void testInflationBudget() {
+        assertEquals(MapboxConstants.MARKER_VIEW_INFLATION_BUDGET, markerViewManager.getInflationBudget());
+        markerViewManager.setInflationBudget(4);
+        assertEquals(4, markerViewManager.getInflationBudget());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidInflationBudget() {
+        markerViewManager.setInflationBudget(-1);
+    }
+
+    @Test
+    public void testInflateVisibleMarkers() {
+        TestMarkerView first = new TestMarkerView();
+        TestMarkerView second = new TestMarkerView();
+        setVisibleMarkers(first, second);
+
+        markerViewManager.invalidateViewMarkersInVisibleRegion();
+        assertEquals(2, adapter.inflated.size());
+        assertNotNull(markerViewManager.getView(first));
+        assertNotNull(markerViewManager.getView(second));
+    }
+
+    @Test
+    public void testDiffVisibleMarkers() {
+        TestMarkerView first = new TestMarkerView();
+        TestMarkerView second = new TestMarkerView();
+        TestMarkerView third = new TestMarkerView();
+        setVisibleMarkers(first, second);
+        markerViewManager.invalidateViewMarkersInVisibleRegion();
+
+        // markers that stay visible keep their view, markers that leave release theirs
+        View secondView = markerViewManager.getView(second);
+        setVisibleMarkers(second, third);
+        markerViewManager.invalidateViewMarkersInVisibleRegion();
+        assertNull(markerViewManager.getView(first));
+        assertEquals(secondView, markerViewManager.getView(second));
+        assertNotNull(markerViewManager.getView(third));
+        assertEquals(3, adapter.inflated.size());
+        assertEquals(third, adapter.inflated.get(2));
+    }
+
+    @Test
+    public void testInflateOneViewPerFrameWithoutBudget() {
+        markerViewManager.setInflationBudget(0);
+        setVisibleMarkers(new TestMarkerView(), new TestMarkerView(), new TestMarkerView());
+
+        markerViewManager.invalidateViewMarkersInVisibleRegion();
+        assertEquals(1, adapter.inflated.size());
+    }
+
+    @Test
+    public void testPendingMarkerLeavesViewport() {
+        markerViewManager.setInflationBudget(0);
+        TestMarkerView first = new TestMarkerView();
+        TestMarkerView second = new TestMarkerView();
+        setVisibleMarkers(first, second);
+        markerViewManager.invalidateViewMarkersInVisibleRegion();
+        MarkerView inflated = adapter.inflated.get(0);
+
+        // the marker that is still waiting for its view isn't inflated once it left the viewport
+        setVisibleMarkers(inflated);
+        markerViewManager.invalidateViewMarkersInVisibleRegion();
+        assertEquals(1, adapter.inflated.size());
+    }
+
+    @Test
+    public void testDestroyRemovesInflation() {
+        markerViewManager.setInflationBudget(0);
+        setVisibleMarkers(new TestMarkerView(), new TestMarkerView());
+        markerViewManager.invalidateViewMarkersInVisibleRegion();
+
+        markerViewManager.onDestroy();
+        verify(mapView, times(1)).removeCallbacks(any(Runnable.class));
+    }
+
+    private void setVisibleMarkers(MarkerView... markers) {
+        when(mapboxMap.getMarkerViewsInRect(any(RectF.class))).thenReturn(new ArrayList<>(Arrays.asList(markers)));
+    }
+
+    static class TestMarkerView extends MarkerView {
+
+        // annotations are compared by id
+        private static long nextId;
+
+        TestMarkerView() {
+            super(new MarkerViewOptions().position(new LatLng()));
+            setId(++nextId);
+        }
+    }
+
+    static class TestMarkerViewAdapter extends MapboxMap.MarkerViewAdapter<TestMarkerView> {
+
+        final List<MarkerView> inflated = new ArrayList<>();
+
+        TestMarkerViewAdapter(Context context) {
+            super(context);
+        }
+
+        @Nullable
+        @Override
+        public View getView(@NonNull TestMarkerView marker, @Nullable View convertView, @NonNull ViewGroup parent) {
+            inflated.add(marker);
+            return mock(View.class);
+        }
+    }
+}
@@ -60,6 +60,31 @@ public class PolylineTest {
         assertEquals(new LatLng(0, 0), polyline.getPoints().get(0));
     }
 
+    @Test
+    public void testAddPoints() {
+        Polyline polyline = new PolylineOptions().add(new LatLng(0, 0)).getPolyline();
+        polyline.addPoint(new LatLng(1, 1));
+        polyline.addPoints(new LatLng(2, 2), new LatLng(3, 3));
+        assertEquals("Points size should be 4", 4, polyline.getPoints().size());
+        assertEquals(new LatLng(3, 3), polyline.getPoints().get(3));
+    }
+
+    @Test
+    public void testTrimOffset() {
+        Polyline polyline = new PolylineOptions().add(new LatLng(0, 0), new LatLng(1, 1)).getPolyline();
+        assertEquals(0.0f, polyline.getTrimStart(), 0);
+        assertEquals(1.0f, polyline.getTrimEnd(), 0);
+        polyline.setTrimOffset(0.25f, 0.75f);
+        assertEquals(0.25f, polyline.getTrimStart(), 0);
+        assertEquals(0.75f, polyline.getTrimEnd(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTrimOffsetInvalid() {
+        Polyline polyline = new PolylineOptions().add(new LatLng(0, 0), new LatLng(1, 1)).getPolyline();
+        polyline.setTrimOffset(0.75f, 0.25f);
+    }
+
     @Test
     public void testBuilder() {
         PolylineOptions polylineOptions = new PolylineOptions();
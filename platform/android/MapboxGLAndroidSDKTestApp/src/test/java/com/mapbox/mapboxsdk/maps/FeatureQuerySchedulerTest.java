@@ -0,0 +1,116 @@
+package com.mapbox.mapboxsdk.maps;
+
+import android.graphics.PointF;
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class FeatureQuerySchedulerTest {
+
+    private MapView mapView;
+    private FeatureQueryScheduler scheduler;
+
+    @Before
+    public void beforeTest() {
+        mapView = mock(MapView.class);
+        scheduler = new FeatureQueryScheduler(mapView);
+    }
+
+    @Test
+    public void testScheduleOncePerFrame() {
+        scheduler.schedule(createQuery(new TestCallback()));
+        scheduler.schedule(createQuery(new TestCallback()));
+        verify(mapView, times(1)).post(any(Runnable.class));
+    }
+
+    @Test
+    public void testSupersededBySameCallback() {
+        TestCallback callback = new TestCallback();
+        RenderedFeaturesQuery first = createQuery(callback);
+        RenderedFeaturesQuery second = createQuery(callback);
+        RenderedFeaturesQuery other = createQuery(new TestCallback());
+        scheduler.schedule(first);
+        scheduler.schedule(other);
+        scheduler.schedule(second);
+        assertTrue(first.isCanceled());
+        assertFalse(second.isCanceled());
+        assertFalse(other.isCanceled());
+    }
+
+    @Test
+    public void testCanceledOnCameraChange() {
+        RenderedFeaturesQuery query = createQuery(new TestCallback());
+        scheduler.schedule(query);
+        scheduler.onMapChanged(MapView.REGION_WILL_CHANGE);
+        assertTrue(query.isCanceled());
+    }
+
+    @Test
+    public void testCanceledOnAnimatedCameraChange() {
+        RenderedFeaturesQuery query = createQuery(new TestCallback());
+        scheduler.schedule(query);
+        scheduler.onMapChanged(MapView.REGION_IS_CHANGING);
+        assertTrue(query.isCanceled());
+    }
+
+    @Test
+    public void testIssuedAfterCameraChange() {
+        scheduler.onMapChanged(MapView.REGION_WILL_CHANGE);
+        RenderedFeaturesQuery query = createQuery(new TestCallback());
+        scheduler.schedule(query);
+        scheduler.onMapChanged(MapView.REGION_DID_CHANGE);
+        assertFalse(query.isCanceled());
+    }
+
+    @Test
+    public void testNotCanceledOnOtherChange() {
+        RenderedFeaturesQuery query = createQuery(new TestCallback());
+        scheduler.schedule(query);
+        scheduler.onMapChanged(MapView.DID_FINISH_RENDERING_FRAME);
+        assertFalse(query.isCanceled());
+    }
+
+    @Test
+    public void testCanceledOnDestroy() {
+        RenderedFeaturesQuery query = createQuery(new TestCallback());
+        scheduler.schedule(query);
+        scheduler.onDestroy();
+        assertTrue(query.isCanceled());
+        verify(mapView, times(1)).removeCallbacks(any(Runnable.class));
+    }
+
+    @Test
+    public void testNotScheduledAfterDestroy() {
+        scheduler.onDestroy();
+        RenderedFeaturesQuery query = createQuery(new TestCallback());
+        scheduler.schedule(query);
+        assertTrue(query.isCanceled());
+        verify(mapView, never()).post(any(Runnable.class));
+    }
+
+    @Test
+    public void testCancel() {
+        RenderedFeaturesQuery query = createQuery(new TestCallback());
+        query.cancel();
+        assertTrue(query.isCanceled());
+    }
+
+    private static RenderedFeaturesQuery createQuery(MapboxMap.QueryRenderedFeaturesCallback callback) {
+        return new RenderedFeaturesQuery(new PointF(), null, null, callback);
+    }
+
+    private static class TestCallback implements MapboxMap.QueryRenderedFeaturesCallback {
+        @Override
+        public void onFeaturesQueried(@NonNull RenderedFeatures features) {
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.mapbox.mapboxsdk.maps;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class FrameMetricsHistogramTest {
+
+    private FrameMetricsHistogram histogram;
+
+    @Before
+    public void beforeTest() {
+        histogram = new FrameMetricsHistogram(10, 20);
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, histogram.getFrameCount());
+        assertEquals(0, histogram.getPercentile(FrameMetricsHistogram.RENDER_TIME, 50));
+        assertEquals(Long.valueOf(0), histogram.export().get("render_time_p99"));
+    }
+
+    @Test
+    public void testPercentiles() {
+        for (int i = 1; i <= 10; i++) {
+            histogram.add(new FrameMetrics(0, 0, i, 0, i % 2, true));
+        }
+        assertEquals(10, histogram.getFrameCount());
+        assertEquals(5, histogram.getPercentile(FrameMetricsHistogram.RENDER_TIME, 50));
+        assertEquals(9, histogram.getPercentile(FrameMetricsHistogram.RENDER_TIME, 90));
+        assertEquals(10, histogram.getPercentile(FrameMetricsHistogram.RENDER_TIME, 100));
+        assertEquals(1, histogram.getPercentile(FrameMetricsHistogram.RENDER_TIME, 0));
+        assertEquals(1, histogram.getPercentile(FrameMetricsHistogram.UPLOADED_TILES, 90));
+    }
+
+    @Test
+    public void testRollingWindow() {
+        for (int i = 1; i <= 15; i++) {
+            histogram.add(new FrameMetrics(0, 0, i, 0, 0, true));
+        }
+        assertEquals(10, histogram.getFrameCount());
+        assertEquals(6, histogram.getPercentile(FrameMetricsHistogram.RENDER_TIME, 0));
+        assertEquals(15, histogram.getPercentile(FrameMetricsHistogram.RENDER_TIME, 100));
+
+        histogram.clear();
+        assertEquals(0, histogram.getFrameCount());
+    }
+
+    @Test
+    public void testJankAndExport() {
+        histogram.add(new FrameMetrics(5, 5, 5, 5, 1, true));
+        histogram.add(new FrameMetrics(10, 5, 5, 5, 2, false));
+
+        assertEquals(1, histogram.getJankyFrameCount());
+        assertEquals(1, histogram.getFullyRenderedFrameCount());
+
+        Map<String, Long> exported = histogram.export();
+        assertEquals(Long.valueOf(2), exported.get("frames"));
+        assertEquals(Long.valueOf(1), exported.get("janky_frames"));
+        assertEquals(Long.valueOf(1), exported.get("fully_rendered_frames"));
+        assertEquals(Long.valueOf(20), exported.get("total_time_p50"));
+        assertEquals(Long.valueOf(25), exported.get("total_time_p99"));
+        assertEquals(Long.valueOf(2), exported.get("uploaded_tiles_p90"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        histogram.getPercentile(FrameMetricsHistogram.TOTAL_TIME, 101);
+    }
+}
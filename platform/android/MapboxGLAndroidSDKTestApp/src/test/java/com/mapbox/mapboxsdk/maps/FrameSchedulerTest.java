@@ -0,0 +1,116 @@
+package com.mapbox.mapboxsdk.maps;
+
+import android.os.Handler;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class FrameSchedulerTest {
+
+    private static final long FRAME_NANOS = 16666667;
+
+    private Runnable frameCallback;
+    private FrameScheduler.Vsync vsync;
+    private FrameScheduler scheduler;
+
+    @Before
+    public void beforeTest() {
+        frameCallback = mock(Runnable.class);
+        vsync = mock(FrameScheduler.Vsync.class);
+        scheduler = new FrameScheduler(frameCallback, vsync, mock(Handler.class));
+    }
+
+    @Test
+    public void testRequestsCoalesced() {
+        scheduler.requestFrame();
+        scheduler.requestFrame();
+        verify(vsync, times(1)).postFrameCallback();
+        scheduler.onVsync(FRAME_NANOS);
+        verify(frameCallback, times(1)).run();
+    }
+
+    @Test
+    public void testNoFrameWithoutRequest() {
+        scheduler.onVsync(FRAME_NANOS);
+        verify(frameCallback, never()).run();
+    }
+
+    @Test
+    public void testMaximumFrameRate() {
+        scheduler.setMaximumFrameRate(30);
+        assertEquals(30, scheduler.getMaximumFrameRate());
+
+        scheduler.requestFrame();
+        scheduler.onVsync(FRAME_NANOS);
+        verify(frameCallback, times(1)).run();
+
+        // the next vsync is too early for 30 fps and is skipped
+        scheduler.requestFrame();
+        scheduler.onVsync(2 * FRAME_NANOS);
+        verify(frameCallback, times(1)).run();
+        verify(vsync, times(3)).postFrameCallback();
+
+        scheduler.onVsync(3 * FRAME_NANOS);
+        verify(frameCallback, times(2)).run();
+    }
+
+    @Test
+    public void testRenderOnChangeStyleTransition() {
+        scheduler.setRenderOnChange(true);
+        assertTrue(scheduler.isRenderOnChange());
+
+        scheduler.requestFrame(true);
+        scheduler.onVsync(FRAME_NANOS);
+        verify(frameCallback, times(1)).run();
+
+        // style transition frames are rendered at a low frame rate
+        scheduler.requestFrame(true);
+        scheduler.onVsync(2 * FRAME_NANOS);
+        verify(frameCallback, times(1)).run();
+        scheduler.onVsync(7 * FRAME_NANOS);
+        verify(frameCallback, times(2)).run();
+    }
+
+    @Test
+    public void testRenderOnChangeChange() {
+        scheduler.setRenderOnChange(true);
+        scheduler.requestFrame(true);
+        scheduler.onVsync(FRAME_NANOS);
+
+        // a change is rendered on the next vsync, also while a style transition is running
+        scheduler.requestFrame(true);
+        scheduler.requestFrame(false);
+        scheduler.onVsync(2 * FRAME_NANOS);
+        verify(frameCallback, times(2)).run();
+    }
+
+    @Test
+    public void testStyleTransitionWithoutRenderOnChange() {
+        scheduler.requestFrame(true);
+        scheduler.onVsync(FRAME_NANOS);
+        scheduler.requestFrame(true);
+        scheduler.onVsync(2 * FRAME_NANOS);
+        verify(frameCallback, times(2)).run();
+    }
+
+    @Test
+    public void testCancel() {
+        scheduler.requestFrame();
+        scheduler.cancel();
+        verify(vsync).removeFrameCallback();
+        scheduler.onVsync(FRAME_NANOS);
+        verify(frameCallback, never()).run();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeFrameRate() {
+        scheduler.setMaximumFrameRate(-1);
+    }
+}
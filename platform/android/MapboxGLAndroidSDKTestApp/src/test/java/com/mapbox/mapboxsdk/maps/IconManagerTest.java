@@ -0,0 +1,154 @@
+package com.mapbox.mapboxsdk.maps;
+
+import android.graphics.Bitmap;
+
+import com.mapbox.mapboxsdk.annotations.Icon;
+import com.mapbox.mapboxsdk.annotations.IconFactory;
+import com.mapbox.mapboxsdk.annotations.Marker;
+import com.mapbox.mapboxsdk.annotations.MarkerOptions;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IconManagerTest {
+
+    private IconManager iconManager;
+    private List<Icon> loadedIcons;
+    private Map<Bitmap, Integer> contentHashes;
+    private int hashCount;
+
+    @Before
+    public void beforeTest() {
+        loadedIcons = new ArrayList<>();
+        contentHashes = new HashMap<>();
+        hashCount = 0;
+        iconManager = new IconManager(null) {
+            @Override
+            void loadIcon(Icon icon) {
+                loadedIcons.add(icon);
+            }
+
+            @Override
+            int getImageContentHash(Bitmap bitmap) {
+                hashCount++;
+                return contentHashes.get(bitmap);
+            }
+        };
+        // the transparent MarkerView icon loaded by the constructor
+        loadedIcons.clear();
+    }
+
+    private Bitmap createBitmap(int contentHash) {
+        Bitmap bitmap = mock(Bitmap.class);
+        contentHashes.put(bitmap, contentHash);
+        return bitmap;
+    }
+
+    @Test
+    public void testSameIdSameBitmap() {
+        Icon icon = IconFactory.recreate("icon", createBitmap(1));
+        assertSame("icon should be loaded", icon, iconManager.loadIconForMarker(icon));
+        assertSame("icon should resolve to itself", icon, iconManager.loadIconForMarker(icon));
+        assertEquals("icon should be loaded once", 1, loadedIcons.size());
+        assertEquals("pixels should be hashed once", 1, hashCount);
+    }
+
+    @Test
+    public void testAlias() {
+        Bitmap bitmap = createBitmap(1);
+        Bitmap aliasBitmap = createBitmap(1);
+        when(bitmap.sameAs(aliasBitmap)).thenReturn(true);
+        Icon icon = IconFactory.recreate("icon", bitmap);
+        Icon alias = IconFactory.recreate("alias", aliasBitmap);
+
+        iconManager.loadIconForMarker(icon);
+        assertSame("alias should resolve to the icon with the same pixels", icon, iconManager.loadIconForMarker(alias));
+        assertSame("alias should resolve to the icon with the same pixels", icon, iconManager.loadIconForMarker(alias));
+        assertEquals("only the first icon should be loaded", 1, loadedIcons.size());
+        assertEquals("alias pixels should be hashed once", 2, hashCount);
+        verify(bitmap, times(1)).sameAs(aliasBitmap);
+    }
+
+    @Test
+    public void testAliasKeepsMarkerIcon() {
+        Bitmap bitmap = createBitmap(1);
+        Bitmap aliasBitmap = createBitmap(1);
+        when(bitmap.sameAs(aliasBitmap)).thenReturn(true);
+        Icon icon = IconFactory.recreate("icon", bitmap);
+        Icon alias = IconFactory.recreate("alias", aliasBitmap);
+        Marker marker = new MarkerOptions().position(new LatLng()).icon(alias).getMarker();
+
+        iconManager.loadIconForMarker(icon);
+        iconManager.loadIconForMarker(marker);
+        assertSame("marker should keep its icon", alias, marker.getIcon());
+        assertEquals("alias should use the image of the icon with the same pixels", "icon",
+                iconManager.getNativeIconId(alias));
+        assertEquals("icon should use its own image", "icon", iconManager.getNativeIconId(icon));
+    }
+
+    @Test
+    public void testAliasDifferentPixels() {
+        Bitmap bitmap = createBitmap(1);
+        Bitmap otherBitmap = createBitmap(1);
+        when(bitmap.sameAs(otherBitmap)).thenReturn(false);
+        Icon icon = IconFactory.recreate("icon", bitmap);
+        Icon other = IconFactory.recreate("other", otherBitmap);
+
+        iconManager.loadIconForMarker(icon);
+        assertSame("hash collision should not be resolved", other, iconManager.loadIconForMarker(other));
+        assertEquals("both icons should be loaded", 2, loadedIcons.size());
+    }
+
+    @Test
+    public void testIdReuse() {
+        Icon icon = IconFactory.recreate("icon", createBitmap(1));
+        Icon replacement = IconFactory.recreate("icon", createBitmap(2));
+
+        iconManager.loadIconForMarker(icon);
+        assertSame("image should be replaced", replacement, iconManager.loadIconForMarker(replacement));
+        assertEquals("both images should be loaded", 2, loadedIcons.size());
+        assertEquals("image should be loaded under the same id", "icon", loadedIcons.get(1).getId());
+
+        iconManager.reloadIcons();
+        assertEquals("only the replacement should be reloaded", 3, loadedIcons.size());
+        assertSame("only the replacement should be reloaded", replacement, loadedIcons.get(2));
+    }
+
+    @Test
+    public void testIdReuseWithAlias() {
+        Bitmap bitmap = createBitmap(1);
+        Bitmap aliasBitmap = createBitmap(1);
+        Bitmap replacementBitmap = createBitmap(2);
+        when(bitmap.sameAs(aliasBitmap)).thenReturn(true);
+        Icon icon = IconFactory.recreate("icon", bitmap);
+        Icon alias = IconFactory.recreate("alias", aliasBitmap);
+        Icon replacement = IconFactory.recreate("icon", replacementBitmap);
+
+        iconManager.loadIconForMarker(icon);
+        iconManager.loadIconForMarker(alias);
+        Icon resolved = iconManager.loadIconForMarker(replacement);
+
+        assertNotEquals("shared image should not be replaced", "icon", resolved.getId());
+        assertSame("new pixels should be loaded", replacementBitmap, resolved.getBitmap());
+        assertEquals("new pixels should be loaded once", 2, loadedIcons.size());
+        assertSame("new pixels should be loaded under a new id", resolved, loadedIcons.get(1));
+        assertSame("alias should keep its pixels", icon, iconManager.loadIconForMarker(alias));
+        assertSame("id should resolve to the new pixels", resolved, iconManager.loadIconForMarker(replacement));
+        verify(bitmap, never()).sameAs(replacementBitmap);
+    }
+}
@@ -0,0 +1,102 @@
+package com.mapbox.mapboxsdk.maps;
+
+import android.graphics.Bitmap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MapViewTest {
+
+    private static final int WIDTH = 20;
+    private static final int HEIGHT = 10;
+
+    private MapView mapView;
+
+    @Before
+    public void beforeTest() {
+        mapView = mock(MapView.class);
+        when(mapView.getWidth()).thenReturn(WIDTH);
+        when(mapView.getHeight()).thenReturn(HEIGHT);
+        when(mapView.takeSnapshot(any(Bitmap.class))).thenReturn(true);
+        when(mapView.takeSnapshot(any(ByteBuffer.class))).thenReturn(true);
+        doCallRealMethod().when(mapView).snapshot(any(MapboxMap.SnapshotReadyCallback.class), any(Bitmap.class));
+        doCallRealMethod().when(mapView).snapshot(any(ByteBuffer.class),
+                any(MapboxMap.SnapshotPixelsReadyCallback.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSnapshotHeapBuffer() {
+        mapView.snapshot(ByteBuffer.allocate(WIDTH * HEIGHT * 4), mock(MapboxMap.SnapshotPixelsReadyCallback.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSnapshotBufferTooSmall() {
+        mapView.snapshot(ByteBuffer.allocateDirect(WIDTH * HEIGHT * 4 - 1),
+                mock(MapboxMap.SnapshotPixelsReadyCallback.class));
+    }
+
+    @Test
+    public void testSnapshotBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WIDTH * HEIGHT * 4);
+        MapboxMap.SnapshotPixelsReadyCallback callback = mock(MapboxMap.SnapshotPixelsReadyCallback.class);
+        mapView.snapshot(buffer, callback);
+        verify(mapView, times(1)).takeSnapshot(same(buffer));
+        verify(callback, times(1)).onSnapshotPixelsReady(same(buffer), eq(WIDTH), eq(HEIGHT));
+    }
+
+    @Test
+    public void testSnapshotBufferFailed() {
+        when(mapView.takeSnapshot(any(ByteBuffer.class))).thenReturn(false);
+        MapboxMap.SnapshotPixelsReadyCallback callback = mock(MapboxMap.SnapshotPixelsReadyCallback.class);
+        mapView.snapshot(ByteBuffer.allocateDirect(WIDTH * HEIGHT * 4), callback);
+        verify(callback, never()).onSnapshotPixelsReady(any(ByteBuffer.class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testSnapshotReusesBitmap() {
+        Bitmap bitmap = createBitmap(true, Bitmap.Config.ARGB_8888, WIDTH, HEIGHT);
+        MapboxMap.SnapshotReadyCallback callback = mock(MapboxMap.SnapshotReadyCallback.class);
+        mapView.snapshot(callback, bitmap);
+        verify(mapView, times(1)).takeSnapshot(same(bitmap));
+        verify(callback, times(1)).onSnapshotReady(same(bitmap));
+    }
+
+    @Test
+    public void testSnapshotReallocatesImmutableBitmap() {
+        assertReallocated(createBitmap(false, Bitmap.Config.ARGB_8888, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void testSnapshotReallocatesBitmapWithOtherSize() {
+        assertReallocated(createBitmap(true, Bitmap.Config.ARGB_8888, WIDTH, HEIGHT + 1));
+    }
+
+    private void assertReallocated(Bitmap bitmap) {
+        MapboxMap.SnapshotReadyCallback callback = mock(MapboxMap.SnapshotReadyCallback.class);
+        mapView.snapshot(callback, bitmap);
+        verify(mapView, never()).takeSnapshot(same(bitmap));
+        verify(callback, never()).onSnapshotReady(same(bitmap));
+    }
+
+    private static Bitmap createBitmap(boolean mutable, Bitmap.Config config, int width, int height) {
+        Bitmap bitmap = mock(Bitmap.class);
+        when(bitmap.isMutable()).thenReturn(mutable);
+        when(bitmap.getConfig()).thenReturn(config);
+        when(bitmap.getWidth()).thenReturn(width);
+        when(bitmap.getHeight()).thenReturn(height);
+        return bitmap;
+    }
+}
@@ -3,6 +3,7 @@ package com.mapbox.mapboxsdk.maps;
 import android.graphics.Color;
 
 import com.mapbox.mapboxsdk.annotations.BaseMarkerOptions;
+import com.mapbox.mapboxsdk.annotations.Icon;
 import com.mapbox.mapboxsdk.annotations.Marker;
 import com.mapbox.mapboxsdk.annotations.MarkerOptions;
 import com.mapbox.mapboxsdk.annotations.Polygon;
@@ -23,6 +24,7 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -55,6 +57,9 @@ public class MapboxMapTest {
     @Mock
     MapboxMap.OnFpsChangedListener mFpsChangedListener;
 
+    @Mock
+    MapboxMap.OnFrameMetricsListener mFrameMetricsListener;
+
     @Mock
     MapboxMap.OnInfoWindowClickListener mWindowClickListener;
 
@@ -211,6 +216,13 @@ public class MapboxMapTest {
         assertEquals("FpsListener should match", mFpsChangedListener, mMapboxMap.getOnFpsChangedListener());
     }
 
+    @Test
+    public void testFrameMetricsListener() {
+        mMapboxMap.setOnFrameMetricsListener(mFrameMetricsListener);
+        assertEquals("FrameMetricsListener should match", mFrameMetricsListener,
+                mMapboxMap.getOnFrameMetricsListener());
+    }
+
     @Test
     public void testInfoWindowClickListener() {
         mMapboxMap.setOnInfoWindowClickListener(mWindowClickListener);
@@ -287,6 +299,105 @@ public class MapboxMapTest {
         assertTrue(mMapboxMap.getMarkers().contains(markers.get(0)));
     }
 
+    @Test
+    public void testAddPackedMarkers() {
+        long[] ids = mMapboxMap.addMarkers(new double[] {10, 20, 30, 40}, null);
+        assertEquals("Ids size should be 2", 2, ids.length);
+        Marker marker = (Marker) mMapboxMap.getAnnotation(ids[1]);
+        assertNotNull("Marker should be created on request", marker);
+        assertEquals("Position should match", new LatLng(30, 40), marker.getPosition());
+        assertEquals("Id should match", ids[1], marker.getId());
+        assertEquals("Markers size should be 2", 2, mMapboxMap.getMarkers().size());
+    }
+
+    @Test
+    public void testAddPackedMarkerBatches() {
+        long[] ids = mMapboxMap.addMarkers(new double[] {10, 20, 30, 40}, null);
+        long[] otherIds = mMapboxMap.addMarkers(new double[] {50, 60}, null);
+        assertNotEquals("Ids of batches should not collide", ids[0], otherIds[0]);
+        assertNotEquals("Ids of batches should not collide", ids[1], otherIds[0]);
+        assertEquals("Marker count should be 3", 3, mMapboxMap.getMarkerCount());
+        assertEquals("Position should match", new LatLng(50, 60),
+                ((Marker) mMapboxMap.getAnnotation(otherIds[0])).getPosition());
+    }
+
+    @Test
+    public void testRemovePackedMarker() {
+        long[] ids = mMapboxMap.addMarkers(new double[] {10, 20, 30, 40}, null);
+        mMapboxMap.removeAnnotation(ids[0]);
+        assertEquals("Markers size should be 1", 1, mMapboxMap.getMarkers().size());
+        assertEquals("Remaining marker should match", ids[1], mMapboxMap.getMarkers().get(0).getId());
+    }
+
+    @Test
+    public void testPackedMarkerCountAndIds() {
+        Marker marker = mMapboxMap.addMarker(new MarkerOptions().position(new LatLng()));
+        long[] packedIds = mMapboxMap.addMarkers(new double[] {10, 20, 30, 40}, null);
+        mMapboxMap.removeAnnotation(packedIds[0]);
+        assertEquals("Marker count should be 2", 2, mMapboxMap.getMarkerCount());
+
+        long[] ids = mMapboxMap.getMarkerIds();
+        assertEquals("Ids size should be 2", 2, ids.length);
+        assertTrue("Ids should be sorted", ids[0] < ids[1]);
+        assertTrue("Ids should contain the marker", ids[0] == marker.getId() || ids[1] == marker.getId());
+        assertTrue("Ids should contain the packed marker", ids[0] == packedIds[1] || ids[1] == packedIds[1]);
+
+        // resolving a packed marker doesn't change the count
+        assertNotNull("Marker should be created on request", mMapboxMap.getAnnotation(packedIds[1]));
+        assertEquals("Marker count should be 2", 2, mMapboxMap.getMarkerCount());
+    }
+
+    @Test
+    public void testAnnotationTransaction() {
+        Marker marker = mMapboxMap.addMarker(new MarkerOptions().position(new LatLng()));
+        mMapboxMap.beginAnnotationTransaction();
+        assertTrue("Transaction should be in progress", mMapboxMap.isInAnnotationTransaction());
+        marker.setPosition(new LatLng(10, 10));
+        marker.setPosition(new LatLng(20, 20));
+        assertEquals("Position should match", new LatLng(20, 20), marker.getPosition());
+        mMapboxMap.commitAnnotationTransaction();
+        assertFalse("Transaction should be committed", mMapboxMap.isInAnnotationTransaction());
+        verify(iconManager, times(1)).ensureIconLoaded(marker, mMapboxMap);
+    }
+
+    @Test
+    public void testNestedAnnotationTransaction() {
+        Marker marker = mMapboxMap.addMarker(new MarkerOptions().position(new LatLng()));
+        mMapboxMap.beginAnnotationTransaction();
+        mMapboxMap.beginAnnotationTransaction();
+        marker.setPosition(new LatLng(10, 10));
+        mMapboxMap.commitAnnotationTransaction();
+        assertTrue("Outer transaction should be in progress", mMapboxMap.isInAnnotationTransaction());
+        verify(iconManager, times(0)).ensureIconLoaded(marker, mMapboxMap);
+        mMapboxMap.commitAnnotationTransaction();
+        verify(iconManager, times(1)).ensureIconLoaded(marker, mMapboxMap);
+    }
+
+    @Test
+    public void testAnnotationTransactionRemovedMarker() {
+        Marker marker = mMapboxMap.addMarker(new MarkerOptions().position(new LatLng()));
+        mMapboxMap.beginAnnotationTransaction();
+        marker.setPosition(new LatLng(10, 10));
+        mMapboxMap.removeMarker(marker);
+        mMapboxMap.commitAnnotationTransaction();
+        verify(iconManager, times(0)).ensureIconLoaded(marker, mMapboxMap);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCommitAnnotationTransactionWithoutBegin() {
+        mMapboxMap.commitAnnotationTransaction();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddPackedMarkersOddCoordinates() {
+        mMapboxMap.addMarkers(new double[] {10, 20, 30}, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddPackedMarkersInvalidIconIndex() {
+        mMapboxMap.addMarkers(new double[] {10, 20}, new Icon[] {null}, new int[] {1});
+    }
+
     @Test
     public void testAddPolygon() {
         PolygonOptions polygonOptions = new PolygonOptions().add(new LatLng());
@@ -387,6 +498,24 @@ public class MapboxMapTest {
         assertTrue("Markers should be empty", mMapboxMap.getMarkers().isEmpty());
     }
 
+    @Test
+    public void testAppendPolylinePoints() {
+        Polyline polyline = mMapboxMap.addPolyline(new PolylineOptions().add(new LatLng()));
+        polyline.addPoints(new LatLng(1, 1), new LatLng(2, 2));
+        assertEquals("Points size should be 3", 3, mMapboxMap.getPolylines().get(0).getPoints().size());
+    }
+
+    @Test
+    public void testAppendPolylinePointsFromMap() {
+        Polyline polyline = mMapboxMap.addPolyline(new PolylineOptions().add(new LatLng()));
+        List<LatLng> points = new ArrayList<>();
+        points.add(new LatLng(1, 1));
+        points.add(new LatLng(2, 2));
+        mMapboxMap.appendPolylinePoints(polyline, points);
+        assertEquals("Polyline should hold the appended points", 3, polyline.getPoints().size());
+        assertEquals(new LatLng(2, 2), polyline.getPoints().get(2));
+    }
+
     @Test
     public void testRemovePolygon() {
         PolygonOptions polygonOptions = new PolygonOptions();
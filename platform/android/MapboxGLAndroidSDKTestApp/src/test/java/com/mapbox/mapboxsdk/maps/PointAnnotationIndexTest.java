@@ -0,0 +1,102 @@
+package com.mapbox.mapboxsdk.maps;
+
+import com.mapbox.mapboxsdk.annotations.Marker;
+import com.mapbox.mapboxsdk.annotations.MarkerOptions;
+import com.mapbox.mapboxsdk.geometry.LatLng;
+import com.mapbox.mapboxsdk.geometry.LatLngBounds;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PointAnnotationIndexTest {
+
+    private PointAnnotationIndex index;
+
+    @Before
+    public void beforeTest() {
+        index = new PointAnnotationIndex();
+    }
+
+    @Test
+    public void testPutAndGet() {
+        Marker marker = createMarker(1, new LatLng(10, 10));
+        index.put(marker);
+        assertEquals("Marker should match", marker, index.get(1));
+        assertTrue("Marker should be contained", index.contains(1));
+        assertEquals("Size should be 1", 1, index.size());
+    }
+
+    @Test
+    public void testRemove() {
+        index.put(createMarker(1, new LatLng(10, 10)));
+        index.remove(1);
+        assertNull("Marker should be removed", index.get(1));
+        assertEquals("Size should be 0", 0, index.size());
+        assertTrue("Query should be empty", index.query(createBounds(new LatLng(0, 0), new LatLng(20, 20))).isEmpty());
+    }
+
+    @Test
+    public void testQuery() {
+        Marker inside = createMarker(1, new LatLng(10, 10));
+        Marker outside = createMarker(2, new LatLng(-10, -10));
+        index.put(inside);
+        index.put(outside);
+        List<Marker> markers = index.query(createBounds(new LatLng(0, 0), new LatLng(20, 20)));
+        assertEquals("Query should return one marker", 1, markers.size());
+        assertTrue("Marker should be contained", markers.contains(inside));
+        assertFalse("Marker should not be contained", markers.contains(outside));
+    }
+
+    @Test
+    public void testQueryWorld() {
+        for (int i = 0; i < 100; i++) {
+            index.put(createMarker(i, new LatLng(i % 80, i * 3 - 150)));
+        }
+        List<Marker> markers = index.query(createBounds(new LatLng(-85, -180), new LatLng(85, 180)));
+        assertEquals("Query should return all markers", 100, markers.size());
+    }
+
+    @Test
+    public void testUpdatePosition() {
+        Marker marker = createMarker(1, new LatLng(10, 10));
+        index.put(marker);
+        marker.setPosition(new LatLng(-10, -10));
+        index.put(marker);
+        assertTrue("Old bounds should be empty", index.query(createBounds(new LatLng(0, 0), new LatLng(20, 20))).isEmpty());
+        assertTrue("Marker should be moved", index.query(createBounds(new LatLng(-20, -20), new LatLng(0, 0))).contains(marker));
+        assertEquals("Size should be 1", 1, index.size());
+    }
+
+    @Test
+    public void testGetMarkersByIds() {
+        index.put(createMarker(1, new LatLng(10, 10)));
+        index.put(createMarker(2, new LatLng(20, 20)));
+        List<Marker> markers = index.getMarkers(new long[] {1, 2, 3});
+        assertEquals("Unknown ids should be ignored", 2, markers.size());
+        assertTrue("MarkerViews should be ignored", index.getMarkerViews(new long[] {1, 2}).isEmpty());
+    }
+
+    @Test
+    public void testClear() {
+        index.put(createMarker(1, new LatLng(10, 10)));
+        index.clear();
+        assertEquals("Size should be 0", 0, index.size());
+    }
+
+    private static Marker createMarker(long id, LatLng position) {
+        Marker marker = new MarkerOptions().position(position).getMarker();
+        marker.setId(id);
+        return marker;
+    }
+
+    private static LatLngBounds createBounds(LatLng southWest, LatLng northEast) {
+        return new LatLngBounds.Builder().include(southWest).include(northEast).build();
+    }
+}
@@ -7,6 +7,7 @@ import org.mockito.MockitoAnnotations;
 
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class ProjectionTest {
 
@@ -23,4 +24,25 @@ public class ProjectionTest {
         Projection projection = new Projection(mMapView);
         assertNotNull("projection should not be null", projection);
     }
+
+    @Test
+    public void testToScreenLocations() {
+        Projection projection = new Projection(mMapView);
+        double[] latLngs = new double[]{0, 0, 10, 10};
+        float[] screenLocations = new float[4];
+        projection.toScreenLocations(latLngs, screenLocations);
+        verify(mMapView).toNativeScreenLocations(latLngs, screenLocations, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testToScreenLocationsOddCoordinates() {
+        Projection projection = new Projection(mMapView);
+        projection.toScreenLocations(new double[]{0, 0, 10}, new float[4]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testToScreenLocationsOutputTooSmall() {
+        Projection projection = new Projection(mMapView);
+        projection.toScreenLocations(new double[]{0, 0, 10, 10}, new float[2]);
+    }
 }
@@ -0,0 +1,151 @@
+package com.mapbox.mapboxsdk.maps;
+
+import com.google.gson.JsonObject;
+import com.mapbox.services.commons.geojson.Feature;
+import com.mapbox.services.commons.geojson.LineString;
+import com.mapbox.services.commons.geojson.Point;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RenderedFeaturesTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void testEmpty() {
+        RenderedFeatures features = new RenderedFeatures(null);
+        assertEquals(0, features.size());
+        assertTrue(features.isEmpty());
+    }
+
+    @Test
+    public void testIdAndLayer() {
+        RenderedFeatures features = new RenderedFeatures(createBuffer());
+        assertEquals(2, features.size());
+        assertEquals("1", features.getId(0));
+        assertEquals("buildings", features.getLayerId(0));
+        assertEquals("road-1", features.getId(1));
+        assertEquals("roads", features.getLayerId(1));
+    }
+
+    @Test
+    public void testGeometry() {
+        RenderedFeatures features = new RenderedFeatures(createBuffer());
+
+        Point point = (Point) features.getGeometry(0);
+        assertEquals(4.9, point.getCoordinates().getLongitude(), 0);
+        assertEquals(52.3, point.getCoordinates().getLatitude(), 0);
+
+        LineString lineString = (LineString) features.getGeometry(1);
+        assertEquals(2, lineString.getCoordinates().size());
+        assertEquals(2.0, lineString.getCoordinates().get(1).getLongitude(), 0);
+        assertEquals(3.0, lineString.getCoordinates().get(1).getLatitude(), 0);
+    }
+
+    @Test
+    public void testProperties() {
+        RenderedFeatures features = new RenderedFeatures(createBuffer());
+
+        JsonObject properties = features.getProperties(0);
+        assertEquals("house", properties.get("type").getAsString());
+        assertEquals(12.5, properties.get("height").getAsDouble(), 0);
+        assertTrue(properties.get("visible").getAsBoolean());
+
+        assertEquals(12.5, features.getProperty(0, "height").getAsDouble(), 0);
+        assertEquals(3, features.getProperty(1, "lanes").getAsLong());
+        assertNull(features.getProperty(1, "height"));
+        assertTrue(features.hasProperty(0, "visible"));
+        assertFalse(features.hasProperty(1, "visible"));
+    }
+
+    @Test
+    public void testFeature() {
+        RenderedFeatures features = new RenderedFeatures(createBuffer());
+        Feature feature = features.get(1);
+        assertEquals("road-1", feature.getId());
+        assertEquals(3, feature.getProperties().get("lanes").getAsLong());
+        assertSame(feature, features.get(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        new RenderedFeatures(createBuffer()).getId(2);
+    }
+
+    private static byte[] createBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.nativeOrder());
+        buffer.putInt(2);
+        putString(buffer, "buildings");
+        putString(buffer, "roads");
+
+        buffer.putInt(2);
+        int offsetTable = buffer.position();
+        buffer.putInt(0);
+        buffer.putInt(0);
+
+        // point feature with string, double and bool properties
+        buffer.putInt(offsetTable, buffer.position());
+        buffer.putInt(0);
+        putString(buffer, "1");
+        int propertiesOffset = buffer.position();
+        buffer.putInt(0);
+        buffer.put((byte) 1);
+        buffer.putDouble(4.9);
+        buffer.putDouble(52.3);
+        buffer.putInt(propertiesOffset, buffer.position());
+        buffer.putInt(3);
+        putString(buffer, "type");
+        buffer.put((byte) 5);
+        putString(buffer, "house");
+        putString(buffer, "height");
+        buffer.put((byte) 4);
+        buffer.putDouble(12.5);
+        putString(buffer, "visible");
+        buffer.put((byte) 1);
+        buffer.put((byte) 1);
+
+        // line string feature with an array and an integer property
+        buffer.putInt(offsetTable + 4, buffer.position());
+        buffer.putInt(1);
+        putString(buffer, "road-1");
+        propertiesOffset = buffer.position();
+        buffer.putInt(0);
+        buffer.put((byte) 2);
+        buffer.putInt(2);
+        buffer.putDouble(0.0);
+        buffer.putDouble(1.0);
+        buffer.putDouble(2.0);
+        buffer.putDouble(3.0);
+        buffer.putInt(propertiesOffset, buffer.position());
+        buffer.putInt(2);
+        putString(buffer, "names");
+        buffer.put((byte) 6);
+        buffer.putInt(2);
+        buffer.put((byte) 5);
+        putString(buffer, "a");
+        buffer.put((byte) 0);
+        putString(buffer, "lanes");
+        buffer.put((byte) 2);
+        buffer.putLong(3);
+
+        byte[] data = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, data, 0, data.length);
+        return data;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+}
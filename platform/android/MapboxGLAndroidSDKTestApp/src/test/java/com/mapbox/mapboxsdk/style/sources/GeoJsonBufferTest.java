@@ -0,0 +1,132 @@
+package com.mapbox.mapboxsdk.style.sources;
+
+import com.google.gson.JsonObject;
+import com.mapbox.services.commons.geojson.Feature;
+import com.mapbox.services.commons.geojson.FeatureCollection;
+import com.mapbox.services.commons.geojson.Geometry;
+import com.mapbox.services.commons.geojson.GeometryCollection;
+import com.mapbox.services.commons.geojson.LineString;
+import com.mapbox.services.commons.geojson.Point;
+import com.mapbox.services.commons.models.Position;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for GeoJsonBuffer
+ */
+public class GeoJsonBufferTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testEmpty() {
+        ByteBuffer buffer = GeoJsonBuffer.encode(FeatureCollection.fromFeatures(new ArrayList<Feature>()));
+        assertTrue(buffer.isDirect());
+        assertEquals(ByteOrder.nativeOrder(), buffer.order());
+        assertEquals(4, buffer.limit());
+        assertEquals(0, buffer.getInt(0));
+    }
+
+    @Test
+    public void testPoint() {
+        ByteBuffer buffer = encode(Feature.fromGeometry(Point.fromCoordinates(Position.fromCoordinates(1.5, 2.5)),
+                new JsonObject(), "a"));
+        assertEquals(1, buffer.getInt());
+        assertEquals(1, buffer.getInt());
+        assertEquals('a', buffer.get());
+        assertEquals(GeoJsonBuffer.GEOMETRY_POINT, buffer.get());
+        assertEquals(1.5, buffer.getDouble(), DELTA);
+        assertEquals(2.5, buffer.getDouble(), DELTA);
+        assertEquals(0, buffer.getInt());
+        assertEquals(buffer.limit(), buffer.position());
+    }
+
+    @Test
+    public void testLineString() {
+        ByteBuffer buffer = encode(Feature.fromGeometry(LineString.fromCoordinates(Arrays.asList(
+                Position.fromCoordinates(0, 1), Position.fromCoordinates(2, 3)))));
+        buffer.getInt();
+        assertEquals(0, buffer.getInt());
+        assertEquals(GeoJsonBuffer.GEOMETRY_LINE_STRING, buffer.get());
+        assertEquals(2, buffer.getInt());
+        assertEquals(0, buffer.getDouble(), DELTA);
+        assertEquals(1, buffer.getDouble(), DELTA);
+        assertEquals(2, buffer.getDouble(), DELTA);
+        assertEquals(3, buffer.getDouble(), DELTA);
+    }
+
+    @Test
+    public void testGeometryCollection() {
+        ByteBuffer buffer = encode(Feature.fromGeometry(GeometryCollection.fromGeometries(Arrays.<Geometry>asList(
+                Point.fromCoordinates(Position.fromCoordinates(1, 2)),
+                GeometryCollection.fromGeometries(Arrays.<Geometry>asList(
+                        Point.fromCoordinates(Position.fromCoordinates(3, 4))))))));
+        buffer.getInt();
+        buffer.getInt();
+        assertEquals(GeoJsonBuffer.GEOMETRY_COLLECTION, buffer.get());
+        assertEquals(2, buffer.getInt());
+        assertEquals(GeoJsonBuffer.GEOMETRY_POINT, buffer.get());
+        assertEquals(1, buffer.getDouble(), DELTA);
+        assertEquals(2, buffer.getDouble(), DELTA);
+        assertEquals(GeoJsonBuffer.GEOMETRY_COLLECTION, buffer.get());
+        assertEquals(1, buffer.getInt());
+        assertEquals(GeoJsonBuffer.GEOMETRY_POINT, buffer.get());
+        assertEquals(3, buffer.getDouble(), DELTA);
+        assertEquals(4, buffer.getDouble(), DELTA);
+        assertEquals(0, buffer.getInt());
+        assertEquals(buffer.limit(), buffer.position());
+    }
+
+    @Test
+    public void testMissingGeometry() {
+        ByteBuffer buffer = encode(Feature.fromGeometry(null));
+        buffer.getInt();
+        buffer.getInt();
+        assertEquals(GeoJsonBuffer.GEOMETRY_NONE, buffer.get());
+    }
+
+    @Test
+    public void testPropertyTypes() {
+        JsonObject properties = new JsonObject();
+        properties.addProperty("uint", 3);
+        properties.addProperty("int", -3);
+        properties.addProperty("double", 0.5);
+        properties.addProperty("string", "s");
+        properties.addProperty("bool", true);
+
+        ByteBuffer buffer = encode(Feature.fromGeometry(null, properties));
+        buffer.position(4 + 4 + 1);
+        assertEquals(5, buffer.getInt());
+        assertEquals(GeoJsonBuffer.VALUE_UINT, readValueType(buffer, "uint"));
+        assertEquals(3, buffer.getLong());
+        assertEquals(GeoJsonBuffer.VALUE_INT, readValueType(buffer, "int"));
+        assertEquals(-3, buffer.getLong());
+        assertEquals(GeoJsonBuffer.VALUE_DOUBLE, readValueType(buffer, "double"));
+        assertEquals(0.5, buffer.getDouble(), DELTA);
+        assertEquals(GeoJsonBuffer.VALUE_STRING, readValueType(buffer, "string"));
+        assertEquals(1, buffer.getInt());
+        assertEquals('s', buffer.get());
+        assertEquals(GeoJsonBuffer.VALUE_BOOL, readValueType(buffer, "bool"));
+        assertEquals(1, buffer.get());
+        assertEquals(buffer.limit(), buffer.position());
+    }
+
+    private static ByteBuffer encode(Feature feature) {
+        return GeoJsonBuffer.encode(FeatureCollection.fromFeatures(new Feature[]{feature}));
+    }
+
+    private static int readValueType(ByteBuffer buffer, String key) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        assertEquals(key, new String(bytes));
+        return buffer.get();
+    }
+}
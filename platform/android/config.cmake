@@ -61,6 +61,18 @@ macro(mbgl_platform_core)
         PRIVATE platform/default/mbgl/util/default_thread_pool.cpp
         PRIVATE platform/default/mbgl/util/default_thread_pool.hpp
 
+        # Headless view
+        PRIVATE platform/default/mbgl/gl/headless_backend.cpp
+        PRIVATE platform/default/mbgl/gl/headless_backend.hpp
+        PRIVATE platform/default/mbgl/gl/offscreen_view.cpp
+        PRIVATE platform/default/mbgl/gl/offscreen_view.hpp
+        PRIVATE platform/linux/src/headless_backend_egl.cpp
+        PRIVATE platform/linux/src/headless_display_egl.cpp
+
+        # Snapshotter
+        PRIVATE platform/default/mbgl/map/map_snapshotter.cpp
+        PRIVATE platform/default/mbgl/map/map_snapshotter.hpp
+
         # Conversion C++ -> Java
         platform/android/src/conversion/constant.hpp
         platform/android/src/conversion/conversion.hpp
@@ -114,6 +126,10 @@ macro(mbgl_platform_core)
         platform/android/src/native_map_view.cpp
         platform/android/src/native_map_view.hpp
 
+        # Snapshotter
+        platform/android/src/map_snapshotter.cpp
+        platform/android/src/map_snapshotter.hpp
+
         # Main jni bindings
         platform/android/src/attach_env.cpp
         platform/android/src/attach_env.hpp
@@ -148,6 +164,7 @@ macro(mbgl_platform_core)
     target_link_libraries(mbgl-core
         PUBLIC -llog
         PUBLIC -landroid
+        PUBLIC -ljnigraphics
         PUBLIC -lEGL
         PUBLIC -lGLESv2
         PUBLIC -lstdc++
@@ -186,17 +203,6 @@ add_library(mbgl-test SHARED
 
 )
 
-target_sources(mbgl-test
-    # Headless view
-    PRIVATE platform/default/mbgl/gl/headless_backend.cpp
-    PRIVATE platform/default/mbgl/gl/headless_backend.hpp
-    PRIVATE platform/default/mbgl/gl/offscreen_view.cpp
-    PRIVATE platform/default/mbgl/gl/offscreen_view.hpp
-
-    PRIVATE platform/linux/src/headless_backend_egl.cpp
-    PRIVATE platform/linux/src/headless_display_egl.cpp
-)
-
 target_compile_options(mbgl-test
     PRIVATE -fvisibility=hidden
     PRIVATE -Os
@@ -0,0 +1,442 @@
+#pragma once
+
+#include "feature.hpp"
+
+#include <mbgl/util/feature.hpp>
+#include <mbgl/util/optional.hpp>
+#include <mapbox/geometry.hpp>
+
+#include <cstdint>
+#include <cstring>
+#include <stdexcept>
+#include <string>
+#include <unordered_map>
+#include <utility>
+#include <vector>
+
+namespace mbgl {
+namespace android {
+namespace conversion {
+
+/**
+ * Serializes queried features into a single buffer, decoded lazily by com.mapbox.mapboxsdk.maps.RenderedFeatures.
+ *
+ * All values are written in native byte order:
+ *
+ *   int32 layerCount, layerCount * string
+ *   int32 featureCount, featureCount * int32 feature offset
+ *   feature: int32 layer index, string id, int32 properties offset, geometry, properties
+ *   geometry: int8 type, followed by the coordinates of the type as (nested) counted lists of lon/lat doubles
+ *   properties: int32 count, count * (string key, value)
+ *   value: int8 type, followed by the value
+ *
+ * Keep in sync with RenderedFeatures.java.
+ */
+class FeatureBufferWriter {
+public:
+
+    enum GeometryType : int8_t {
+        None = 0,
+        Point = 1,
+        LineString = 2,
+        Polygon = 3,
+        MultiPoint = 4,
+        MultiLineString = 5,
+        MultiPolygon = 6,
+        GeometryCollection = 7
+    };
+
+    enum ValueType : int8_t {
+        Null = 0,
+        Bool = 1,
+        UInt = 2,
+        Int = 3,
+        Double = 4,
+        String = 5,
+        Array = 6,
+        Object = 7
+    };
+
+    std::vector<uint8_t> write(const mbgl::LayerFeatures& layers) {
+        buffer.clear();
+
+        std::size_t featureCount = 0;
+        writeInt(layers.size());
+        for (const auto& layer : layers) {
+            writeString(layer.first);
+            featureCount += layer.second.size();
+        }
+
+        writeInt(featureCount);
+        std::size_t offsetTable = reserve(featureCount * sizeof(int32_t));
+
+        std::size_t index = 0;
+        for (std::size_t layerIndex = 0; layerIndex < layers.size(); layerIndex++) {
+            for (const auto& feature : layers[layerIndex].second) {
+                patchInt(offsetTable + index++ * sizeof(int32_t), buffer.size());
+                writeFeature(layerIndex, feature);
+            }
+        }
+
+        return std::move(buffer);
+    }
+
+    void operator()(const mapbox::geometry::point<double>& geometry) {
+        writeByte(Point);
+        writePoint(geometry);
+    }
+
+    void operator()(const mapbox::geometry::line_string<double>& geometry) {
+        writeByte(LineString);
+        writePoints(geometry);
+    }
+
+    void operator()(const mapbox::geometry::multi_point<double>& geometry) {
+        writeByte(MultiPoint);
+        writePoints(geometry);
+    }
+
+    void operator()(const mapbox::geometry::polygon<double>& geometry) {
+        writeByte(Polygon);
+        writeInt(geometry.size());
+        for (const auto& ring : geometry) {
+            writePoints(ring);
+        }
+    }
+
+    void operator()(const mapbox::geometry::multi_line_string<double>& geometry) {
+        writeByte(MultiLineString);
+        writeInt(geometry.size());
+        for (const auto& line : geometry) {
+            writePoints(line);
+        }
+    }
+
+    void operator()(const mapbox::geometry::multi_polygon<double>& geometry) {
+        writeByte(MultiPolygon);
+        writeInt(geometry.size());
+        for (const auto& polygon : geometry) {
+            writeInt(polygon.size());
+            for (const auto& ring : polygon) {
+                writePoints(ring);
+            }
+        }
+    }
+
+    void operator()(const mapbox::geometry::geometry_collection<double>&) {
+        // Rendered features are never geometry collections
+        writeByte(None);
+    }
+
+    void operator()(const mapbox::geometry::null_value_t&) {
+        writeByte(Null);
+    }
+
+    void operator()(bool value) {
+        writeByte(Bool);
+        writeByte(value ? 1 : 0);
+    }
+
+    void operator()(uint64_t value) {
+        writeByte(UInt);
+        writeRaw(value);
+    }
+
+    void operator()(int64_t value) {
+        writeByte(Int);
+        writeRaw(value);
+    }
+
+    void operator()(double value) {
+        writeByte(Double);
+        writeRaw(value);
+    }
+
+    void operator()(const std::string& value) {
+        writeByte(String);
+        writeString(value);
+    }
+
+    void operator()(const std::vector<mbgl::Value>& values) {
+        writeByte(Array);
+        writeInt(values.size());
+        for (const auto& value : values) {
+            mbgl::Value::visit(value, *this);
+        }
+    }
+
+    void operator()(const std::unordered_map<std::string, mbgl::Value>& values) {
+        writeByte(Object);
+        writeProperties(values);
+    }
+
+private:
+    std::vector<uint8_t> buffer;
+
+    void writeFeature(std::size_t layerIndex, const mbgl::Feature& feature) {
+        writeInt(layerIndex);
+
+        FeatureIdVisitor idEvaluator;
+        writeString(feature.id ? mapbox::geometry::identifier::visit(*feature.id, idEvaluator) : "");
+
+        std::size_t propertiesOffset = reserve(sizeof(int32_t));
+        mapbox::geometry::geometry<double>::visit(feature.geometry, *this);
+        patchInt(propertiesOffset, buffer.size());
+        writeProperties(feature.properties);
+    }
+
+    template <class Properties>
+    void writeProperties(const Properties& properties) {
+        writeInt(properties.size());
+        for (const auto& property : properties) {
+            writeString(property.first);
+            mbgl::Value::visit(property.second, *this);
+        }
+    }
+
+    void writePoint(const mapbox::geometry::point<double>& point) {
+        writeRaw(point.x);
+        writeRaw(point.y);
+    }
+
+    template <class Points>
+    void writePoints(const Points& points) {
+        writeInt(points.size());
+        for (const auto& point : points) {
+            writePoint(point);
+        }
+    }
+
+    void writeString(const std::string& value) {
+        writeInt(value.size());
+        buffer.insert(buffer.end(), value.begin(), value.end());
+    }
+
+    void writeByte(int8_t value) {
+        buffer.push_back(static_cast<uint8_t>(value));
+    }
+
+    void writeInt(std::size_t value) {
+        writeRaw(static_cast<int32_t>(value));
+    }
+
+    template <class T>
+    void writeRaw(T value) {
+        std::size_t offset = reserve(sizeof(T));
+        std::memcpy(buffer.data() + offset, &value, sizeof(T));
+    }
+
+    void patchInt(std::size_t offset, std::size_t value) {
+        int32_t converted = static_cast<int32_t>(value);
+        std::memcpy(buffer.data() + offset, &converted, sizeof(int32_t));
+    }
+
+    std::size_t reserve(std::size_t size) {
+        std::size_t offset = buffer.size();
+        buffer.resize(offset + size);
+        return offset;
+    }
+};
+
+/**
+ * Deserializes features encoded by com.mapbox.mapboxsdk.style.sources.GeoJsonBuffer.
+ *
+ * Uses the geometry and value encoding of FeatureBufferWriter, in native byte order:
+ *
+ *   int32 featureCount, featureCount * feature
+ *   feature: string id, geometry, properties
+ *   geometry collection: int8 type, int32 count, count * geometry
+ *
+ * An empty id is read as a feature without id, other ids are read as strings like the ids of Java
+ * features. Features without geometry are skipped. Throws std::out_of_range when the buffer is truncated.
+ */
+class FeatureBufferReader {
+public:
+
+    FeatureBufferReader(const uint8_t* data_, std::size_t length_)
+        : data(data_), length(length_) {
+    }
+
+    mapbox::geometry::feature_collection<double> read() {
+        offset = 0;
+
+        mapbox::geometry::feature_collection<double> features;
+        std::size_t count = readCount();
+        features.reserve(count);
+        for (std::size_t i = 0; i < count; i++) {
+            std::string id = readString();
+            auto geometry = readGeometry();
+            auto properties = readProperties();
+            if (!geometry) {
+                continue;
+            }
+
+            mapbox::geometry::feature<double> feature { std::move(*geometry) };
+            feature.properties = std::move(properties);
+            if (!id.empty()) {
+                feature.id = std::move(id);
+            }
+            features.push_back(std::move(feature));
+        }
+        return features;
+    }
+
+private:
+    const uint8_t* data;
+    const std::size_t length;
+    std::size_t offset = 0;
+
+    using GeometryType = FeatureBufferWriter::GeometryType;
+    using ValueType = FeatureBufferWriter::ValueType;
+
+    optional<mapbox::geometry::geometry<double>> readGeometry() {
+        switch (readByte()) {
+        case GeometryType::Point:
+            return { readPoint() };
+        case GeometryType::LineString:
+            return { readPoints<mapbox::geometry::line_string<double>>() };
+        case GeometryType::MultiPoint:
+            return { readPoints<mapbox::geometry::multi_point<double>>() };
+        case GeometryType::Polygon:
+            return { readPolygon() };
+        case GeometryType::MultiLineString: {
+            mapbox::geometry::multi_line_string<double> lines;
+            std::size_t count = readCount();
+            lines.reserve(count);
+            for (std::size_t i = 0; i < count; i++) {
+                lines.push_back(readPoints<mapbox::geometry::line_string<double>>());
+            }
+            return { std::move(lines) };
+        }
+        case GeometryType::MultiPolygon: {
+            mapbox::geometry::multi_polygon<double> polygons;
+            std::size_t count = readCount();
+            polygons.reserve(count);
+            for (std::size_t i = 0; i < count; i++) {
+                polygons.push_back(readPolygon());
+            }
+            return { std::move(polygons) };
+        }
+        case GeometryType::GeometryCollection: {
+            mapbox::geometry::geometry_collection<double> geometries;
+            std::size_t count = readCount();
+            geometries.reserve(count);
+            for (std::size_t i = 0; i < count; i++) {
+                // Members without a geometry are left out
+                auto geometry = readGeometry();
+                if (geometry) {
+                    geometries.push_back(std::move(*geometry));
+                }
+            }
+            return { std::move(geometries) };
+        }
+        default:
+            return {};
+        }
+    }
+
+    mapbox::geometry::polygon<double> readPolygon() {
+        mapbox::geometry::polygon<double> polygon;
+        std::size_t count = readCount();
+        polygon.reserve(count);
+        for (std::size_t i = 0; i < count; i++) {
+            polygon.push_back(readPoints<mapbox::geometry::linear_ring<double>>());
+        }
+        return polygon;
+    }
+
+    template <class Points>
+    Points readPoints() {
+        Points points;
+        std::size_t count = readCount();
+        require(count * 2 * sizeof(double));
+        points.reserve(count);
+        for (std::size_t i = 0; i < count; i++) {
+            points.push_back(readPoint());
+        }
+        return points;
+    }
+
+    mapbox::geometry::point<double> readPoint() {
+        double x = readRaw<double>();
+        double y = readRaw<double>();
+        return { x, y };
+    }
+
+    mapbox::geometry::property_map readProperties() {
+        mapbox::geometry::property_map properties;
+        std::size_t count = readCount();
+        for (std::size_t i = 0; i < count; i++) {
+            std::string key = readString();
+            properties.emplace(std::move(key), readValue());
+        }
+        return properties;
+    }
+
+    mbgl::Value readValue() {
+        switch (readByte()) {
+        case ValueType::Bool:
+            return { readByte() != 0 };
+        case ValueType::UInt:
+            return { readRaw<uint64_t>() };
+        case ValueType::Int:
+            return { readRaw<int64_t>() };
+        case ValueType::Double:
+            return { readRaw<double>() };
+        case ValueType::String:
+            return { readString() };
+        case ValueType::Array: {
+            std::vector<mbgl::Value> values;
+            std::size_t count = readCount();
+            values.reserve(count);
+            for (std::size_t i = 0; i < count; i++) {
+                values.push_back(readValue());
+            }
+            return { std::move(values) };
+        }
+        case ValueType::Object:
+            return { readProperties() };
+        default:
+            return { mapbox::geometry::null_value };
+        }
+    }
+
+    std::string readString() {
+        std::size_t size = readCount();
+        require(size);
+        std::string value(reinterpret_cast<const char*>(data + offset), size);
+        offset += size;
+        return value;
+    }
+
+    std::size_t readCount() {
+        int32_t count = readRaw<int32_t>();
+        if (count < 0) {
+            throw std::out_of_range("Invalid count in feature buffer");
+        }
+        return static_cast<std::size_t>(count);
+    }
+
+    int8_t readByte() {
+        return readRaw<int8_t>();
+    }
+
+    template <class T>
+    T readRaw() {
+        require(sizeof(T));
+        T value;
+        std::memcpy(&value, data + offset, sizeof(T));
+        offset += sizeof(T);
+        return value;
+    }
+
+    void require(std::size_t size) {
+        if (size > length - offset) {
+            throw std::out_of_range("Truncated feature buffer");
+        }
+    }
+};
+
+} // namespace conversion
+} // namespace android
+} // namespace mbgl
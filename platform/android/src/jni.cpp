@@ -5,6 +5,7 @@
 #include <array>
 #include <vector>
 
+#include <android/bitmap.h>
 #include <android/native_window_jni.h>
 #include <sys/system_properties.h>
 
@@ -12,15 +13,18 @@
 #include "java_types.hpp"
 #include "native_map_view.hpp"
 #include "connectivity_listener.hpp"
+#include "map_snapshotter.hpp"
 #include "style/layers/layers.hpp"
 #include "style/sources/sources.hpp"
 
 #include "conversion/conversion.hpp"
 #include "conversion/collection.hpp"
 #include "geometry/conversion/feature.hpp"
+#include "geometry/conversion/feature_buffer.hpp"
 
 #include <mbgl/map/map.hpp>
 #include <mbgl/map/camera.hpp>
+#include <mbgl/map/rendered_features_snapshot.hpp>
 #include <mbgl/annotation/annotation.hpp>
 #include <mbgl/style/layer.hpp>
 #include <mbgl/style/source.hpp>
@@ -54,7 +58,7 @@ std::string androidRelease;
 jni::jmethodID* onInvalidateId = nullptr;
 jni::jmethodID* onMapChangedId = nullptr;
 jni::jmethodID* onFpsChangedId = nullptr;
-jni::jmethodID* onSnapshotReadyId = nullptr;
+jni::jmethodID* onFrameMetricsId = nullptr;
 
 jni::jclass* latLngClass = nullptr;
 jni::jmethodID* latLngConstructorId = nullptr;
@@ -80,6 +84,8 @@ jni::jclass* polylineClass = nullptr;
 jni::jfieldID* polylineAlphaId = nullptr;
 jni::jfieldID* polylineColorId = nullptr;
 jni::jfieldID* polylineWidthId = nullptr;
+jni::jfieldID* polylineTrimStartId = nullptr;
+jni::jfieldID* polylineTrimEndId = nullptr;
 jni::jfieldID* polylinePointsId = nullptr;
 
 jni::jclass* polygonClass = nullptr;
@@ -641,12 +647,15 @@ void nativeUpdateMarker(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr,
     nativeMapView->getMap().updateAnnotation(markerId, mbgl::SymbolAnnotation { mbgl::Point<double>(lon, lat), iconId });
 }
 
-jni::jarray<jlong>* nativeAddMarkers(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jarray<jni::jobject>* jarray) {
+jni::jarray<jlong>* nativeAddMarkers(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jarray<jni::jobject>* jarray,
+        jni::jarray<jni::jobject>* jiconIds) {
     assert(nativeMapViewPtr != 0);
     NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
 
     NullCheck(*env, jarray);
+    NullCheck(*env, jiconIds);
     std::size_t len = jni::GetArrayLength(*env, *jarray);
+    std::vector<std::string> iconIds = toVector(*env, *jiconIds);
 
     mbgl::AnnotationIDs ids;
     ids.reserve(len);
@@ -654,26 +663,58 @@ jni::jarray<jlong>* nativeAddMarkers(JNIEnv *env, jni::jobject* obj, jlong nativ
     for (std::size_t i = 0; i < len; i++) {
         jni::jobject* marker = jni::GetObjectArrayElement(*env, *jarray, i);
         jni::jobject* position = jni::GetField<jni::jobject*>(*env, marker, *markerPositionId);
-        jni::jobject* icon = jni::GetField<jni::jobject*>(*env, marker, *markerIconId);
-        jni::jstring* jid = reinterpret_cast<jni::jstring*>(jni::GetField<jni::jobject*>(*env, icon, *iconIdId));
 
         jdouble latitude = jni::GetField<jdouble>(*env, position, *latLngLatitudeId);
         jdouble longitude = jni::GetField<jdouble>(*env, position, *latLngLongitudeId);
 
         ids.push_back(nativeMapView->getMap().addAnnotation(mbgl::SymbolAnnotation {
             mbgl::Point<double>(longitude, latitude),
-            std_string_from_jstring(env, jid)
+            iconIds[i]
         }));
 
         jni::DeleteLocalRef(*env, position);
-        jni::DeleteLocalRef(*env, jid);
-        jni::DeleteLocalRef(*env, icon);
         jni::DeleteLocalRef(*env, marker);
     }
 
     return std_vector_uint_to_jobject(env, ids);
 }
 
+jni::jarray<jlong>* nativeAddPackedMarkers(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jarray<jdouble>* jlatLngs,
+        jni::jarray<jni::jobject>* jiconIds, jni::jarray<jint>* jiconIndices) {
+    using namespace mbgl::android::conversion;
+
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+
+    NullCheck(*env, jlatLngs);
+    NullCheck(*env, jiconIds);
+    std::size_t len = jni::GetArrayLength(*env, *jlatLngs) / 2;
+
+    // Icon ids are shared between markers, convert them once
+    std::vector<std::string> iconIds = toVector(*env, *jiconIds);
+
+    auto latLngElements = jni::GetArrayElements(*env, *jlatLngs);
+    jdouble* latLngs = std::get<0>(latLngElements).get();
+
+    std::vector<jint> iconIndices;
+    if (jiconIndices != nullptr) {
+        iconIndices.resize(len);
+        jni::GetArrayRegion(*env, *jiconIndices, 0, len, iconIndices.data());
+    }
+
+    mbgl::AnnotationIDs ids;
+    ids.reserve(len);
+
+    for (std::size_t i = 0; i < len; i++) {
+        ids.push_back(nativeMapView->getMap().addAnnotation(mbgl::SymbolAnnotation {
+            mbgl::Point<double>(latLngs[i * 2 + 1], latLngs[i * 2]),
+            iconIds[iconIndices.empty() ? 0 : iconIndices[i]]
+        }));
+    }
+
+    return std_vector_uint_to_jobject(env, ids);
+}
+
 static mbgl::Color toColor(jint color) {
     float r = (color >> 16) & 0xFF;
     float g = (color >> 8) & 0xFF;
@@ -711,6 +752,51 @@ Geometry toGeometry(JNIEnv *env, jni::jobject* jlist) {
     return geometry;
 }
 
+// Reads the geometry from an array of latitude and longitude pairs, for batches that would otherwise read
+// every LatLng of every shape field by field
+template <class Geometry>
+Geometry toGeometry(JNIEnv *env, jni::jarray<jdouble>* jlatLngs) {
+    NullCheck(*env, jlatLngs);
+    std::size_t size = jni::GetArrayLength(*env, *jlatLngs) / 2;
+    auto elements = jni::GetArrayElements(*env, *jlatLngs);
+    jdouble* latLngs = std::get<0>(elements).get();
+
+    Geometry geometry;
+    geometry.reserve(size);
+    for (std::size_t i = 0; i < size; i++) {
+        geometry.push_back(mbgl::Point<double>(latLngs[i * 2 + 1], latLngs[i * 2]));
+    }
+    return geometry;
+}
+
+static mbgl::LineAnnotation toLineAnnotation(JNIEnv *env, jni::jobject* polyline, mbgl::LineString<double> points) {
+    mbgl::LineAnnotation annotation { std::move(points) };
+    annotation.opacity = { jni::GetField<jfloat>(*env, polyline, *polylineAlphaId) };
+    annotation.color = { toColor(jni::GetField<jint>(*env, polyline, *polylineColorId)) };
+    annotation.width = { jni::GetField<jfloat>(*env, polyline, *polylineWidthId) };
+    annotation.trimStart = jni::GetField<jfloat>(*env, polyline, *polylineTrimStartId);
+    annotation.trimEnd = jni::GetField<jfloat>(*env, polyline, *polylineTrimEndId);
+    return annotation;
+}
+
+static mbgl::LineAnnotation toLineAnnotation(JNIEnv *env, jni::jobject* polyline) {
+    jni::jobject* points = jni::GetField<jni::jobject*>(*env, polyline, *polylinePointsId);
+    return toLineAnnotation(env, polyline, toGeometry<mbgl::LineString<double>>(env, points));
+}
+
+static mbgl::FillAnnotation toFillAnnotation(JNIEnv *env, jni::jobject* polygon, mbgl::LinearRing<double> points) {
+    mbgl::FillAnnotation annotation { mbgl::Polygon<double> { std::move(points) } };
+    annotation.opacity = { jni::GetField<jfloat>(*env, polygon, *polygonAlphaId) };
+    annotation.outlineColor = { toColor(jni::GetField<jint>(*env, polygon, *polygonStrokeColorId)) };
+    annotation.color = { toColor(jni::GetField<jint>(*env, polygon, *polygonFillColorId)) };
+    return annotation;
+}
+
+static mbgl::FillAnnotation toFillAnnotation(JNIEnv *env, jni::jobject* polygon) {
+    jni::jobject* points = jni::GetField<jni::jobject*>(*env, polygon, *polygonPointsId);
+    return toFillAnnotation(env, polygon, toGeometry<mbgl::LinearRing<double>>(env, points));
+}
+
 jni::jarray<jlong>* nativeAddPolylines(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jarray<jni::jobject>* jarray) {
     assert(nativeMapViewPtr != 0);
     NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
@@ -723,13 +809,7 @@ jni::jarray<jlong>* nativeAddPolylines(JNIEnv *env, jni::jobject* obj, jlong nat
 
     for (std::size_t i = 0; i < len; i++) {
         jni::jobject* polyline = jni::GetObjectArrayElement(*env, *jarray, i);
-        jni::jobject* points = jni::GetField<jni::jobject*>(*env, polyline, *polylinePointsId);
-
-        mbgl::LineAnnotation annotation { toGeometry<mbgl::LineString<double>>(env, points) };
-        annotation.opacity = { jni::GetField<jfloat>(*env, polyline, *polylineAlphaId) };
-        annotation.color = { toColor(jni::GetField<jint>(*env, polyline, *polylineColorId)) };
-        annotation.width = { jni::GetField<jfloat>(*env, polyline, *polylineWidthId) };
-        ids.push_back(nativeMapView->getMap().addAnnotation(annotation));
+        ids.push_back(nativeMapView->getMap().addAnnotation(toLineAnnotation(env, polyline)));
 
         jni::DeleteLocalRef(*env, polyline);
     }
@@ -749,13 +829,7 @@ jni::jarray<jlong>* nativeAddPolygons(JNIEnv *env, jni::jobject* obj, jlong nati
 
     for (std::size_t i = 0; i < len; i++) {
         jni::jobject* polygon = jni::GetObjectArrayElement(*env, *jarray, i);
-        jni::jobject* points = jni::GetField<jni::jobject*>(*env, polygon, *polygonPointsId);
-
-        mbgl::FillAnnotation annotation { mbgl::Polygon<double> { toGeometry<mbgl::LinearRing<double>>(env, points) } };
-        annotation.opacity = { jni::GetField<jfloat>(*env, polygon, *polygonAlphaId) };
-        annotation.outlineColor = { toColor(jni::GetField<jint>(*env, polygon, *polygonStrokeColorId)) };
-        annotation.color = { toColor(jni::GetField<jint>(*env, polygon, *polygonFillColorId)) };
-        ids.push_back(nativeMapView->getMap().addAnnotation(annotation));
+        ids.push_back(nativeMapView->getMap().addAnnotation(toFillAnnotation(env, polygon)));
 
         jni::DeleteLocalRef(*env, polygon);
     }
@@ -766,25 +840,103 @@ jni::jarray<jlong>* nativeAddPolygons(JNIEnv *env, jni::jobject* obj, jlong nati
 void nativeUpdatePolygon(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jlong polygonId, jni::jobject* polygon) {
     assert(nativeMapViewPtr != 0);
     NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
-    jni::jobject* points = jni::GetField<jni::jobject*>(*env, polygon, *polygonPointsId);
-
-    mbgl::FillAnnotation annotation { mbgl::Polygon<double> { toGeometry<mbgl::LinearRing<double>>(env, points) } };
-    annotation.opacity = { jni::GetField<jfloat>(*env, polygon, *polygonAlphaId) };
-    annotation.outlineColor = { toColor(jni::GetField<jint>(*env, polygon, *polygonStrokeColorId)) };
-    annotation.color = { toColor(jni::GetField<jint>(*env, polygon, *polygonFillColorId)) };
-    nativeMapView->getMap().updateAnnotation(polygonId, annotation);
+    nativeMapView->getMap().updateAnnotation(polygonId, toFillAnnotation(env, polygon));
 }
 
 void nativeUpdatePolyline(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jlong polylineId, jni::jobject* polyline) {
     assert(nativeMapViewPtr != 0);
     NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
-    jni::jobject* points = jni::GetField<jni::jobject*>(*env, polyline, *polylinePointsId);
+    nativeMapView->getMap().updateAnnotation(polylineId, toLineAnnotation(env, polyline));
+}
 
-    mbgl::LineAnnotation annotation { toGeometry<mbgl::LineString<double>>(env, points) };
-    annotation.opacity = { jni::GetField<jfloat>(*env, polyline, *polylineAlphaId) };
-    annotation.color = { toColor(jni::GetField<jint>(*env, polyline, *polylineColorId)) };
-    annotation.width = { jni::GetField<jfloat>(*env, polyline, *polylineWidthId) };
-    nativeMapView->getMap().updateAnnotation(polylineId, annotation);
+void nativeAppendPolylinePoints(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jlong polylineId, jni::jarray<jdouble>* jlatLngs) {
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+
+    NullCheck(*env, jlatLngs);
+    std::size_t len = jni::GetArrayLength(*env, *jlatLngs) / 2;
+    auto elements = jni::GetArrayElements(*env, *jlatLngs);
+    jdouble* latLngs = std::get<0>(elements).get();
+
+    mbgl::LineString<double> points;
+    points.reserve(len);
+    for (std::size_t i = 0; i < len; i++) {
+        points.push_back(mbgl::Point<double>(latLngs[i * 2 + 1], latLngs[i * 2]));
+    }
+
+    nativeMapView->getMap().appendToAnnotation(polylineId, points);
+}
+
+void nativeSetPolylineTrimOffset(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jlong polylineId, jfloat trimStart, jfloat trimEnd) {
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+    nativeMapView->getMap().setAnnotationTrimOffset(polylineId, trimStart, trimEnd);
+}
+
+void nativeUpdateAnnotations(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr,
+        jni::jarray<jlong>* jmarkerIds, jni::jarray<jdouble>* jmarkerLatLngs, jni::jarray<jni::jobject>* jmarkerIconIds,
+        jni::jarray<jlong>* jpolylineIds, jni::jarray<jni::jobject>* jpolylines, jni::jarray<jni::jobject>* jpolylinePoints,
+        jni::jarray<jlong>* jpolygonIds, jni::jarray<jni::jobject>* jpolygons, jni::jarray<jni::jobject>* jpolygonPoints) {
+    using namespace mbgl::android::conversion;
+
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+    mbgl::Map& map = nativeMapView->getMap();
+
+    NullCheck(*env, jmarkerIds);
+    NullCheck(*env, jmarkerLatLngs);
+    NullCheck(*env, jmarkerIconIds);
+    std::size_t len = jni::GetArrayLength(*env, *jmarkerIds);
+    if (len > 0) {
+        auto idElements = jni::GetArrayElements(*env, *jmarkerIds);
+        jlong* markerIds = std::get<0>(idElements).get();
+        auto latLngElements = jni::GetArrayElements(*env, *jmarkerLatLngs);
+        jdouble* latLngs = std::get<0>(latLngElements).get();
+        std::vector<std::string> iconIds = toVector(*env, *jmarkerIconIds);
+
+        for (std::size_t i = 0; i < len; i++) {
+            map.updateAnnotation(markerIds[i], mbgl::SymbolAnnotation {
+                mbgl::Point<double>(latLngs[i * 2 + 1], latLngs[i * 2]),
+                iconIds[i]
+            });
+        }
+    }
+
+    NullCheck(*env, jpolylineIds);
+    NullCheck(*env, jpolylines);
+    NullCheck(*env, jpolylinePoints);
+    len = jni::GetArrayLength(*env, *jpolylineIds);
+    if (len > 0) {
+        auto idElements = jni::GetArrayElements(*env, *jpolylineIds);
+        jlong* polylineIds = std::get<0>(idElements).get();
+
+        for (std::size_t i = 0; i < len; i++) {
+            jni::jobject* polyline = jni::GetObjectArrayElement(*env, *jpolylines, i);
+            auto points = reinterpret_cast<jni::jarray<jdouble>*>(jni::GetObjectArrayElement(*env, *jpolylinePoints, i));
+            map.updateAnnotation(polylineIds[i],
+                toLineAnnotation(env, polyline, toGeometry<mbgl::LineString<double>>(env, points)));
+            jni::DeleteLocalRef(*env, points);
+            jni::DeleteLocalRef(*env, polyline);
+        }
+    }
+
+    NullCheck(*env, jpolygonIds);
+    NullCheck(*env, jpolygons);
+    NullCheck(*env, jpolygonPoints);
+    len = jni::GetArrayLength(*env, *jpolygonIds);
+    if (len > 0) {
+        auto idElements = jni::GetArrayElements(*env, *jpolygonIds);
+        jlong* polygonIds = std::get<0>(idElements).get();
+
+        for (std::size_t i = 0; i < len; i++) {
+            jni::jobject* polygon = jni::GetObjectArrayElement(*env, *jpolygons, i);
+            auto points = reinterpret_cast<jni::jarray<jdouble>*>(jni::GetObjectArrayElement(*env, *jpolygonPoints, i));
+            map.updateAnnotation(polygonIds[i],
+                toFillAnnotation(env, polygon, toGeometry<mbgl::LinearRing<double>>(env, points)));
+            jni::DeleteLocalRef(*env, points);
+            jni::DeleteLocalRef(*env, polygon);
+        }
+    }
 }
 
 void nativeRemoveAnnotations(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jarray<jlong>* jarray) {
@@ -823,29 +975,133 @@ jni::jarray<jlong>* nativeQueryPointAnnotations(JNIEnv *env, jni::jobject* obj,
     return std_vector_uint_to_jobject(env, ids);
 }
 
+// Reads the pixels of an android.graphics.Bitmap in place, converting them to premultiplied RGBA
+static mbgl::PremultipliedImage toPremultipliedImage(JNIEnv *env, jni::jobject* jbitmap) {
+    NullCheck(*env, jbitmap);
+    jobject bitmap = jni::Unwrap(jbitmap);
+
+    AndroidBitmapInfo info;
+    if (AndroidBitmap_getInfo(env, bitmap, &info) != ANDROID_BITMAP_RESULT_SUCCESS) {
+        throw mbgl::util::SpriteImageException("Could not read bitmap info");
+    }
+
+    void* pixels = nullptr;
+    if (AndroidBitmap_lockPixels(env, bitmap, &pixels) != ANDROID_BITMAP_RESULT_SUCCESS) {
+        throw mbgl::util::SpriteImageException("Could not lock bitmap pixels");
+    }
+
+    mbgl::PremultipliedImage image({ info.width, info.height });
+    uint8_t* dst = image.data.get();
+    for (uint32_t y = 0; y < info.height; y++) {
+        const uint8_t* row = reinterpret_cast<const uint8_t*>(pixels) + y * info.stride;
+        switch (info.format) {
+        case ANDROID_BITMAP_FORMAT_RGBA_8888:
+            // Android stores these premultiplied, in the same layout
+            std::copy(row, row + info.width * 4, dst);
+            dst += info.width * 4;
+            break;
+        case ANDROID_BITMAP_FORMAT_RGB_565:
+            for (uint32_t x = 0; x < info.width; x++) {
+                const uint16_t pixel = reinterpret_cast<const uint16_t*>(row)[x];
+                *dst++ = ((pixel >> 11) & 0x1F) * 255 / 31;
+                *dst++ = ((pixel >> 5) & 0x3F) * 255 / 63;
+                *dst++ = (pixel & 0x1F) * 255 / 31;
+                *dst++ = 255;
+            }
+            break;
+        case ANDROID_BITMAP_FORMAT_RGBA_4444:
+            for (uint32_t x = 0; x < info.width; x++) {
+                const uint16_t pixel = reinterpret_cast<const uint16_t*>(row)[x];
+                *dst++ = ((pixel >> 12) & 0xF) * 17;
+                *dst++ = ((pixel >> 8) & 0xF) * 17;
+                *dst++ = ((pixel >> 4) & 0xF) * 17;
+                *dst++ = (pixel & 0xF) * 17;
+            }
+            break;
+        case ANDROID_BITMAP_FORMAT_A_8:
+            for (uint32_t x = 0; x < info.width; x++) {
+                *dst++ = 0;
+                *dst++ = 0;
+                *dst++ = 0;
+                *dst++ = row[x];
+            }
+            break;
+        default:
+            AndroidBitmap_unlockPixels(env, bitmap);
+            throw mbgl::util::SpriteImageException("Unsupported bitmap format");
+        }
+    }
+
+    AndroidBitmap_unlockPixels(env, bitmap);
+    return image;
+}
+
 void nativeAddAnnotationIcon(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr,
-        jni::jstring* symbol, jint width, jint height, jfloat scale, jni::jarray<jbyte>* jpixels) {
+        jni::jstring* symbol, jni::jobject* bitmap, jfloat scale) {
     assert(nativeMapViewPtr != 0);
     NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
 
     const std::string symbolName = std_string_from_jstring(env, symbol);
 
-    NullCheck(*env, jpixels);
-    std::size_t size = jni::GetArrayLength(*env, *jpixels);
-    mbgl::PremultipliedImage premultipliedImage(
-        { static_cast<uint32_t>(width), static_cast<uint32_t>(height) });
+    auto iconImage = std::make_shared<mbgl::SpriteImage>(
+        toPremultipliedImage(env, bitmap),
+        float(scale));
+
+    nativeMapView->getMap().addAnnotationIcon(symbolName, iconImage);
+}
 
-    if (premultipliedImage.bytes() != uint32_t(size)) {
-        throw mbgl::util::SpriteImageException("Sprite image pixel count mismatch");
+jint nativeGetImageContentHash(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jobject* jbitmap) {
+    assert(nativeMapViewPtr != 0);
+    NullCheck(*env, jbitmap);
+    jobject bitmap = jni::Unwrap(jbitmap);
+
+    AndroidBitmapInfo info;
+    if (AndroidBitmap_getInfo(env, bitmap, &info) != ANDROID_BITMAP_RESULT_SUCCESS) {
+        throw mbgl::util::SpriteImageException("Could not read bitmap info");
     }
 
-    jni::GetArrayRegion(*env, *jpixels, 0, size, reinterpret_cast<jbyte*>(premultipliedImage.data.get()));
+    uint32_t bytesPerPixel;
+    switch (info.format) {
+    case ANDROID_BITMAP_FORMAT_RGBA_8888:
+        bytesPerPixel = 4;
+        break;
+    case ANDROID_BITMAP_FORMAT_RGB_565:
+    case ANDROID_BITMAP_FORMAT_RGBA_4444:
+        bytesPerPixel = 2;
+        break;
+    case ANDROID_BITMAP_FORMAT_A_8:
+        bytesPerPixel = 1;
+        break;
+    default:
+        throw mbgl::util::SpriteImageException("Unsupported bitmap format");
+    }
 
-    auto iconImage = std::make_shared<mbgl::SpriteImage>(
-        std::move(premultipliedImage),
-        float(scale));
+    void* pixels = nullptr;
+    if (AndroidBitmap_lockPixels(env, bitmap, &pixels) != ANDROID_BITMAP_RESULT_SUCCESS) {
+        throw mbgl::util::SpriteImageException("Could not lock bitmap pixels");
+    }
 
-    nativeMapView->getMap().addAnnotationIcon(symbolName, iconImage);
+    // FNV-1a over the dimensions, the format and the pixels as stored, without converting them. Bitmaps
+    // with the same pixels in different formats hash differently, like Bitmap#sameAs tells them apart.
+    uint32_t hash = 2166136261u;
+    auto add = [&hash] (uint8_t byte) {
+        hash = (hash ^ byte) * 16777619u;
+    };
+    for (uint32_t value : { info.width, info.height, static_cast<uint32_t>(info.format) }) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            add(static_cast<uint8_t>(value >> shift));
+        }
+    }
+    for (uint32_t y = 0; y < info.height; y++) {
+        // the padding at the end of a row isn't part of the image
+        const uint8_t* row = reinterpret_cast<const uint8_t*>(pixels) + y * info.stride;
+        for (uint32_t i = 0; i < info.width * bytesPerPixel; i++) {
+            add(row[i]);
+        }
+    }
+
+    AndroidBitmap_unlockPixels(env, bitmap);
+    return static_cast<jint>(hash);
 }
 
 void nativeSetVisibleCoordinateBounds(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr,
@@ -887,7 +1143,16 @@ void nativeSetVisibleCoordinateBounds(JNIEnv *env, jni::jobject* obj, jlong nati
     nativeMapView->getMap().easeTo(cameraOptions, animationOptions);
 }
 
-jni::jarray<jni::jobject>* nativeQueryRenderedFeaturesForPoint(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jfloat x, jni::jfloat y, jni::jarray<jni::jobject>*  layerIds) {
+static jni::jarray<jbyte>* toFeatureBuffer(JNIEnv *env, const mbgl::LayerFeatures& features) {
+    using namespace mbgl::android::conversion;
+
+    std::vector<uint8_t> buffer = FeatureBufferWriter().write(features);
+    jni::jarray<jbyte>& jbuffer = jni::NewArray<jbyte>(*env, buffer.size());
+    jni::SetArrayRegion(*env, jbuffer, 0, buffer.size(), reinterpret_cast<const jbyte*>(buffer.data()));
+    return &jbuffer;
+}
+
+jni::jarray<jbyte>* nativeQueryRenderedFeaturesForPoint(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jfloat x, jni::jfloat y, jni::jarray<jni::jobject>*  layerIds) {
     using namespace mbgl::android::conversion;
     using namespace mapbox::geometry;
 
@@ -900,10 +1165,10 @@ jni::jarray<jni::jobject>* nativeQueryRenderedFeaturesForPoint(JNIEnv *env, jni:
     }
     point<double> point = {x, y};
 
-    return *convert<jni::jarray<jni::jobject>*, std::vector<mbgl::Feature>>(*env, nativeMapView->getMap().queryRenderedFeatures(point, layers));
+    return toFeatureBuffer(env, nativeMapView->getMap().queryRenderedFeaturesByLayer(point, layers));
 }
 
-jni::jarray<jni::jobject>* nativeQueryRenderedFeaturesForBox(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jfloat left, jni::jfloat top, jni::jfloat right, jni::jfloat bottom, jni::jarray<jni::jobject>*  layerIds) {
+jni::jarray<jbyte>* nativeQueryRenderedFeaturesForBox(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jfloat left, jni::jfloat top, jni::jfloat right, jni::jfloat bottom, jni::jarray<jni::jobject>*  layerIds) {
     using namespace mbgl::android::conversion;
     using namespace mapbox::geometry;
 
@@ -916,7 +1181,47 @@ jni::jarray<jni::jobject>* nativeQueryRenderedFeaturesForBox(JNIEnv *env, jni::j
     }
     box<double> box = { point<double>{ left, top}, point<double>{ right, bottom } };
 
-    return *convert<jni::jarray<jni::jobject>*, std::vector<mbgl::Feature>>(*env, nativeMapView->getMap().queryRenderedFeatures(box, layers));
+    return toFeatureBuffer(env, nativeMapView->getMap().queryRenderedFeaturesByLayer(box, layers));
+}
+
+jlong nativeSnapshotRenderedFeatures(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jarray<jni::jobject>* layerIds) {
+    using namespace mbgl::android::conversion;
+
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+
+    mbgl::optional<std::vector<std::string>> layers;
+    if (layerIds != nullptr && jni::GetArrayLength(*env, *layerIds) > 0) {
+        layers = toVector(*env, *layerIds);
+    }
+
+    return reinterpret_cast<jlong>(nativeMapView->getMap().snapshotRenderedFeatures(layers).release());
+}
+
+// Snapshots are queried on a worker thread and don't access the map.
+jni::jarray<jbyte>* nativeQueryRenderedFeaturesSnapshotForPoint(JNIEnv *env, jni::jobject* obj, jlong snapshotPtr, jni::jfloat x, jni::jfloat y) {
+    using namespace mapbox::geometry;
+
+    assert(snapshotPtr != 0);
+    auto snapshot = reinterpret_cast<mbgl::RenderedFeaturesSnapshot *>(snapshotPtr);
+    point<double> point = {x, y};
+
+    return toFeatureBuffer(env, snapshot->queryRenderedFeaturesByLayer(point));
+}
+
+jni::jarray<jbyte>* nativeQueryRenderedFeaturesSnapshotForBox(JNIEnv *env, jni::jobject* obj, jlong snapshotPtr, jni::jfloat left, jni::jfloat top, jni::jfloat right, jni::jfloat bottom) {
+    using namespace mapbox::geometry;
+
+    assert(snapshotPtr != 0);
+    auto snapshot = reinterpret_cast<mbgl::RenderedFeaturesSnapshot *>(snapshotPtr);
+    box<double> box = { point<double>{ left, top}, point<double>{ right, bottom } };
+
+    return toFeatureBuffer(env, snapshot->queryRenderedFeaturesByLayer(box));
+}
+
+void nativeReleaseRenderedFeaturesSnapshot(JNIEnv *env, jni::jobject* obj, jlong snapshotPtr) {
+    assert(snapshotPtr != 0);
+    delete reinterpret_cast<mbgl::RenderedFeaturesSnapshot *>(snapshotPtr);
 }
 
 void nativeOnLowMemory(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr) {
@@ -935,6 +1240,12 @@ void nativeSetDebug(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jboo
     nativeMapView->enableFps(debug);
 }
 
+void nativeSetFrameMetricsEnabled(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jboolean enabled) {
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+    nativeMapView->enableFrameMetrics(enabled);
+}
+
 void nativeToggleDebug(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr) {
     assert(nativeMapViewPtr != 0);
     NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
@@ -988,6 +1299,27 @@ jni::jobject* nativePixelForLatLng(JNIEnv *env, jni::jobject* obj, jlong nativeM
     return &jni::NewObject(*env, *pointFClass, *pointFConstructorId, static_cast<jfloat>(pixel.x), static_cast<jfloat>(pixel.y));
 }
 
+void nativePixelsForLatLngs(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jarray<jdouble>* jlatLngs, jni::jarray<jfloat>* jpixels, jint count) {
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+
+    NullCheck(*env, jlatLngs);
+    NullCheck(*env, jpixels);
+    std::size_t len = count;
+
+    std::vector<jdouble> latLngs(len * 2);
+    jni::GetArrayRegion(*env, *jlatLngs, 0, len * 2, latLngs.data());
+
+    std::vector<jfloat> pixels(len * 2);
+    for (std::size_t i = 0; i < len; i++) {
+        mbgl::ScreenCoordinate pixel = nativeMapView->getMap().pixelForLatLng(mbgl::LatLng(latLngs[i * 2], latLngs[i * 2 + 1]));
+        pixels[i * 2] = static_cast<jfloat>(pixel.x);
+        pixels[i * 2 + 1] = static_cast<jfloat>(pixel.y);
+    }
+
+    jni::SetArrayRegion(*env, *jpixels, 0, pixels.size(), pixels.data());
+}
+
 jni::jobject* nativeLatLngForPixel(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jfloat x, jfloat y) {
     assert(nativeMapViewPtr != 0);
     NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
@@ -1191,26 +1523,39 @@ void nativeRemoveSource(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr,
     }
 }
 
-void nativeAddImage(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jstring* name, jni::jint width, jni::jint height, jni::jfloat pixelRatio, jni::jarray<jbyte>* data) {
+void nativeAddImage(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jstring* name, jni::jobject* bitmap, jni::jfloat pixelRatio) {
     assert(nativeMapViewPtr != 0);
     NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
 
-    // Create Pre-multiplied image from byte[]
-    NullCheck(*env, data);
-    std::size_t size = jni::GetArrayLength(*env, *data);
-    mbgl::PremultipliedImage premultipliedImage(
-        { static_cast<uint32_t>(width), static_cast<uint32_t>(height) });
+    //Wrap the bitmap pixels in a SpriteImage with the correct pixel ratio
+    auto spriteImage = std::make_unique<mbgl::SpriteImage>(toPremultipliedImage(env, bitmap), float(pixelRatio));
 
-    if (premultipliedImage.bytes() != uint32_t(size)) {
-        throw mbgl::util::SpriteImageException("Sprite image pixel count mismatch");
-    }
+    nativeMapView->getMap().addImage(std_string_from_jstring(env, name), std::move(spriteImage));
+}
+
+void nativeAddImages(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jarray<jni::jobject>* jnames,
+        jni::jarray<jni::jobject>* jbitmaps, jni::jarray<jfloat>* jpixelRatios) {
+    using namespace mbgl::android::conversion;
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
 
-    jni::GetArrayRegion(*env, *data, 0, size, reinterpret_cast<jbyte*>(premultipliedImage.data.get()));
+    NullCheck(*env, jnames);
+    NullCheck(*env, jbitmaps);
+    NullCheck(*env, jpixelRatios);
+    std::vector<std::string> names = toVector(*env, *jnames);
+    std::size_t len = names.size();
 
-    //Wrap in a SpriteImage with the correct pixel ratio
-    auto spriteImage = std::make_unique<mbgl::SpriteImage>(std::move(premultipliedImage), float(pixelRatio));
+    std::vector<jfloat> pixelRatios(len);
+    jni::GetArrayRegion(*env, *jpixelRatios, 0, len, pixelRatios.data());
 
-    nativeMapView->getMap().addImage(std_string_from_jstring(env, name), std::move(spriteImage));
+    std::map<std::string, std::unique_ptr<const mbgl::SpriteImage>> images;
+    for (std::size_t i = 0; i < len; i++) {
+        jni::jobject* bitmap = jni::GetObjectArrayElement(*env, *jbitmaps, i);
+        images[names[i]] = std::make_unique<mbgl::SpriteImage>(toPremultipliedImage(env, bitmap), float(pixelRatios[i]));
+        jni::DeleteLocalRef(*env, bitmap);
+    }
+
+    nativeMapView->getMap().addImages(std::move(images));
 }
 
 void nativeRemoveImage(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jstring* name) {
@@ -1219,10 +1564,30 @@ void nativeRemoveImage(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, j
     nativeMapView->getMap().removeImage(std_string_from_jstring(env, name));
 }
 
-void nativeScheduleTakeSnapshot(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr) {
+void nativeBeginStyleTransaction(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr) {
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+    nativeMapView->getMap().beginStyleTransaction();
+}
+
+void nativeCommitStyleTransaction(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr) {
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+    nativeMapView->getMap().commitStyleTransaction();
+}
+
+jboolean nativeTakeSnapshot(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jobject* bitmap) {
+    assert(nativeMapViewPtr != 0);
+    NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
+    NullCheck(*env, bitmap);
+    return nativeMapView->renderSnapshot(jni::Unwrap(bitmap), nullptr);
+}
+
+jboolean nativeTakeSnapshotPixels(JNIEnv *env, jni::jobject* obj, jlong nativeMapViewPtr, jni::jobject* buffer) {
     assert(nativeMapViewPtr != 0);
     NativeMapView *nativeMapView = reinterpret_cast<NativeMapView *>(nativeMapViewPtr);
-    nativeMapView->scheduleTakeSnapshot();
+    NullCheck(*env, buffer);
+    return nativeMapView->renderSnapshot(nullptr, jni::Unwrap(buffer));
 }
 
 // Offline calls begin
@@ -1721,6 +2086,7 @@ void registerNatives(JavaVM *vm) {
     registerNativeLayers(env);
     registerNativeSources(env);
     ConnectivityListener::registerNative(env);
+    MapSnapshotter::registerNative(env);
 
     latLngClass = &jni::FindClass(env, "com/mapbox/mapboxsdk/geometry/LatLng");
     latLngClass = jni::NewGlobalRef(env, latLngClass).release();
@@ -1751,6 +2117,8 @@ void registerNatives(JavaVM *vm) {
     polylineAlphaId = &jni::GetFieldID(env, *polylineClass, "alpha", "F");
     polylineColorId = &jni::GetFieldID(env, *polylineClass, "color", "I");
     polylineWidthId = &jni::GetFieldID(env, *polylineClass, "width", "F");
+    polylineTrimStartId = &jni::GetFieldID(env, *polylineClass, "trimStart", "F");
+    polylineTrimEndId = &jni::GetFieldID(env, *polylineClass, "trimEnd", "F");
     polylinePointsId = &jni::GetFieldID(env, *polylineClass, "points", "Ljava/util/List;");
 
     polygonClass = &jni::FindClass(env, "com/mapbox/mapboxsdk/annotations/Polygon");
@@ -1790,10 +2158,10 @@ void registerNatives(JavaVM *vm) {
 
     jni::jclass& nativeMapViewClass = jni::FindClass(env, "com/mapbox/mapboxsdk/maps/NativeMapView");
 
-    onInvalidateId = &jni::GetMethodID(env, nativeMapViewClass, "onInvalidate", "()V");
+    onInvalidateId = &jni::GetMethodID(env, nativeMapViewClass, "onInvalidate", "(Z)V");
     onMapChangedId = &jni::GetMethodID(env, nativeMapViewClass, "onMapChanged", "(I)V");
     onFpsChangedId = &jni::GetMethodID(env, nativeMapViewClass, "onFpsChanged", "(D)V");
-    onSnapshotReadyId = &jni::GetMethodID(env, nativeMapViewClass, "onSnapshotReady","([B)V");
+    onFrameMetricsId = &jni::GetMethodID(env, nativeMapViewClass, "onFrameMetrics", "(JJJJIZ)V");
 
     #define MAKE_NATIVE_METHOD(name, sig) jni::MakeNativeMethod<decltype(name), name>( #name, sig )
 
@@ -1844,19 +2212,25 @@ void registerNatives(JavaVM *vm) {
         MAKE_NATIVE_METHOD(nativeSetBearingXY, "(JDDD)V"),
         MAKE_NATIVE_METHOD(nativeGetBearing, "(J)D"),
         MAKE_NATIVE_METHOD(nativeResetNorth, "(J)V"),
-        MAKE_NATIVE_METHOD(nativeAddMarkers, "(J[Lcom/mapbox/mapboxsdk/annotations/Marker;)[J"),
+        MAKE_NATIVE_METHOD(nativeAddMarkers, "(J[Lcom/mapbox/mapboxsdk/annotations/Marker;[Ljava/lang/String;)[J"),
+        MAKE_NATIVE_METHOD(nativeAddPackedMarkers, "(J[D[Ljava/lang/String;[I)[J"),
         MAKE_NATIVE_METHOD(nativeAddPolylines, "(J[Lcom/mapbox/mapboxsdk/annotations/Polyline;)[J"),
         MAKE_NATIVE_METHOD(nativeAddPolygons, "(J[Lcom/mapbox/mapboxsdk/annotations/Polygon;)[J"),
         MAKE_NATIVE_METHOD(nativeUpdateMarker, "(JJDDLjava/lang/String;)V"),
         MAKE_NATIVE_METHOD(nativeUpdatePolygon, "(JJLcom/mapbox/mapboxsdk/annotations/Polygon;)V"),
         MAKE_NATIVE_METHOD(nativeUpdatePolyline, "(JJLcom/mapbox/mapboxsdk/annotations/Polyline;)V"),
+        MAKE_NATIVE_METHOD(nativeAppendPolylinePoints, "(JJ[D)V"),
+        MAKE_NATIVE_METHOD(nativeSetPolylineTrimOffset, "(JJFF)V"),
+        MAKE_NATIVE_METHOD(nativeUpdateAnnotations, "(J[J[D[Ljava/lang/String;[J[Lcom/mapbox/mapboxsdk/annotations/Polyline;[[D[J[Lcom/mapbox/mapboxsdk/annotations/Polygon;[[D)V"),
         MAKE_NATIVE_METHOD(nativeRemoveAnnotations, "(J[J)V"),
         MAKE_NATIVE_METHOD(nativeQueryPointAnnotations, "(JLandroid/graphics/RectF;)[J"),
-        MAKE_NATIVE_METHOD(nativeAddAnnotationIcon, "(JLjava/lang/String;IIF[B)V"),
+        MAKE_NATIVE_METHOD(nativeAddAnnotationIcon, "(JLjava/lang/String;Landroid/graphics/Bitmap;F)V"),
+        MAKE_NATIVE_METHOD(nativeGetImageContentHash, "(JLandroid/graphics/Bitmap;)I"),
         MAKE_NATIVE_METHOD(nativeSetVisibleCoordinateBounds, "(J[Lcom/mapbox/mapboxsdk/geometry/LatLng;Landroid/graphics/RectF;DJ)V"),
         MAKE_NATIVE_METHOD(nativeOnLowMemory, "(J)V"),
         MAKE_NATIVE_METHOD(nativeSetDebug, "(JZ)V"),
         MAKE_NATIVE_METHOD(nativeToggleDebug, "(J)V"),
+        MAKE_NATIVE_METHOD(nativeSetFrameMetricsEnabled, "(JZ)V"),
         MAKE_NATIVE_METHOD(nativeGetDebug, "(J)Z"),
         MAKE_NATIVE_METHOD(nativeIsFullyLoaded, "(J)Z"),
         MAKE_NATIVE_METHOD(nativeSetReachability, "(JZ)V"),
@@ -1864,6 +2238,7 @@ void registerNatives(JavaVM *vm) {
         MAKE_NATIVE_METHOD(nativeProjectedMetersForLatLng, "(JDD)Lcom/mapbox/mapboxsdk/geometry/ProjectedMeters;"),
         MAKE_NATIVE_METHOD(nativeLatLngForProjectedMeters, "(JDD)Lcom/mapbox/mapboxsdk/geometry/LatLng;"),
         MAKE_NATIVE_METHOD(nativePixelForLatLng, "(JDD)Landroid/graphics/PointF;"),
+        MAKE_NATIVE_METHOD(nativePixelsForLatLngs, "(J[D[FI)V"),
         MAKE_NATIVE_METHOD(nativeLatLngForPixel, "(JFF)Lcom/mapbox/mapboxsdk/geometry/LatLng;"),
         MAKE_NATIVE_METHOD(nativeGetTopOffsetPixelsForAnnotationSymbol, "(JLjava/lang/String;)D"),
         MAKE_NATIVE_METHOD(nativeJumpTo, "(JDDDDD)V"),
@@ -1877,12 +2252,20 @@ void registerNatives(JavaVM *vm) {
         MAKE_NATIVE_METHOD(nativeAddSource, "(JJ)V"),
         MAKE_NATIVE_METHOD(nativeRemoveSourceById, "(JLjava/lang/String;)V"),
         MAKE_NATIVE_METHOD(nativeRemoveSource, "(JJ)V"),
-        MAKE_NATIVE_METHOD(nativeAddImage, "(JLjava/lang/String;IIF[B)V"),
+        MAKE_NATIVE_METHOD(nativeAddImage, "(JLjava/lang/String;Landroid/graphics/Bitmap;F)V"),
+        MAKE_NATIVE_METHOD(nativeAddImages, "(J[Ljava/lang/String;[Landroid/graphics/Bitmap;[F)V"),
         MAKE_NATIVE_METHOD(nativeRemoveImage, "(JLjava/lang/String;)V"),
+        MAKE_NATIVE_METHOD(nativeBeginStyleTransaction, "(J)V"),
+        MAKE_NATIVE_METHOD(nativeCommitStyleTransaction, "(J)V"),
         MAKE_NATIVE_METHOD(nativeSetContentPadding, "(JDDDD)V"),
-        MAKE_NATIVE_METHOD(nativeScheduleTakeSnapshot, "(J)V"),
-        MAKE_NATIVE_METHOD(nativeQueryRenderedFeaturesForPoint, "(JFF[Ljava/lang/String;)[Lcom/mapbox/services/commons/geojson/Feature;"),
-        MAKE_NATIVE_METHOD(nativeQueryRenderedFeaturesForBox, "(JFFFF[Ljava/lang/String;)[Lcom/mapbox/services/commons/geojson/Feature;"),
+        MAKE_NATIVE_METHOD(nativeTakeSnapshot, "(JLandroid/graphics/Bitmap;)Z"),
+        MAKE_NATIVE_METHOD(nativeTakeSnapshotPixels, "(JLjava/nio/ByteBuffer;)Z"),
+        MAKE_NATIVE_METHOD(nativeQueryRenderedFeaturesForPoint, "(JFF[Ljava/lang/String;)[B"),
+        MAKE_NATIVE_METHOD(nativeQueryRenderedFeaturesForBox, "(JFFFF[Ljava/lang/String;)[B"),
+        MAKE_NATIVE_METHOD(nativeSnapshotRenderedFeatures, "(J[Ljava/lang/String;)J"),
+        MAKE_NATIVE_METHOD(nativeQueryRenderedFeaturesSnapshotForPoint, "(JFF)[B"),
+        MAKE_NATIVE_METHOD(nativeQueryRenderedFeaturesSnapshotForBox, "(JFFFF)[B"),
+        MAKE_NATIVE_METHOD(nativeReleaseRenderedFeaturesSnapshot, "(J)V"),
         MAKE_NATIVE_METHOD(nativeSetAPIBaseURL, "(JLjava/lang/String;)V")
     );
 
@@ -19,7 +19,7 @@ extern std::string androidRelease;
 extern jmethodID onInvalidateId;
 extern jmethodID onMapChangedId;
 extern jmethodID onFpsChangedId;
-extern jmethodID onSnapshotReadyId;
+extern jmethodID onFrameMetricsId;
 
 extern bool attach_jni_thread(JavaVM* vm, JNIEnv** env, std::string threadName);
 extern void detach_jni_thread(JavaVM* vm, JNIEnv** env, bool detach);
@@ -0,0 +1,133 @@
+#include "map_snapshotter.hpp"
+#include "attach_env.hpp"
+
+#include <mbgl/util/logging.hpp>
+
+#include <android/bitmap.h>
+
+#include <cmath>
+#include <cstring>
+
+namespace mbgl {
+namespace android {
+
+    /**
+     * Invoked when the construction is initiated from the jvm
+     */
+    MapSnapshotter::MapSnapshotter(jni::JNIEnv& env, jni::String cachePath, jni::String assetRoot)
+        : fileSource(jni::Make<std::string>(env, cachePath), jni::Make<std::string>(env, assetRoot)),
+          threadPool(2),
+          snapshotter(fileSource, threadPool) {
+    }
+
+    MapSnapshotter::~MapSnapshotter() = default;
+
+    void MapSnapshotter::setAccessToken(jni::JNIEnv& env, jni::String accessToken) {
+        fileSource.setAccessToken(jni::Make<std::string>(env, accessToken));
+    }
+
+    void MapSnapshotter::start(jni::JNIEnv& env, jni::String styleURL, jni::String styleJSON,
+                               jni::jint width, jni::jint height, jni::jfloat pixelRatio,
+                               jni::jdouble latitude, jni::jdouble longitude,
+                               jni::jdouble zoom, jni::jdouble bearing, jni::jdouble tilt,
+                               jni::Object<Snapshot> snapshot) {
+        mbgl::MapSnapshotter::Options options;
+        if (styleURL) {
+            options.styleURL = jni::Make<std::string>(env, styleURL);
+        }
+        if (styleJSON) {
+            options.styleJSON = jni::Make<std::string>(env, styleJSON);
+        }
+        options.size = { static_cast<uint32_t>(width), static_cast<uint32_t>(height) };
+        options.pixelRatio = pixelRatio;
+
+        if (!std::isnan(latitude)) {
+            options.camera.center = mbgl::LatLng(latitude, longitude);
+        }
+        if (zoom != -1) {
+            options.camera.zoom = zoom;
+        }
+        if (bearing != -1) {
+            options.camera.angle = (-bearing * M_PI) / 180;
+        }
+        if (tilt != -1) {
+            options.camera.pitch = tilt * M_PI / 180;
+        }
+
+        pending.push_back({ snapshot.NewGlobalRef(env), nullptr });
+        pending.back().request = snapshotter.snapshot(std::move(options),
+            [this] (std::exception_ptr error, PremultipliedImage image) {
+                onSnapshot(error, std::move(image));
+            });
+    }
+
+    void MapSnapshotter::onSnapshot(std::exception_ptr error, PremultipliedImage image) {
+        PendingSnapshot completed = std::move(pending.front());
+        pending.pop_front();
+
+        android::UniqueEnv env = android::AttachEnv();
+
+        static auto getBitmap = Snapshot::javaClass.GetMethod<jni::Object<Bitmap> ()>(*env, "getBitmap");
+        static auto onSnapshotReady = Snapshot::javaClass.GetMethod<void ()>(*env, "onSnapshotReady");
+        static auto onSnapshotFailed = Snapshot::javaClass.GetMethod<void (jni::String)>(*env, "onSnapshotFailed");
+
+        std::string message;
+        if (error) {
+            try {
+                std::rethrow_exception(error);
+            } catch (const std::exception& e) {
+                message = e.what();
+            }
+        } else {
+            // Android stores bitmaps premultiplied, in the same layout
+            jobject bitmap = jni::Unwrap(completed.snapshot->Call(*env, getBitmap).Get());
+
+            AndroidBitmapInfo info;
+            void* pixels = nullptr;
+            if (AndroidBitmap_getInfo(&*env, bitmap, &info) != ANDROID_BITMAP_RESULT_SUCCESS ||
+                info.width != image.size.width || info.height != image.size.height ||
+                AndroidBitmap_lockPixels(&*env, bitmap, &pixels) != ANDROID_BITMAP_RESULT_SUCCESS) {
+                message = "Could not copy the snapshot into the bitmap";
+            } else {
+                const size_t rowBytes = image.size.width * 4;
+                for (uint32_t y = 0; y < info.height; y++) {
+                    std::memcpy(reinterpret_cast<uint8_t*>(pixels) + y * info.stride,
+                                image.data.get() + y * rowBytes, rowBytes);
+                }
+                AndroidBitmap_unlockPixels(&*env, bitmap);
+            }
+        }
+
+        if (message.empty()) {
+            completed.snapshot->Call(*env, onSnapshotReady);
+        } else {
+            mbgl::Log::Error(mbgl::Event::Android, "Snapshot failed: %s", message.c_str());
+            completed.snapshot->Call(*env, onSnapshotFailed, jni::Make<jni::String>(*env, message));
+        }
+    }
+
+    jni::Class<MapSnapshotter> MapSnapshotter::javaClass;
+    jni::Class<MapSnapshotter::Snapshot> MapSnapshotter::Snapshot::javaClass;
+
+    void MapSnapshotter::registerNative(jni::JNIEnv& env) {
+        //Lookup the classes
+        MapSnapshotter::javaClass = *jni::Class<MapSnapshotter>::Find(env).NewGlobalRef(env).release();
+        Snapshot::javaClass = *jni::Class<Snapshot>::Find(env).NewGlobalRef(env).release();
+
+        #define METHOD(MethodPtr, name) jni::MakeNativePeerMethod<decltype(MethodPtr), (MethodPtr)>(name)
+
+        //Register the peer
+        jni::RegisterNativePeer<MapSnapshotter>(
+            env,
+            MapSnapshotter::javaClass,
+            "nativePtr",
+            std::make_unique<MapSnapshotter, JNIEnv&, jni::String, jni::String>,
+            "initialize",
+            "finalize",
+            METHOD(&MapSnapshotter::setAccessToken, "nativeSetAccessToken"),
+            METHOD(&MapSnapshotter::start, "nativeStart")
+        );
+    }
+
+} // namespace android
+} // namespace mbgl
@@ -0,0 +1,69 @@
+#pragma once
+
+#include <mbgl/map/map_snapshotter.hpp>
+#include <mbgl/storage/default_file_source.hpp>
+#include <mbgl/util/default_thread_pool.hpp>
+#include <mbgl/util/noncopyable.hpp>
+
+#include <jni/jni.hpp>
+
+#include <list>
+#include <memory>
+
+namespace mbgl {
+namespace android {
+
+class MapSnapshotter : private mbgl::util::noncopyable {
+public:
+
+    static constexpr auto Name() { return "com/mapbox/mapboxsdk/snapshotter/MapSnapshotter"; };
+
+    static jni::Class<MapSnapshotter> javaClass;
+
+    static void registerNative(jni::JNIEnv&);
+
+    // A snapshot request, holding the bitmap the snapshot is copied into
+    struct Snapshot {
+        static constexpr auto Name() { return "com/mapbox/mapboxsdk/snapshotter/MapSnapshotter$Snapshot"; };
+
+        static jni::Class<Snapshot> javaClass;
+    };
+
+    struct Bitmap {
+        static constexpr auto Name() { return "android/graphics/Bitmap"; };
+    };
+
+    /*
+     * Called when a Java object was created from the jvm side
+     */
+    MapSnapshotter(jni::JNIEnv&, jni::String cachePath, jni::String assetRoot);
+
+    ~MapSnapshotter();
+
+    void setAccessToken(jni::JNIEnv&, jni::String);
+
+    // Zoom, bearing and tilt of -1 and a NaN latitude are left unchanged, see mbgl::MapSnapshotter::Options
+    void start(jni::JNIEnv&, jni::String styleURL, jni::String styleJSON,
+               jni::jint width, jni::jint height, jni::jfloat pixelRatio,
+               jni::jdouble latitude, jni::jdouble longitude,
+               jni::jdouble zoom, jni::jdouble bearing, jni::jdouble tilt,
+               jni::Object<Snapshot>);
+
+private:
+    void onSnapshot(std::exception_ptr, PremultipliedImage);
+
+    struct PendingSnapshot {
+        jni::UniqueObject<Snapshot> snapshot;
+        std::unique_ptr<AsyncRequest> request;
+    };
+
+    mbgl::DefaultFileSource fileSource;
+    mbgl::ThreadPool threadPool;
+    mbgl::MapSnapshotter snapshotter;
+
+    // Snapshots are rendered in the order they were requested
+    std::list<PendingSnapshot> pending;
+};
+
+} // namespace android
+} // namespace mbgl
@@ -4,10 +4,12 @@
 #include <cstdlib>
 #include <ctime>
 #include <cassert>
+#include <cstring>
 #include <memory>
 #include <list>
 #include <tuple>
 
+#include <android/bitmap.h>
 #include <sys/system_properties.h>
 
 #include <mbgl/util/platform.hpp>
@@ -17,6 +19,7 @@
 #include <mbgl/gl/context.hpp>
 #include <mbgl/util/constants.hpp>
 #include <mbgl/util/image.hpp>
+#include <mbgl/util/premultiply.hpp>
 
 namespace mbgl {
 namespace android {
@@ -168,7 +171,11 @@ void NativeMapView::invalidate() {
     assert(vm != nullptr);
     assert(obj != nullptr);
 
-    env->CallVoidMethod(obj, onInvalidateId);
+    // frames that only advance a style transition can be rendered at a lower rate, camera animations can't
+    const bool styleTransition = map && map->isTransitioningStyle()
+            && !map->isPanning() && !map->isScaling() && !map->isRotating() && !map->isGestureInProgress();
+
+    env->CallVoidMethod(obj, onInvalidateId, static_cast<jboolean>(styleTransition));
     if (env->ExceptionCheck()) {
         env->ExceptionDescribe();
     }
@@ -185,25 +192,12 @@ void NativeMapView::render() {
     updateViewBinding();
     map->render(*this);
 
-    if(snapshot){
-         snapshot = false;
-
-         // take snapshot
-         auto image = getContext().readFramebuffer<mbgl::PremultipliedImage>(getFramebufferSize());
-
-         // encode and convert to jbytes
-         std::string string = encodePNG(image);
-         jbyteArray arr = env->NewByteArray(string.length());
-         env->SetByteArrayRegion(arr,0,string.length(),(jbyte*)string.c_str());
-
-         // invoke Mapview#OnSnapshotReady
-         env->CallVoidMethod(obj, onSnapshotReadyId, arr);
-         if (env->ExceptionCheck()) {
-             env->ExceptionDescribe();
-         }
+    if (snapshotBitmap != nullptr || snapshotBuffer != nullptr) {
+        snapshotCopied = copySnapshot();
     }
 
     if ((display != EGL_NO_DISPLAY) && (surface != EGL_NO_SURFACE)) {
+        const mbgl::TimePoint swapStart = mbgl::Clock::now();
         if (!eglSwapBuffers(display, surface)) {
             mbgl::Log::Error(mbgl::Event::OpenGL, "eglSwapBuffers() returned error %d",
                              eglGetError());
@@ -211,6 +205,7 @@ void NativeMapView::render() {
         }
 
         updateFps();
+        updateFrameMetrics(mbgl::Clock::now() - swapStart);
     } else {
         mbgl::Log::Info(mbgl::Event::Android, "Not swapping as we are not ready");
     }
@@ -445,8 +440,64 @@ void NativeMapView::destroySurface() {
     }
 }
 
-void NativeMapView::scheduleTakeSnapshot() {
-    snapshot = true;
+bool NativeMapView::renderSnapshot(jobject bitmap, jobject buffer) {
+    snapshotBitmap = bitmap;
+    snapshotBuffer = buffer;
+    snapshotCopied = false;
+
+    render();
+
+    snapshotBitmap = nullptr;
+    snapshotBuffer = nullptr;
+    return snapshotCopied;
+}
+
+bool NativeMapView::copySnapshot() {
+    // Rows are flipped while reading, the framebuffer origin is at the bottom
+    auto image = getContext().readFramebuffer<mbgl::PremultipliedImage>(getFramebufferSize());
+
+    if (snapshotBitmap != nullptr) {
+        AndroidBitmapInfo info;
+        if (AndroidBitmap_getInfo(env, snapshotBitmap, &info) != ANDROID_BITMAP_RESULT_SUCCESS) {
+            mbgl::Log::Error(mbgl::Event::Android, "Could not read snapshot bitmap info");
+            return false;
+        }
+
+        if (info.format != ANDROID_BITMAP_FORMAT_RGBA_8888 ||
+            info.width != image.size.width || info.height != image.size.height) {
+            mbgl::Log::Error(mbgl::Event::Android, "Snapshot bitmap must be a %ux%u ARGB_8888 bitmap",
+                             image.size.width, image.size.height);
+            return false;
+        }
+
+        void* pixels = nullptr;
+        if (AndroidBitmap_lockPixels(env, snapshotBitmap, &pixels) != ANDROID_BITMAP_RESULT_SUCCESS) {
+            mbgl::Log::Error(mbgl::Event::Android, "Could not lock snapshot bitmap pixels");
+            return false;
+        }
+
+        // Android stores these premultiplied, in the same layout
+        const size_t rowBytes = image.size.width * 4;
+        for (uint32_t y = 0; y < info.height; y++) {
+            std::memcpy(reinterpret_cast<uint8_t*>(pixels) + y * info.stride,
+                        image.data.get() + y * rowBytes, rowBytes);
+        }
+
+        AndroidBitmap_unlockPixels(env, snapshotBitmap);
+        return true;
+    }
+
+    void* address = env->GetDirectBufferAddress(snapshotBuffer);
+    if (address == nullptr ||
+        env->GetDirectBufferCapacity(snapshotBuffer) < static_cast<jlong>(image.bytes())) {
+        mbgl::Log::Error(mbgl::Event::Android, "Snapshot buffer must be a direct buffer of at least %zu bytes",
+                         image.bytes());
+        return false;
+    }
+
+    mbgl::UnassociatedImage pixels = mbgl::util::unpremultiply(std::move(image));
+    std::memcpy(address, pixels.data.get(), pixels.bytes());
+    return true;
 }
 
 // Speed
@@ -694,6 +745,35 @@ void NativeMapView::updateFps() {
     }
 }
 
+void NativeMapView::enableFrameMetrics(bool enable) {
+    frameMetricsEnabled = enable;
+}
+
+void NativeMapView::updateFrameMetrics(mbgl::Duration swapTime) {
+    if (!frameMetricsEnabled) {
+        return;
+    }
+
+    using std::chrono::nanoseconds;
+    using std::chrono::duration_cast;
+
+    const mbgl::FrameStatistics& statistics = map->getFrameStatistics();
+
+    assert(vm != nullptr);
+    assert(obj != nullptr);
+
+    env->CallVoidMethod(obj, onFrameMetricsId,
+                        static_cast<jlong>(duration_cast<nanoseconds>(statistics.updateTime).count()),
+                        static_cast<jlong>(duration_cast<nanoseconds>(statistics.layoutTime).count()),
+                        static_cast<jlong>(duration_cast<nanoseconds>(statistics.renderTime).count()),
+                        static_cast<jlong>(duration_cast<nanoseconds>(swapTime).count()),
+                        static_cast<jint>(statistics.uploadedTiles),
+                        static_cast<jboolean>(statistics.fullyRendered));
+    if (env->ExceptionCheck()) {
+        env->ExceptionDescribe();
+    }
+}
+
 void NativeMapView::resizeView(int w, int h) {
     width = w;
     height = h;
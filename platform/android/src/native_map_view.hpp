@@ -47,15 +47,22 @@ public:
     void enableFps(bool enable);
     void updateFps();
 
+    // Reports the statistics of every rendered frame to NativeMapView#onFrameMetrics
+    void enableFrameMetrics(bool enable);
+    void updateFrameMetrics(mbgl::Duration swapTime);
+
     void resizeView(int width, int height);
     void resizeFramebuffer(int width, int height);
     mbgl::EdgeInsets getInsets() { return insets;}
     void setInsets(mbgl::EdgeInsets insets_);
 
-    void scheduleTakeSnapshot();
+    // Renders a frame and copies it into a premultiplied ARGB_8888 android.graphics.Bitmap, or as unpremultiplied
+    // RGBA into a direct java.nio.ByteBuffer. Returns whether the pixels were copied.
+    bool renderSnapshot(jobject bitmap, jobject buffer);
 
 private:
     EGLConfig chooseConfig(const EGLConfig configs[], EGLint numConfigs);
+    bool copySnapshot();
 
 private:
     JavaVM *vm = nullptr;
@@ -81,7 +88,10 @@ private:
 
     bool firstTime = false;
     bool fpsEnabled = false;
-    bool snapshot = false;
+    bool frameMetricsEnabled = false;
+    jobject snapshotBitmap = nullptr;
+    jobject snapshotBuffer = nullptr;
+    bool snapshotCopied = false;
     double fps = 0.0;
 
     int width = 0;
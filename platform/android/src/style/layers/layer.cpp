@@ -84,6 +84,24 @@ namespace android {
         }
     }
 
+    void Layer::setProperties(jni::JNIEnv& env,
+                              jni::Array<jni::String> jlayoutNames, jni::Array<jni::Object<>> jlayoutValues,
+                              jni::Array<jni::String> jpaintNames, jni::Array<jni::Object<>> jpaintValues) {
+        //Layout properties first, as done when parsing a style
+        std::size_t layoutCount = jlayoutNames.Length(env);
+        for (std::size_t i = 0; i < layoutCount; i++) {
+            //Release the references of each property, a batch can exceed the local reference capacity
+            jni::UniqueLocalFrame frame = jni::PushLocalFrame(env, 2);
+            setLayoutProperty(env, jlayoutNames.Get(env, i), jlayoutValues.Get(env, i));
+        }
+
+        std::size_t paintCount = jpaintNames.Length(env);
+        for (std::size_t i = 0; i < paintCount; i++) {
+            jni::UniqueLocalFrame frame = jni::PushLocalFrame(env, 2);
+            setPaintProperty(env, jpaintNames.Get(env, i), jpaintValues.Get(env, i));
+        }
+    }
+
     void Layer::setFilter(jni::JNIEnv& env, jni::Array<jni::Object<>> jfilter) {
         using namespace mbgl::style;
         using namespace mbgl::style::conversion;
@@ -163,6 +181,7 @@ namespace android {
             METHOD(&Layer::getId, "nativeGetId"),
             METHOD(&Layer::setLayoutProperty, "nativeSetLayoutProperty"),
             METHOD(&Layer::setPaintProperty, "nativeSetPaintProperty"),
+            METHOD(&Layer::setProperties, "nativeSetProperties"),
             METHOD(&Layer::setFilter, "nativeSetFilter"),
             METHOD(&Layer::setSourceLayer, "nativeSetSourceLayer"),
             METHOD(&Layer::getMinZoom, "nativeGetMinZoom"),
@@ -49,6 +49,10 @@ public:
 
     void setPaintProperty(jni::JNIEnv&, jni::String, jni::Object<> value);
 
+    void setProperties(jni::JNIEnv&,
+                       jni::Array<jni::String> layoutNames, jni::Array<jni::Object<>> layoutValues,
+                       jni::Array<jni::String> paintNames, jni::Array<jni::Object<>> paintValues);
+
     //Zoom
 
     jni::jfloat getMinZoom(jni::JNIEnv&);
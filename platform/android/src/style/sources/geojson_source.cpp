@@ -2,14 +2,201 @@
 
 #include "../android_conversion.hpp"
 #include "../conversion/geojson.hpp"
+#include "../../attach_env.hpp"
+#include "../../geometry/conversion/feature_buffer.hpp"
 #include <mbgl/style/conversion.hpp>
 #include <mbgl/style/conversion/geojson_options.hpp>
+#include <mbgl/util/rapidjson.hpp>
+#include <mbgl/util/string.hpp>
 
+#include <mbgl/util/noncopyable.hpp>
+
+#include <rapidjson/error/en.h>
+
+#include <atomic>
+#include <cassert>
+#include <cerrno>
+#include <cstring>
+#include <fcntl.h>
+#include <memory>
+#include <sstream>
 #include <string>
+#include <sys/mman.h>
+#include <sys/stat.h>
+#include <unistd.h>
+#include <vector>
 
 namespace mbgl {
 namespace android {
 
+namespace {
+
+// Owns a file descriptor, closes it when destroyed
+class FileDescriptor : private util::noncopyable {
+public:
+    explicit FileDescriptor(int fd_) : fd(fd_) {
+    }
+
+    ~FileDescriptor() {
+        if (fd >= 0) {
+            close(fd);
+        }
+    }
+
+    int get() const {
+        return fd;
+    }
+
+    int release() {
+        int released = fd;
+        fd = -1;
+        return released;
+    }
+
+private:
+    int fd;
+};
+
+GeoJSON convertDocument(const JSDocument& d) {
+    if (d.HasParseError()) {
+        std::stringstream message;
+        message << d.GetErrorOffset() << " - " << rapidjson::GetParseError_En(d.GetParseError());
+        throw std::runtime_error(message.str());
+    }
+
+    style::conversion::Result<GeoJSON> geoJSON = style::conversion::convertGeoJSON<JSValue>(d);
+    if (!geoJSON) {
+        throw std::runtime_error(geoJSON.error().message);
+    }
+    return std::move(*geoJSON);
+}
+
+// A rapidjson input stream reading a file through a fixed size buffer, like rapidjson::FileReadStream.
+// The cancellation flag is checked whenever the buffer is refilled, a cancelled stream ends early.
+class CancellableReadStream : private util::noncopyable {
+public:
+    typedef char Ch;
+
+    CancellableReadStream(int fd_, char* buffer_, std::size_t bufferSize_, const std::atomic<bool>& cancelled_)
+        : fd(fd_), buffer(buffer_), bufferSize(bufferSize_), cancelled(cancelled_) {
+        assert(bufferSize >= 2);
+        read();
+    }
+
+    Ch Peek() const { return *current; }
+    Ch Take() { Ch c = *current; next(); return c; }
+    std::size_t Tell() const { return count + static_cast<std::size_t>(current - buffer); }
+
+    // Not implemented, the stream is only read from
+    void Put(Ch) { assert(false); }
+    void Flush() { assert(false); }
+    Ch* PutBegin() { assert(false); return nullptr; }
+    std::size_t PutEnd(Ch*) { assert(false); return 0; }
+
+private:
+    void next() {
+        if (current < bufferLast) {
+            ++current;
+        } else if (!eof) {
+            count += readCount;
+            read();
+        }
+    }
+
+    void read() {
+        readCount = 0;
+        if (!cancelled) {
+            ssize_t result;
+            do {
+                result = ::read(fd, buffer, bufferSize - 1);
+            } while (result < 0 && errno == EINTR);
+            readCount = result > 0 ? static_cast<std::size_t>(result) : 0;
+        }
+
+        current = buffer;
+        if (readCount == 0) {
+            // end of the file, a read error or a cancelled update
+            buffer[0] = '\0';
+            bufferLast = buffer;
+            eof = true;
+        } else {
+            bufferLast = buffer + readCount - 1;
+        }
+    }
+
+    const int fd;
+    Ch* const buffer;
+    const std::size_t bufferSize;
+    const std::atomic<bool>& cancelled;
+    std::size_t readCount = 0;
+    std::size_t count = 0;
+    Ch* bufferLast = nullptr;
+    Ch* current = nullptr;
+    bool eof = false;
+};
+
+// Parses the json of a file without reading it into memory first: regular files are memory mapped,
+// other files (pipes) are parsed from a stream with a fixed size buffer. A stream stops being read
+// once the update is cancelled and the file is closed, which stops the java side writing into a pipe.
+GeoJSON parseFile(FileDescriptor& file, const std::atomic<bool>& cancelled) {
+    JSDocument d;
+
+    struct stat info;
+    if (fstat(file.get(), &info) == 0 && S_ISREG(info.st_mode) && info.st_size > 0) {
+        void* mapped = mmap(nullptr, info.st_size, PROT_READ, MAP_PRIVATE, file.get(), 0);
+        if (mapped != MAP_FAILED) {
+            madvise(mapped, info.st_size, MADV_SEQUENTIAL);
+            d.Parse(static_cast<const char*>(mapped), info.st_size);
+            munmap(mapped, info.st_size);
+            return convertDocument(d);
+        }
+    }
+
+    char buffer[65536];
+    CancellableReadStream input(file.get(), buffer, sizeof(buffer), cancelled);
+    d.ParseStream(input);
+    close(file.release());
+    if (cancelled) {
+        throw std::runtime_error("GeoJSON update cancelled");
+    }
+    return convertDocument(d);
+}
+
+// Reports the outcome of an asynchronous update to the java side. An update that is dropped before
+// it completes, because it's superseded or the source is destroyed, is reported as cancelled.
+class PendingUpdate : private util::noncopyable {
+public:
+    explicit PendingUpdate(jni::jlong requestId_) : requestId(requestId_) {
+    }
+
+    ~PendingUpdate() {
+        if (completed) {
+            return;
+        }
+
+        android::UniqueEnv env = android::AttachEnv();
+        static auto onGeoJsonUpdateCancelled = GeoJSONSource::javaClass.GetStaticMethod<void (jni::jlong)>(*env, "onGeoJsonUpdateCancelled");
+        GeoJSONSource::javaClass.Call(*env, onGeoJsonUpdateCancelled, requestId);
+    }
+
+    void complete(std::exception_ptr error) {
+        completed = true;
+
+        android::UniqueEnv env = android::AttachEnv();
+        jni::UniqueLocalFrame frame = jni::PushLocalFrame(*env, 1);
+
+        static auto onGeoJsonUpdated = GeoJSONSource::javaClass.GetStaticMethod<void (jni::jlong, jni::String)>(*env, "onGeoJsonUpdated");
+        GeoJSONSource::javaClass.Call(*env, onGeoJsonUpdated, requestId,
+            error ? jni::Make<jni::String>(*env, util::toString(error)) : jni::String());
+    }
+
+private:
+    const jni::jlong requestId;
+    bool completed = false;
+};
+
+} // namespace
+
     GeoJSONSource::GeoJSONSource(jni::JNIEnv& env, jni::String sourceId, jni::Object<> options)
         : Source(env, std::make_unique<mbgl::style::GeoJSONSource>(
                 jni::Make<std::string>(env, sourceId),
@@ -22,10 +209,13 @@ namespace android {
         : Source(map, coreSource) {
     }
 
-    GeoJSONSource::~GeoJSONSource() = default;
+    GeoJSONSource::~GeoJSONSource() {
+        cancelPendingParse();
+    }
 
     void GeoJSONSource::setGeoJSON(jni::JNIEnv& env, jni::Object<> json) {
         using namespace mbgl::style::conversion;
+        cancelPendingParse();
 
         //Convert the jni object
         Result<GeoJSON> converted = convert<GeoJSON>(Value(env, json));
@@ -38,7 +228,130 @@ namespace android {
         source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::setGeoJSON(*converted);
     }
 
+    void GeoJSONSource::setGeoJSONBuffer(jni::JNIEnv& env, jni::Object<> buffer, jni::jint length) {
+        optional<FeatureCollection> features = readFeatures(env, buffer, length);
+        if (!features) {
+            return;
+        }
+        cancelPendingParse();
+
+        //Update the core source
+        source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::setGeoJSON(GeoJSON { std::move(*features) });
+    }
+
+    void GeoJSONSource::setGeoJSONStringAsync(jni::JNIEnv& env, jni::String json, jni::jlong requestId) {
+        auto data = std::make_shared<std::string>(jni::Make<std::string>(env, json));
+
+        setGeoJSONAsync([data] (const std::atomic<bool>&) {
+            JSDocument d;
+            d.Parse(data->c_str());
+            return convertDocument(d);
+        }, requestId);
+    }
+
+    void GeoJSONSource::setGeoJSONFileAsync(jni::JNIEnv& env, jni::String jpath, jni::jlong requestId) {
+        std::string path = jni::Make<std::string>(env, jpath);
+
+        setGeoJSONAsync([path] (const std::atomic<bool>& cancelled) {
+            FileDescriptor file(open(path.c_str(), O_RDONLY));
+            if (file.get() < 0) {
+                throw std::runtime_error("Failed to open " + path + ": " + std::strerror(errno));
+            }
+            return parseFile(file, cancelled);
+        }, requestId);
+    }
+
+    void GeoJSONSource::setGeoJSONFileDescriptorAsync(jni::JNIEnv&, jni::jint fd, jni::jlong requestId) {
+        //Owned from here on, closed once parsed, or when the update is cancelled. A cancelled update stops
+        //reading at the next buffer refill, closing the read end of a pipe stops the java side writing into it.
+        auto file = std::make_shared<FileDescriptor>(fd);
+
+        setGeoJSONAsync([file] (const std::atomic<bool>& cancelled) {
+            return parseFile(*file, cancelled);
+        }, requestId);
+    }
+
+    void GeoJSONSource::setGeoJSONBufferAsync(jni::JNIEnv& env, jni::Object<> buffer, jni::jint length, jni::jlong requestId) {
+        auto address = reinterpret_cast<const uint8_t*>(env.GetDirectBufferAddress(jni::Unwrap(buffer.Get())));
+        if (!address || length < 0 || length > env.GetDirectBufferCapacity(jni::Unwrap(buffer.Get()))) {
+            mbgl::Log::Error(mbgl::Event::JNI, "Error reading features: invalid buffer");
+            return;
+        }
+
+        //Copied, the java buffer is only guaranteed to stay alive during this call
+        auto data = std::make_shared<std::vector<uint8_t>>(address, address + length);
+
+        setGeoJSONAsync([data] (const std::atomic<bool>&) {
+            return GeoJSON { conversion::FeatureBufferReader(data->data(), data->size()).read() };
+        }, requestId);
+    }
+
+    void GeoJSONSource::setGeoJSONAsync(std::function<GeoJSON (const std::atomic<bool>&)> parse, jni::jlong requestId) {
+        //Signalled before the core source cancels the pending update, which waits for a running parse
+        cancelPendingParse();
+        auto cancelled = std::make_shared<std::atomic<bool>>(false);
+        pendingParseCancelled = cancelled;
+
+        //Only the request id is passed along, no java references are held while parsing
+        auto update = std::make_shared<PendingUpdate>(requestId);
+        source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::setGeoJSONAsync([parse, cancelled] {
+            return parse(*cancelled);
+        }, [update](std::exception_ptr error) {
+            update->complete(error);
+        });
+    }
+
+    void GeoJSONSource::cancelPendingParse() {
+        if (pendingParseCancelled) {
+            *pendingParseCancelled = true;
+            pendingParseCancelled.reset();
+        }
+    }
+
+    void GeoJSONSource::addFeatures(jni::JNIEnv& env, jni::Object<> buffer, jni::jint length) {
+        optional<FeatureCollection> features = readFeatures(env, buffer, length);
+        if (features) {
+            source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::addFeatures(*features);
+        }
+    }
+
+    void GeoJSONSource::updateFeatures(jni::JNIEnv& env, jni::Object<> buffer, jni::jint length) {
+        optional<FeatureCollection> features = readFeatures(env, buffer, length);
+        if (features) {
+            source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::updateFeatures(*features);
+        }
+    }
+
+    void GeoJSONSource::removeFeatures(jni::JNIEnv& env, jni::Array<jni::String> jids) {
+        std::vector<FeatureIdentifier> ids;
+        std::size_t length = jids.Length(env);
+        ids.reserve(length);
+        for (std::size_t i = 0; i < length; i++) {
+            ids.push_back(jni::Make<std::string>(env, jids.Get(env, i)));
+        }
+
+        source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::removeFeatures(ids);
+    }
+
+    optional<FeatureCollection> GeoJSONSource::readFeatures(jni::JNIEnv& env, jni::Object<> buffer, jni::jint length) {
+        //The buffer is direct, read it in place
+        auto data = reinterpret_cast<const uint8_t*>(env.GetDirectBufferAddress(jni::Unwrap(buffer.Get())));
+        if (!data || length < 0 || length > env.GetDirectBufferCapacity(jni::Unwrap(buffer.Get()))) {
+            mbgl::Log::Error(mbgl::Event::JNI, "Error reading features: invalid buffer");
+            return {};
+        }
+
+        try {
+            return { conversion::FeatureBufferReader(data, length).read() };
+        } catch (const std::exception& ex) {
+            mbgl::Log::Error(mbgl::Event::JNI, std::string("Error reading features: ") + ex.what());
+            return {};
+        }
+    }
+
     void GeoJSONSource::setURL(jni::JNIEnv& env, jni::String url) {
+        cancelPendingParse();
+
         //Update the core source
         source.as<mbgl::style::GeoJSONSource>()->GeoJSONSource::setURL(jni::Make<std::string>(env, url));
     }
@@ -61,8 +374,16 @@ namespace android {
             env, GeoJSONSource::javaClass, "nativePtr",
             std::make_unique<GeoJSONSource, JNIEnv&, jni::String, jni::Object<>>,
             "initialize",
-            "finalize",
+            "nativeFinalize",
             METHOD(&GeoJSONSource::setGeoJSON, "nativeSetGeoJson"),
+            METHOD(&GeoJSONSource::setGeoJSONBuffer, "nativeSetGeoJsonBuffer"),
+            METHOD(&GeoJSONSource::setGeoJSONStringAsync, "nativeSetGeoJsonStringAsync"),
+            METHOD(&GeoJSONSource::setGeoJSONBufferAsync, "nativeSetGeoJsonBufferAsync"),
+            METHOD(&GeoJSONSource::setGeoJSONFileAsync, "nativeSetGeoJsonFileAsync"),
+            METHOD(&GeoJSONSource::setGeoJSONFileDescriptorAsync, "nativeSetGeoJsonFileDescriptorAsync"),
+            METHOD(&GeoJSONSource::addFeatures, "nativeAddFeatures"),
+            METHOD(&GeoJSONSource::updateFeatures, "nativeUpdateFeatures"),
+            METHOD(&GeoJSONSource::removeFeatures, "nativeRemoveFeatures"),
             METHOD(&GeoJSONSource::setURL, "nativeSetUrl")
         );
     }
@@ -2,8 +2,14 @@
 
 #include "source.hpp"
 #include <mbgl/style/sources/geojson_source.hpp>
+#include <mbgl/util/geojson.hpp>
+#include <mbgl/util/optional.hpp>
 #include <jni/jni.hpp>
 
+#include <atomic>
+#include <functional>
+#include <memory>
+
 namespace mbgl {
 namespace android {
 
@@ -24,10 +30,37 @@ public:
 
     void setGeoJSON(jni::JNIEnv&, jni::Object<>);
 
+    void setGeoJSONBuffer(jni::JNIEnv&, jni::Object<>, jni::jint);
+
+    void setGeoJSONStringAsync(jni::JNIEnv&, jni::String, jni::jlong);
+
+    void setGeoJSONBufferAsync(jni::JNIEnv&, jni::Object<>, jni::jint, jni::jlong);
+
+    void setGeoJSONFileAsync(jni::JNIEnv&, jni::String, jni::jlong);
+
+    void setGeoJSONFileDescriptorAsync(jni::JNIEnv&, jni::jint, jni::jlong);
+
+    void addFeatures(jni::JNIEnv&, jni::Object<>, jni::jint);
+
+    void updateFeatures(jni::JNIEnv&, jni::Object<>, jni::jint);
+
+    void removeFeatures(jni::JNIEnv&, jni::Array<jni::String>);
+
     void setURL(jni::JNIEnv&, jni::String);
 
     jni::jobject* createJavaPeer(jni::JNIEnv&);
 
+private:
+
+    optional<FeatureCollection> readFeatures(jni::JNIEnv&, jni::Object<>, jni::jint);
+
+    void setGeoJSONAsync(std::function<GeoJSON (const std::atomic<bool>&)>, jni::jlong);
+
+    void cancelPendingParse();
+
+    //Set when the pending asynchronous update is superseded, checked while a stream is parsed
+    std::shared_ptr<std::atomic<bool>> pendingParseCancelled;
+
 }; // class GeoJSONSource
 
 } // namespace android
@@ -0,0 +1,146 @@
+#include <mbgl/map/map_snapshotter.hpp>
+
+#include <mbgl/map/map.hpp>
+#include <mbgl/gl/headless_backend.hpp>
+#include <mbgl/gl/offscreen_view.hpp>
+#include <mbgl/util/async_task.hpp>
+#include <mbgl/util/exception.hpp>
+#include <mbgl/util/thread.hpp>
+
+#include <deque>
+
+namespace mbgl {
+
+class MapSnapshotter::Impl {
+public:
+    using Callback = std::function<void (std::exception_ptr, std::shared_ptr<PremultipliedImage>)>;
+
+    Impl(FileSource& fileSource_, Scheduler& scheduler_)
+        : fileSource(fileSource_),
+          scheduler(scheduler_),
+          processQueue([this] { process(); }) {
+    }
+
+    void snapshot(Options options, Callback callback) {
+        queue.push_back({ std::move(options), std::move(callback) });
+        processQueue.send();
+    }
+
+private:
+    struct Request {
+        Options options;
+        Callback callback;
+    };
+
+    void process() {
+        if (finished) {
+            finished = false;
+
+            auto request = std::move(queue.front());
+            queue.pop_front();
+
+            // Start over with a new map after an error, the failed style may be left half loaded.
+            if (error) {
+                map.reset();
+                view.reset();
+            }
+
+            request.callback(std::move(error), std::move(image));
+            error = nullptr;
+            image = nullptr;
+        }
+
+        if (!rendering && !queue.empty()) {
+            render(queue.front().options);
+        }
+    }
+
+    void render(const Options& options) {
+        rendering = true;
+
+        if (!options.size || options.pixelRatio <= 0) {
+            finish(std::make_exception_ptr(util::MisuseException("Snapshot size and pixel ratio must be positive")));
+            return;
+        }
+
+        if (options.styleURL.empty() == options.styleJSON.empty()) {
+            finish(std::make_exception_ptr(util::MisuseException("Snapshot requires either a style URL or a style JSON")));
+            return;
+        }
+
+        // The map and view are reused while the size doesn't change, together with the styles the map caches.
+        if (!map || size != options.size || pixelRatio != options.pixelRatio) {
+            map.reset();
+            view.reset();
+
+            size = options.size;
+            pixelRatio = options.pixelRatio;
+
+            view = std::make_unique<OffscreenView>(backend.getContext(), Size {
+                static_cast<uint32_t>(size.width * pixelRatio),
+                static_cast<uint32_t>(size.height * pixelRatio)
+            });
+            map = std::make_unique<Map>(backend, size, pixelRatio, fileSource, scheduler, MapMode::Still);
+        }
+
+        if (!options.styleURL.empty()) {
+            map->setStyleURL(options.styleURL);
+        } else {
+            map->setStyleJSON(options.styleJSON);
+        }
+
+        // Jumping to an empty camera would still mark the camera as mutated, which keeps the map
+        // from applying the default camera of the style.
+        const CameraOptions& camera = options.camera;
+        if (camera.center || camera.padding || camera.zoom || camera.angle || camera.pitch) {
+            map->jumpTo(camera);
+        }
+
+        map->renderStill(*view, [this] (std::exception_ptr stillError) {
+            // The image is read while the context is still active.
+            finish(stillError, stillError ? nullptr : std::make_shared<PremultipliedImage>(view->readStillImage()));
+        });
+    }
+
+    void finish(std::exception_ptr error_, std::shared_ptr<PremultipliedImage> image_ = nullptr) {
+        // The map can't be modified from within its own callback, the result is delivered on the next loop iteration.
+        error = std::move(error_);
+        image = std::move(image_);
+        rendering = false;
+        finished = true;
+        processQueue.send();
+    }
+
+    FileSource& fileSource;
+    Scheduler& scheduler;
+
+    HeadlessBackend backend;
+    std::unique_ptr<OffscreenView> view;
+    std::unique_ptr<Map> map;
+    Size size;
+    float pixelRatio = 1;
+
+    std::deque<Request> queue;
+    bool rendering = false;
+    bool finished = false;
+    std::exception_ptr error;
+    std::shared_ptr<PremultipliedImage> image;
+
+    util::AsyncTask processQueue;
+};
+
+MapSnapshotter::MapSnapshotter(FileSource& fileSource, Scheduler& scheduler)
+    : impl(std::make_unique<util::Thread<Impl>>(
+          util::ThreadContext{ "MapSnapshotter", util::ThreadPriority::Low }, fileSource, scheduler)) {
+}
+
+MapSnapshotter::~MapSnapshotter() = default;
+
+std::unique_ptr<AsyncRequest> MapSnapshotter::snapshot(Options options, Callback callback) {
+    return impl->invokeWithCallback(&Impl::snapshot, std::move(options),
+        [callback] (std::exception_ptr error, std::shared_ptr<PremultipliedImage> image) {
+            callback(error, image ? std::move(*image) : PremultipliedImage());
+        });
+}
+
+} // namespace mbgl
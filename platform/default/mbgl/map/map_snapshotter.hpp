@@ -0,0 +1,53 @@
+#pragma once
+
+#include <mbgl/map/camera.hpp>
+#include <mbgl/util/async_request.hpp>
+#include <mbgl/util/image.hpp>
+#include <mbgl/util/size.hpp>
+
+#include <exception>
+#include <functional>
+#include <memory>
+#include <string>
+
+namespace mbgl {
+
+class FileSource;
+class Scheduler;
+
+namespace util {
+template <class> class Thread;
+} // namespace util
+
+// Renders still images of a style offscreen, without a view. Snapshots are rendered one after
+// another on a background thread that owns its own headless GL context.
+class MapSnapshotter {
+public:
+    struct Options {
+        // Either a style URL or a style JSON.
+        std::string styleURL;
+        std::string styleJSON;
+
+        Size size;
+        float pixelRatio = 1;
+
+        // Fields that aren't set keep their value from the previous snapshot of the same size,
+        // or the style's default camera for the first one.
+        CameraOptions camera;
+    };
+
+    using Callback = std::function<void (std::exception_ptr, PremultipliedImage)>;
+
+    MapSnapshotter(FileSource&, Scheduler&);
+    ~MapSnapshotter();
+
+    // The callback is invoked on the calling thread, which must have a RunLoop, unless the
+    // returned request is destroyed first.
+    std::unique_ptr<AsyncRequest> snapshot(Options, Callback);
+
+private:
+    class Impl;
+    const std::unique_ptr<util::Thread<Impl>> impl;
+};
+
+} // namespace mbgl
@@ -50,6 +50,8 @@ macro(mbgl_platform_test)
         PRIVATE platform/default/mbgl/gl/headless_display.hpp
         PRIVATE platform/default/mbgl/gl/offscreen_view.cpp
         PRIVATE platform/default/mbgl/gl/offscreen_view.hpp
+        PRIVATE platform/default/mbgl/map/map_snapshotter.cpp
+        PRIVATE platform/default/mbgl/map/map_snapshotter.hpp
         PRIVATE platform/qt/test/headless_backend_qt.cpp
     )
 
@@ -40,6 +40,7 @@ AnnotationManager::~AnnotationManager() = default;
 
 AnnotationID AnnotationManager::addAnnotation(const Annotation& annotation, const uint8_t maxZoom) {
     AnnotationID id = nextID++;
+    allTilesDirty = true;
     Annotation::visit(annotation, [&] (const auto& annotation_) {
         this->add(id, annotation_, maxZoom);
     });
@@ -52,7 +53,41 @@ Update AnnotationManager::updateAnnotation(const AnnotationID& id, const Annotat
     });
 }
 
+Update AnnotationManager::appendToAnnotation(const AnnotationID& id, const LineString<double>& points) {
+    auto it = shapeAnnotations.find(id);
+    if (it == shapeAnnotations.end()) {
+        assert(false); // Attempt to update a non-existent shape annotation
+        return Update::Nothing;
+    }
+
+    if (points.empty() || !it->second->appendGeometry(points)) {
+        return Update::Nothing;
+    }
+
+    // Only the geometry changed, the annotation layer and its style are kept as is.
+    allTilesDirty = true;
+    return Update::AnnotationData;
+}
+
+Update AnnotationManager::setAnnotationTrimOffset(const AnnotationID& id, double start, double end) {
+    auto it = shapeAnnotations.find(id);
+    if (it == shapeAnnotations.end()) {
+        assert(false); // Attempt to update a non-existent shape annotation
+        return Update::Nothing;
+    }
+
+    const LatLngBounds changed = it->second->setTrimOffset(start, end);
+    if (changed.isEmpty()) {
+        return Update::Nothing;
+    }
+
+    // The full geometry is kept, only the tiles around the old and new split points change.
+    dirtyBounds.extend(changed);
+    return Update::AnnotationData;
+}
+
 void AnnotationManager::removeAnnotation(const AnnotationID& id) {
+    allTilesDirty = true;
     if (symbolAnnotations.find(id) != symbolAnnotations.end()) {
         symbolTree.remove(symbolAnnotations.at(id));
         symbolAnnotations.erase(id);
@@ -207,8 +242,13 @@ void AnnotationManager::updateStyle(Style& style) {
 
 void AnnotationManager::updateData() {
     for (auto& tile : tiles) {
-        tile->setData(getTileData(tile->id.canonical));
+        if (allTilesDirty || ShapeAnnotationImpl::mayIntersect(tile->id.canonical, dirtyBounds)) {
+            tile->setData(getTileData(tile->id.canonical));
+        }
     }
+
+    allTilesDirty = false;
+    dirtyBounds = LatLngBounds::empty();
 }
 
 void AnnotationManager::addTile(AnnotationTile& tile) {
@@ -4,6 +4,7 @@
 #include <mbgl/annotation/symbol_annotation_impl.hpp>
 #include <mbgl/sprite/sprite_atlas.hpp>
 #include <mbgl/map/update.hpp>
+#include <mbgl/util/geo.hpp>
 #include <mbgl/util/noncopyable.hpp>
 
 #include <string>
@@ -13,7 +14,6 @@
 
 namespace mbgl {
 
-class LatLngBounds;
 class AnnotationTile;
 class AnnotationTileData;
 class SymbolAnnotationImpl;
@@ -30,6 +30,8 @@ public:
 
     AnnotationID addAnnotation(const Annotation&, const uint8_t maxZoom);
     Update updateAnnotation(const AnnotationID&, const Annotation&, const uint8_t maxZoom);
+    Update appendToAnnotation(const AnnotationID&, const LineString<double>&);
+    Update setAnnotationTrimOffset(const AnnotationID&, double start, double end);
     void removeAnnotation(const AnnotationID&);
 
     void addIcon(const std::string& name, std::shared_ptr<const SpriteImage>);
@@ -74,6 +76,12 @@ private:
     ShapeAnnotationMap shapeAnnotations;
     std::unordered_set<std::string> obsoleteShapeAnnotationLayers;
     std::unordered_set<AnnotationTile*> tiles;
+
+    // Tiles whose data changed since the last updateData(). Trim offset updates only change the
+    // data of the tiles around the split points, every other change refreshes all tiles.
+    bool allTilesDirty = false;
+    LatLngBounds dirtyBounds = LatLngBounds::empty();
+
     SpriteAtlas spriteAtlas;
 };
 
@@ -1,15 +1,41 @@
 #include <mbgl/annotation/line_annotation_impl.hpp>
 #include <mbgl/annotation/annotation_manager.hpp>
+#include <mbgl/annotation/annotation_tile.hpp>
 #include <mbgl/style/style.hpp>
 #include <mbgl/style/layers/line_layer.hpp>
+#include <mbgl/tile/tile_id.hpp>
+#include <mbgl/math/clamp.hpp>
+#include <mbgl/util/constants.hpp>
+
+#include <algorithm>
+#include <cmath>
 
 namespace mbgl {
 
 using namespace style;
 
+namespace {
+
+// Vertices per chunk, a trim offset update re-tiles at most this many vertices per split point.
+const std::size_t chunkSize = 256;
+
+// Segment lengths are approximated by scaling longitude deltas to the latitude of the segment,
+// which is accurate enough to position a split point along a route.
+double segmentLength(const Point<double>& a, const Point<double>& b) {
+    const double dx = (b.x - a.x) * std::cos((a.y + b.y) / 2 * util::DEG2RAD);
+    const double dy = b.y - a.y;
+    return std::sqrt(dx * dx + dy * dy);
+}
+
+} // namespace
+
 LineAnnotationImpl::LineAnnotationImpl(AnnotationID id_, LineAnnotation annotation_, uint8_t maxZoom_)
     : ShapeAnnotationImpl(id_, maxZoom_),
       annotation({ ShapeAnnotationGeometry::visit(annotation_.geometry, CloseShapeAnnotation{}), annotation_.opacity, annotation_.width, annotation_.color }) {
+    annotation.trimStart = util::clamp(annotation_.trimStart, 0.0, 1.0);
+    annotation.trimEnd = util::clamp(annotation_.trimEnd, annotation.trimStart, 1.0);
+    indexGeometry();
+    updateTiledParts();
 }
 
 void LineAnnotationImpl::updateStyle(Style& style) const {
@@ -32,4 +58,187 @@ const ShapeAnnotationGeometry& LineAnnotationImpl::geometry() const {
     return annotation.geometry;
 }
 
+bool LineAnnotationImpl::appendGeometry(const LineString<double>& points) {
+    LineString<double>* line = nullptr;
+    if (annotation.geometry.is<LineString<double>>()) {
+        line = &annotation.geometry.get<LineString<double>>();
+    } else if (annotation.geometry.is<MultiLineString<double>>()) {
+        auto& multiLine = annotation.geometry.get<MultiLineString<double>>();
+        if (multiLine.empty()) {
+            multiLine.emplace_back();
+        }
+        line = &multiLine.back();
+    } else {
+        return false;
+    }
+
+    line->insert(line->end(), points.begin(), points.end());
+
+    // Only the last chunk and the new chunks are tiled again, together with the chunks the
+    // trim offsets move across since they are relative to the length of the geometry.
+    indexGeometry();
+    updateTiledParts();
+    return true;
+}
+
+LatLngBounds LineAnnotationImpl::setTrimOffset(double start, double end) {
+    start = util::clamp(start, 0.0, 1.0);
+    end = util::clamp(end, start, 1.0);
+    if (start == annotation.trimStart && end == annotation.trimEnd) {
+        return LatLngBounds::empty();
+    }
+
+    annotation.trimStart = start;
+    annotation.trimEnd = end;
+    return updateTiledParts();
+}
+
+void LineAnnotationImpl::updateTileData(const CanonicalTileID& tileID, AnnotationTileData& data) {
+    if (!annotation.geometry.is<LineString<double>>() && !annotation.geometry.is<MultiLineString<double>>()) {
+        ShapeAnnotationImpl::updateTileData(tileID, data);
+        return;
+    }
+
+    GeometryCollection tileLines;
+    ToGeometryCollection toGeometryCollection;
+    for (auto& chunk : chunks) {
+        if (!(chunk.start < chunk.end) || !mayIntersect(tileID, chunk.bounds)) {
+            continue;
+        }
+
+        if (!chunk.tiler) {
+            tileChunk(chunk);
+        }
+
+        const auto& chunkTile = chunk.tiler->getTile(tileID.z, tileID.x, tileID.y);
+        for (const auto& feature : chunkTile.features) {
+            for (auto& tileLine : apply_visitor(toGeometryCollection, feature.geometry)) {
+                // Consecutive chunks share their boundary vertex, their parts are joined so that the
+                // line is drawn with a join instead of two caps there.
+                if (!tileLines.empty() && !tileLine.empty() && tileLines.back().back() == tileLine.front()) {
+                    tileLines.back().insert(tileLines.back().end(), tileLine.begin() + 1, tileLine.end());
+                } else {
+                    tileLines.push_back(std::move(tileLine));
+                }
+            }
+        }
+    }
+
+    if (tileLines.empty()) {
+        return;
+    }
+
+    AnnotationTileLayer& layer = data.layers.emplace(layerID, layerID).first->second;
+    layer.features.emplace_back(id, FeatureType::LineString, std::move(tileLines));
+}
+
+std::vector<const LineString<double>*> LineAnnotationImpl::lines() const {
+    std::vector<const LineString<double>*> result;
+    if (annotation.geometry.is<LineString<double>>()) {
+        result.push_back(&annotation.geometry.get<LineString<double>>());
+    } else if (annotation.geometry.is<MultiLineString<double>>()) {
+        for (const auto& line : annotation.geometry.get<MultiLineString<double>>()) {
+            result.push_back(&line);
+        }
+    }
+    return result;
+}
+
+void LineAnnotationImpl::indexGeometry() {
+    const std::vector<const LineString<double>*> geometryLines = lines();
+    for (std::size_t i = 0; i < geometryLines.size(); ++i) {
+        const LineString<double>& line = *geometryLines[i];
+        if (distances.size() <= i) {
+            distances.emplace_back();
+        }
+
+        // Only the last line grows, the lines before it are already indexed.
+        std::vector<double>& lineDistances = distances[i];
+        if (lineDistances.size() == line.size()) {
+            continue;
+        }
+
+        for (std::size_t j = lineDistances.size(); j < line.size(); ++j) {
+            if (j > 0) {
+                length += segmentLength(line[j - 1], line[j]);
+            }
+            lineDistances.push_back(length);
+        }
+
+        if (chunks.empty() || chunks.back().line != i) {
+            chunks.emplace_back(i, 0, 0);
+        }
+
+        // Fill up the last chunk of the line, then start new chunks at its last vertex.
+        while (chunks.back().last + 1 < line.size()) {
+            Chunk& chunk = chunks.back();
+            if (chunk.last - chunk.first + 1 < chunkSize) {
+                chunk.last = std::min(line.size(), chunk.first + chunkSize) - 1;
+                chunk.bounds = LatLngBounds::empty();
+                for (std::size_t j = chunk.first; j <= chunk.last; ++j) {
+                    chunk.bounds.extend(LatLng(line[j].y, line[j].x));
+                }
+                chunk.start = chunk.end = std::numeric_limits<double>::quiet_NaN();
+                chunk.tiler.reset();
+            } else {
+                const std::size_t first = chunk.last;
+                chunks.emplace_back(i, first, first);
+            }
+        }
+    }
+}
+
+LatLngBounds LineAnnotationImpl::updateTiledParts() {
+    const double trimStart = annotation.trimStart * length;
+    const double trimEnd = annotation.trimEnd * length;
+
+    LatLngBounds changed = LatLngBounds::empty();
+    for (auto& chunk : chunks) {
+        const std::vector<double>& lineDistances = distances[chunk.line];
+        double start = std::max(trimStart, lineDistances[chunk.first]);
+        double end = std::min(trimEnd, lineDistances[chunk.last]);
+        if (!(start < end)) {
+            start = end = 0;
+        }
+
+        if (start != chunk.start || end != chunk.end) {
+            chunk.start = start;
+            chunk.end = end;
+            chunk.tiler.reset();
+            changed.extend(chunk.bounds);
+        }
+    }
+    return changed;
+}
+
+void LineAnnotationImpl::tileChunk(Chunk& chunk) {
+    const LineString<double>& line = *lines()[chunk.line];
+    const std::vector<double>& lineDistances = distances[chunk.line];
+
+    LineString<double> part;
+    for (std::size_t i = chunk.first + 1; i <= chunk.last; ++i) {
+        const Point<double>& a = line[i - 1];
+        const Point<double>& b = line[i];
+        const double segmentStart = lineDistances[i - 1];
+        const double segmentEnd = lineDistances[i];
+
+        if (segmentEnd <= chunk.start || segmentStart >= chunk.end) {
+            continue;
+        }
+
+        auto interpolate = [&] (double at) {
+            const double segment = segmentEnd - segmentStart;
+            const double t = segment > 0 ? util::clamp((at - segmentStart) / segment, 0.0, 1.0) : 0;
+            return Point<double> { a.x + (b.x - a.x) * t, a.y + (b.y - a.y) * t };
+        };
+
+        if (part.empty()) {
+            part.push_back(interpolate(chunk.start));
+        }
+        part.push_back(segmentEnd > chunk.end ? interpolate(chunk.end) : b);
+    }
+
+    chunk.tiler = createTiler(part);
+}
+
 } // namespace mbgl
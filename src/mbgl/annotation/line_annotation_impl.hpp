@@ -3,6 +3,9 @@
 #include <mbgl/annotation/shape_annotation_impl.hpp>
 #include <mbgl/annotation/annotation.hpp>
 
+#include <limits>
+#include <vector>
+
 namespace mbgl {
 
 class LineAnnotationImpl : public ShapeAnnotationImpl {
@@ -11,9 +14,41 @@ public:
 
     void updateStyle(style::Style&) const final;
     const ShapeAnnotationGeometry& geometry() const final;
+    bool appendGeometry(const LineString<double>&) final;
+    LatLngBounds setTrimOffset(double start, double end) final;
+    void updateTileData(const CanonicalTileID&, AnnotationTileData&) final;
 
 private:
-    const LineAnnotation annotation;
+    // A run of consecutive vertices of a line, tiled on its own. Moving a trim offset only re-tiles
+    // the chunks around the old and new split points, and appending only re-tiles the last chunk.
+    // Consecutive chunks of a line share their boundary vertex.
+    struct Chunk {
+        Chunk(std::size_t line_, std::size_t first_, std::size_t last_)
+            : line(line_), first(first_), last(last_) {}
+
+        std::size_t line;
+        std::size_t first;
+        std::size_t last;
+        LatLngBounds bounds = LatLngBounds::empty();
+
+        // The tiled part of the chunk, as distances along the geometry. Nothing is tiled if
+        // end <= start, both are NaN until the tiled part is computed.
+        double start = std::numeric_limits<double>::quiet_NaN();
+        double end = std::numeric_limits<double>::quiet_NaN();
+        std::unique_ptr<mapbox::geojsonvt::GeoJSONVT> tiler;
+    };
+
+    std::vector<const LineString<double>*> lines() const;
+    void indexGeometry();
+    LatLngBounds updateTiledParts();
+    void tileChunk(Chunk&);
+
+    LineAnnotation annotation;
+
+    // The distance of every vertex from the start of the geometry, by line.
+    std::vector<std::vector<double>> distances;
+    double length = 0;
+    std::vector<Chunk> chunks;
 };
 
 } // namespace mbgl
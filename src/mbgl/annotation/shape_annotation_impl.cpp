@@ -6,32 +6,71 @@
 #include <mbgl/util/string.hpp>
 #include <mbgl/util/constants.hpp>
 #include <mbgl/util/geometry.hpp>
+#include <mbgl/util/projection.hpp>
+
+#include <cmath>
 
 namespace mbgl {
 
 using namespace style;
 namespace geojsonvt = mapbox::geojsonvt;
 
+namespace {
+
+const uint16_t tileBuffer = 255u;
+
+} // namespace
+
 ShapeAnnotationImpl::ShapeAnnotationImpl(const AnnotationID id_, const uint8_t maxZoom_)
     : id(id_),
       maxZoom(maxZoom_),
       layerID("com.mapbox.annotations.shape." + util::toString(id)) {
 }
 
-void ShapeAnnotationImpl::updateTileData(const CanonicalTileID& tileID, AnnotationTileData& data) {
+std::unique_ptr<geojsonvt::GeoJSONVT> ShapeAnnotationImpl::createTiler(const ShapeAnnotationGeometry& shape) const {
     static const double baseTolerance = 4;
 
+    mapbox::geometry::feature_collection<double> features;
+    features.emplace_back(ShapeAnnotationGeometry::visit(shape, [] (auto&& geom) {
+        return Feature { std::move(geom) };
+    }));
+    mapbox::geojsonvt::Options options;
+    options.maxZoom = maxZoom;
+    options.buffer = tileBuffer;
+    options.extent = util::EXTENT;
+    options.tolerance = baseTolerance;
+    return std::make_unique<mapbox::geojsonvt::GeoJSONVT>(features, options);
+}
+
+bool ShapeAnnotationImpl::mayIntersect(const CanonicalTileID& tileID, const LatLngBounds& bounds) {
+    if (bounds.isEmpty()) {
+        return false;
+    }
+
+    // The tiler repeats geometry across the antimeridian, geometry and tiles there are always included.
+    const uint32_t tiles = 1u << tileID.z;
+    if (tileID.x == 0 || tileID.x + 1 == tiles ||
+        bounds.west() < -util::LONGITUDE_MAX || bounds.east() > util::LONGITUDE_MAX) {
+        return true;
+    }
+
+    // Project the bounds to tile units at the zoom level of the tile.
+    const double scale = std::pow(2.0, tileID.z) / util::tileSize;
+    auto project = [&] (const LatLng& latLng) {
+        return Projection::project({ util::clamp(latLng.latitude, -util::LATITUDE_MAX, util::LATITUDE_MAX),
+                                     latLng.longitude }, scale);
+    };
+    const Point<double> northwest = project(bounds.northwest());
+    const Point<double> southeast = project(bounds.southeast());
+
+    const double buffer = double(tileBuffer) / util::EXTENT;
+    return southeast.x >= tileID.x - buffer && northwest.x <= tileID.x + 1 + buffer &&
+           southeast.y >= tileID.y - buffer && northwest.y <= tileID.y + 1 + buffer;
+}
+
+void ShapeAnnotationImpl::updateTileData(const CanonicalTileID& tileID, AnnotationTileData& data) {
     if (!shapeTiler) {
-        mapbox::geometry::feature_collection<double> features;
-        features.emplace_back(ShapeAnnotationGeometry::visit(geometry(), [] (auto&& geom) {
-            return Feature { std::move(geom) };
-        }));
-        mapbox::geojsonvt::Options options;
-        options.maxZoom = maxZoom;
-        options.buffer = 255u;
-        options.extent = util::EXTENT;
-        options.tolerance = baseTolerance;
-        shapeTiler = std::make_unique<mapbox::geojsonvt::GeoJSONVT>(features, options);
+        shapeTiler = createTiler(geometry());
     }
 
     const auto& shapeTile = shapeTiler->getTile(tileID.z, tileID.x, tileID.y);
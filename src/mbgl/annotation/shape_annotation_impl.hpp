@@ -3,6 +3,7 @@
 #include <mapbox/geojsonvt.hpp>
 
 #include <mbgl/annotation/annotation.hpp>
+#include <mbgl/util/geo.hpp>
 #include <mbgl/util/geometry.hpp>
 
 #include <string>
@@ -25,12 +26,27 @@ public:
     virtual void updateStyle(style::Style&) const = 0;
     virtual const ShapeAnnotationGeometry& geometry() const = 0;
 
-    void updateTileData(const CanonicalTileID&, AnnotationTileData&);
+    // Appends points to the geometry, returns false if the geometry can't be extended.
+    virtual bool appendGeometry(const LineString<double>&) { return false; }
+
+    // Limits the rendered geometry to the [start, end] fraction of its length. Returns the bounds
+    // of the geometry whose rendering changed, empty if the geometry can't be trimmed or nothing
+    // changed.
+    virtual LatLngBounds setTrimOffset(double, double) { return LatLngBounds::empty(); }
+
+    virtual void updateTileData(const CanonicalTileID&, AnnotationTileData&);
+
+    // Whether the data of a tile may include geometry within the bounds, which is the case for
+    // geometry within the tile buffer.
+    static bool mayIntersect(const CanonicalTileID&, const LatLngBounds&);
 
     const AnnotationID id;
     const uint8_t maxZoom;
     const std::string layerID;
     std::unique_ptr<mapbox::geojsonvt::GeoJSONVT> shapeTiler;
+
+protected:
+    std::unique_ptr<mapbox::geojsonvt::GeoJSONVT> createTiler(const ShapeAnnotationGeometry&) const;
 };
 
 struct CloseShapeAnnotation {
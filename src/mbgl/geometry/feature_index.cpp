@@ -1,9 +1,9 @@
 #include <mbgl/geometry/feature_index.hpp>
-#include <mbgl/style/style.hpp>
 #include <mbgl/style/layer.hpp>
 #include <mbgl/style/layer_impl.hpp>
 #include <mbgl/style/layers/symbol_layer.hpp>
 #include <mbgl/text/collision_tile.hpp>
+#include <mbgl/map/transform_state.hpp>
 #include <mbgl/util/constants.hpp>
 #include <mbgl/util/math.hpp>
 #include <mbgl/math/minmax.hpp>
@@ -11,6 +11,7 @@
 #include <mapbox/geometry/envelope.hpp>
 
 #include <cassert>
+#include <cmath>
 #include <string>
 
 namespace mbgl {
@@ -59,12 +60,13 @@ void FeatureIndex::query(
         const optional<std::vector<std::string>>& filterLayerIDs,
         const GeometryTileData& geometryTileData,
         const CanonicalTileID& tileID,
-        const style::Style& style) const {
+        const QueryLayers& queryLayers,
+        const CollisionTile* collisionTile) const {
 
     mapbox::geometry::box<int16_t> box = mapbox::geometry::envelope(queryGeometry);
 
     const float pixelsToTileUnits = util::EXTENT / tileSize / scale;
-    const int16_t additionalRadius = std::min<int16_t>(util::EXTENT, std::ceil(style.getQueryRadius() * pixelsToTileUnits));
+    const int16_t additionalRadius = std::min<int16_t>(util::EXTENT, std::ceil(queryLayers.queryRadius * pixelsToTileUnits));
     std::vector<IndexedSubfeature> features = grid.query({ box.min - additionalRadius, box.max + additionalRadius });
 
     std::sort(features.begin(), features.end(), topDown);
@@ -75,7 +77,7 @@ void FeatureIndex::query(
         if (indexedFeature.sortIndex == previousSortIndex) continue;
         previousSortIndex = indexedFeature.sortIndex;
 
-        addFeature(result, indexedFeature, queryGeometry, filterLayerIDs, geometryTileData, tileID, style, bearing, pixelsToTileUnits);
+        addFeature(result, indexedFeature, queryGeometry, filterLayerIDs, geometryTileData, tileID, queryLayers, bearing, pixelsToTileUnits);
     }
 
     // Query symbol features, if they've been placed.
@@ -86,7 +88,7 @@ void FeatureIndex::query(
     std::vector<IndexedSubfeature> symbolFeatures = collisionTile->queryRenderedSymbols(queryGeometry, scale);
     std::sort(symbolFeatures.begin(), symbolFeatures.end(), topDownSymbols);
     for (const auto& symbolFeature : symbolFeatures) {
-        addFeature(result, symbolFeature, queryGeometry, filterLayerIDs, geometryTileData, tileID, style, bearing, pixelsToTileUnits);
+        addFeature(result, symbolFeature, queryGeometry, filterLayerIDs, geometryTileData, tileID, queryLayers, bearing, pixelsToTileUnits);
     }
 }
 
@@ -97,7 +99,7 @@ void FeatureIndex::addFeature(
     const optional<std::vector<std::string>>& filterLayerIDs,
     const GeometryTileData& geometryTileData,
     const CanonicalTileID& tileID,
-    const style::Style& style,
+    const QueryLayers& queryLayers,
     const float bearing,
     const float pixelsToTileUnits) const {
 
@@ -117,7 +119,8 @@ void FeatureIndex::addFeature(
             continue;
         }
 
-        auto styleLayer = style.getLayer(layerID);
+        auto it = queryLayers.layers.find(layerID);
+        const style::Layer* styleLayer = it != queryLayers.layers.end() ? it->second : nullptr;
         if (!styleLayer ||
             (!styleLayer->is<style::SymbolLayer>() &&
              !styleLayer->baseImpl->queryIntersectsGeometry(queryGeometry, geometryTileFeature->getGeometries(), bearing, pixelsToTileUnits))) {
@@ -154,8 +157,33 @@ void FeatureIndex::addBucketLayerName(const std::string& bucketName, const std::
     bucketLayerIDs[bucketName].push_back(layerID);
 }
 
-void FeatureIndex::setCollisionTile(std::unique_ptr<CollisionTile> collisionTile_) {
-    collisionTile = std::move(collisionTile_);
+RenderedTileFeatures::RenderedTileFeatures(const OverscaledTileID& id_,
+                                           std::shared_ptr<const FeatureIndex> featureIndex_,
+                                           std::shared_ptr<const GeometryTileData> data_,
+                                           std::shared_ptr<const CollisionTile> collisionTile_)
+    : id(id_),
+      featureIndex(std::move(featureIndex_)),
+      data(std::move(data_)),
+      collisionTile(std::move(collisionTile_)) {
+}
+
+void RenderedTileFeatures::query(std::unordered_map<std::string, std::vector<Feature>>& result,
+                                 const GeometryCoordinates& queryGeometry,
+                                 const TransformState& transformState,
+                                 const optional<std::vector<std::string>>& layerIDs,
+                                 const QueryLayers& queryLayers) const {
+    if (!featureIndex || !data) return;
+
+    featureIndex->query(result,
+                        queryGeometry,
+                        transformState.getAngle(),
+                        util::tileSize * id.overscaleFactor(),
+                        std::pow(2, transformState.getZoom() - id.overscaledZ),
+                        layerIDs,
+                        *data,
+                        id.canonical,
+                        queryLayers,
+                        collisionTile.get());
 }
 
 } // namespace mbgl
@@ -2,9 +2,11 @@
 
 #include <mbgl/style/types.hpp>
 #include <mbgl/tile/geometry_tile_data.hpp>
+#include <mbgl/tile/tile_id.hpp>
 #include <mbgl/util/grid_index.hpp>
 #include <mbgl/util/feature.hpp>
 
+#include <memory>
 #include <vector>
 #include <string>
 #include <unordered_map>
@@ -12,11 +14,11 @@
 namespace mbgl {
 
 namespace style {
-class Style;
+class Layer;
 } // namespace style
 
 class CollisionTile;
-class CanonicalTileID;
+class TransformState;
 
 class IndexedSubfeature {
 public:
@@ -27,6 +29,15 @@ public:
     size_t sortIndex;
 };
 
+// The style layers rendered features are queried against, by id.
+class QueryLayers {
+public:
+    std::unordered_map<std::string, const style::Layer*> layers;
+
+    // The largest distance from its geometry at which a layer renders a feature, in pixels.
+    float queryRadius = 0;
+};
+
 class FeatureIndex {
 public:
     FeatureIndex();
@@ -42,7 +53,8 @@ public:
             const optional<std::vector<std::string>>& layerIDs,
             const GeometryTileData&,
             const CanonicalTileID&,
-            const style::Style&) const;
+            const QueryLayers&,
+            const CollisionTile*) const;
 
     static optional<GeometryCoordinates> translateQueryGeometry(
             const GeometryCoordinates& queryGeometry,
@@ -53,8 +65,6 @@ public:
 
     void addBucketLayerName(const std::string& bucketName, const std::string& layerName);
 
-    void setCollisionTile(std::unique_ptr<CollisionTile>);
-
 private:
     void addFeature(
             std::unordered_map<std::string, std::vector<Feature>>& result,
@@ -63,14 +73,36 @@ private:
             const optional<std::vector<std::string>>& filterLayerIDs,
             const GeometryTileData&,
             const CanonicalTileID&,
-            const style::Style&,
+            const QueryLayers&,
             const float bearing,
             const float pixelsToTileUnits) const;
 
-    std::unique_ptr<CollisionTile> collisionTile;
     GridIndex<IndexedSubfeature> grid;
     unsigned int sortIndex = 0;
 
     std::unordered_map<std::string, std::vector<std::string>> bucketLayerIDs;
 };
+
+// What the rendered features of a tile are queried against: the feature index, the tile data it
+// indexes and the placed symbols. Tiles replace it instead of modifying it, so it can be kept to
+// query the tile on another thread while the tile is updated.
+class RenderedTileFeatures {
+public:
+    RenderedTileFeatures(const OverscaledTileID&,
+                         std::shared_ptr<const FeatureIndex>,
+                         std::shared_ptr<const GeometryTileData>,
+                         std::shared_ptr<const CollisionTile>);
+
+    void query(std::unordered_map<std::string, std::vector<Feature>>& result,
+               const GeometryCoordinates& queryGeometry,
+               const TransformState&,
+               const optional<std::vector<std::string>>& layerIDs,
+               const QueryLayers&) const;
+
+    const OverscaledTileID id;
+    const std::shared_ptr<const FeatureIndex> featureIndex;
+    const std::shared_ptr<const GeometryTileData> data;
+    const std::shared_ptr<const CollisionTile> collisionTile;
+};
+
 } // namespace mbgl
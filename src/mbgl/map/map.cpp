@@ -4,28 +4,36 @@
 #include <mbgl/map/backend.hpp>
 #include <mbgl/map/transform.hpp>
 #include <mbgl/map/transform_state.hpp>
+#include <mbgl/map/rendered_features_snapshot_impl.hpp>
 #include <mbgl/annotation/annotation_manager.hpp>
 #include <mbgl/style/style.hpp>
 #include <mbgl/style/source.hpp>
 #include <mbgl/style/layer.hpp>
 #include <mbgl/style/observer.hpp>
+#include <mbgl/style/parser.hpp>
 #include <mbgl/style/transition_options.hpp>
 #include <mbgl/style/update_parameters.hpp>
 #include <mbgl/style/query_parameters.hpp>
 #include <mbgl/renderer/painter.hpp>
+#include <mbgl/sprite/sprite_atlas.hpp>
 #include <mbgl/storage/file_source.hpp>
 #include <mbgl/storage/resource.hpp>
 #include <mbgl/storage/response.hpp>
 #include <mbgl/util/projection.hpp>
 #include <mbgl/util/math.hpp>
+#include <mbgl/util/constants.hpp>
 #include <mbgl/util/exception.hpp>
 #include <mbgl/util/async_task.hpp>
 #include <mbgl/util/mapbox.hpp>
 #include <mbgl/util/tile_coordinate.hpp>
+#include <mbgl/util/thread.hpp>
 #include <mbgl/actor/scheduler.hpp>
 #include <mbgl/util/logging.hpp>
 #include <mbgl/math/log2.hpp>
 
+#include <algorithm>
+#include <list>
+
 namespace mbgl {
 
 using namespace style;
@@ -45,6 +53,25 @@ struct StillImageRequest {
     Map::StillImageCallback callback;
 };
 
+// A style that was replaced by another one, kept to be swapped back in without being downloaded
+// and parsed again.
+struct CachedStyle {
+    std::string url;
+    optional<std::string> etag;
+    std::string json;
+    std::unique_ptr<Style> style;
+};
+
+class StyleParser {
+public:
+    void parse(std::shared_ptr<const std::string> json,
+               std::function<void (std::shared_ptr<Parser>, StyleParseResult)> callback) {
+        auto parser = std::make_shared<Parser>();
+        auto error = parser->parse(*json);
+        callback(std::move(parser), error);
+    }
+};
+
 class Map::Impl : public style::Observer {
 public:
     Impl(Map&,
@@ -67,6 +94,11 @@ public:
     void render(View&);
 
     void loadStyleJSON(const std::string&);
+    void parseStyleJSON(std::shared_ptr<const std::string>, optional<std::string> etag);
+    void applyStyle();
+    bool isCurrentStyle(const Response&) const;
+    void cacheStyle();
+    bool restoreStyle(const std::string& url);
 
     Map& map;
     Backend& backend;
@@ -91,15 +123,32 @@ public:
 
     std::string styleURL;
     std::string styleJSON;
+    optional<std::string> styleETag;
     bool styleMutated = false;
     bool cameraMutated = false;
 
+    // Open style transactions, and the work deferred until the outermost one is committed.
+    uint32_t styleTransactions = 0;
+    Update transactionUpdateFlags = Update::Nothing;
+    bool spriteAtlasDirty = false;
+
     std::unique_ptr<AsyncRequest> styleRequest;
 
+    std::unique_ptr<util::Thread<StyleParser>> styleParser;
+    std::unique_ptr<AsyncRequest> styleParseRequest;
+
+    // Most recently used first.
+    std::list<CachedStyle> styleCache;
+    size_t styleCacheSize = util::DEFAULT_STYLE_CACHE_SIZE;
+
     std::unique_ptr<StillImageRequest> stillImageRequest;
     size_t sourceCacheSize;
     TimePoint timePoint;
     bool loading = false;
+
+    // Update and layout time accumulates until the next frame is rendered.
+    FrameStatistics pendingStatistics;
+    FrameStatistics frameStatistics;
 };
 
 Map::Map(Backend& backend,
@@ -150,9 +199,11 @@ Map::~Map() {
     impl->backend.activate();
 
     impl->styleRequest = nullptr;
+    impl->styleParseRequest = nullptr;
 
     // Explicit resets currently necessary because these abandon resources that need to be
     // cleaned up by context.reset();
+    impl->styleCache.clear();
     impl->style.reset();
     impl->annotationManager.reset();
     impl->painter.reset();
@@ -255,6 +306,8 @@ void Map::Impl::update() {
         annotationManager->updateData();
     }
 
+    const TimePoint layoutStart = Clock::now();
+
     if (updateFlags & Update::Layout) {
         style->relayout();
     }
@@ -267,6 +320,8 @@ void Map::Impl::update() {
         style->recalculate(transform.getZoom(), timePoint, mode);
     }
 
+    const TimePoint layoutEnd = Clock::now();
+
     style::UpdateParameters parameters(pixelRatio,
                                        debugOptions,
                                        transform.getState(),
@@ -278,6 +333,9 @@ void Map::Impl::update() {
 
     style->updateTiles(parameters);
 
+    pendingStatistics.layoutTime += layoutEnd - layoutStart;
+    pendingStatistics.updateTime += (layoutStart - timePoint) + (Clock::now() - layoutEnd);
+
     if (mode == MapMode::Continuous) {
         backend.invalidate();
     } else if (stillImageRequest && style->isLoaded()) {
@@ -301,11 +359,19 @@ void Map::Impl::render(View& view) {
                           contextMode,
                           debugOptions };
 
+    const TimePoint renderStart = Clock::now();
+
     painter->render(*style,
                     frameData,
                     view,
                     annotationManager->getSpriteAtlas());
 
+    frameStatistics = pendingStatistics;
+    frameStatistics.renderTime = Clock::now() - renderStart;
+    frameStatistics.uploadedTiles = painter->uploadedTiles();
+    frameStatistics.fullyRendered = style->isLoaded();
+    pendingStatistics = {};
+
     if (mode == MapMode::Still) {
         auto request = std::move(stillImageRequest);
         request->callback(nullptr);
@@ -334,11 +400,16 @@ void Map::setStyleURL(const std::string& url) {
     impl->backend.notifyMapChange(MapChangeWillStartLoadingMap);
 
     impl->styleRequest = nullptr;
+    impl->styleParseRequest = nullptr;
+    impl->cacheStyle();
     impl->styleURL = url;
     impl->styleJSON.clear();
+    impl->styleETag = {};
     impl->styleMutated = false;
 
-    impl->style = std::make_unique<Style>(impl->fileSource, impl->pixelRatio);
+    if (!impl->restoreStyle(url)) {
+        impl->style = std::make_unique<Style>(impl->fileSource, impl->pixelRatio);
+    }
 
     impl->styleRequest = impl->fileSource.request(Resource::style(impl->styleURL), [this](Response res) {
         // Once we get a fresh style, or the style is mutated, stop revalidating.
@@ -360,10 +431,10 @@ void Map::setStyleURL(const std::string& url) {
             }
             impl->onStyleError();
             impl->onResourceError(std::make_exception_ptr(std::runtime_error(res.error->message)));
-        } else if (res.notModified || res.noContent) {
+        } else if (res.notModified || res.noContent || impl->isCurrentStyle(res)) {
             return;
         } else {
-            impl->loadStyleJSON(*res.data);
+            impl->parseStyleJSON(res.data, res.etag);
         }
     });
 }
@@ -377,8 +448,12 @@ void Map::setStyleJSON(const std::string& json) {
 
     impl->backend.notifyMapChange(MapChangeWillStartLoadingMap);
 
+    impl->styleRequest = nullptr;
+    impl->styleParseRequest = nullptr;
+    impl->cacheStyle();
     impl->styleURL.clear();
     impl->styleJSON.clear();
+    impl->styleETag = {};
     impl->styleMutated = false;
 
     impl->style = std::make_unique<Style>(impl->fileSource, impl->pixelRatio);
@@ -391,6 +466,37 @@ void Map::Impl::loadStyleJSON(const std::string& json) {
     style->setJSON(json);
     styleJSON = json;
 
+    applyStyle();
+}
+
+void Map::Impl::parseStyleJSON(std::shared_ptr<const std::string> json, optional<std::string> etag) {
+    if (!styleParser) {
+        styleParser = std::make_unique<util::Thread<StyleParser>>(
+            util::ThreadContext{ "StyleParser", util::ThreadPriority::Regular });
+    }
+
+    // The map thread isn't blocked while the JSON is parsed. The empty style that setStyleURL()
+    // installed stays in place meanwhile, like it does while the style is downloaded, so that calls
+    // made before the style is loaded target the new style rather than the one being replaced.
+    styleParseRequest = styleParser->invokeWithCallback(&StyleParser::parse, json,
+        [this, json, etag] (std::shared_ptr<Parser> parser, StyleParseResult error) {
+            styleParseRequest.reset();
+
+            // Don't allow a loaded, mutated style to be overwritten with a new version.
+            if (styleMutated && style->loaded) {
+                return;
+            }
+
+            style->setObserver(this);
+            style->setParsed(*parser, error);
+            styleJSON = *json;
+            styleETag = etag;
+
+            applyStyle();
+        });
+}
+
+void Map::Impl::applyStyle() {
     // force style cascade, causing all pending transitions to complete.
     style->cascade(Clock::now(), mode);
 
@@ -406,6 +512,60 @@ void Map::Impl::loadStyleJSON(const std::string& json) {
     asyncUpdate.send();
 }
 
+bool Map::Impl::isCurrentStyle(const Response& res) const {
+    if (!style->loaded) {
+        return false;
+    }
+    if (res.etag && styleETag) {
+        return *res.etag == *styleETag;
+    }
+    return res.data && *res.data == styleJSON;
+}
+
+void Map::Impl::cacheStyle() {
+    // Mutated styles would have to be restored with their mutations, which a reload doesn't do.
+    if (!style || !style->loaded || styleMutated || styleURL.empty() || styleCacheSize == 0) {
+        return;
+    }
+
+    // Annotations are added to the style that is being rendered, they are added again when the
+    // style is restored.
+    for (const auto& layer : style->getLayers()) {
+        if (layer->getID().compare(0, AnnotationManager::SourceID.size(), AnnotationManager::SourceID) == 0) {
+            style->removeLayer(layer->getID());
+        }
+    }
+    if (style->getSource(AnnotationManager::SourceID)) {
+        style->removeSource(AnnotationManager::SourceID);
+    }
+
+    style->setObserver(nullptr);
+    styleCache.push_front({ styleURL, styleETag, styleJSON, std::move(style) });
+    while (styleCache.size() > styleCacheSize) {
+        styleCache.pop_back();
+    }
+}
+
+bool Map::Impl::restoreStyle(const std::string& url) {
+    auto it = std::find_if(styleCache.begin(), styleCache.end(), [&](const CachedStyle& cached) {
+        return cached.url == url;
+    });
+    if (it == styleCache.end()) {
+        return false;
+    }
+
+    style = std::move(it->style);
+    styleJSON = std::move(it->json);
+    styleETag = std::move(it->etag);
+    styleCache.erase(it);
+
+    style->setObserver(this);
+    applyStyle();
+    onStyleLoaded();
+
+    return true;
+}
+
 std::string Map::getStyleURL() const {
     return impl->styleURL;
 }
@@ -787,6 +947,14 @@ void Map::updateAnnotation(AnnotationID id, const Annotation& annotation) {
     impl->onUpdate(impl->annotationManager->updateAnnotation(id, annotation, getMaxZoom()));
 }
 
+void Map::appendToAnnotation(AnnotationID id, const LineString<double>& points) {
+    impl->onUpdate(impl->annotationManager->appendToAnnotation(id, points));
+}
+
+void Map::setAnnotationTrimOffset(AnnotationID id, double start, double end) {
+    impl->onUpdate(impl->annotationManager->setAnnotationTrimOffset(id, start, end));
+}
+
 void Map::removeAnnotation(AnnotationID annotation) {
     impl->annotationManager->removeAnnotation(annotation);
     impl->onUpdate(Update::AnnotationStyle | Update::AnnotationData);
@@ -820,6 +988,41 @@ std::vector<Feature> Map::queryRenderedFeatures(const ScreenBox& box, const opti
     });
 }
 
+LayerFeatures Map::queryRenderedFeaturesByLayer(const ScreenCoordinate& point, const optional<std::vector<std::string>>& layerIDs) {
+    if (!impl->style) return {};
+
+    return impl->style->queryRenderedFeaturesByLayer({
+        { point },
+        impl->transform.getState(),
+        layerIDs
+    });
+}
+
+LayerFeatures Map::queryRenderedFeaturesByLayer(const ScreenBox& box, const optional<std::vector<std::string>>& layerIDs) {
+    if (!impl->style) return {};
+
+    return impl->style->queryRenderedFeaturesByLayer({
+        {
+            box.min,
+            { box.max.x, box.min.y },
+            box.max,
+            { box.min.x, box.max.y },
+            box.min
+        },
+        impl->transform.getState(),
+        layerIDs
+    });
+}
+
+std::unique_ptr<RenderedFeaturesSnapshot> Map::snapshotRenderedFeatures(const optional<std::vector<std::string>>& layerIDs) {
+    if (!impl->style) {
+        return std::make_unique<RenderedFeaturesSnapshot>(
+            std::make_unique<RenderedFeaturesSnapshot::Impl>(impl->transform.getState(), layerIDs));
+    }
+
+    return impl->style->snapshotRenderedFeatures(impl->transform.getState(), layerIDs);
+}
+
 AnnotationIDs Map::queryPointAnnotations(const ScreenBox& box) {
     auto features = queryRenderedFeatures(box, {{ AnnotationManager::PointLayerID }});
     std::set<AnnotationID> set;
@@ -905,7 +1108,32 @@ void Map::addImage(const std::string& name, std::unique_ptr<const SpriteImage> i
 
     impl->styleMutated = true;
     impl->style->spriteAtlas->setSprite(name, std::move(image));
-    impl->style->spriteAtlas->updateDirty();
+    if (impl->styleTransactions) {
+        impl->spriteAtlasDirty = true;
+    } else {
+        impl->style->spriteAtlas->updateDirty();
+    }
+
+    impl->onUpdate(Update::Repaint);
+}
+
+void Map::addImages(std::map<std::string, std::unique_ptr<const SpriteImage>> images) {
+    if (!impl->style || images.empty()) {
+        return;
+    }
+
+    SpriteAtlas::Sprites sprites;
+    for (auto& image : images) {
+        sprites.emplace(image.first, std::move(image.second));
+    }
+
+    impl->styleMutated = true;
+    impl->style->spriteAtlas->setSprites(sprites);
+    if (impl->styleTransactions) {
+        impl->spriteAtlasDirty = true;
+    } else {
+        impl->style->spriteAtlas->updateDirty();
+    }
 
     impl->onUpdate(Update::Repaint);
 }
@@ -917,11 +1145,46 @@ void Map::removeImage(const std::string& name) {
 
     impl->styleMutated = true;
     impl->style->spriteAtlas->removeSprite(name);
-    impl->style->spriteAtlas->updateDirty();
+    if (impl->styleTransactions) {
+        impl->spriteAtlasDirty = true;
+    } else {
+        impl->style->spriteAtlas->updateDirty();
+    }
 
     impl->onUpdate(Update::Repaint);
 }
 
+void Map::beginStyleTransaction() {
+    if (impl->styleTransactions++) {
+        return;
+    }
+
+    // Keep the context current for the whole transaction instead of switching it for each layer.
+    impl->backend.activate();
+}
+
+void Map::commitStyleTransaction() {
+    if (!impl->styleTransactions) {
+        throw util::MisuseException("No style transaction to commit");
+    }
+    if (--impl->styleTransactions) {
+        return;
+    }
+
+    if (impl->spriteAtlasDirty && impl->style) {
+        impl->style->spriteAtlas->updateDirty();
+    }
+    impl->spriteAtlasDirty = false;
+
+    impl->backend.deactivate();
+
+    Update flags = impl->transactionUpdateFlags;
+    impl->transactionUpdateFlags = Update::Nothing;
+    if (flags != Update::Nothing) {
+        impl->onUpdate(flags);
+    }
+}
+
 #pragma mark - Defaults
 
 std::string Map::getStyleName() const {
@@ -1030,6 +1293,10 @@ void Map::setTransitionOptions(const style::TransitionOptions& options) {
     }
 }
 
+bool Map::isTransitioningStyle() const {
+    return impl->style ? impl->style->hasTransitions() : false;
+}
+
 bool Map::hasClass(const std::string& className) const {
     return impl->style ? impl->style->hasClass(className) : false;
 }
@@ -1050,7 +1317,15 @@ void Map::setSourceTileCacheSize(size_t size) {
     }
 }
 
+void Map::setStyleCacheSize(size_t size) {
+    impl->styleCacheSize = size;
+    while (impl->styleCache.size() > size) {
+        impl->styleCache.pop_back();
+    }
+}
+
 void Map::onLowMemory() {
+    impl->styleCache.clear();
     if (impl->painter) {
         impl->backend.activate();
         impl->painter->cleanup();
@@ -1067,6 +1342,10 @@ void Map::Impl::onSourceAttributionChanged(style::Source&, const std::string&) {
 }
 
 void Map::Impl::onUpdate(Update flags) {
+    if (styleTransactions) {
+        transactionUpdateFlags |= flags;
+        return;
+    }
     updateFlags |= flags;
     asyncUpdate.send();
 }
@@ -1097,4 +1376,8 @@ void Map::dumpDebugLogs() const {
     Log::Info(Event::General, "--------------------------------------------------------------------------------");
 }
 
+const FrameStatistics& Map::getFrameStatistics() const {
+    return impl->frameStatistics;
+}
+
 } // namespace mbgl
@@ -0,0 +1,55 @@
+#include <mbgl/map/rendered_features_snapshot_impl.hpp>
+#include <mbgl/style/layer_impl.hpp>
+#include <mbgl/style/query_parameters.hpp>
+
+#include <iterator>
+#include <unordered_map>
+
+namespace mbgl {
+
+RenderedFeaturesSnapshot::RenderedFeaturesSnapshot(std::unique_ptr<Impl> impl_)
+    : impl(std::move(impl_)) {
+}
+
+RenderedFeaturesSnapshot::~RenderedFeaturesSnapshot() = default;
+
+LayerFeatures RenderedFeaturesSnapshot::queryRenderedFeaturesByLayer(const ScreenCoordinate& point) const {
+    return impl->queryRenderedFeaturesByLayer({ point });
+}
+
+LayerFeatures RenderedFeaturesSnapshot::queryRenderedFeaturesByLayer(const ScreenBox& box) const {
+    return impl->queryRenderedFeaturesByLayer({
+        box.min,
+        { box.max.x, box.min.y },
+        box.max,
+        { box.min.x, box.max.y },
+        box.min
+    });
+}
+
+LayerFeatures RenderedFeaturesSnapshot::Impl::queryRenderedFeaturesByLayer(const ScreenLineString& geometry) const {
+    const style::QueryParameters parameters { geometry, transformState, layerIDs };
+
+    std::unordered_map<std::string, std::vector<Feature>> resultsByLayer;
+    for (const auto& renderedTiles : sources) {
+        auto sourceResults = style::Source::Impl::queryRenderedFeatures(renderedTiles, parameters, queryLayers);
+        std::move(sourceResults.begin(), sourceResults.end(), std::inserter(resultsByLayer, resultsByLayer.begin()));
+    }
+
+    LayerFeatures result;
+    if (resultsByLayer.empty()) {
+        return result;
+    }
+
+    // Combine all results based on the style layer order.
+    for (const auto& layer : layers) {
+        auto it = resultsByLayer.find(layer->baseImpl->id);
+        if (it != resultsByLayer.end() && !it->second.empty()) {
+            result.emplace_back(it->first, std::move(it->second));
+        }
+    }
+
+    return result;
+}
+
+} // namespace mbgl
@@ -0,0 +1,36 @@
+#pragma once
+
+#include <mbgl/map/rendered_features_snapshot.hpp>
+#include <mbgl/map/transform_state.hpp>
+#include <mbgl/geometry/feature_index.hpp>
+#include <mbgl/style/layer.hpp>
+#include <mbgl/style/source_impl.hpp>
+#include <mbgl/util/optional.hpp>
+
+#include <memory>
+#include <string>
+#include <vector>
+
+namespace mbgl {
+
+class RenderedFeaturesSnapshot::Impl {
+public:
+    Impl(const TransformState& transformState_, const optional<std::vector<std::string>>& layerIDs_)
+        : transformState(transformState_),
+          layerIDs(layerIDs_) {
+    }
+
+    LayerFeatures queryRenderedFeaturesByLayer(const ScreenLineString&) const;
+
+    const TransformState transformState;
+    const optional<std::vector<std::string>> layerIDs;
+
+    // Copies of the style layers that can be queried, in style order.
+    std::vector<std::unique_ptr<style::Layer>> layers;
+    QueryLayers queryLayers;
+
+    // The rendered tiles of each source used by one of the layers.
+    std::vector<style::Source::Impl::RenderedTiles> sources;
+};
+
+} // namespace mbgl
@@ -153,11 +153,14 @@ void Painter::render(const Style& style, const FrameData& frame_, View& view, Sp
         frameHistory.upload(context, 0);
         annotationSpriteAtlas.upload(context, 0);
 
+        std::unordered_set<const RenderTile*> uploaded;
         for (const auto& item : order) {
             if (item.bucket && item.bucket->needsUpload()) {
                 item.bucket->upload(context);
+                uploaded.insert(item.tile);
             }
         }
+        uploadedTileCount = uploaded.size();
     }
 
     // - CLEAR -------------------------------------------------------------------------------------
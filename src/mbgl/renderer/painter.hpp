@@ -96,6 +96,9 @@ public:
 
     bool needsAnimation() const;
 
+    // Number of tiles uploaded to the GPU by the last render.
+    uint32_t uploadedTiles() const { return uploadedTileCount; }
+
 private:
     std::vector<RenderItem> determineRenderOrder(const style::Style&);
 
@@ -138,6 +141,8 @@ private:
 
     FrameData frame;
 
+    uint32_t uploadedTileCount = 0;
+
     int indent = 0;
 
     RenderPass pass = RenderPass::Opaque;
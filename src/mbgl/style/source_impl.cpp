@@ -2,6 +2,7 @@
 #include <mbgl/style/source_observer.hpp>
 #include <mbgl/map/transform.hpp>
 #include <mbgl/renderer/render_tile.hpp>
+#include <mbgl/geometry/feature_index.hpp>
 #include <mbgl/renderer/painter.hpp>
 #include <mbgl/style/update_parameters.hpp>
 #include <mbgl/style/query_parameters.hpp>
@@ -200,9 +201,36 @@ void Source::Impl::reloadTiles() {
     }
 }
 
-std::unordered_map<std::string, std::vector<Feature>> Source::Impl::queryRenderedFeatures(const QueryParameters& parameters) const {
-    std::unordered_map<std::string, std::vector<Feature>> result;
+Source::Impl::RenderedTiles Source::Impl::getRenderedTiles() const {
+    RenderedTiles result;
+    for (const auto& pair : renderTiles) {
+        auto features = pair.second.tile.getRenderedFeatures();
+        if (features) {
+            result.emplace_back(pair.first, std::move(features));
+        }
+    }
+
+    std::sort(result.begin(), result.end(), [](const auto& a, const auto& b) {
+        return a.first.canonical.z != b.first.canonical.z ? a.first.canonical.z < b.first.canonical.z :
+               a.first.canonical.y != b.first.canonical.y ? a.first.canonical.y < b.first.canonical.y :
+               a.first.wrap != b.first.wrap ? a.first.wrap < b.first.wrap : a.first.canonical.x < b.first.canonical.x;
+    });
+    return result;
+}
+
+std::unordered_map<std::string, std::vector<Feature>> Source::Impl::queryRenderedFeatures(const QueryParameters& parameters,
+                                                                                          const QueryLayers& queryLayers) const {
     if (renderTiles.empty() || parameters.geometry.empty()) {
+        return {};
+    }
+    return queryRenderedFeatures(getRenderedTiles(), parameters, queryLayers);
+}
+
+std::unordered_map<std::string, std::vector<Feature>> Source::Impl::queryRenderedFeatures(const RenderedTiles& renderedTiles,
+                                                                                          const QueryParameters& parameters,
+                                                                                          const QueryLayers& queryLayers) {
+    std::unordered_map<std::string, std::vector<Feature>> result;
+    if (renderedTiles.empty() || parameters.geometry.empty()) {
         return result;
     }
 
@@ -215,25 +243,14 @@ std::unordered_map<std::string, std::vector<Feature>> Source::Impl::queryRendere
 
     mapbox::geometry::box<double> box = mapbox::geometry::envelope(queryGeometry);
 
-
-    auto sortRenderTiles = [](const RenderTile& a, const RenderTile& b) {
-        return a.id.canonical.z != b.id.canonical.z ? a.id.canonical.z < b.id.canonical.z :
-               a.id.canonical.y != b.id.canonical.y ? a.id.canonical.y < b.id.canonical.y :
-               a.id.wrap != b.id.wrap ? a.id.wrap < b.id.wrap : a.id.canonical.x < b.id.canonical.x;
-    };
-    std::vector<std::reference_wrapper<const RenderTile>> sortedTiles;
-    std::transform(renderTiles.cbegin(), renderTiles.cend(), std::back_inserter(sortedTiles),
-                   [](const auto& pair) { return std::ref(pair.second); });
-    std::sort(sortedTiles.begin(), sortedTiles.end(), sortRenderTiles);
-
-    for (const auto& renderTileRef : sortedTiles) {
-        const RenderTile& renderTile = renderTileRef.get();
-        GeometryCoordinate tileSpaceBoundsMin = TileCoordinate::toGeometryCoordinate(renderTile.id, box.min);
+    for (const auto& renderedTile : renderedTiles) {
+        const UnwrappedTileID& id = renderedTile.first;
+        GeometryCoordinate tileSpaceBoundsMin = TileCoordinate::toGeometryCoordinate(id, box.min);
         if (tileSpaceBoundsMin.x >= util::EXTENT || tileSpaceBoundsMin.y >= util::EXTENT) {
             continue;
         }
 
-        GeometryCoordinate tileSpaceBoundsMax = TileCoordinate::toGeometryCoordinate(renderTile.id, box.max);
+        GeometryCoordinate tileSpaceBoundsMax = TileCoordinate::toGeometryCoordinate(id, box.max);
         if (tileSpaceBoundsMax.x < 0 || tileSpaceBoundsMax.y < 0) {
             continue;
         }
@@ -241,13 +258,14 @@ std::unordered_map<std::string, std::vector<Feature>> Source::Impl::queryRendere
         GeometryCoordinates tileSpaceQueryGeometry;
         tileSpaceQueryGeometry.reserve(queryGeometry.size());
         for (const auto& c : queryGeometry) {
-            tileSpaceQueryGeometry.push_back(TileCoordinate::toGeometryCoordinate(renderTile.id, c));
+            tileSpaceQueryGeometry.push_back(TileCoordinate::toGeometryCoordinate(id, c));
         }
 
-        renderTile.tile.queryRenderedFeatures(result,
-                                              tileSpaceQueryGeometry,
-                                              parameters.transformState,
-                                              parameters.layerIDs);
+        renderedTile.second->query(result,
+                                   tileSpaceQueryGeometry,
+                                   parameters.transformState,
+                                   parameters.layerIDs,
+                                   queryLayers);
     }
 
     return result;
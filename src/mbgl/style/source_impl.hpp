@@ -24,6 +24,8 @@ class Painter;
 class FileSource;
 class TransformState;
 class RenderTile;
+class RenderedTileFeatures;
+class QueryLayers;
 
 namespace algorithm {
 class ClipIDGenerator;
@@ -41,7 +43,7 @@ public:
     ~Impl() override;
 
     virtual void loadDescription(FileSource&) = 0;
-    bool isLoaded() const;
+    virtual bool isLoaded() const;
 
     // Called when the camera has changed. May load new tiles, unload obsolete tiles, or
     // trigger re-placement of existing complete tiles.
@@ -65,8 +67,16 @@ public:
 
     std::map<UnwrappedTileID, RenderTile>& getRenderTiles();
 
+    // The features of the rendered tiles, in the order they are queried.
+    using RenderedTiles = std::vector<std::pair<UnwrappedTileID, std::shared_ptr<const RenderedTileFeatures>>>;
+    RenderedTiles getRenderedTiles() const;
+
     std::unordered_map<std::string, std::vector<Feature>>
-    queryRenderedFeatures(const QueryParameters&) const;
+    queryRenderedFeatures(const QueryParameters&, const QueryLayers&) const;
+
+    // Queries tiles returned by getRenderedTiles(). May be called on any thread.
+    static std::unordered_map<std::string, std::vector<Feature>>
+    queryRenderedFeatures(const RenderedTiles&, const QueryParameters&, const QueryLayers&);
 
     void setCacheSize(size_t);
     void onLowMemory();
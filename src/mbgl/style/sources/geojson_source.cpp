@@ -18,6 +18,23 @@ void GeoJSONSource::setGeoJSON(const mapbox::geojson::geojson& geoJSON) {
     impl->setGeoJSON(geoJSON);
 }
 
+void GeoJSONSource::setGeoJSONAsync(std::function<GeoJSON ()> parse,
+                                    std::function<void (std::exception_ptr)> callback) {
+    impl->setGeoJSONAsync(std::move(parse), std::move(callback));
+}
+
+void GeoJSONSource::addFeatures(const FeatureCollection& features) {
+    impl->addFeatures(features);
+}
+
+void GeoJSONSource::updateFeatures(const FeatureCollection& features) {
+    impl->updateFeatures(features);
+}
+
+void GeoJSONSource::removeFeatures(const std::vector<FeatureIdentifier>& ids) {
+    impl->removeFeatures(ids);
+}
+
 optional<std::string> GeoJSONSource::getURL() {
     return impl->getURL();
 }
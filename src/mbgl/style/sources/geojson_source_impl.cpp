@@ -5,15 +5,21 @@
 #include <mbgl/style/sources/geojson_source_impl.hpp>
 #include <mbgl/tile/geojson_tile.hpp>
 #include <mbgl/util/rapidjson.hpp>
+#include <mbgl/util/constants.hpp>
+#include <mbgl/util/thread.hpp>
+#include <mbgl/util/async_request.hpp>
+#include <mbgl/math/clamp.hpp>
 
 #include <mapbox/geojson.hpp>
 #include <mapbox/geojson/rapidjson.hpp>
 #include <mapbox/geojsonvt.hpp>
 #include <mapbox/geojsonvt/convert.hpp>
+#include <mapbox/geometry/envelope.hpp>
 #include <supercluster.hpp>
 
 #include <rapidjson/error/en.h>
 
+#include <cmath>
 #include <sstream>
 
 namespace mbgl {
@@ -30,6 +36,32 @@ Result<GeoJSON> convertGeoJSON(const JSValue& value) {
 }
 } // namespace conversion
 
+class GeoJSONSource::Impl::Worker {
+public:
+    void parse(std::function<GeoJSON ()> parseFn,
+               GeoJSONOptions options,
+               std::function<void (std::exception_ptr, std::shared_ptr<Data>)> callback) {
+        std::shared_ptr<Data> data;
+        try {
+            data = std::make_shared<Data>();
+            data->features = toFeatures(parseFn());
+            data->index = createTileIndex(data->features, options);
+        } catch (...) {
+            callback(std::current_exception(), nullptr);
+            return;
+        }
+        callback(nullptr, std::move(data));
+    }
+
+    void index(FeatureCollection features,
+               GeoJSONOptions options,
+               std::function<void (std::shared_ptr<Data>)> callback) {
+        auto data = std::make_shared<Data>();
+        data->index = createTileIndex(features, options);
+        callback(std::move(data));
+    }
+};
+
 GeoJSONSource::Impl::Impl(std::string id_, Source& base_, const GeoJSONOptions options_)
     : Source::Impl(SourceType::GeoJSON, std::move(id_), base_), options(options_) {
 }
@@ -38,6 +70,9 @@ GeoJSONSource::Impl::~Impl() = default;
 
 void GeoJSONSource::Impl::setURL(std::string url_) {
     url = std::move(url_);
+    parseRequest.reset();
+    parseMutations.clear();
+    cancelTileIndex();
 
     //Signal that the source description needs a reload
     if (loaded || req) {
@@ -54,14 +89,226 @@ optional<std::string> GeoJSONSource::Impl::getURL() {
 
 void GeoJSONSource::Impl::setGeoJSON(const GeoJSON& geoJSON) {
     req.reset();
+    parseRequest.reset();
+    parseMutations.clear();
     _setGeoJSON(geoJSON);
 }
 
+void GeoJSONSource::Impl::setGeoJSONAsync(std::function<GeoJSON ()> parse,
+                                          std::function<void (std::exception_ptr)> callback) {
+    req.reset();
+    // Changes made before this update apply to the data it replaces
+    parseMutations.clear();
+
+    if (geoJSONOrSupercluster.is<GeoJSONVTPointer>() && !geoJSONOrSupercluster.get<GeoJSONVTPointer>()) {
+        // Create an empty GeoJSON VT object to make sure we're not infinitely waiting for
+        // tiles to load.
+        _setGeoJSON(GeoJSON{ FeatureCollection{} });
+    }
+
+    if (!worker) {
+        worker = std::make_unique<util::Thread<Worker>>(
+            util::ThreadContext{ "GeoJSONSource", util::ThreadPriority::Low });
+    }
+
+    // The current data keeps rendering until the new data is indexed
+    parseRequest = worker->invokeWithCallback(&Worker::parse, std::move(parse), options,
+        [this, callback] (std::exception_ptr error, std::shared_ptr<Data> data) {
+            parseRequest.reset();
+            auto mutations = std::move(parseMutations);
+            parseMutations.clear();
+            if (data) {
+                cancelTileIndex();
+                features = std::move(data->features);
+                indexFeatures();
+                setTileIndex(std::move(data->index), {});
+
+                // The changes made while parsing already apply to the previous data
+                for (auto& mutation : mutations) {
+                    mutation();
+                }
+            }
+            callback(error);
+        });
+}
+
+void GeoJSONSource::Impl::addFeatures(const FeatureCollection& added) {
+    if (parseRequest) {
+        parseMutations.push_back([this, added] { mergeFeatures(added, true); });
+    }
+    mergeFeatures(added, true);
+}
+
+void GeoJSONSource::Impl::updateFeatures(const FeatureCollection& updated) {
+    if (parseRequest) {
+        parseMutations.push_back([this, updated] { mergeFeatures(updated, false); });
+    }
+    mergeFeatures(updated, false);
+}
+
+void GeoJSONSource::Impl::removeFeatures(const std::vector<FeatureIdentifier>& ids) {
+    if (parseRequest) {
+        parseMutations.push_back([this, ids] { removeFeatures(ids); });
+    }
+
+    std::vector<mapbox::geometry::box<double>> changes;
+    std::vector<bool> removed(features.size(), false);
+    for (const auto& id : ids) {
+        auto it = featureIndex.find(id);
+        if (it != featureIndex.end() && !removed[it->second]) {
+            removed[it->second] = true;
+            changes.push_back(projectBounds(features[it->second].geometry));
+        }
+    }
+
+    if (changes.empty()) {
+        return;
+    }
+
+    // Compact in place to keep the order the features are drawn in
+    std::size_t kept = 0;
+    for (std::size_t i = 0; i < features.size(); i++) {
+        if (!removed[i]) {
+            if (kept != i) {
+                features[kept] = std::move(features[i]);
+            }
+            kept++;
+        }
+    }
+    features.erase(features.begin() + kept, features.end());
+    indexFeatures();
+
+    updateTileDataAsync(std::move(changes));
+}
+
+bool GeoJSONSource::Impl::isLoaded() const {
+    return !indexRequest && Source::Impl::isLoaded();
+}
+
 //Private implementation
 void GeoJSONSource::Impl::_setGeoJSON(const GeoJSON& geoJSON) {
-    double scale = util::EXTENT / util::tileSize;
+    cancelTileIndex();
+    features = toFeatures(geoJSON);
+    indexFeatures();
+
+    updateTileData({});
+}
+
+void GeoJSONSource::Impl::mergeFeatures(const FeatureCollection& changed, bool add) {
+    std::vector<mapbox::geometry::box<double>> changes;
+    for (const auto& feature : changed) {
+        auto it = feature.id ? featureIndex.find(*feature.id) : featureIndex.end();
+        if (it != featureIndex.end()) {
+            // Both the tiles the feature leaves and the tiles it enters change
+            changes.push_back(projectBounds(features[it->second].geometry));
+            features[it->second] = feature;
+        } else if (add) {
+            if (feature.id) {
+                featureIndex.emplace(*feature.id, features.size());
+            }
+            features.push_back(feature);
+        } else {
+            continue;
+        }
+        changes.push_back(projectBounds(feature.geometry));
+    }
 
-    cache.clear();
+    if (!changes.empty()) {
+        updateTileDataAsync(std::move(changes));
+    }
+}
+
+void GeoJSONSource::Impl::indexFeatures() {
+    featureIndex.clear();
+    for (std::size_t i = 0; i < features.size(); i++) {
+        if (features[i].id) {
+            featureIndex[*features[i].id] = i;
+        }
+    }
+}
+
+// Rebuilds the tile index from the features and updates the loaded tiles intersecting the changed
+// bounds, in world coordinates. All tiles are updated when no bounds are given.
+void GeoJSONSource::Impl::updateTileData(const std::vector<mapbox::geometry::box<double>>& changes) {
+    setTileIndex(createTileIndex(features, options), changes);
+}
+
+// Rebuilds the tile index on the worker thread, the current index keeps rendering until the new
+// one is ready. Changes made while an index is being built are applied by a single rebuild once
+// it's done.
+void GeoJSONSource::Impl::updateTileDataAsync(std::vector<mapbox::geometry::box<double>> changes) {
+    pendingChanges.insert(pendingChanges.end(), changes.begin(), changes.end());
+    if (indexRequest) {
+        return;
+    }
+
+    if (!worker) {
+        worker = std::make_unique<util::Thread<Worker>>(
+            util::ThreadContext{ "GeoJSONSource", util::ThreadPriority::Low });
+    }
+
+    // The worker indexes a copy, the features keep changing on this thread
+    indexedChanges = std::move(pendingChanges);
+    pendingChanges.clear();
+    indexRequest = worker->invokeWithCallback(&Worker::index, features, options,
+        [this] (std::shared_ptr<Data> data) {
+            indexRequest.reset();
+            setTileIndex(std::move(data->index), indexedChanges);
+            indexedChanges.clear();
+
+            if (!pendingChanges.empty()) {
+                updateTileDataAsync({});
+            }
+
+            // Lets a still image that waited for the index render, even if no loaded tile changed
+            observer->onSourceLoaded(base);
+        });
+}
+
+void GeoJSONSource::Impl::cancelTileIndex() {
+    indexRequest.reset();
+    indexedChanges.clear();
+    pendingChanges.clear();
+}
+
+void GeoJSONSource::Impl::setTileIndex(TileIndex index,
+                                       const std::vector<mapbox::geometry::box<double>>& changes) {
+    geoJSONOrSupercluster = std::move(index);
+
+    // A changed point may join or leave clusters anywhere on the map
+    const bool updateAll = changes.empty() || options.cluster;
+    const double buffer = double(options.buffer) / util::tileSize;
+
+    // Cached tiles the changes don't reach are still valid
+    if (updateAll) {
+        cache.clear();
+    } else {
+        cache.removeIf([&] (const OverscaledTileID& tileID) {
+            return intersects(tileID.canonical, buffer, changes);
+        });
+    }
+
+    for (auto const &item : tiles) {
+        GeoJSONTile* geoJSONTile = static_cast<GeoJSONTile*>(item.second.get());
+        if (updateAll || intersects(geoJSONTile->id.canonical, buffer, changes)) {
+            setTileData(*geoJSONTile, geoJSONTile->id);
+        }
+    }
+}
+
+FeatureCollection GeoJSONSource::Impl::toFeatures(GeoJSON geoJSON) {
+    if (geoJSON.is<FeatureCollection>()) {
+        return std::move(geoJSON.get<FeatureCollection>());
+    } else if (geoJSON.is<Feature>()) {
+        return { std::move(geoJSON.get<Feature>()) };
+    } else {
+        return { Feature { std::move(geoJSON.get<mapbox::geometry::geometry<double>>()) } };
+    }
+}
+
+GeoJSONSource::Impl::TileIndex GeoJSONSource::Impl::createTileIndex(const FeatureCollection& features,
+                                                                   const GeoJSONOptions& options) {
+    double scale = util::EXTENT / util::tileSize;
 
     if (!options.cluster) {
         mapbox::geojsonvt::Options vtOptions;
@@ -69,7 +316,7 @@ void GeoJSONSource::Impl::_setGeoJSON(const GeoJSON& geoJSON) {
         vtOptions.extent = util::EXTENT;
         vtOptions.buffer = std::round(scale * options.buffer);
         vtOptions.tolerance = scale * options.tolerance;
-        geoJSONOrSupercluster = std::make_unique<mapbox::geojsonvt::GeoJSONVT>(geoJSON, vtOptions);
+        return std::make_unique<mapbox::geojsonvt::GeoJSONVT>(features, vtOptions);
 
     } else {
         mapbox::supercluster::Options clusterOptions;
@@ -77,15 +324,34 @@ void GeoJSONSource::Impl::_setGeoJSON(const GeoJSON& geoJSON) {
         clusterOptions.extent = util::EXTENT;
         clusterOptions.radius = std::round(scale * options.clusterRadius);
 
-        const auto& features = geoJSON.get<mapbox::geometry::feature_collection<double>>();
-        geoJSONOrSupercluster =
-            std::make_unique<mapbox::supercluster::Supercluster>(features, clusterOptions);
+        return std::make_unique<mapbox::supercluster::Supercluster>(features, clusterOptions);
     }
+}
 
-    for (auto const &item : tiles) {
-        GeoJSONTile* geoJSONTile = static_cast<GeoJSONTile*>(item.second.get());
-        setTileData(*geoJSONTile, geoJSONTile->id);
+mapbox::geometry::box<double> GeoJSONSource::Impl::projectBounds(const mapbox::geometry::geometry<double>& geometry) {
+    mapbox::geometry::box<double> bounds = mapbox::geometry::envelope(geometry);
+
+    auto projectY = [](double latitude) {
+        double sine = std::sin(latitude * util::DEG2RAD);
+        return util::clamp(0.5 - 0.25 * std::log((1 + sine) / (1 - sine)) / M_PI, 0.0, 1.0);
+    };
+
+    return {
+        { bounds.min.x / 360 + 0.5, projectY(bounds.max.y) },
+        { bounds.max.x / 360 + 0.5, projectY(bounds.min.y) }
+    };
+}
+
+bool GeoJSONSource::Impl::intersects(const CanonicalTileID& tileID, double buffer,
+                                     const std::vector<mapbox::geometry::box<double>>& bounds) {
+    const double tiles = std::pow(2, tileID.z);
+    for (const auto& box : bounds) {
+        if (box.min.x * tiles <= tileID.x + 1 + buffer && box.max.x * tiles >= tileID.x - buffer &&
+            box.min.y * tiles <= tileID.y + 1 + buffer && box.max.y * tiles >= tileID.y - buffer) {
+            return true;
+        }
     }
+    return false;
 }
 
 void GeoJSONSource::Impl::setTileData(GeoJSONTile& tile, const OverscaledTileID& tileID) {
@@ -4,11 +4,23 @@
 #include <mbgl/style/sources/geojson_source.hpp>
 #include <mbgl/util/variant.hpp>
 #include <mbgl/tile/geojson_tile.hpp>
+#include <mbgl/util/feature.hpp>
+
+#include <mapbox/geometry/box.hpp>
+
+#include <exception>
+#include <functional>
+#include <map>
+#include <vector>
 
 namespace mbgl {
 
 class AsyncRequest;
 
+namespace util {
+template <class> class Thread;
+} // namespace util
+
 namespace style {
 
 class GeoJSONSource::Impl : public Source::Impl {
@@ -20,16 +32,44 @@ public:
     optional<std::string> getURL();
 
     void setGeoJSON(const GeoJSON&);
+    void setGeoJSONAsync(std::function<GeoJSON ()>, std::function<void (std::exception_ptr)>);
+    void addFeatures(const FeatureCollection&);
+    void updateFeatures(const FeatureCollection&);
+    void removeFeatures(const std::vector<FeatureIdentifier>&);
     void setTileData(GeoJSONTile&, const OverscaledTileID& tileID);
 
     void loadDescription(FileSource&) final;
+    bool isLoaded() const final;
 
     uint16_t getTileSize() const final {
         return util::tileSize;
     }
 
 private:
+    using TileIndex = variant<GeoJSONVTPointer, SuperclusterPointer>;
+
+    // Parsed and indexed data, created on the worker thread by asynchronous updates
+    struct Data {
+        FeatureCollection features;
+        TileIndex index;
+    };
+
+    class Worker;
+
     void _setGeoJSON(const GeoJSON&);
+    void mergeFeatures(const FeatureCollection&, bool add);
+    void indexFeatures();
+    void updateTileData(const std::vector<mapbox::geometry::box<double>>& changes);
+    void updateTileDataAsync(std::vector<mapbox::geometry::box<double>> changes);
+    void cancelTileIndex();
+    void setTileIndex(TileIndex, const std::vector<mapbox::geometry::box<double>>& changes);
+
+    static FeatureCollection toFeatures(GeoJSON);
+    static TileIndex createTileIndex(const FeatureCollection&, const GeoJSONOptions&);
+
+    static mapbox::geometry::box<double> projectBounds(const mapbox::geometry::geometry<double>&);
+    static bool intersects(const CanonicalTileID&, double buffer,
+                           const std::vector<mapbox::geometry::box<double>>&);
 
     Range<uint8_t> getZoomRange() final;
     std::unique_ptr<Tile> createTile(const OverscaledTileID&, const UpdateParameters&) final;
@@ -37,7 +77,24 @@ private:
     GeoJSONOptions options;
     optional<std::string> url;
     std::unique_ptr<AsyncRequest> req;
-    variant<GeoJSONVTPointer, SuperclusterPointer> geoJSONOrSupercluster;
+    TileIndex geoJSONOrSupercluster;
+
+    // The features the tiles are generated from, kept to apply feature level changes
+    FeatureCollection features;
+    std::map<FeatureIdentifier, std::size_t> featureIndex;
+
+    // Created on the first asynchronous update
+    std::unique_ptr<util::Thread<Worker>> worker;
+    std::unique_ptr<AsyncRequest> parseRequest;
+
+    // Feature level changes made while data is parsed, applied again to the parsed data
+    std::vector<std::function<void ()>> parseMutations;
+
+    // The tile index rebuilt after feature level changes, the changes it applies and the changes
+    // made since it was requested
+    std::unique_ptr<AsyncRequest> indexRequest;
+    std::vector<mapbox::geometry::box<double>> indexedChanges;
+    std::vector<mapbox::geometry::box<double>> pendingChanges;
 };
 
 } // namespace style
@@ -24,6 +24,8 @@
 #include <mbgl/geometry/line_atlas.hpp>
 #include <mbgl/renderer/render_item.hpp>
 #include <mbgl/renderer/render_tile.hpp>
+#include <mbgl/map/rendered_features_snapshot_impl.hpp>
+#include <mbgl/geometry/feature_index.hpp>
 #include <mbgl/util/constants.hpp>
 #include <mbgl/util/string.hpp>
 #include <mbgl/util/logging.hpp>
@@ -97,15 +99,18 @@ TransitionOptions Style::getTransitionOptions() const {
 }
 
 void Style::setJSON(const std::string& json) {
+    Parser parser;
+    auto error = parser.parse(json);
+    setParsed(parser, error);
+}
+
+void Style::setParsed(Parser& parser, std::exception_ptr error) {
     sources.clear();
     layers.clear();
     classes.clear();
     transitionOptions = {};
     updateBatch = {};
 
-    Parser parser;
-    auto error = parser.parse(json);
-
     if (error) {
         Log::Error(Event::ParseStyle, "Failed to parse style: %s", util::toString(error).c_str());
         observer->onStyleError();
@@ -456,6 +461,14 @@ RenderData Style::getRenderData(MapDebugOptions debugOptions, float angle) const
 }
 
 std::vector<Feature> Style::queryRenderedFeatures(const QueryParameters& parameters) const {
+    std::vector<Feature> result;
+    for (auto& layerFeatures : queryRenderedFeaturesByLayer(parameters)) {
+        std::move(layerFeatures.second.begin(), layerFeatures.second.end(), std::back_inserter(result));
+    }
+    return result;
+}
+
+LayerFeatures Style::queryRenderedFeaturesByLayer(const QueryParameters& parameters) const {
     std::unordered_set<std::string> sourceFilter;
 
     if (parameters.layerIDs) {
@@ -465,7 +478,13 @@ std::vector<Feature> Style::queryRenderedFeatures(const QueryParameters& paramet
         }
     }
 
-    std::vector<Feature> result;
+    QueryLayers queryLayers;
+    for (const auto& layer : layers) {
+        queryLayers.layers.emplace(layer->baseImpl->id, layer.get());
+    }
+    queryLayers.queryRadius = getQueryRadius();
+
+    LayerFeatures result;
     std::unordered_map<std::string, std::vector<Feature>> resultsByLayer;
 
     for (const auto& source : sources) {
@@ -473,7 +492,7 @@ std::vector<Feature> Style::queryRenderedFeatures(const QueryParameters& paramet
             continue;
         }
 
-        auto sourceResults = source->baseImpl->queryRenderedFeatures(parameters);
+        auto sourceResults = source->baseImpl->queryRenderedFeatures(parameters, queryLayers);
         std::move(sourceResults.begin(), sourceResults.end(), std::inserter(resultsByLayer, resultsByLayer.begin()));
     }
 
@@ -487,14 +506,47 @@ std::vector<Feature> Style::queryRenderedFeatures(const QueryParameters& paramet
             continue;
         }
         auto it = resultsByLayer.find(layer->baseImpl->id);
-        if (it != resultsByLayer.end()) {
-            std::move(it->second.begin(), it->second.end(), std::back_inserter(result));
+        if (it != resultsByLayer.end() && !it->second.empty()) {
+            result.emplace_back(it->first, std::move(it->second));
         }
     }
 
     return result;
 }
 
+std::unique_ptr<RenderedFeaturesSnapshot> Style::snapshotRenderedFeatures(const TransformState& transformState,
+                                                                         const optional<std::vector<std::string>>& layerIDs) const {
+    auto snapshot = std::make_unique<RenderedFeaturesSnapshot::Impl>(transformState, layerIDs);
+    std::unordered_set<std::string> sourceIDs;
+
+    for (const auto& layer : layers) {
+        // Background and custom layers have no features to query.
+        if (layer->is<BackgroundLayer>() ||
+            layer->is<CustomLayer>() ||
+            !layer->baseImpl->needsRendering(zoomHistory.lastZoom)) {
+            continue;
+        }
+        if (layerIDs && std::find(layerIDs->begin(), layerIDs->end(), layer->baseImpl->id) == layerIDs->end()) {
+            continue;
+        }
+
+        // Copied because the style may change while the snapshot is queried.
+        snapshot->layers.push_back(layer->baseImpl->clone());
+        const Layer* copy = snapshot->layers.back().get();
+        snapshot->queryLayers.layers.emplace(copy->baseImpl->id, copy);
+        snapshot->queryLayers.queryRadius = util::max(snapshot->queryLayers.queryRadius, copy->baseImpl->getQueryRadius());
+        sourceIDs.emplace(copy->baseImpl->source);
+    }
+
+    for (const auto& source : sources) {
+        if (sourceIDs.find(source->getID()) != sourceIDs.end()) {
+            snapshot->sources.push_back(source->baseImpl->getRenderedTiles());
+        }
+    }
+
+    return std::make_unique<RenderedFeaturesSnapshot>(std::move(snapshot));
+}
+
 float Style::getQueryRadius() const {
     float additionalRadius = 0;
     for (auto& layer : layers) {
@@ -520,7 +572,7 @@ void Style::onLowMemory() {
 }
 
 void Style::setObserver(style::Observer* observer_) {
-    observer = observer_;
+    observer = observer_ ? observer_ : &nullObserver;
 }
 
 void Style::onGlyphsLoaded(const FontStack& fontStack, const GlyphRange& glyphRange) {
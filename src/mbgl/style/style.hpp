@@ -17,6 +17,7 @@
 #include <mbgl/util/geo.hpp>
 
 #include <cstdint>
+#include <exception>
 #include <memory>
 #include <string>
 #include <vector>
@@ -28,10 +29,13 @@ class GlyphAtlas;
 class SpriteAtlas;
 class LineAtlas;
 class RenderData;
+class TransformState;
+class RenderedFeaturesSnapshot;
 
 namespace style {
 
 class Layer;
+class Parser;
 class UpdateParameters;
 class QueryParameters;
 
@@ -46,6 +50,10 @@ public:
 
     void setJSON(const std::string&);
 
+    // Applies a style that was parsed ahead of time, possibly on another thread.
+    // The parser's sources and layers are moved into the style.
+    void setParsed(Parser&, std::exception_ptr error);
+
     void setObserver(Observer*);
 
     bool isLoaded() const;
@@ -93,6 +101,12 @@ public:
     RenderData getRenderData(MapDebugOptions, float angle) const;
 
     std::vector<Feature> queryRenderedFeatures(const QueryParameters&) const;
+    LayerFeatures queryRenderedFeaturesByLayer(const QueryParameters&) const;
+
+    // Captures the layers and tiles queryRenderedFeaturesByLayer() reads, so the query can run
+    // later on another thread.
+    std::unique_ptr<RenderedFeaturesSnapshot> snapshotRenderedFeatures(const TransformState&,
+                                                                       const optional<std::vector<std::string>>& layerIDs) const;
 
     float getQueryRadius() const;
 
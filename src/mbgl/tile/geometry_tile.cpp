@@ -10,7 +10,6 @@
 #include <mbgl/storage/file_source.hpp>
 #include <mbgl/geometry/feature_index.hpp>
 #include <mbgl/text/collision_tile.hpp>
-#include <mbgl/map/transform_state.hpp>
 #include <mbgl/util/run_loop.hpp>
 
 namespace mbgl {
@@ -100,8 +99,9 @@ void GeometryTile::redoLayout() {
 void GeometryTile::onLayout(LayoutResult result) {
     availableData = DataAvailability::Some;
     buckets = std::move(result.buckets);
-    featureIndex = std::move(result.featureIndex);
-    data = std::move(result.tileData);
+    // Symbols are placed again for the new layout.
+    renderedFeatures = std::make_shared<RenderedTileFeatures>(
+        id, std::move(result.featureIndex), std::move(result.tileData), nullptr);
     observer->onTileChanged(*this);
 }
 
@@ -112,7 +112,10 @@ void GeometryTile::onPlacement(PlacementResult result) {
     for (auto& bucket : result.buckets) {
         buckets[bucket.first] = std::move(bucket.second);
     }
-    featureIndex->setCollisionTile(std::move(result.collisionTile));
+    if (renderedFeatures) {
+        renderedFeatures = std::make_shared<RenderedTileFeatures>(
+            id, renderedFeatures->featureIndex, renderedFeatures->data, std::move(result.collisionTile));
+    }
     observer->onTileChanged(*this);
 }
 
@@ -131,23 +134,8 @@ Bucket* GeometryTile::getBucket(const Layer& layer) {
     return it->second.get();
 }
 
-void GeometryTile::queryRenderedFeatures(
-    std::unordered_map<std::string, std::vector<Feature>>& result,
-    const GeometryCoordinates& queryGeometry,
-    const TransformState& transformState,
-    const optional<std::vector<std::string>>& layerIDs) {
-
-    if (!featureIndex || !data) return;
-
-    featureIndex->query(result,
-                        queryGeometry,
-                        transformState.getAngle(),
-                        util::tileSize * id.overscaleFactor(),
-                        std::pow(2, transformState.getZoom() - id.overscaledZ),
-                        layerIDs,
-                        *data,
-                        id.canonical,
-                        style);
+std::shared_ptr<const RenderedTileFeatures> GeometryTile::getRenderedFeatures() const {
+    return renderedFeatures;
 }
 
 } // namespace mbgl
@@ -16,6 +16,7 @@ namespace mbgl {
 class GeometryTileData;
 class FeatureIndex;
 class CollisionTile;
+class RenderedTileFeatures;
 
 namespace style {
 class Style;
@@ -40,11 +41,7 @@ public:
 
     Bucket* getBucket(const style::Layer&) override;
 
-    void queryRenderedFeatures(
-            std::unordered_map<std::string, std::vector<Feature>>& result,
-            const GeometryCoordinates& queryGeometry,
-            const TransformState&,
-            const optional<std::vector<std::string>>& layerIDs) override;
+    std::shared_ptr<const RenderedTileFeatures> getRenderedFeatures() const override;
 
     void cancel() override;
 
@@ -81,8 +78,7 @@ private:
     optional<PlacementConfig> requestedConfig;
 
     std::unordered_map<std::string, std::unique_ptr<Bucket>> buckets;
-    std::unique_ptr<FeatureIndex> featureIndex;
-    std::unique_ptr<const GeometryTileData> data;
+    std::shared_ptr<const RenderedTileFeatures> renderedFeatures;
 };
 
 } // namespace mbgl
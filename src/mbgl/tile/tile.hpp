@@ -21,6 +21,7 @@ class DebugBucket;
 class TransformState;
 class TileObserver;
 class PlacementConfig;
+class RenderedTileFeatures;
 
 namespace style {
 class Layer;
@@ -51,11 +52,8 @@ public:
     virtual void symbolDependenciesChanged() {};
     virtual void redoLayout() {}
 
-    virtual void queryRenderedFeatures(
-            std::unordered_map<std::string, std::vector<Feature>>& result,
-            const GeometryCoordinates& queryGeometry,
-            const TransformState&,
-            const optional<std::vector<std::string>>& layerIDs);
+    // The features rendered in this tile, or nullptr if the tile has none that can be queried.
+    virtual std::shared_ptr<const RenderedTileFeatures> getRenderedFeatures() const { return nullptr; }
 
     void setTriedOptional();
 
@@ -7,6 +7,7 @@
 #include <unordered_map>
 #include <unordered_map>
 #include <functional>
+#include <mutex>
 #include <utility>
 
 namespace mbgl {
@@ -59,14 +60,15 @@ public:
     VectorTileData(std::shared_ptr<const std::string> data);
 
     std::unique_ptr<GeometryTileData> clone() const override {
-        return std::make_unique<VectorTileData>(*this);
+        return std::make_unique<VectorTileData>(data);
     }
 
     const GeometryTileLayer* getLayer(const std::string&) const override;
 
 private:
     std::shared_ptr<const std::string> data;
-    mutable bool parsed = false;
+    // Layers are parsed on first use, which may happen on the thread querying rendered features.
+    mutable std::once_flag parsed;
     mutable std::unordered_map<std::string, VectorTileLayer> layers;
 };
 
@@ -246,14 +248,13 @@ VectorTileData::VectorTileData(std::shared_ptr<const std::string> data_)
 }
 
 const GeometryTileLayer* VectorTileData::getLayer(const std::string& name) const {
-    if (!parsed) {
-        parsed = true;
+    std::call_once(parsed, [&] {
         protozero::pbf_reader tile_pbf(*data);
         while (tile_pbf.next(3)) {
             VectorTileLayer layer(tile_pbf.get_message());
             layers.emplace(layer.name, std::move(layer));
         }
-    }
+    });
 
     auto it = layers.find(name);
     if (it != layers.end()) {
@@ -33,6 +33,12 @@ public:
         test::checkImage(std::string("test/fixtures/annotations/") + name,
                          test::render(map, view), 0.0002, 0.1);
     }
+
+    // Whether an annotation was rendered within a few pixels of the coordinate.
+    bool hasFeatureAt(const LatLng& latLng) {
+        ScreenCoordinate point = map.pixelForLatLng(latLng);
+        return !map.queryRenderedFeatures(ScreenBox { { point.x - 2, point.y - 2 }, { point.x + 2, point.y + 2 } }).empty();
+    }
 };
 
 } // end namespace
@@ -242,6 +248,98 @@ TEST(Annotations, UpdateLineAnnotationStyle) {
     test.checkRendering("update_line_style");
 }
 
+TEST(Annotations, AppendToLineAnnotation) {
+    AnnotationTest test;
+
+    LineAnnotation annotation { LineString<double> {{ { -40, 0 }, { 0, 0 } }} };
+    annotation.width = { 5 };
+
+    test.map.setStyleJSON(util::read_file("test/fixtures/api/empty.json"));
+    AnnotationID line = test.map.addAnnotation(annotation);
+
+    test::render(test.map, test.view);
+    EXPECT_TRUE(test.hasFeatureAt({ 0, -20 }));
+    EXPECT_FALSE(test.hasFeatureAt({ 0, 20 }));
+
+    test.map.appendToAnnotation(line, LineString<double> {{ { 40, 0 } }});
+    test::render(test.map, test.view);
+    EXPECT_TRUE(test.hasFeatureAt({ 0, -20 }));
+    EXPECT_TRUE(test.hasFeatureAt({ 0, 20 }));
+}
+
+TEST(Annotations, AppendToTrimmedLineAnnotation) {
+    AnnotationTest test;
+
+    LineAnnotation annotation { LineString<double> {{ { -40, 0 }, { 0, 0 } }} };
+    annotation.width = { 5 };
+    annotation.trimEnd = 0.5;
+
+    test.map.setStyleJSON(util::read_file("test/fixtures/api/empty.json"));
+    AnnotationID line = test.map.addAnnotation(annotation);
+
+    test::render(test.map, test.view);
+    EXPECT_TRUE(test.hasFeatureAt({ 0, -30 }));
+    EXPECT_FALSE(test.hasFeatureAt({ 0, -10 }));
+
+    // The trim offsets are relative to the length of the extended line.
+    test.map.appendToAnnotation(line, LineString<double> {{ { 40, 0 } }});
+    test::render(test.map, test.view);
+    EXPECT_TRUE(test.hasFeatureAt({ 0, -10 }));
+    EXPECT_FALSE(test.hasFeatureAt({ 0, 20 }));
+}
+
+TEST(Annotations, TrimLineAnnotation) {
+    AnnotationTest test;
+
+    LineAnnotation annotation { LineString<double> {{ { -40, 0 }, { 40, 0 } }} };
+    annotation.width = { 5 };
+    annotation.trimStart = 0.25;
+    annotation.trimEnd = 0.75;
+
+    test.map.setStyleJSON(util::read_file("test/fixtures/api/empty.json"));
+    AnnotationID line = test.map.addAnnotation(annotation);
+
+    test::render(test.map, test.view);
+    EXPECT_FALSE(test.hasFeatureAt({ 0, -30 }));
+    EXPECT_TRUE(test.hasFeatureAt({ 0, 0 }));
+    EXPECT_FALSE(test.hasFeatureAt({ 0, 30 }));
+
+    test.map.setAnnotationTrimOffset(line, 0, 1);
+    test::render(test.map, test.view);
+    EXPECT_TRUE(test.hasFeatureAt({ 0, -30 }));
+    EXPECT_TRUE(test.hasFeatureAt({ 0, 30 }));
+
+    test.map.setAnnotationTrimOffset(line, 0.5, 1);
+    test::render(test.map, test.view);
+    EXPECT_FALSE(test.hasFeatureAt({ 0, -10 }));
+    EXPECT_TRUE(test.hasFeatureAt({ 0, 10 }));
+}
+
+TEST(Annotations, TrimLongLineAnnotation) {
+    AnnotationTest test;
+
+    // Long enough to be tiled in several parts.
+    LineString<double> points;
+    for (int i = 0; i <= 1000; ++i) {
+        points.emplace_back(-40 + 80 * i / 1000.0, 0);
+    }
+    LineAnnotation annotation { points };
+    annotation.width = { 5 };
+
+    test.map.setStyleJSON(util::read_file("test/fixtures/api/empty.json"));
+    AnnotationID line = test.map.addAnnotation(annotation);
+
+    for (double progress : { 0.2, 0.5, 0.8, 0.3 }) {
+        test.map.setAnnotationTrimOffset(line, progress, 1);
+        test::render(test.map, test.view);
+
+        const double split = -40 + 80 * progress;
+        EXPECT_FALSE(test.hasFeatureAt({ 0, split - 5 }));
+        EXPECT_TRUE(test.hasFeatureAt({ 0, split + 5 }));
+        EXPECT_TRUE(test.hasFeatureAt({ 0, 35 }));
+    }
+}
+
 TEST(Annotations, UpdateFillAnnotationGeometry) {
     AnnotationTest test;
 
@@ -1,4 +1,5 @@
 #include <mbgl/map/map.hpp>
+#include <mbgl/map/rendered_features_snapshot.hpp>
 #include <mbgl/gl/headless_backend.hpp>
 #include <mbgl/gl/offscreen_view.hpp>
 #include <mbgl/util/default_thread_pool.hpp>
@@ -9,6 +10,8 @@
 #include <mbgl/util/io.hpp>
 #include <mbgl/util/run_loop.hpp>
 
+#include <thread>
+
 using namespace mbgl;
 
 namespace {
@@ -62,3 +65,53 @@ TEST(Query, QueryRenderedFeaturesFilterLayer) {
     auto features4 = test.map.queryRenderedFeatures(zz, {{ "foobar", "layer3" }});
     EXPECT_EQ(features4.size(), 1u);
 }
+
+TEST(Query, QueryRenderedFeaturesByLayer) {
+    QueryTest test;
+
+    auto zz = test.map.pixelForLatLng({ 0, 0 });
+
+    auto layers1 = test.map.queryRenderedFeaturesByLayer(zz);
+    ASSERT_EQ(layers1.size(), 3u);
+    EXPECT_EQ(layers1[0].first, "layer1");
+    EXPECT_EQ(layers1[1].first, "layer2");
+    EXPECT_EQ(layers1[2].first, "layer3");
+    for (const auto& layer : layers1) {
+        EXPECT_EQ(layer.second.size(), 1u);
+    }
+
+    auto layers2 = test.map.queryRenderedFeaturesByLayer(zz, {{ "layer3", "foobar" }});
+    ASSERT_EQ(layers2.size(), 1u);
+    EXPECT_EQ(layers2[0].first, "layer3");
+    EXPECT_EQ(layers2[0].second.size(), 1u);
+
+    auto layers3 = test.map.queryRenderedFeaturesByLayer(test.map.pixelForLatLng({ 9, 9 }));
+    EXPECT_EQ(layers3.size(), 0u);
+}
+
+TEST(Query, SnapshotRenderedFeatures) {
+    QueryTest test;
+
+    auto zz = test.map.pixelForLatLng({ 0, 0 });
+    auto nn = test.map.pixelForLatLng({ 9, 9 });
+    auto snapshot = test.map.snapshotRenderedFeatures({{ "layer1", "layer3", "foobar" }});
+
+    // The snapshot is not affected by later style changes.
+    test.map.removeLayer("layer1");
+
+    LayerFeatures layers1;
+    LayerFeatures layers2;
+    std::thread thread([&] {
+        layers1 = snapshot->queryRenderedFeaturesByLayer(zz);
+        layers2 = snapshot->queryRenderedFeaturesByLayer(nn);
+    });
+    thread.join();
+
+    ASSERT_EQ(layers1.size(), 2u);
+    EXPECT_EQ(layers1[0].first, "layer1");
+    EXPECT_EQ(layers1[1].first, "layer3");
+    for (const auto& layer : layers1) {
+        EXPECT_EQ(layer.second.size(), 1u);
+    }
+    EXPECT_EQ(layers2.size(), 0u);
+}
@@ -16,6 +16,7 @@
 #include <mbgl/util/async_task.hpp>
 #include <mbgl/style/layers/background_layer.hpp>
 #include <mbgl/util/color.hpp>
+#include <mbgl/util/exception.hpp>
 
 using namespace mbgl;
 using namespace mbgl::style;
@@ -29,6 +30,17 @@ struct MapTest {
     ThreadPool threadPool { 4 };
 };
 
+// Styles loaded from a URL are parsed on a worker thread.
+static void waitForStyle(MapTest& test) {
+    test.backend.setMapChangeCallback([&](MapChange change) {
+        if (change == MapChangeDidFinishLoadingStyle) {
+            test.runLoop.stop();
+        }
+    });
+    test.runLoop.run();
+    test.backend.setMapChangeCallback(nullptr);
+}
+
 TEST(Map, LatLngBehavior) {
     MapTest test;
     Map map(test.backend, test.view.size, 1, test.fileSource, test.threadPool, MapMode::Still);
@@ -170,6 +182,7 @@ TEST(Map, StyleExpired) {
     response.expires = util::now() - 1h;
 
     fileSource.respond(Resource::Style, response);
+    waitForStyle(test);
     EXPECT_EQ(1u, fileSource.requests.size());
 
     map.addLayer(std::make_unique<style::BackgroundLayer>("bg"));
@@ -197,6 +210,7 @@ TEST(Map, StyleExpiredWithAnnotations) {
     response.expires = util::now() - 1h;
 
     fileSource.respond(Resource::Style, response);
+    waitForStyle(test);
     EXPECT_EQ(1u, fileSource.requests.size());
 
     map.addAnnotation(LineAnnotation { LineString<double> {{ { 0, 0 }, { 10, 10 } }} });
@@ -219,11 +233,50 @@ TEST(Map, StyleEarlyMutation) {
     Response response;
     response.data = std::make_shared<std::string>(util::read_file("test/fixtures/api/water.json"));
     fileSource.respond(Resource::Style, response);
+    waitForStyle(test);
 
     EXPECT_EQ(0u, fileSource.requests.size());
     EXPECT_NE(nullptr, map.getLayer("water"));
 }
 
+TEST(Map, StyleCache) {
+    // Switching back to a recently used style should restore it without parsing it again.
+
+    MapTest test;
+    FakeFileSource fileSource;
+
+    Map map(test.backend, test.view.size, 1, fileSource, test.threadPool, MapMode::Still);
+
+    Response water;
+    water.data = std::make_shared<std::string>(util::read_file("test/fixtures/api/water.json"));
+    water.expires = Timestamp::max();
+    map.setStyleURL("mapbox://styles/water");
+    fileSource.respond(Resource::Style, water);
+    waitForStyle(test);
+
+    Response empty;
+    empty.data = std::make_shared<std::string>(util::read_file("test/fixtures/api/empty.json"));
+    empty.expires = Timestamp::max();
+    map.setStyleURL("mapbox://styles/empty");
+    fileSource.respond(Resource::Style, empty);
+    waitForStyle(test);
+    EXPECT_EQ(nullptr, map.getLayer("water"));
+
+    bool loaded = false;
+    test.backend.setMapChangeCallback([&](MapChange change) {
+        if (change == MapChangeDidFinishLoadingStyle) {
+            loaded = true;
+        }
+    });
+    map.setStyleURL("mapbox://styles/water");
+    EXPECT_TRUE(loaded);
+    EXPECT_NE(nullptr, map.getLayer("water"));
+    EXPECT_EQ(*water.data, map.getStyleJSON());
+
+    // The restored style is still revalidated.
+    EXPECT_EQ(1u, fileSource.requests.size());
+}
+
 TEST(Map, StyleLoadedSignal) {
     MapTest test;
     Map map(test.backend, test.view.size, 1, test.fileSource, test.threadPool, MapMode::Still);
@@ -271,6 +324,65 @@ TEST(Map, RemoveLayer) {
     test::checkImage("test/fixtures/map/remove_layer", test::render(map, test.view));
 }
 
+TEST(Map, StyleTransaction) {
+    MapTest test;
+
+    Map map(test.backend, test.view.size, 1, test.fileSource, test.threadPool, MapMode::Still);
+    map.setStyleJSON(util::read_file("test/fixtures/api/empty.json"));
+
+    map.beginStyleTransaction();
+    auto removed = std::make_unique<BackgroundLayer>("removed");
+    map.addLayer(std::move(removed));
+    map.beginStyleTransaction();
+    auto layer = std::make_unique<BackgroundLayer>("background");
+    layer->setBackgroundColor({ { 1, 0, 0, 1 } });
+    map.addLayer(std::move(layer), { "removed" });
+    map.commitStyleTransaction();
+    map.removeLayer("removed");
+    map.commitStyleTransaction();
+
+    test::checkImage("test/fixtures/map/add_layer", test::render(map, test.view));
+}
+
+TEST(Map, StyleTransactionUnbalancedCommit) {
+    MapTest test;
+
+    Map map(test.backend, test.view.size, 1, test.fileSource, test.threadPool, MapMode::Still);
+    map.setStyleJSON(util::read_file("test/fixtures/api/empty.json"));
+
+    EXPECT_THROW(map.commitStyleTransaction(), util::MisuseException);
+
+    // The failed commit doesn't leave a transaction open
+    auto layer = std::make_unique<BackgroundLayer>("background");
+    layer->setBackgroundColor({ { 1, 0, 0, 1 } });
+    map.addLayer(std::move(layer));
+    map.beginStyleTransaction();
+    map.commitStyleTransaction();
+    EXPECT_THROW(map.commitStyleTransaction(), util::MisuseException);
+
+    test::checkImage("test/fixtures/map/add_layer", test::render(map, test.view));
+}
+
+TEST(Map, FrameStatistics) {
+    MapTest test;
+
+    Map map(test.backend, test.view.size, 1, test.fileSource, test.threadPool, MapMode::Still);
+    EXPECT_FALSE(map.getFrameStatistics().fullyRendered);
+
+    map.setStyleJSON(util::read_file("test/fixtures/api/empty.json"));
+
+    auto layer = std::make_unique<BackgroundLayer>("background");
+    layer->setBackgroundColor({ { 1, 0, 0, 1 } });
+    map.addLayer(std::move(layer));
+
+    test::render(map, test.view);
+
+    const FrameStatistics& statistics = map.getFrameStatistics();
+    EXPECT_TRUE(statistics.fullyRendered);
+    EXPECT_GT(statistics.renderTime, Duration::zero());
+    EXPECT_EQ(0u, statistics.uploadedTiles);
+}
+
 TEST(Map, DisabledSources) {
     MapTest test;
 
@@ -0,0 +1,119 @@
+#include <mbgl/test/util.hpp>
+#include <mbgl/test/stub_file_source.hpp>
+
+#include <mbgl/map/map_snapshotter.hpp>
+#include <mbgl/storage/file_source.hpp>
+#include <mbgl/storage/resource.hpp>
+#include <mbgl/storage/response.hpp>
+#include <mbgl/util/default_thread_pool.hpp>
+#include <mbgl/util/exception.hpp>
+#include <mbgl/util/image.hpp>
+#include <mbgl/util/run_loop.hpp>
+
+using namespace mbgl;
+
+namespace {
+
+// Answers every request with the same style on the run loop of the requesting thread. Unlike
+// StubFileSource it can be used from the thread the snapshots are rendered on.
+class StyleFileSource : public FileSource {
+public:
+    StyleFileSource(std::string style_) : style(std::make_shared<const std::string>(std::move(style_))) {}
+
+    std::unique_ptr<AsyncRequest> request(const Resource& resource, Callback callback) override {
+        EXPECT_EQ(Resource::Kind::Style, resource.kind);
+        Response response;
+        response.data = style;
+        return util::RunLoop::Get()->invokeCancellable(callback, response);
+    }
+
+private:
+    const std::shared_ptr<const std::string> style;
+};
+
+} // namespace
+
+TEST(MapSnapshotter, Snapshot) {
+    util::RunLoop runLoop;
+    StubFileSource fileSource;
+    ThreadPool threadPool(4);
+    MapSnapshotter snapshotter(fileSource, threadPool);
+
+    MapSnapshotter::Options options;
+    options.styleJSON = R"STYLE({
+        "version": 8,
+        "sources": {},
+        "layers": [{ "id": "background", "type": "background", "paint": { "background-color": "red" } }]
+    })STYLE";
+    options.size = { 32, 16 };
+    options.pixelRatio = 2;
+
+    auto request = snapshotter.snapshot(options, [&](std::exception_ptr error, PremultipliedImage image) {
+        EXPECT_EQ(nullptr, error);
+        ASSERT_EQ((Size { 64, 32 }), image.size);
+        EXPECT_EQ(255, image.data[0]);
+        EXPECT_EQ(0, image.data[1]);
+        EXPECT_EQ(0, image.data[2]);
+        EXPECT_EQ(255, image.data[3]);
+        runLoop.stop();
+    });
+
+    runLoop.run();
+}
+
+TEST(MapSnapshotter, MissingStyle) {
+    util::RunLoop runLoop;
+    StubFileSource fileSource;
+    ThreadPool threadPool(4);
+    MapSnapshotter snapshotter(fileSource, threadPool);
+
+    MapSnapshotter::Options options;
+    options.size = { 32, 16 };
+
+    auto request = snapshotter.snapshot(options, [&](std::exception_ptr error, PremultipliedImage image) {
+        EXPECT_THROW(std::rethrow_exception(error), util::MisuseException);
+        EXPECT_FALSE(image.valid());
+        runLoop.stop();
+    });
+
+    runLoop.run();
+}
+
+TEST(MapSnapshotter, StyleURLDefaultCamera) {
+    util::RunLoop runLoop;
+    StyleFileSource fileSource(R"STYLE({
+        "version": 8,
+        "center": [10, 10],
+        "zoom": 4,
+        "sources": {
+            "polygon": {
+                "type": "geojson",
+                "data": { "type": "Polygon", "coordinates": [[[5, 5], [15, 5], [15, 15], [5, 15], [5, 5]]] }
+            }
+        },
+        "layers": [
+            { "id": "background", "type": "background", "paint": { "background-color": "red" } },
+            { "id": "polygon", "type": "fill", "source": "polygon", "paint": { "fill-color": "lime" } }
+        ]
+    })STYLE");
+    ThreadPool threadPool(4);
+    MapSnapshotter snapshotter(fileSource, threadPool);
+
+    // Without a camera the snapshot is centered on the polygon by the default camera of the style.
+    MapSnapshotter::Options options;
+    options.styleURL = "mapbox://styles/test";
+    options.size = { 32, 16 };
+
+    auto request = snapshotter.snapshot(options, [&](std::exception_ptr error, PremultipliedImage image) {
+        EXPECT_EQ(nullptr, error);
+        ASSERT_EQ((Size { 32, 16 }), image.size);
+        const uint8_t* center = image.data.get() + (8 * 32 + 16) * 4;
+        EXPECT_EQ(0, center[0]);
+        EXPECT_EQ(255, center[1]);
+        EXPECT_EQ(0, center[2]);
+        EXPECT_EQ(255, center[3]);
+        runLoop.stop();
+    });
+
+    runLoop.run();
+}
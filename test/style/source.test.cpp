@@ -14,14 +14,20 @@
 #include <mbgl/util/default_thread_pool.hpp>
 #include <mbgl/util/logging.hpp>
 
+#include <mbgl/map/map.hpp>
 #include <mbgl/map/transform.hpp>
+#include <mbgl/gl/headless_backend.hpp>
+#include <mbgl/gl/offscreen_view.hpp>
 #include <mbgl/style/style.hpp>
 #include <mbgl/style/update_parameters.hpp>
+#include <mbgl/style/layers/circle_layer.hpp>
 #include <mbgl/style/layers/line_layer.hpp>
 #include <mbgl/annotation/annotation_manager.hpp>
 
 #include <mapbox/geojsonvt.hpp>
 
+#include <future>
+
 using namespace mbgl;
 
 class SourceTest {
@@ -415,3 +421,159 @@ TEST(Source, GeoJSonSourceUrlUpdate) {
 
     test.run();
 }
+
+TEST(Source, GeoJSonSourceAsyncUpdate) {
+    SourceTest test;
+
+    GeoJSONSource source("source");
+    source.baseImpl->setObserver(&test.observer);
+    source.baseImpl->loadDescription(test.fileSource);
+
+    source.setGeoJSONAsync([] () {
+        mapbox::geometry::point<double> point { 1.1, 1.1 };
+        return GeoJSON { FeatureCollection { Feature { point } } };
+    }, [&] (std::exception_ptr error) {
+        EXPECT_FALSE(error);
+        test.end();
+    });
+
+    test.run();
+}
+
+TEST(Source, GeoJSonSourceAsyncUpdateError) {
+    SourceTest test;
+
+    GeoJSONSource source("source");
+    source.baseImpl->setObserver(&test.observer);
+    source.baseImpl->loadDescription(test.fileSource);
+
+    source.setGeoJSONAsync([] () -> GeoJSON {
+        throw std::runtime_error("Failed by the test case");
+    }, [&] (std::exception_ptr error) {
+        EXPECT_EQ("Failed by the test case", util::toString(error));
+        test.end();
+    });
+
+    test.run();
+}
+
+namespace {
+
+class GeoJSONSourceMapTest {
+public:
+    util::RunLoop loop;
+    HeadlessBackend backend { test::sharedDisplay() };
+    OffscreenView view { backend.getContext() };
+    StubFileSource fileSource;
+    ThreadPool threadPool { 4 };
+    Map map { backend, view.size, 1, fileSource, threadPool, MapMode::Still };
+    GeoJSONSource* source;
+
+    GeoJSONSourceMapTest() {
+        map.setStyleJSON(util::read_file("test/fixtures/api/empty.json"));
+
+        auto geoJSONSource = std::make_unique<GeoJSONSource>("source");
+        geoJSONSource->setGeoJSON(GeoJSON { FeatureCollection {} });
+        source = geoJSONSource.get();
+        map.addSource(std::move(geoJSONSource));
+        map.addLayer(std::make_unique<CircleLayer>("circles", "source"));
+    }
+
+    // The ids of the features rendered within a few pixels of the coordinate.
+    std::vector<FeatureIdentifier> renderedIDs(const LatLng& latLng) {
+        test::render(map, view);
+        ScreenCoordinate point = map.pixelForLatLng(latLng);
+        std::vector<FeatureIdentifier> ids;
+        for (const auto& feature : map.queryRenderedFeatures(ScreenBox { { point.x - 2, point.y - 2 }, { point.x + 2, point.y + 2 } })) {
+            EXPECT_TRUE(!!feature.id);
+            ids.push_back(*feature.id);
+        }
+        return ids;
+    }
+};
+
+Feature pointFeature(double longitude, double latitude, FeatureIdentifier id) {
+    Feature feature { mapbox::geometry::point<double> { longitude, latitude } };
+    feature.id = std::move(id);
+    return feature;
+}
+
+} // namespace
+
+TEST(Source, GeoJSonSourceAddFeatures) {
+    GeoJSONSourceMapTest test;
+
+    test.source->addFeatures({ pointFeature(0, 0, uint64_t(1)) });
+    EXPECT_EQ(std::vector<FeatureIdentifier> { uint64_t(1) }, test.renderedIDs({ 0, 0 }));
+
+    // Features without an id are always added
+    test.source->addFeatures({ Feature { mapbox::geometry::point<double> { 20, 20 } },
+                               pointFeature(-20, -20, std::string("b")) });
+    EXPECT_EQ(std::vector<FeatureIdentifier> { uint64_t(1) }, test.renderedIDs({ 0, 0 }));
+    EXPECT_EQ(std::vector<FeatureIdentifier> { std::string("b") }, test.renderedIDs({ -20, -20 }));
+    EXPECT_EQ(1u, test.map.queryRenderedFeatures(test.map.pixelForLatLng({ 20, 20 })).size());
+
+    // Adding a feature with an existing id replaces it
+    test.source->addFeatures({ pointFeature(10, 10, uint64_t(1)) });
+    EXPECT_TRUE(test.renderedIDs({ 0, 0 }).empty());
+    EXPECT_EQ(std::vector<FeatureIdentifier> { uint64_t(1) }, test.renderedIDs({ 10, 10 }));
+}
+
+TEST(Source, GeoJSonSourceUpdateFeatures) {
+    GeoJSONSourceMapTest test;
+
+    test.source->addFeatures({ pointFeature(0, 0, uint64_t(1)), pointFeature(10, 10, std::string("b")) });
+    test.source->updateFeatures({ pointFeature(-10, -10, uint64_t(1)), pointFeature(20, 20, uint64_t(3)) });
+
+    EXPECT_TRUE(test.renderedIDs({ 0, 0 }).empty());
+    EXPECT_EQ(std::vector<FeatureIdentifier> { uint64_t(1) }, test.renderedIDs({ -10, -10 }));
+    EXPECT_EQ(std::vector<FeatureIdentifier> { std::string("b") }, test.renderedIDs({ 10, 10 }));
+
+    // Features that don't exist aren't added
+    EXPECT_TRUE(test.renderedIDs({ 20, 20 }).empty());
+}
+
+TEST(Source, GeoJSonSourceRemoveFeatures) {
+    GeoJSONSourceMapTest test;
+
+    test.source->addFeatures({ pointFeature(0, 0, uint64_t(7)), pointFeature(10, 10, std::string("7")),
+                               pointFeature(-10, -10, int64_t(-7)) });
+
+    // Numeric ids, like the ids parsed from GeoJSON, only match numeric identifiers
+    test.source->removeFeatures({ uint64_t(7) });
+    EXPECT_TRUE(test.renderedIDs({ 0, 0 }).empty());
+    EXPECT_EQ(std::vector<FeatureIdentifier> { std::string("7") }, test.renderedIDs({ 10, 10 }));
+    EXPECT_EQ(std::vector<FeatureIdentifier> { int64_t(-7) }, test.renderedIDs({ -10, -10 }));
+
+    test.source->removeFeatures({ std::string("7"), int64_t(-7), std::string("unknown") });
+    EXPECT_TRUE(test.renderedIDs({ 10, 10 }).empty());
+    EXPECT_TRUE(test.renderedIDs({ -10, -10 }).empty());
+}
+
+TEST(Source, GeoJSonSourceFeatureChangesDuringAsyncUpdate) {
+    GeoJSONSourceMapTest test;
+
+    test.source->addFeatures({ pointFeature(0, 0, uint64_t(1)) });
+
+    // The parsing waits until the features have been changed
+    std::promise<void> changed;
+    std::shared_future<void> changesMade = changed.get_future().share();
+    test.source->setGeoJSONAsync([changesMade] {
+        changesMade.wait();
+        return GeoJSON { FeatureCollection { pointFeature(10, 10, uint64_t(2)), pointFeature(20, 20, uint64_t(3)) } };
+    }, [&] (std::exception_ptr error) {
+        EXPECT_EQ(nullptr, error);
+        test.loop.stop();
+    });
+
+    test.source->addFeatures({ pointFeature(-10, -10, uint64_t(4)) });
+    test.source->removeFeatures({ uint64_t(3) });
+    changed.set_value();
+    test.loop.run();
+
+    // The changes are applied again to the parsed data
+    EXPECT_TRUE(test.renderedIDs({ 0, 0 }).empty());
+    EXPECT_EQ(std::vector<FeatureIdentifier> { uint64_t(2) }, test.renderedIDs({ 10, 10 }));
+    EXPECT_EQ(std::vector<FeatureIdentifier> { uint64_t(4) }, test.renderedIDs({ -10, -10 }));
+    EXPECT_TRUE(test.renderedIDs({ 20, 20 }).empty());
+}